@@ -126,6 +126,14 @@ public interface IBatfish extends IPluginConsumer {
 
   String getTaskId();
 
+  /**
+   * Store a snapshot-wide extended object with the given key, e.g., a report produced while
+   * processing the snapshot
+   *
+   * @throws IOException if there is an error writing the object
+   */
+  void storeSnapshotObject(NetworkSnapshot snapshot, String key, String content) throws IOException;
+
   InitInfoAnswerElement initInfo(NetworkSnapshot snapshot, boolean summary, boolean verboseError);
 
   InitInfoAnswerElement initInfoBgpAdvertisements(
@@ -0,0 +1,302 @@
+package org.batfish.common.topology;
+
+import java.io.Serializable;
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.function.IntFunction;
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+import javax.annotation.ParametersAreNonnullByDefault;
+import org.batfish.datamodel.Ip;
+
+/**
+ * Internal implementation detail of {@link IpOwners}. An immutable relation from each {@link Ip} to
+ * the hostnames owning it and, for each such hostname, the names of the owners on that host (e.g.,
+ * interfaces or VRFs).
+ *
+ * <p>The relation is stored in sorted primitive arrays instead of nested maps: the owned IPs in
+ * ascending order, the hosts owning each IP, and the names owned on each of those hosts. Hostnames
+ * and names are each stored once, and referred to by their index in a sorted table.
+ */
+@ParametersAreNonnullByDefault
+final class IpOwnerIndex implements Serializable {
+
+  /** Returns the index of the given relation from IP to hostname to names. */
+  static @Nonnull IpOwnerIndex of(Map<Ip, Map<String, Set<String>>> owners) {
+    // Sorted, so that the order of the ids is the order of the strings.
+    String[] hostnames =
+        owners.values().stream()
+            .flatMap(byHost -> byHost.keySet().stream())
+            .distinct()
+            .sorted()
+            .toArray(String[]::new);
+    String[] names =
+        owners.values().stream()
+            .flatMap(byHost -> byHost.values().stream())
+            .flatMap(Set::stream)
+            .distinct()
+            .sorted()
+            .toArray(String[]::new);
+    int numHostRows = owners.values().stream().mapToInt(Map::size).sum();
+    int numNameRows =
+        owners.values().stream()
+            .flatMap(byHost -> byHost.values().stream())
+            .mapToInt(Set::size)
+            .sum();
+
+    int[] ips = new int[owners.size()];
+    int[] hostRowStarts = new int[owners.size() + 1];
+    int[] hosts = new int[numHostRows];
+    int[] nameRowStarts = new int[numHostRows + 1];
+    int[] nameIds = new int[numNameRows];
+    int ipRow = 0;
+    int hostRow = 0;
+    int nameRow = 0;
+    for (Map.Entry<Ip, Map<String, Set<String>>> ipEntry :
+        new TreeMap<>(owners).entrySet()) { // sorted by IP
+      ips[ipRow] = key(ipEntry.getKey());
+      hostRowStarts[ipRow] = hostRow;
+      ipRow++;
+      for (Map.Entry<String, Set<String>> hostEntry :
+          new TreeMap<>(ipEntry.getValue()).entrySet()) {
+        hosts[hostRow] = Arrays.binarySearch(hostnames, hostEntry.getKey());
+        nameRowStarts[hostRow] = nameRow;
+        hostRow++;
+        for (String name : hostEntry.getValue().stream().sorted().toArray(String[]::new)) {
+          nameIds[nameRow] = Arrays.binarySearch(names, name);
+          nameRow++;
+        }
+      }
+    }
+    hostRowStarts[ipRow] = hostRow;
+    nameRowStarts[hostRow] = nameRow;
+    return new IpOwnerIndex(
+        ips, hostRowStarts, hosts, nameRowStarts, nameIds, internAll(hostnames), internAll(names));
+  }
+
+  /**
+   * Returns an unmodifiable view of the relation as a map from IP to hostname to names. Lookups are
+   * binary searches, and the maps and sets they return are views of the index, so a lookup copies
+   * nothing.
+   */
+  @Nonnull
+  Map<Ip, Map<String, Set<String>>> asMap() {
+    return new IndexView<>(this::owners);
+  }
+
+  /** Returns an unmodifiable view of the relation as a map from IP to the hostnames owning it. */
+  @Nonnull
+  Map<Ip, Set<String>> hostnamesByIp() {
+    return new IndexView<>(ipRow -> owners(ipRow).keySet());
+  }
+
+  private @Nonnull Map<String, Set<String>> owners(int ipRow) {
+    return new HostsView(_hostRowStarts[ipRow], _hostRowStarts[ipRow + 1]);
+  }
+
+  /** Returns the row of the given IP, or a negative number if it is not owned. */
+  private int ipRow(Ip ip) {
+    return Arrays.binarySearch(_ips, key(ip));
+  }
+
+  /**
+   * Returns the key of the given {@link Ip} in {@link #_ips}. IPs are unsigned, so the sign bit is
+   * flipped to make signed order agree with IP order.
+   */
+  private static int key(Ip ip) {
+    return (int) ip.asLong() ^ Integer.MIN_VALUE;
+  }
+
+  private static @Nonnull Ip ip(int key) {
+    return Ip.create(Integer.toUnsignedLong(key ^ Integer.MIN_VALUE));
+  }
+
+  private static @Nonnull String[] internAll(String[] strings) {
+    for (int i = 0; i < strings.length; i++) {
+      strings[i] = strings[i].intern();
+    }
+    return strings;
+  }
+
+  /** The hosts owning an IP, i.e. host rows {@code [from, to)}, mapped to the names they own. */
+  private final class HostsView extends AbstractMap<String, Set<String>> {
+    private final int _from;
+    private final int _to;
+
+    private HostsView(int from, int to) {
+      _from = from;
+      _to = to;
+    }
+
+    /** Returns the host row of the given hostname, or a negative number if it is not an owner. */
+    private int hostRow(Object hostname) {
+      if (!(hostname instanceof String)) {
+        return -1;
+      }
+      int id = Arrays.binarySearch(_hostnames, hostname);
+      // host ids are ascending within an IP
+      return id < 0 ? -1 : Arrays.binarySearch(_hosts, _from, _to, id);
+    }
+
+    private @Nonnull Set<String> names(int hostRow) {
+      return new NamesView(_nameRowStarts[hostRow], _nameRowStarts[hostRow + 1]);
+    }
+
+    @Override
+    public boolean containsKey(Object key) {
+      return hostRow(key) >= 0;
+    }
+
+    @Override
+    public @Nullable Set<String> get(Object key) {
+      int row = hostRow(key);
+      return row < 0 ? null : names(row);
+    }
+
+    @Override
+    public int size() {
+      return _to - _from;
+    }
+
+    @Override
+    public @Nonnull Set<Entry<String, Set<String>>> entrySet() {
+      return new RowsView<>(
+          _from, _to, row -> new SimpleImmutableEntry<>(_hostnames[_hosts[row]], names(row)));
+    }
+  }
+
+  /** The names owned on a host, i.e. name rows {@code [from, to)}. */
+  private final class NamesView extends RowsView<String> {
+    private NamesView(int from, int to) {
+      super(from, to, row -> _names[_nameIds[row]]);
+    }
+
+    @Override
+    public boolean contains(Object o) {
+      if (!(o instanceof String)) {
+        return false;
+      }
+      int id = Arrays.binarySearch(_names, o);
+      // name ids are ascending within a host row
+      return id >= 0 && Arrays.binarySearch(_nameIds, _from, _to, id) >= 0;
+    }
+  }
+
+  /** A set of the elements computed from rows {@code [from, to)}, in row order. */
+  private static class RowsView<E> extends AbstractSet<E> {
+    protected final int _from;
+    protected final int _to;
+    private final @Nonnull IntFunction<E> _elementAtRow;
+
+    private RowsView(int from, int to, IntFunction<E> elementAtRow) {
+      _from = from;
+      _to = to;
+      _elementAtRow = elementAtRow;
+    }
+
+    @Override
+    public @Nonnull Iterator<E> iterator() {
+      return new Iterator<E>() {
+        private int _row = _from;
+
+        @Override
+        public boolean hasNext() {
+          return _row < _to;
+        }
+
+        @Override
+        public E next() {
+          if (!hasNext()) {
+            throw new NoSuchElementException();
+          }
+          return _elementAtRow.apply(_row++);
+        }
+      };
+    }
+
+    @Override
+    public int size() {
+      return _to - _from;
+    }
+  }
+
+  /** A map from each owned IP to a value computed from its row. */
+  private final class IndexView<V> extends AbstractMap<Ip, V> {
+    private final @Nonnull IntFunction<V> _valueAtRow;
+
+    private IndexView(IntFunction<V> valueAtRow) {
+      _valueAtRow = valueAtRow;
+    }
+
+    @Override
+    public boolean containsKey(Object key) {
+      return key instanceof Ip && ipRow((Ip) key) >= 0;
+    }
+
+    @Override
+    public @Nullable V get(Object key) {
+      if (!(key instanceof Ip)) {
+        return null;
+      }
+      int row = ipRow((Ip) key);
+      return row < 0 ? null : _valueAtRow.apply(row);
+    }
+
+    @Override
+    public int size() {
+      return _ips.length;
+    }
+
+    @Override
+    public @Nonnull Set<Entry<Ip, V>> entrySet() {
+      return new RowsView<>(
+          0, _ips.length, row -> new SimpleImmutableEntry<>(ip(_ips[row]), _valueAtRow.apply(row)));
+    }
+  }
+
+  private IpOwnerIndex(
+      int[] ips,
+      int[] hostRowStarts,
+      int[] hosts,
+      int[] nameRowStarts,
+      int[] nameIds,
+      String[] hostnames,
+      String[] names) {
+    _ips = ips;
+    _hostRowStarts = hostRowStarts;
+    _hosts = hosts;
+    _nameRowStarts = nameRowStarts;
+    _nameIds = nameIds;
+    _hostnames = hostnames;
+    _names = names;
+  }
+
+  /** The keys of the owned IPs, ascending. See {@link #key(Ip)}. */
+  private final @Nonnull int[] _ips;
+
+  /**
+   * The host rows of the IP in row {@code i} are {@code [_hostRowStarts[i], _hostRowStarts[i+1])}.
+   */
+  private final @Nonnull int[] _hostRowStarts;
+
+  /** The id of the hostname in each host row, ascending within an IP. */
+  private final @Nonnull int[] _hosts;
+
+  /** The name rows of host row {@code i} are {@code [_nameRowStarts[i], _nameRowStarts[i+1])}. */
+  private final @Nonnull int[] _nameRowStarts;
+
+  /** The id of the name in each name row, ascending within a host row. */
+  private final @Nonnull int[] _nameIds;
+
+  /** Hostnames by id. */
+  private final @Nonnull String[] _hostnames;
+
+  /** Names by id. */
+  private final @Nonnull String[] _names;
+}
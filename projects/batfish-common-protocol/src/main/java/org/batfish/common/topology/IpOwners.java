@@ -14,6 +14,7 @@ import com.google.common.collect.Table;
 import io.opentracing.Scope;
 import io.opentracing.Span;
 import io.opentracing.util.GlobalTracer;
+import java.io.Serializable;
 import java.util.Collections;
 import java.util.Comparator;
 import java.util.HashMap;
@@ -42,20 +43,25 @@ import org.batfish.datamodel.tracking.HsrpPriorityEvaluator;
 import org.batfish.datamodel.tracking.StaticTrackMethodEvaluator;
 import org.batfish.datamodel.tracking.TrackMethod;
 
-/** A utility class for working with IPs owned by network devices. */
-public final class IpOwners {
+/**
+ * A utility class for working with IPs owned by network devices.
+ *
+ * <p>The owners of each IP are kept in an {@link IpOwnerIndex} rather than in nested maps, and the
+ * maps returned by the getters are views of those indexes.
+ */
+public final class IpOwners implements Serializable {
 
   /**
    * Mapping from a IP to hostname to set of interfaces that own that IP (including inactive
    * interfaces)
    */
-  private final Map<Ip, Map<String, Set<String>>> _allDeviceOwnedIps;
+  private final IpOwnerIndex _allDeviceOwnedIps;
 
   /**
    * Mapping from a IP to hostname to set of interfaces that own that IP (for active interfaces
    * only)
    */
-  private final Map<Ip, Map<String, Set<String>>> _activeDeviceOwnedIps;
+  private final IpOwnerIndex _activeDeviceOwnedIps;
 
   /** Mapping from hostname to interface name to IpSpace owned by that interface */
   private final Map<String, Map<String, IpSpace>> _hostToInterfaceToIpSpace;
@@ -71,28 +77,29 @@ public final class IpOwners {
   private final Map<String, Map<String, IpSpace>> _allInterfaceHostIps;
 
   /** Mapping from an IP to hostname to set of VRFs that own that IP. */
-  private final Map<Ip, Map<String, Set<String>>> _ipVrfOwners;
+  private final IpOwnerIndex _ipVrfOwners;
 
   public IpOwners(Map<String, Configuration> configurations, L3Adjacencies l3Adjacencies) {
     /* Mapping from a hostname to a set of all (including inactive) interfaces that node owns */
     Map<String, Set<Interface>> allInterfaces =
         ImmutableMap.copyOf(computeNodeInterfaces(configurations));
 
+    Map<Ip, Map<String, Set<String>>> activeDeviceOwnedIps;
     {
       _allDeviceOwnedIps =
-          ImmutableMap.copyOf(
+          IpOwnerIndex.of(
               computeIpInterfaceOwners(
                   allInterfaces, false, l3Adjacencies, NetworkConfigurations.of(configurations)));
-      _activeDeviceOwnedIps =
-          ImmutableMap.copyOf(
-              computeIpInterfaceOwners(
-                  allInterfaces, true, l3Adjacencies, NetworkConfigurations.of(configurations)));
+      activeDeviceOwnedIps =
+          computeIpInterfaceOwners(
+              allInterfaces, true, l3Adjacencies, NetworkConfigurations.of(configurations));
+      _activeDeviceOwnedIps = IpOwnerIndex.of(activeDeviceOwnedIps);
     }
 
     {
       Map<Ip, Map<String, Map<String, Set<String>>>> ipIfaceOwners =
-          computeIpIfaceOwners(allInterfaces, _activeDeviceOwnedIps);
-      _ipVrfOwners = computeIpVrfOwners(ipIfaceOwners);
+          computeIpIfaceOwners(allInterfaces, activeDeviceOwnedIps);
+      _ipVrfOwners = IpOwnerIndex.of(computeIpVrfOwners(ipIfaceOwners));
       _hostToVrfToInterfaceToIpSpace = computeIfaceOwnedIpSpaces(ipIfaceOwners);
     }
 
@@ -150,7 +157,8 @@ public final class IpOwners {
    * to (hostname -&gt; interface name -&gt; Ip).
    */
   public Map<String, Map<String, Set<Ip>>> getInterfaceOwners(boolean excludeInactive) {
-    return computeInterfaceOwners(excludeInactive ? _activeDeviceOwnedIps : _allDeviceOwnedIps);
+    return computeInterfaceOwners(
+        (excludeInactive ? _activeDeviceOwnedIps : _allDeviceOwnedIps).asMap());
   }
 
   @VisibleForTesting
@@ -188,24 +196,7 @@ public final class IpOwners {
    * @return A map of {@link Ip}s to a set of hostnames that own this IP
    */
   public Map<Ip, Set<String>> getNodeOwners(boolean excludeInactive) {
-    return computeNodeOwners(excludeInactive ? _activeDeviceOwnedIps : _allDeviceOwnedIps);
-  }
-
-  @VisibleForTesting
-  static Map<Ip, Set<String>> computeNodeOwners(Map<Ip, Map<String, Set<String>>> deviceOwnedIps) {
-    Span span = GlobalTracer.get().buildSpan("TopologyUtil.computeNodeOwners").start();
-    try (Scope scope = GlobalTracer.get().scopeManager().activate(span)) {
-      assert scope != null; // avoid unused warning
-
-      return toImmutableMap(
-          deviceOwnedIps,
-          Entry::getKey, /* Ip */
-          ipInterfaceOwnersEntry ->
-              /* project away interfaces */
-              ipInterfaceOwnersEntry.getValue().keySet());
-    } finally {
-      span.finish();
-    }
+    return (excludeInactive ? _activeDeviceOwnedIps : _allDeviceOwnedIps).hostnamesByIp();
   }
 
   /**
@@ -574,7 +565,7 @@ public final class IpOwners {
    * only)
    */
   public Map<Ip, Map<String, Set<String>>> getActiveDeviceOwnedIps() {
-    return _activeDeviceOwnedIps;
+    return _activeDeviceOwnedIps.asMap();
   }
 
   /**
@@ -582,7 +573,7 @@ public final class IpOwners {
    * interfaces)
    */
   public Map<Ip, Map<String, Set<String>>> getAllDeviceOwnedIps() {
-    return _allDeviceOwnedIps;
+    return _allDeviceOwnedIps.asMap();
   }
 
   /**
@@ -605,7 +596,7 @@ public final class IpOwners {
 
   /** Returns a mapping from IP to hostname to set of VRFs that own that IP. */
   public Map<Ip, Map<String, Set<String>>> getIpVrfOwners() {
-    return _ipVrfOwners;
+    return _ipVrfOwners.asMap();
   }
 
   /**
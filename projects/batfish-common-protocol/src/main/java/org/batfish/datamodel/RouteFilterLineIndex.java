@@ -0,0 +1,123 @@
+package org.batfish.datamodel;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+import javax.annotation.ParametersAreNonnullByDefault;
+
+/**
+ * First-match index over the lines of a {@link RouteFilterList}.
+ *
+ * <p>Each line whose {@link IpWildcard} is a prefix is stored with its length range at the node of
+ * a binary trie for that prefix, and the nodes keep their lines in list order. The first line
+ * matching a route's prefix is then found by walking the trie along the bits of the route's start
+ * address, in time proportional to the address length rather than the number of lines. Lines with
+ * other wildcards are checked linearly.
+ */
+@ParametersAreNonnullByDefault
+final class RouteFilterLineIndex {
+
+  private static final int NO_MATCH = Integer.MAX_VALUE;
+
+  private static final class Node {
+    @Nullable private Node _left;
+    @Nullable private Node _right;
+
+    /* Index, minimum length, and maximum length of each line at this node, in increasing index. */
+    private int[] _lines = new int[0];
+    private int[] _minLengths = new int[0];
+    private int[] _maxLengths = new int[0];
+    private int _size;
+
+    private void add(int line, SubRange lengthRange) {
+      if (_size == _lines.length) {
+        int capacity = Math.max(1, _size * 2);
+        _lines = Arrays.copyOf(_lines, capacity);
+        _minLengths = Arrays.copyOf(_minLengths, capacity);
+        _maxLengths = Arrays.copyOf(_maxLengths, capacity);
+      }
+      _lines[_size] = line;
+      _minLengths[_size] = lengthRange.getStart();
+      _maxLengths[_size] = lengthRange.getEnd();
+      _size++;
+    }
+
+    /** Return the first line at this node before {@code best} matching {@code length}. */
+    private int firstMatch(int length, int best) {
+      for (int i = 0; i < _size && _lines[i] < best; i++) {
+        if (_minLengths[i] <= length && length <= _maxLengths[i]) {
+          return _lines[i];
+        }
+      }
+      return best;
+    }
+  }
+
+  /** Build an index over {@code lines}. Later changes to {@code lines} are not reflected. */
+  static @Nonnull RouteFilterLineIndex of(List<RouteFilterLine> lines) {
+    return new RouteFilterLineIndex(lines);
+  }
+
+  private RouteFilterLineIndex(List<RouteFilterLine> lines) {
+    _lines = lines.toArray(new RouteFilterLine[0]);
+    _root = new Node();
+    List<Integer> unindexed = new ArrayList<>();
+    for (int i = 0; i < _lines.length; i++) {
+      IpWildcard wildcard = _lines[i].getIpWildcard();
+      if (!wildcard.isPrefix()) {
+        unindexed.add(i);
+        continue;
+      }
+      Prefix prefix = wildcard.toPrefix();
+      long bits = prefix.getStartIp().asLong();
+      Node node = _root;
+      for (int depth = 0; depth < prefix.getPrefixLength(); depth++) {
+        if (Ip.getBitAtPosition(bits, depth)) {
+          if (node._right == null) {
+            node._right = new Node();
+          }
+          node = node._right;
+        } else {
+          if (node._left == null) {
+            node._left = new Node();
+          }
+          node = node._left;
+        }
+      }
+      node.add(i, _lines[i].getLengthRange());
+    }
+    _unindexed = unindexed.stream().mapToInt(Integer::intValue).toArray();
+  }
+
+  /** Return the first line matching {@code prefix}, or {@code null} if no line matches. */
+  @Nullable
+  RouteFilterLine firstMatch(Prefix prefix) {
+    long bits = prefix.getStartIp().asLong();
+    int length = prefix.getPrefixLength();
+    int best = _root.firstMatch(length, NO_MATCH);
+    Node node = _root;
+    for (int depth = 0; depth < Prefix.MAX_PREFIX_LENGTH; depth++) {
+      node = Ip.getBitAtPosition(bits, depth) ? node._right : node._left;
+      if (node == null) {
+        break;
+      }
+      best = node.firstMatch(length, best);
+    }
+    for (int i = 0; i < _unindexed.length && _unindexed[i] < best; i++) {
+      RouteFilterLine line = _lines[_unindexed[i]];
+      if (line.getIpWildcard().containsIp(prefix.getStartIp())
+          && line.getLengthRange().includes(length)) {
+        best = _unindexed[i];
+        break;
+      }
+    }
+    return best == NO_MATCH ? null : _lines[best];
+  }
+
+  private final @Nonnull RouteFilterLine[] _lines;
+  private final @Nonnull Node _root;
+  /* Indices of lines whose wildcard is not a prefix, in increasing order. */
+  private final @Nonnull int[] _unindexed;
+}
@@ -7,6 +7,7 @@ import com.fasterxml.jackson.annotation.JsonIgnore;
 import com.fasterxml.jackson.annotation.JsonProperty;
 import com.fasterxml.jackson.core.JsonProcessingException;
 import com.fasterxml.jackson.databind.RuntimeJsonMappingException;
+import com.google.common.annotations.VisibleForTesting;
 import com.google.common.base.Supplier;
 import com.google.common.base.Suppliers;
 import com.google.common.collect.ImmutableList;
@@ -42,6 +43,15 @@ public class RouteFilterList implements Serializable {
 
   private final Supplier<Set<Prefix>> _permittedCache;
 
+  /**
+   * Lists with at least this many lines are matched with a {@link RouteFilterLineIndex} rather than
+   * by walking their lines.
+   */
+  @VisibleForTesting static final int MIN_INDEXED_LINES = 16;
+
+  /** First-match index of {@link #_lines}, built on first use. */
+  @Nullable private transient volatile RouteFilterLineIndex _index;
+
   private static class CacheSupplier implements Supplier<Set<Prefix>>, Serializable {
 
     @Override
@@ -80,6 +90,7 @@ public class RouteFilterList implements Serializable {
 
   public void addLine(RouteFilterLine r) {
     _lines = ImmutableList.<RouteFilterLine>builder().addAll(_lines).add(r).build();
+    _index = null;
   }
 
   @Override
@@ -117,18 +128,31 @@ public class RouteFilterList implements Serializable {
     return _vendorStructureId;
   }
 
-  private boolean evaluatePrefix(Prefix prefix) {
-    boolean accept = false;
+  /** Return the first line of this list matching {@code prefix}, or {@code null} if none does. */
+  private @Nullable RouteFilterLine firstMatchingLine(Prefix prefix) {
+    if (_lines.size() >= MIN_INDEXED_LINES) {
+      RouteFilterLineIndex index = _index;
+      if (index == null) {
+        index = RouteFilterLineIndex.of(_lines);
+        _index = index;
+      }
+      return index.firstMatch(prefix);
+    }
     for (RouteFilterLine line : _lines) {
       if (line.getIpWildcard().containsIp(prefix.getStartIp())) {
         int prefixLength = prefix.getPrefixLength();
         SubRange range = line.getLengthRange();
         if (prefixLength >= range.getStart() && prefixLength <= range.getEnd()) {
-          accept = line.getAction() == LineAction.PERMIT;
-          break;
+          return line;
         }
       }
     }
+    return null;
+  }
+
+  private boolean evaluatePrefix(Prefix prefix) {
+    RouteFilterLine line = firstMatchingLine(prefix);
+    boolean accept = line != null && line.getAction() == LineAction.PERMIT;
     if (accept) {
       _permittedCache.get().add(prefix);
     } else {
@@ -171,6 +195,7 @@ public class RouteFilterList implements Serializable {
   /** Set the list of lines against which to match a route's prefix. */
   public void setLines(@Nonnull List<RouteFilterLine> lines) {
     _lines = lines;
+    _index = null;
   }
 
   /**
@@ -1,9 +1,13 @@
 package org.batfish.datamodel.answers;
 
+import com.fasterxml.jackson.annotation.JsonInclude;
+import com.fasterxml.jackson.annotation.JsonInclude.Include;
 import com.fasterxml.jackson.annotation.JsonProperty;
 import java.util.SortedMap;
 import java.util.TreeMap;
+import javax.annotation.Nullable;
 import org.batfish.common.Warnings;
+import org.batfish.datamodel.table.TableAnswerElement;
 
 /** This answer contains summary information and warning about dataplane computation. */
 public class IncrementalBdpAnswerElement extends DataPlaneAnswerElement {
@@ -13,12 +17,16 @@ public class IncrementalBdpAnswerElement extends DataPlaneAnswerElement {
       "bgpBestPathRibRoutesByIteration";
   private static final String PROP_BGP_MULTIPATH_RIB_ROUTES_BY_ITERATION =
       "bgpMultipathRibRoutesByIteration";
+  private static final String PROP_CONVERGENCE_PROFILE_PHASES = "convergenceProfilePhases";
+  private static final String PROP_CONVERGENCE_PROFILE_ROUTERS = "convergenceProfileRouters";
   private static final String PROP_DEPENDENT_ROUTES_ITERATIONS = "dependentRoutesIterations";
   private static final String PROP_OSPF_INTERNAL_ITERATIONS = "ospfInternalIterations";
   private static final String PROP_WARNINGS = "warnings";
 
   private SortedMap<Integer, Integer> _bgpBestPathRibRoutesByIteration;
   private SortedMap<Integer, Integer> _bgpMultipathRibRoutesByIteration;
+  @Nullable private TableAnswerElement _convergenceProfilePhases;
+  @Nullable private TableAnswerElement _convergenceProfileRouters;
   private int _dependentRoutesIterations;
   private SortedMap<Integer, Integer> _mainRibRoutesByIteration;
   private int _ospfInternalIterations;
@@ -42,6 +50,22 @@ public class IncrementalBdpAnswerElement extends DataPlaneAnswerElement {
     return _bgpMultipathRibRoutesByIteration;
   }
 
+  /** The slowest dataplane iteration phases, if the dataplane computation was profiled. */
+  @JsonProperty(PROP_CONVERGENCE_PROFILE_PHASES)
+  @JsonInclude(Include.NON_NULL)
+  @Nullable
+  public TableAnswerElement getConvergenceProfilePhases() {
+    return _convergenceProfilePhases;
+  }
+
+  /** The slowest virtual routers, if the dataplane computation was profiled. */
+  @JsonProperty(PROP_CONVERGENCE_PROFILE_ROUTERS)
+  @JsonInclude(Include.NON_NULL)
+  @Nullable
+  public TableAnswerElement getConvergenceProfileRouters() {
+    return _convergenceProfileRouters;
+  }
+
   @JsonProperty(PROP_DEPENDENT_ROUTES_ITERATIONS)
   public int getDependentRoutesIterations() {
     return _dependentRoutesIterations;
@@ -80,6 +104,16 @@ public class IncrementalBdpAnswerElement extends DataPlaneAnswerElement {
     _bgpMultipathRibRoutesByIteration = bgpMultipathRibRoutesByIteration;
   }
 
+  @JsonProperty(PROP_CONVERGENCE_PROFILE_PHASES)
+  public void setConvergenceProfilePhases(@Nullable TableAnswerElement convergenceProfilePhases) {
+    _convergenceProfilePhases = convergenceProfilePhases;
+  }
+
+  @JsonProperty(PROP_CONVERGENCE_PROFILE_ROUTERS)
+  public void setConvergenceProfileRouters(@Nullable TableAnswerElement convergenceProfileRouters) {
+    _convergenceProfileRouters = convergenceProfileRouters;
+  }
+
   @JsonProperty(PROP_DEPENDENT_ROUTES_ITERATIONS)
   public void setDependentRoutesIterations(int dependentRoutesIterations) {
     _dependentRoutesIterations = dependentRoutesIterations;
@@ -92,6 +92,7 @@ public class RoutingPolicy implements Serializable {
   @Nonnull private final String _name;
   @Nullable private Configuration _owner;
   @Nullable private transient Set<String> _sources;
+  @Nullable private transient RoutingPolicyCompiler.Evaluator _compiled;
   @Nonnull private List<Statement> _statements;
 
   @JsonCreator
@@ -133,6 +134,17 @@ public class RoutingPolicy implements Serializable {
         .build();
   }
 
+  /**
+   * Compile this policy for faster evaluation by {@link #process} and {@link #processBgpRoutes}.
+   * Named structures referenced by this policy are resolved against its owner now, so this should
+   * only be called once the owner is fully converted and post-processed. Any previous compilation
+   * is replaced.
+   */
+  public void compile() {
+    checkState(_owner != null, "Cannot compile routing policy without a Configuration");
+    _compiled = RoutingPolicyCompiler.compile(this);
+  }
+
   public Set<String> computeSources(
       Set<String> parentSources, Map<String, RoutingPolicy> routingPolicies, Warnings w) {
     if (_sources == null) {
@@ -285,6 +297,57 @@ public class RoutingPolicy implements Serializable {
         null);
   }
 
+  /**
+   * Process each of {@code inputRoutes} through this BGP routing policy in a single shared context.
+   * Equivalent to calling {@link #processBgpRoute(AbstractRouteDecorator, BgpRoute.Builder,
+   * BgpSessionProperties, Direction, BiFunction)} on each route with the corresponding output
+   * builder, but the structures the policy looks up in its owner (route filter lists, community
+   * sets, called policies, etc.) are gathered once for the whole batch rather than once per route.
+   *
+   * @param inputRoutes Input routes to process
+   * @param outputRoutes Builders for output BGP routes, one per input route at the same index; may
+   *     be modified by policy
+   * @param sessionProperties {@link BgpSessionProperties} representing the session for the local
+   *     node. In other words, local properties should be TAIL and remote properties should be HEAD.
+   * @param direction {@link Direction} in which routes are being sent
+   * @param ribIntersectsPrefixSpaceEvaluator function that evaluates whether there is any
+   *     intersection between the prefixes of the routes in the RIB represented by a provided {@link
+   *     RibExpr} and a provided {@link PrefixSpace}
+   * @return whether the policy accepts each route, indexed like {@code inputRoutes}
+   */
+  public @Nonnull boolean[] processBgpRoutes(
+      List<? extends AbstractRouteDecorator> inputRoutes,
+      List<? extends BgpRoute.Builder<?, ?>> outputRoutes,
+      @Nullable BgpSessionProperties sessionProperties,
+      Direction direction,
+      @Nullable BiFunction<RibExpr, PrefixSpace, Boolean> ribIntersectsPrefixSpaceEvaluator) {
+    checkState(_owner != null, "Cannot evaluate routing policy without a Configuration");
+    checkArgument(
+        inputRoutes.size() == outputRoutes.size(),
+        "Got %s input routes but %s output route builders",
+        inputRoutes.size(),
+        outputRoutes.size());
+    boolean[] accepted = new boolean[inputRoutes.size()];
+    if (inputRoutes.isEmpty()) {
+      return accepted;
+    }
+    // Only the routes vary across the batch; everything copied out of the owner is shared.
+    Environment.Builder environmentBuilder =
+        Environment.builder(_owner)
+            .setBgpSessionProperties(sessionProperties)
+            .setDirection(direction)
+            .setRibIntersectsPrefixSpaceEvaluator(ribIntersectsPrefixSpaceEvaluator);
+    for (int i = 0; i < accepted.length; i++) {
+      accepted[i] =
+          accepts(
+              environmentBuilder
+                  .setOriginalRoute(inputRoutes.get(i))
+                  .setOutputRoute(outputRoutes.get(i))
+                  .build());
+    }
+    return accepted;
+  }
+
   private boolean process(
       AbstractRouteDecorator inputRoute,
       AbstractRouteBuilder<?, ?> outputRoute,
@@ -304,13 +367,26 @@ public class RoutingPolicy implements Serializable {
             .setRibIntersectsPrefixSpaceEvaluator(ribIntersectsPrefixSpaceEvaluator)
             .setTracer(tracer)
             .build();
-    Result result = call(environment);
+    return accepts(environment);
+  }
+
+  /**
+   * Run this policy in {@code environment}, which must be built from the owner, and return whether
+   * it accepts the route. Uses the compiled policy if available, unless tracing.
+   */
+  private boolean accepts(Environment environment) {
+    RoutingPolicyCompiler.Evaluator compiled = _compiled;
+    Result result =
+        compiled != null && environment.getTracer() == null
+            ? compiled.evaluate(environment)
+            : call(environment);
     return result.getBooleanValue() && !(Boolean.TRUE.equals(environment.getSuppressed()));
   }
 
   @JsonProperty(PROP_STATEMENTS)
   public void setStatements(@Nullable List<Statement> statements) {
     _statements = firstNonNull(statements, ImmutableList.of());
+    _compiled = null;
   }
 
   public RoutingPolicy simplify() {
@@ -0,0 +1,762 @@
+package org.batfish.datamodel.routing_policy;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+import javax.annotation.ParametersAreNonnullByDefault;
+import org.batfish.common.BatfishException;
+import org.batfish.datamodel.Configuration;
+import org.batfish.datamodel.RouteFilterList;
+import org.batfish.datamodel.routing_policy.as_path.MatchAsPath;
+import org.batfish.datamodel.routing_policy.communities.CommunitySetExpr;
+import org.batfish.datamodel.routing_policy.communities.CommunitySetExprReference;
+import org.batfish.datamodel.routing_policy.communities.CommunitySetMatchExpr;
+import org.batfish.datamodel.routing_policy.communities.CommunitySetMatchExprReference;
+import org.batfish.datamodel.routing_policy.communities.MatchCommunities;
+import org.batfish.datamodel.routing_policy.communities.SetCommunities;
+import org.batfish.datamodel.routing_policy.expr.BooleanExpr;
+import org.batfish.datamodel.routing_policy.expr.BooleanExprVisitor;
+import org.batfish.datamodel.routing_policy.expr.BooleanExprs.StaticBooleanExpr;
+import org.batfish.datamodel.routing_policy.expr.CallExpr;
+import org.batfish.datamodel.routing_policy.expr.Conjunction;
+import org.batfish.datamodel.routing_policy.expr.ConjunctionChain;
+import org.batfish.datamodel.routing_policy.expr.Disjunction;
+import org.batfish.datamodel.routing_policy.expr.FirstMatchChain;
+import org.batfish.datamodel.routing_policy.expr.HasRoute;
+import org.batfish.datamodel.routing_policy.expr.HasRoute6;
+import org.batfish.datamodel.routing_policy.expr.LegacyMatchAsPath;
+import org.batfish.datamodel.routing_policy.expr.MatchBgpSessionType;
+import org.batfish.datamodel.routing_policy.expr.MatchColor;
+import org.batfish.datamodel.routing_policy.expr.MatchInterface;
+import org.batfish.datamodel.routing_policy.expr.MatchIp6AccessList;
+import org.batfish.datamodel.routing_policy.expr.MatchIpv4;
+import org.batfish.datamodel.routing_policy.expr.MatchIpv6;
+import org.batfish.datamodel.routing_policy.expr.MatchLocalPreference;
+import org.batfish.datamodel.routing_policy.expr.MatchLocalRouteSourcePrefixLength;
+import org.batfish.datamodel.routing_policy.expr.MatchMetric;
+import org.batfish.datamodel.routing_policy.expr.MatchPrefix6Set;
+import org.batfish.datamodel.routing_policy.expr.MatchPrefixSet;
+import org.batfish.datamodel.routing_policy.expr.MatchProcessAsn;
+import org.batfish.datamodel.routing_policy.expr.MatchProtocol;
+import org.batfish.datamodel.routing_policy.expr.MatchRouteType;
+import org.batfish.datamodel.routing_policy.expr.MatchSourceProtocol;
+import org.batfish.datamodel.routing_policy.expr.MatchSourceVrf;
+import org.batfish.datamodel.routing_policy.expr.MatchTag;
+import org.batfish.datamodel.routing_policy.expr.NamedPrefixSet;
+import org.batfish.datamodel.routing_policy.expr.Not;
+import org.batfish.datamodel.routing_policy.expr.PrefixExpr;
+import org.batfish.datamodel.routing_policy.expr.PrefixSetExpr;
+import org.batfish.datamodel.routing_policy.expr.RibIntersectsPrefixSpace;
+import org.batfish.datamodel.routing_policy.expr.RouteIsClassful;
+import org.batfish.datamodel.routing_policy.expr.WithEnvironmentExpr;
+import org.batfish.datamodel.routing_policy.statement.BufferedStatement;
+import org.batfish.datamodel.routing_policy.statement.CallStatement;
+import org.batfish.datamodel.routing_policy.statement.Comment;
+import org.batfish.datamodel.routing_policy.statement.ExcludeAsPath;
+import org.batfish.datamodel.routing_policy.statement.If;
+import org.batfish.datamodel.routing_policy.statement.PrependAsPath;
+import org.batfish.datamodel.routing_policy.statement.SetAdministrativeCost;
+import org.batfish.datamodel.routing_policy.statement.SetDefaultPolicy;
+import org.batfish.datamodel.routing_policy.statement.SetDefaultTag;
+import org.batfish.datamodel.routing_policy.statement.SetEigrpMetric;
+import org.batfish.datamodel.routing_policy.statement.SetIsisLevel;
+import org.batfish.datamodel.routing_policy.statement.SetIsisMetricType;
+import org.batfish.datamodel.routing_policy.statement.SetLocalPreference;
+import org.batfish.datamodel.routing_policy.statement.SetMetric;
+import org.batfish.datamodel.routing_policy.statement.SetNextHop;
+import org.batfish.datamodel.routing_policy.statement.SetOrigin;
+import org.batfish.datamodel.routing_policy.statement.SetOspfMetricType;
+import org.batfish.datamodel.routing_policy.statement.SetTag;
+import org.batfish.datamodel.routing_policy.statement.SetVarMetricType;
+import org.batfish.datamodel.routing_policy.statement.SetWeight;
+import org.batfish.datamodel.routing_policy.statement.Statement;
+import org.batfish.datamodel.routing_policy.statement.StatementVisitor;
+import org.batfish.datamodel.routing_policy.statement.Statements.StaticStatement;
+import org.batfish.datamodel.routing_policy.statement.TraceableStatement;
+
+/**
+ * Compiles a {@link RoutingPolicy} into a tree of closures that evaluate it without dispatching on
+ * its statements and expressions for every route.
+ *
+ * <p>Named structures referenced by the policy (route filter lists, community set expressions and
+ * called policies) are resolved once against the owner {@link Configuration}, and called policies
+ * are inlined. Constant guards, conjuncts, and disjuncts are folded, and statements after a
+ * constant exit or return are dropped. Statements and expressions without a specialized compilation
+ * are evaluated by the interpreter.
+ *
+ * <p>The compiled policy agrees with {@link RoutingPolicy#call(Environment)} in any {@link
+ * Environment} built from the owner without a {@link org.batfish.datamodel.trace.Tracer}, as long
+ * as the owner's structures are not modified after compilation.
+ */
+@ParametersAreNonnullByDefault
+final class RoutingPolicyCompiler {
+
+  /** A compiled statement, expression, or policy. */
+  @FunctionalInterface
+  interface Evaluator {
+    @Nonnull
+    Result evaluate(Environment environment);
+  }
+
+  /** An {@link Evaluator} with no side effects whose result does not depend on the environment. */
+  private static final class Constant implements Evaluator {
+    private final @Nonnull Result _result;
+
+    private Constant(Result result) {
+      _result = result;
+    }
+
+    @Override
+    public @Nonnull Result evaluate(Environment environment) {
+      return _result;
+    }
+  }
+
+  private static final Result FALL_THROUGH = Result.builder().setFallThrough(true).build();
+
+  /** Compile {@code policy}, resolving named structures against its owner. */
+  static @Nonnull Evaluator compile(RoutingPolicy policy) {
+    Configuration owner = policy.getOwner();
+    assert owner != null;
+    RoutingPolicyCompiler compiler = new RoutingPolicyCompiler(owner);
+    compiler._compiling.add(policy.getName());
+    Evaluator compiled = compiler.compilePolicy(policy);
+    compiler._compiling.remove(policy.getName());
+    return compiled;
+  }
+
+  private RoutingPolicyCompiler(Configuration owner) {
+    _owner = owner;
+    _compiledPolicies = new HashMap<>();
+    _compiling = new HashSet<>();
+    _statementCompiler = new StatementCompiler();
+    _exprCompiler = new ExprCompiler();
+  }
+
+  /** Compile the equivalent of {@link RoutingPolicy#call(Environment)} for {@code policy}. */
+  private @Nonnull Evaluator compilePolicy(RoutingPolicy policy) {
+    Evaluator[] statements = compileStatements(policy.getStatements());
+    return environment -> {
+      for (Evaluator statement : statements) {
+        Result result = statement.evaluate(environment);
+        if (result.getExit()) {
+          return result;
+        }
+        if (result.getReturn()) {
+          return result.toBuilder().setReturn(false).build();
+        }
+      }
+      return Result.builder()
+          .setFallThrough(true)
+          .setBooleanValue(environment.getDefaultAction())
+          .build();
+    };
+  }
+
+  /**
+   * Return the compiled body of the owner's policy named {@code name}, or {@code null} if there is
+   * no such policy or it is (transitively) calling itself, in which case the call is interpreted.
+   */
+  private @Nullable Evaluator compileCalledPolicy(String name) {
+    Evaluator compiled = _compiledPolicies.get(name);
+    if (compiled != null) {
+      return compiled;
+    }
+    RoutingPolicy policy = _owner.getRoutingPolicies().get(name);
+    if (policy == null || !_compiling.add(name)) {
+      return null;
+    }
+    compiled = compilePolicy(policy);
+    _compiling.remove(name);
+    _compiledPolicies.put(name, compiled);
+    return compiled;
+  }
+
+  /**
+   * Compile a sequence of statements, which stops at the first statement that exits or returns.
+   * Constant statements that neither exit nor return are dropped, and statements after one that
+   * always exits or returns are unreachable.
+   */
+  private @Nonnull Evaluator[] compileStatements(List<Statement> statements) {
+    List<Evaluator> compiled = new ArrayList<>(statements.size());
+    for (Statement statement : statements) {
+      Evaluator evaluator = statement.accept(_statementCompiler, null);
+      if (evaluator instanceof Constant) {
+        Result result = ((Constant) evaluator)._result;
+        if (result.getExit() || result.getReturn()) {
+          compiled.add(evaluator);
+          break;
+        }
+        continue;
+      }
+      compiled.add(evaluator);
+    }
+    return compiled.toArray(new Evaluator[0]);
+  }
+
+  /**
+   * Compile a block of statements that returns the result of the first statement that exits or
+   * returns, and falls through otherwise, as in the branches of an {@link If}.
+   */
+  private @Nonnull Evaluator compileBlock(List<Statement> statements) {
+    Evaluator[] compiled = compileStatements(statements);
+    if (compiled.length == 0) {
+      return new Constant(FALL_THROUGH);
+    }
+    if (compiled.length == 1 && compiled[0] instanceof Constant) {
+      // compileStatements only keeps a constant that exits or returns
+      return compiled[0];
+    }
+    return environment -> {
+      for (Evaluator statement : compiled) {
+        Result result = statement.evaluate(environment);
+        if (result.getExit() || result.getReturn()) {
+          return result;
+        }
+      }
+      return FALL_THROUGH;
+    };
+  }
+
+  private @Nonnull Evaluator compileExpr(BooleanExpr expr) {
+    return expr.accept(_exprCompiler, null);
+  }
+
+  private final class StatementCompiler implements StatementVisitor<Evaluator, Void> {
+
+    @Override
+    public Evaluator visitBufferedStatement(BufferedStatement bufferedStatement, Void arg) {
+      Evaluator statement = bufferedStatement.getStatement().accept(this, null);
+      return environment -> {
+        environment.setBuffered(true);
+        return statement.evaluate(environment);
+      };
+    }
+
+    @Override
+    public Evaluator visitCallStatement(CallStatement callStatement, Void arg) {
+      Evaluator calledPolicy = compileCalledPolicy(callStatement.getCalledPolicyName());
+      if (calledPolicy == null) {
+        return callStatement::execute;
+      }
+      return environment -> {
+        boolean oldCallStatementContext = environment.getCallStatementContext();
+        environment.setCallStatementContext(true);
+        Result policyResult = calledPolicy.evaluate(environment);
+        environment.setCallStatementContext(oldCallStatementContext);
+        return policyResult.toBuilder().setReturn(false).build();
+      };
+    }
+
+    @Override
+    public Evaluator visitComment(Comment comment, Void arg) {
+      return new Constant(new Result());
+    }
+
+    @Override
+    public Evaluator visitIf(If if1, Void arg) {
+      Evaluator guard = compileExpr(if1.getGuard());
+      if (guard instanceof Constant) {
+        Result guardResult = ((Constant) guard)._result;
+        if (guardResult.getExit()) {
+          return guard;
+        }
+        return compileBlock(
+            guardResult.getBooleanValue() ? if1.getTrueStatements() : if1.getFalseStatements());
+      }
+      Evaluator trueBlock = compileBlock(if1.getTrueStatements());
+      Evaluator falseBlock = compileBlock(if1.getFalseStatements());
+      return environment -> {
+        Result guardResult = guard.evaluate(environment);
+        if (guardResult.getExit()) {
+          return guardResult;
+        }
+        return (guardResult.getBooleanValue() ? trueBlock : falseBlock).evaluate(environment);
+      };
+    }
+
+    @Override
+    public Evaluator visitPrependAsPath(PrependAsPath prependAsPath, Void arg) {
+      return prependAsPath::execute;
+    }
+
+    @Override
+    public Evaluator visitExcludeAsPath(ExcludeAsPath excludeAsPath, Void arg) {
+      return excludeAsPath::execute;
+    }
+
+    @Override
+    public Evaluator visitSetAdministrativeCost(
+        SetAdministrativeCost setAdministrativeCost, Void arg) {
+      return setAdministrativeCost::execute;
+    }
+
+    @Override
+    public Evaluator visitSetCommunities(SetCommunities setCommunities, Void arg) {
+      return setCommunities::execute;
+    }
+
+    @Override
+    public Evaluator visitSetDefaultPolicy(SetDefaultPolicy setDefaultPolicy, Void arg) {
+      return setDefaultPolicy::execute;
+    }
+
+    @Override
+    public Evaluator visitSetEigrpMetric(SetEigrpMetric setEigrpMetric, Void arg) {
+      return setEigrpMetric::execute;
+    }
+
+    @Override
+    public Evaluator visitSetIsisLevel(SetIsisLevel setIsisLevel, Void arg) {
+      return setIsisLevel::execute;
+    }
+
+    @Override
+    public Evaluator visitSetIsisMetricType(SetIsisMetricType setIsisMetricType, Void arg) {
+      return setIsisMetricType::execute;
+    }
+
+    @Override
+    public Evaluator visitSetLocalPreference(SetLocalPreference setLocalPreference, Void arg) {
+      return setLocalPreference::execute;
+    }
+
+    @Override
+    public Evaluator visitSetMetric(SetMetric setMetric, Void arg) {
+      return setMetric::execute;
+    }
+
+    @Override
+    public Evaluator visitSetNextHop(SetNextHop setNextHop, Void arg) {
+      return setNextHop::execute;
+    }
+
+    @Override
+    public Evaluator visitSetOrigin(SetOrigin setOrigin, Void arg) {
+      return setOrigin::execute;
+    }
+
+    @Override
+    public Evaluator visitSetOspfMetricType(SetOspfMetricType setOspfMetricType, Void arg) {
+      return setOspfMetricType::execute;
+    }
+
+    @Override
+    public Evaluator visitSetTag(SetTag setTag, Void arg) {
+      return setTag::execute;
+    }
+
+    @Override
+    public Evaluator visitSetDefaultTag(SetDefaultTag setDefaultTag, Void arg) {
+      return setDefaultTag::execute;
+    }
+
+    @Override
+    public Evaluator visitSetVarMetricType(SetVarMetricType setVarMetricType, Void arg) {
+      return setVarMetricType::execute;
+    }
+
+    @Override
+    public Evaluator visitSetWeight(SetWeight setWeight, Void arg) {
+      return setWeight::execute;
+    }
+
+    @Override
+    public Evaluator visitStaticStatement(StaticStatement staticStatement, Void arg) {
+      switch (staticStatement.getType()) {
+        case ExitAccept:
+          return new Constant(Result.builder().setExit(true).setBooleanValue(true).build());
+        case ExitReject:
+          return new Constant(Result.builder().setExit(true).setBooleanValue(false).build());
+        case FallThrough:
+          return new Constant(Result.builder().setReturn(true).setFallThrough(true).build());
+        case Return:
+          return new Constant(Result.builder().setReturn(true).build());
+        case ReturnFalse:
+          return new Constant(Result.builder().setReturn(true).setBooleanValue(false).build());
+        case ReturnTrue:
+          return new Constant(Result.builder().setReturn(true).setBooleanValue(true).build());
+        default:
+          return staticStatement::execute;
+      }
+    }
+
+    @Override
+    public Evaluator visitTraceableStatement(TraceableStatement traceableStatement, Void arg) {
+      // compiled policies are only evaluated without a tracer
+      return compileBlock(traceableStatement.getInnerStatements());
+    }
+  }
+
+  private final class ExprCompiler implements BooleanExprVisitor<Evaluator, Void> {
+
+    @Override
+    public Evaluator visitBooleanExprs(StaticBooleanExpr staticBooleanExpr, Void arg) {
+      switch (staticBooleanExpr.getType()) {
+        case False:
+          return new Constant(new Result(false));
+        case True:
+          return new Constant(new Result(true));
+        default:
+          return staticBooleanExpr::evaluate;
+      }
+    }
+
+    @Override
+    public Evaluator visitCallExpr(CallExpr callExpr, Void arg) {
+      Evaluator calledPolicy = compileCalledPolicy(callExpr.getCalledPolicyName());
+      if (calledPolicy == null) {
+        return callExpr::evaluate;
+      }
+      return environment -> {
+        boolean oldCallExprContext = environment.getCallExprContext();
+        boolean oldLocalDefaultAction = environment.getLocalDefaultAction();
+        environment.setCallExprContext(true);
+        Result policyResult = calledPolicy.evaluate(environment);
+        environment.setCallExprContext(oldCallExprContext);
+        environment.setLocalDefaultAction(oldLocalDefaultAction);
+        return policyResult.toBuilder().setReturn(false).build();
+      };
+    }
+
+    @Override
+    public Evaluator visitConjunction(Conjunction conjunction, Void arg) {
+      List<Evaluator> conjuncts = new ArrayList<>();
+      for (BooleanExpr conjunct : conjunction.getConjuncts()) {
+        Evaluator compiled = compileExpr(conjunct);
+        if (compiled instanceof Constant) {
+          Result result = ((Constant) compiled)._result;
+          if (!result.getExit() && result.getBooleanValue()) {
+            // a true conjunct does not affect the result
+            continue;
+          }
+          // evaluation always stops here
+          conjuncts.add(compiled);
+          break;
+        }
+        conjuncts.add(compiled);
+      }
+      if (conjuncts.isEmpty()) {
+        return new Constant(new Result(true));
+      }
+      if (conjuncts.size() == 1 && conjuncts.get(0) instanceof Constant) {
+        Result result = ((Constant) conjuncts.get(0))._result;
+        return new Constant(
+            result.getExit() ? result : result.toBuilder().setReturn(false).build());
+      }
+      Evaluator[] compiledConjuncts = conjuncts.toArray(new Evaluator[0]);
+      return environment -> {
+        for (Evaluator conjunct : compiledConjuncts) {
+          Result conjunctResult = conjunct.evaluate(environment);
+          if (conjunctResult.getExit()) {
+            return conjunctResult;
+          } else if (!conjunctResult.getBooleanValue()) {
+            return conjunctResult.toBuilder().setReturn(false).build();
+          }
+        }
+        return new Result(true);
+      };
+    }
+
+    @Override
+    public Evaluator visitConjunctionChain(ConjunctionChain conjunctionChain, Void arg) {
+      Evaluator[] subroutines = compileSubroutines(conjunctionChain.getSubroutines());
+      return environment -> {
+        Result subroutineResult = FALL_THROUGH;
+        for (Evaluator subroutine : subroutines) {
+          subroutineResult = subroutine.evaluate(environment);
+          if (subroutineResult.getExit()) {
+            return subroutineResult;
+          } else if (!subroutineResult.getFallThrough() && !subroutineResult.getBooleanValue()) {
+            return subroutineResult.toBuilder().setReturn(false).build();
+          }
+        }
+        if (!subroutineResult.getFallThrough()) {
+          return subroutineResult.toBuilder().setReturn(false).build();
+        }
+        return callDefaultPolicy(environment);
+      };
+    }
+
+    @Override
+    public Evaluator visitDisjunction(Disjunction disjunction, Void arg) {
+      List<Evaluator> disjuncts = new ArrayList<>();
+      for (BooleanExpr disjunct : disjunction.getDisjuncts()) {
+        Evaluator compiled = compileExpr(disjunct);
+        if (compiled instanceof Constant) {
+          Result result = ((Constant) compiled)._result;
+          if (!result.getExit() && !result.getBooleanValue()) {
+            // a false disjunct does not affect the result
+            continue;
+          }
+          // evaluation always stops here
+          disjuncts.add(compiled);
+          break;
+        }
+        disjuncts.add(compiled);
+      }
+      if (disjuncts.isEmpty()) {
+        return new Constant(new Result(false));
+      }
+      if (disjuncts.size() == 1 && disjuncts.get(0) instanceof Constant) {
+        Result result = ((Constant) disjuncts.get(0))._result;
+        return new Constant(
+            result.getExit() ? result : result.toBuilder().setReturn(false).build());
+      }
+      Evaluator[] compiledDisjuncts = disjuncts.toArray(new Evaluator[0]);
+      return environment -> {
+        for (Evaluator disjunct : compiledDisjuncts) {
+          Result disjunctResult = disjunct.evaluate(environment);
+          if (disjunctResult.getExit()) {
+            return disjunctResult;
+          } else if (disjunctResult.getBooleanValue()) {
+            return disjunctResult.toBuilder().setReturn(false).build();
+          }
+        }
+        return new Result(false);
+      };
+    }
+
+    @Override
+    public Evaluator visitFirstMatchChain(FirstMatchChain firstMatchChain, Void arg) {
+      Evaluator[] subroutines = compileSubroutines(firstMatchChain.getSubroutines());
+      return environment -> {
+        for (Evaluator subroutine : subroutines) {
+          Result subroutineResult = subroutine.evaluate(environment);
+          if (subroutineResult.getExit()) {
+            return subroutineResult;
+          } else if (!subroutineResult.getFallThrough()) {
+            return subroutineResult.toBuilder().setReturn(false).build();
+          }
+        }
+        return callDefaultPolicy(environment);
+      };
+    }
+
+    @Override
+    public Evaluator visitRibIntersectsPrefixSpace(
+        RibIntersectsPrefixSpace ribIntersectsPrefixSpace, Void arg) {
+      return ribIntersectsPrefixSpace::evaluate;
+    }
+
+    @Override
+    public Evaluator visitHasRoute(HasRoute hasRoute, Void arg) {
+      return hasRoute::evaluate;
+    }
+
+    @Override
+    public Evaluator visitHasRoute6(HasRoute6 hasRoute6, Void arg) {
+      return hasRoute6::evaluate;
+    }
+
+    @Override
+    public Evaluator visitMatchAsPath(MatchAsPath matchAsPath, Void arg) {
+      return matchAsPath::evaluate;
+    }
+
+    @Override
+    public Evaluator visitMatchBgpSessionType(MatchBgpSessionType matchBgpSessionType, Void arg) {
+      return matchBgpSessionType::evaluate;
+    }
+
+    @Override
+    public Evaluator visitMatchLegacyAsPath(LegacyMatchAsPath legacyMatchAsPath, Void arg) {
+      return legacyMatchAsPath::evaluate;
+    }
+
+    @Override
+    public Evaluator visitMatchColor(MatchColor matchColor, Void arg) {
+      return matchColor::evaluate;
+    }
+
+    @Override
+    public Evaluator visitMatchCommunities(MatchCommunities matchCommunities, Void arg) {
+      CommunitySetExpr communitySetExpr = matchCommunities.getCommunitySetExpr();
+      if (communitySetExpr instanceof CommunitySetExprReference) {
+        CommunitySetExpr resolved =
+            _owner
+                .getCommunitySetExprs()
+                .get(((CommunitySetExprReference) communitySetExpr).getName());
+        if (resolved != null) {
+          communitySetExpr = resolved;
+        }
+      }
+      CommunitySetMatchExpr communitySetMatchExpr = matchCommunities.getCommunitySetMatchExpr();
+      if (communitySetMatchExpr instanceof CommunitySetMatchExprReference) {
+        CommunitySetMatchExpr resolved =
+            _owner
+                .getCommunitySetMatchExprs()
+                .get(((CommunitySetMatchExprReference) communitySetMatchExpr).getName());
+        if (resolved != null) {
+          communitySetMatchExpr = resolved;
+        }
+      }
+      return new MatchCommunities(communitySetExpr, communitySetMatchExpr)::evaluate;
+    }
+
+    @Override
+    public Evaluator visitMatchInterface(MatchInterface matchInterface, Void arg) {
+      return matchInterface::evaluate;
+    }
+
+    @Override
+    public Evaluator visitMatchIp6AccessList(MatchIp6AccessList matchIp6AccessList, Void arg) {
+      return matchIp6AccessList::evaluate;
+    }
+
+    @Override
+    public Evaluator visitMatchIpv4(MatchIpv4 matchIpv4, Void arg) {
+      return matchIpv4::evaluate;
+    }
+
+    @Override
+    public Evaluator visitMatchIpv6(MatchIpv6 matchIpv6, Void arg) {
+      return matchIpv6::evaluate;
+    }
+
+    @Override
+    public Evaluator visitMatchLocalPreference(
+        MatchLocalPreference matchLocalPreference, Void arg) {
+      return matchLocalPreference::evaluate;
+    }
+
+    @Override
+    public Evaluator visitMatchLocalRouteSourcePrefixLength(
+        MatchLocalRouteSourcePrefixLength matchLocalRouteSourcePrefixLength, Void arg) {
+      return matchLocalRouteSourcePrefixLength::evaluate;
+    }
+
+    @Override
+    public Evaluator visitMatchMetric(MatchMetric matchMetric, Void arg) {
+      return matchMetric::evaluate;
+    }
+
+    @Override
+    public Evaluator visitMatchPrefix6Set(MatchPrefix6Set matchPrefix6Set, Void arg) {
+      return matchPrefix6Set::evaluate;
+    }
+
+    @Override
+    public Evaluator visitMatchPrefixSet(MatchPrefixSet matchPrefixSet, Void arg) {
+      PrefixSetExpr prefixSet = matchPrefixSet.getPrefixSet();
+      if (!(prefixSet instanceof NamedPrefixSet)) {
+        return matchPrefixSet::evaluate;
+      }
+      RouteFilterList list =
+          _owner.getRouteFilterLists().get(((NamedPrefixSet) prefixSet).getName());
+      if (list == null) {
+        // let the interpreter flag the undefined reference
+        return matchPrefixSet::evaluate;
+      }
+      PrefixExpr prefix = matchPrefixSet.getPrefix();
+      return environment -> new Result(list.permits(prefix.evaluate(environment)));
+    }
+
+    @Override
+    public Evaluator visitMatchProcessAsn(MatchProcessAsn matchProcessAsn, Void arg) {
+      return matchProcessAsn::evaluate;
+    }
+
+    @Override
+    public Evaluator visitMatchProtocol(MatchProtocol matchProtocol, Void arg) {
+      return matchProtocol::evaluate;
+    }
+
+    @Override
+    public Evaluator visitMatchRouteType(MatchRouteType matchRouteType, Void arg) {
+      return matchRouteType::evaluate;
+    }
+
+    @Override
+    public Evaluator visitMatchSourceProtocol(MatchSourceProtocol matchSourceProtocol, Void arg) {
+      return matchSourceProtocol::evaluate;
+    }
+
+    @Override
+    public Evaluator visitMatchSourceVrf(MatchSourceVrf matchSourceVrf, Void arg) {
+      return matchSourceVrf::evaluate;
+    }
+
+    @Override
+    public Evaluator visitMatchTag(MatchTag matchTag, Void arg) {
+      return matchTag::evaluate;
+    }
+
+    @Override
+    public Evaluator visitNot(Not not, Void arg) {
+      Evaluator expr = compileExpr(not.getExpr());
+      if (expr instanceof Constant) {
+        Result result = ((Constant) expr)._result;
+        return new Constant(result.getExit() ? result : new Result(!result.getBooleanValue()));
+      }
+      return environment -> {
+        Result result = expr.evaluate(environment);
+        return result.getExit() ? result : new Result(!result.getBooleanValue());
+      };
+    }
+
+    @Override
+    public Evaluator visitRouteIsClassful(RouteIsClassful routeIsClassful, Void arg) {
+      return routeIsClassful::evaluate;
+    }
+
+    @Override
+    public Evaluator visitWithEnvironmentExpr(WithEnvironmentExpr withEnvironmentExpr, Void arg) {
+      Evaluator[] preStatements = compileSideEffects(withEnvironmentExpr.getPreStatements());
+      Evaluator expr = compileExpr(withEnvironmentExpr.getExpr());
+      Evaluator[] postStatements = compileSideEffects(withEnvironmentExpr.getPostStatements());
+      Evaluator[] postTrueStatements =
+          compileSideEffects(withEnvironmentExpr.getPostTrueStatements());
+      return environment -> {
+        for (Evaluator statement : preStatements) {
+          statement.evaluate(environment);
+        }
+        Result result = expr.evaluate(environment);
+        for (Evaluator statement : postStatements) {
+          statement.evaluate(environment);
+        }
+        if (result.getBooleanValue()) {
+          for (Evaluator statement : postTrueStatements) {
+            statement.evaluate(environment);
+          }
+        }
+        return result;
+      };
+    }
+
+    private @Nonnull Evaluator[] compileSubroutines(List<BooleanExpr> subroutines) {
+      return subroutines.stream()
+          .map(RoutingPolicyCompiler.this::compileExpr)
+          .toArray(Evaluator[]::new);
+    }
+
+    /** Compile statements that are all executed for their side effects, ignoring their results. */
+    private @Nonnull Evaluator[] compileSideEffects(List<Statement> statements) {
+      return statements.stream()
+          .map(statement -> statement.accept(_statementCompiler, null))
+          .filter(statement -> !(statement instanceof Constant))
+          .toArray(Evaluator[]::new);
+    }
+
+    /** Call the default policy set in {@code environment}, as routing policy chains do. */
+    private @Nonnull Result callDefaultPolicy(Environment environment) {
+      String defaultPolicy = environment.getDefaultPolicy();
+      if (defaultPolicy == null) {
+        throw new BatfishException("Default policy is not set");
+      }
+      Result defaultPolicyResult = new CallExpr(defaultPolicy).evaluate(environment);
+      return defaultPolicyResult.toBuilder().setReturn(false).build();
+    }
+  }
+
+  private final @Nonnull Configuration _owner;
+  private final @Nonnull Map<String, Evaluator> _compiledPolicies;
+  private final @Nonnull Set<String> _compiling;
+  private final @Nonnull StatementCompiler _statementCompiler;
+  private final @Nonnull ExprCompiler _exprCompiler;
+}
@@ -0,0 +1,214 @@
+package org.batfish.storage;
+
+import static org.batfish.storage.CompactObjectOutputStream.COMPACT_CLASS_DESCRIPTOR;
+import static org.batfish.storage.CompactObjectOutputStream.COMPACT_STREAM_MAGIC;
+import static org.batfish.storage.CompactObjectOutputStream.COMPACT_STREAM_VERSION;
+import static org.batfish.storage.CompactObjectOutputStream.FULL_CLASS_DESCRIPTOR;
+
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.Interner;
+import com.google.common.collect.Interners;
+import com.google.common.io.ByteStreams;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InvalidClassException;
+import java.io.ObjectInputStream;
+import java.io.ObjectStreamClass;
+import java.io.PushbackInputStream;
+import java.io.StreamCorruptedException;
+import java.nio.ByteBuffer;
+import java.util.Map;
+import javax.annotation.Nonnull;
+import javax.annotation.ParametersAreNonnullByDefault;
+import org.batfish.datamodel.IpSpace;
+import org.batfish.datamodel.acl.AclLineMatchExpr;
+import org.batfish.datamodel.acl.AndMatchExpr;
+import org.batfish.datamodel.acl.DeniedByAcl;
+import org.batfish.datamodel.acl.FalseExpr;
+import org.batfish.datamodel.acl.GenericAclLineMatchExprVisitor;
+import org.batfish.datamodel.acl.MatchHeaderSpace;
+import org.batfish.datamodel.acl.MatchSrcInterface;
+import org.batfish.datamodel.acl.NotMatchExpr;
+import org.batfish.datamodel.acl.OrMatchExpr;
+import org.batfish.datamodel.acl.OriginatingFromDevice;
+import org.batfish.datamodel.acl.PermittedByAcl;
+import org.batfish.datamodel.acl.TrueExpr;
+
+/**
+ * An {@link ObjectInputStream} that reads objects written by a {@link CompactObjectOutputStream}.
+ *
+ * <p>Each stored object is read from its own stream, so equal values read from different streams,
+ * such as the interface names and ACLs of templated devices, would otherwise be separate objects.
+ * This stream interns strings, {@link IpSpace IP spaces}, and {@link AclLineMatchExpr ACL match
+ * expressions} across all streams, so that equal values are shared no matter which file they were
+ * read from. Simpler value types like {@link org.batfish.datamodel.Prefix} are already cached by
+ * their own {@code readResolve} methods.
+ *
+ * <p>Only deeply immutable values may be shared. {@link MatchHeaderSpace} wraps a mutable {@link
+ * org.batfish.datamodel.HeaderSpace}, so match expressions containing one are never interned.
+ */
+@ParametersAreNonnullByDefault
+final class CompactObjectInputStream extends ObjectInputStream {
+
+  private static final int HEADER_LENGTH_BYTES = 4;
+
+  private static final Map<String, Class<?>> PRIMITIVE_CLASSES =
+      ImmutableMap.<String, Class<?>>builder()
+          .put("boolean", boolean.class)
+          .put("byte", byte.class)
+          .put("char", char.class)
+          .put("short", short.class)
+          .put("int", int.class)
+          .put("long", long.class)
+          .put("float", float.class)
+          .put("double", double.class)
+          .put("void", void.class)
+          .build();
+
+  private static final Interner<String> STRINGS = Interners.newWeakInterner();
+
+  /** Interner for immutable datamodel values, which are compared by value. */
+  private static final Interner<Object> VALUES = Interners.newWeakInterner();
+
+  /**
+   * Returns whether {@code stream} starts with the header of a compact stream of any version,
+   * without consuming it. Streams of an unsupported version are then rejected when read, rather
+   * than misread as standard serialization streams.
+   */
+  static boolean isCompactStream(PushbackInputStream stream) throws IOException {
+    byte[] header = new byte[HEADER_LENGTH_BYTES];
+    int read = ByteStreams.read(stream, header, 0, HEADER_LENGTH_BYTES);
+    stream.unread(header, 0, read);
+    ByteBuffer buffer = ByteBuffer.wrap(header);
+    return read == HEADER_LENGTH_BYTES && buffer.getShort() == COMPACT_STREAM_MAGIC;
+  }
+
+  CompactObjectInputStream(InputStream in) throws IOException {
+    super(in);
+    enableResolveObject(true);
+  }
+
+  @Override
+  protected Object resolveObject(Object obj) {
+    if (obj instanceof String) {
+      return STRINGS.intern((String) obj);
+    } else if (obj instanceof IpSpace
+        || (obj instanceof AclLineMatchExpr
+            && IsDeeplyImmutable.INSTANCE.visit((AclLineMatchExpr) obj))) {
+      // Called once the object and its children are fully read, so children are already interned.
+      return VALUES.intern(obj);
+    }
+    return obj;
+  }
+
+  /** Whether an {@link AclLineMatchExpr} is safe to share, i.e., contains no mutable state. */
+  private static final class IsDeeplyImmutable implements GenericAclLineMatchExprVisitor<Boolean> {
+    private static final IsDeeplyImmutable INSTANCE = new IsDeeplyImmutable();
+
+    @Override
+    public Boolean visitAndMatchExpr(AndMatchExpr andMatchExpr) {
+      return andMatchExpr.getConjuncts().stream().allMatch(this::visit);
+    }
+
+    @Override
+    public Boolean visitDeniedByAcl(DeniedByAcl deniedByAcl) {
+      return true;
+    }
+
+    @Override
+    public Boolean visitFalseExpr(FalseExpr falseExpr) {
+      return true;
+    }
+
+    @Override
+    public Boolean visitMatchHeaderSpace(MatchHeaderSpace matchHeaderSpace) {
+      return false;
+    }
+
+    @Override
+    public Boolean visitMatchSrcInterface(MatchSrcInterface matchSrcInterface) {
+      return true;
+    }
+
+    @Override
+    public Boolean visitNotMatchExpr(NotMatchExpr notMatchExpr) {
+      return visit(notMatchExpr.getOperand());
+    }
+
+    @Override
+    public Boolean visitOriginatingFromDevice(OriginatingFromDevice originatingFromDevice) {
+      return true;
+    }
+
+    @Override
+    public Boolean visitOrMatchExpr(OrMatchExpr orMatchExpr) {
+      return orMatchExpr.getDisjuncts().stream().allMatch(this::visit);
+    }
+
+    @Override
+    public Boolean visitPermittedByAcl(PermittedByAcl permittedByAcl) {
+      return true;
+    }
+
+    @Override
+    public Boolean visitTrueExpr(TrueExpr trueExpr) {
+      return true;
+    }
+  }
+
+  @Override
+  protected void readStreamHeader() throws IOException {
+    short magic = readShort();
+    short version = readShort();
+    if (magic != COMPACT_STREAM_MAGIC) {
+      throw new StreamCorruptedException(
+          String.format("invalid compact stream header: %04X%04X", magic, version));
+    }
+    if (version != COMPACT_STREAM_VERSION) {
+      throw new StreamCorruptedException(
+          String.format(
+              "unsupported compact stream version %d, expected %d",
+              version, COMPACT_STREAM_VERSION));
+    }
+  }
+
+  @Override
+  protected @Nonnull ObjectStreamClass readClassDescriptor()
+      throws IOException, ClassNotFoundException {
+    byte kind = readByte();
+    if (kind == FULL_CLASS_DESCRIPTOR) {
+      // fields are matched against the local class when the descriptor is resolved
+      return super.readClassDescriptor();
+    } else if (kind != COMPACT_CLASS_DESCRIPTOR) {
+      throw new StreamCorruptedException(String.format("invalid class descriptor kind: %d", kind));
+    }
+    String name = readUTF();
+    long serialVersionUid = readLong();
+    ObjectStreamClass desc = ObjectStreamClass.lookupAny(forName(name));
+    if (desc.getSerialVersionUID() != serialVersionUid) {
+      throw new InvalidClassException(
+          name,
+          String.format(
+              "local class incompatible: stream classdesc serialVersionUID = %d, local class"
+                  + " serialVersionUID = %d",
+              serialVersionUid, desc.getSerialVersionUID()));
+    }
+    return desc;
+  }
+
+  @Override
+  protected @Nonnull Class<?> resolveClass(ObjectStreamClass desc) throws ClassNotFoundException {
+    return forName(desc.getName());
+  }
+
+  private static @Nonnull Class<?> forName(String name) throws ClassNotFoundException {
+    Class<?> primitiveClass = PRIMITIVE_CLASSES.get(name);
+    if (primitiveClass != null) {
+      return primitiveClass;
+    }
+    // Plugins are loaded with the context class loader
+    ClassLoader loader = Thread.currentThread().getContextClassLoader();
+    return Class.forName(
+        name, false, loader != null ? loader : CompactObjectInputStream.class.getClassLoader());
+  }
+}
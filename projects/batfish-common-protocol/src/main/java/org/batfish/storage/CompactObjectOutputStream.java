@@ -0,0 +1,95 @@
+package org.batfish.storage;
+
+import com.google.common.annotations.VisibleForTesting;
+import java.io.IOException;
+import java.io.ObjectOutputStream;
+import java.io.ObjectStreamClass;
+import java.io.OutputStream;
+import java.lang.reflect.Field;
+import java.lang.reflect.Modifier;
+import javax.annotation.Nullable;
+import javax.annotation.ParametersAreNonnullByDefault;
+
+/**
+ * An {@link ObjectOutputStream} that writes class descriptors compactly, to be read with a {@link
+ * CompactObjectInputStream}.
+ *
+ * <p>Java serialization writes the full descriptor of each class an object stream uses: its name,
+ * serial version UID, and the name and type of each of its fields, recursively for superclasses.
+ * Each stored object is a separate stream, so for all but the largest objects these descriptors
+ * make up much of the output. For classes that do not declare a serial version UID, which includes
+ * the whole datamodel, this stream only writes the name and serial version UID, and the reader uses
+ * the descriptor of the local class instead, after checking that its serial version UID matches.
+ * The UID of such a class is computed from its name, fields, and methods, so as with standard
+ * serialization, objects written by one version of a class cannot be read by a different version.
+ *
+ * <p>A class that declares its serial version UID, such as a JDK or Guava collection, keeps the
+ * same UID when its fields change, so its full descriptor is written as usual. The reader then
+ * matches fields by name and type as standard serialization does.
+ */
+@ParametersAreNonnullByDefault
+final class CompactObjectOutputStream extends ObjectOutputStream {
+
+  /** First bytes of a compact stream, in place of the standard serialization stream header. */
+  static final short COMPACT_STREAM_MAGIC = (short) 0xBA7F;
+
+  /**
+   * Version of the compact stream format, bumped whenever the encoding changes. Streams of any
+   * other version are rejected by {@link CompactObjectInputStream}.
+   *
+   * <ul>
+   *   <li>1: class descriptors are the class name and serial version UID
+   *   <li>2: each class descriptor starts with a byte telling whether it is compact or full
+   * </ul>
+   */
+  static final short COMPACT_STREAM_VERSION = 2;
+
+  /** Marks a class descriptor written as just the class name and serial version UID. */
+  static final byte COMPACT_CLASS_DESCRIPTOR = 0;
+
+  /** Marks a full class descriptor, as written by standard serialization. */
+  static final byte FULL_CLASS_DESCRIPTOR = 1;
+
+  CompactObjectOutputStream(OutputStream out) throws IOException {
+    super(out);
+  }
+
+  @Override
+  protected void writeStreamHeader() throws IOException {
+    writeShort(COMPACT_STREAM_MAGIC);
+    writeShort(COMPACT_STREAM_VERSION);
+  }
+
+  @Override
+  protected void writeClassDescriptor(ObjectStreamClass desc) throws IOException {
+    if (declaresSerialVersionUid(desc.forClass())) {
+      writeByte(FULL_CLASS_DESCRIPTOR);
+      super.writeClassDescriptor(desc);
+    } else {
+      writeByte(COMPACT_CLASS_DESCRIPTOR);
+      writeUTF(desc.getName());
+      writeLong(desc.getSerialVersionUID());
+    }
+  }
+
+  /**
+   * Returns whether {@code clazz} declares its serial version UID, rather than having one computed
+   * from its structure.
+   */
+  @VisibleForTesting
+  static boolean declaresSerialVersionUid(@Nullable Class<?> clazz) {
+    if (clazz == null || clazz.isArray() || clazz.isEnum()) {
+      // the UID of arrays is always computed, and enums are serialized by name
+      return false;
+    }
+    try {
+      Field field = clazz.getDeclaredField("serialVersionUID");
+      int modifiers = field.getModifiers();
+      return Modifier.isStatic(modifiers)
+          && Modifier.isFinal(modifiers)
+          && field.getType() == long.class;
+    } catch (NoSuchFieldException e) {
+      return false;
+    }
+  }
+}
@@ -12,9 +12,14 @@ import com.fasterxml.jackson.core.type.TypeReference;
 import com.google.common.annotations.VisibleForTesting;
 import com.google.common.base.Throwables;
 import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
 import com.google.common.collect.ImmutableSet;
 import com.google.common.collect.ImmutableSortedMap;
+import com.google.common.collect.ImmutableSortedSet;
+import com.google.common.collect.Ordering;
 import com.google.common.collect.Streams;
+import com.google.common.hash.Hashing;
+import com.google.common.hash.HashingOutputStream;
 import com.google.common.io.ByteStreams;
 import com.google.common.io.Closer;
 import com.google.common.io.MoreFiles;
@@ -33,12 +38,18 @@ import java.io.UncheckedIOException;
 import java.nio.charset.Charset;
 import java.nio.charset.StandardCharsets;
 import java.nio.file.DirectoryStream;
+import java.nio.file.FileAlreadyExistsException;
+import java.nio.file.FileSystemException;
 import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
 import java.nio.file.Path;
 import java.nio.file.Paths;
 import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.FileTime;
 import java.time.Duration;
 import java.time.Instant;
+import java.util.ArrayList;
 import java.util.Base64;
 import java.util.HashMap;
 import java.util.List;
@@ -49,6 +60,7 @@ import java.util.Set;
 import java.util.SortedMap;
 import java.util.SortedSet;
 import java.util.TreeMap;
+import java.util.concurrent.Executor;
 import java.util.concurrent.atomic.AtomicInteger;
 import java.util.function.BiFunction;
 import java.util.stream.Collectors;
@@ -79,6 +91,7 @@ import org.batfish.datamodel.Configuration;
 import org.batfish.datamodel.DataPlane;
 import org.batfish.datamodel.SnapshotMetadata;
 import org.batfish.datamodel.Topology;
+import org.batfish.datamodel.answers.Answer;
 import org.batfish.datamodel.answers.AnswerMetadata;
 import org.batfish.datamodel.answers.ConvertConfigurationAnswerElement;
 import org.batfish.datamodel.answers.ParseEnvironmentBgpTablesAnswerElement;
@@ -123,6 +136,7 @@ public class FileBasedStorage implements StorageProvider {
   private static final String RELPATH_OSPF_TOPOLOGY = "ospf_topology.json";
   private static final String RELPATH_VXLAN_TOPOLOGY = "vxlan_topology.json";
   private static final String RELPATH_VENDOR_INDEPENDENT_CONFIG_DIR = "indep";
+  private static final String RELPATH_POST_PROCESSED_CONFIG_DIR = "post_processed";
   private static final String RELPATH_QUESTIONS_DIR = "questions";
   private static final String RELPATH_TESTRIG_POJO_TOPOLOGY_PATH = "testrig_pojo_topology";
   private static final String RELPATH_ORIGINAL_DIR = "original";
@@ -182,11 +196,112 @@ public class FileBasedStorage implements StorageProvider {
   @Nullable
   public SortedMap<String, Configuration> loadConfigurations(
       NetworkId network, SnapshotId snapshot) {
+    if (!hasCompatibleConfigurations(network, snapshot)) {
+      return null;
+    }
+    _logger.info("\n*** DESERIALIZING VENDOR-INDEPENDENT CONFIGURATION STRUCTURES ***\n");
+    Map<Path, String> namesByPath = new TreeMap<>();
+    for (Path serializedConfig : listConfigurationFiles(network, snapshot)) {
+      namesByPath.put(serializedConfig, serializedConfig.getFileName().toString());
+    }
+    try {
+      return deserializeObjects(namesByPath, Configuration.class);
+    } catch (BatfishException e) {
+      return null;
+    }
+  }
+
+  /**
+   * Returns the hostnames of the serialized configurations of the given snapshot, which are the
+   * names of their files. If a serialized copy of these configurations is not already present, then
+   * this function returns {@code null}.
+   */
+  @Override
+  @Nullable
+  public SortedSet<String> loadConfigurationHostnames(NetworkId network, SnapshotId snapshot) {
+    if (!hasCompatibleConfigurations(network, snapshot)) {
+      return null;
+    }
+    return listConfigurationFiles(network, snapshot).stream()
+        .map(path -> path.getFileName().toString())
+        .collect(ImmutableSortedSet.toImmutableSortedSet(Ordering.natural()));
+  }
+
+  /**
+   * Returns the serialized configuration of the given node in the given snapshot, or {@code null}
+   * if there is none.
+   *
+   * @throws BatfishException if the configuration cannot be deserialized
+   */
+  @Override
+  @Nullable
+  public Configuration loadConfiguration(NetworkId network, SnapshotId snapshot, String hostname) {
+    Path path = getVendorIndependentConfigDir(network, snapshot).resolve(hostname);
+    if (!Files.exists(path)) {
+      return null;
+    }
+    _logger.debugf("Reading configuration '%s' from '%s'\n", hostname, path);
+    return deserializeObject(path, Configuration.class);
+  }
+
+  @Override
+  @Nullable
+  public SortedMap<String, Configuration> loadPostProcessedConfigurations(
+      NetworkSnapshot snapshot, String key) {
+    SortedSet<String> hostnames =
+        loadConfigurationHostnames(snapshot.getNetwork(), snapshot.getSnapshot());
+    if (hostnames == null) {
+      return null;
+    }
+    Path dir = getPostProcessedConfigDir(snapshot, key);
+    if (!hostnames.stream().allMatch(hostname -> Files.exists(dir.resolve(hostname)))) {
+      _logger.debugf(
+          "Unable to load post-processed configs for %s from disk: not all are present", snapshot);
+      return null;
+    }
+    try {
+      return deserializeObjects(
+          hostnames.stream().collect(ImmutableMap.toImmutableMap(dir::resolve, h -> h)),
+          Configuration.class);
+    } catch (BatfishException e) {
+      LOGGER.warn(
+          String.format("Failed to load post-processed configs for snapshot %s", snapshot), e);
+      return null;
+    }
+  }
+
+  @Override
+  @Nullable
+  public Configuration loadPostProcessedConfiguration(
+      NetworkSnapshot snapshot, String key, String hostname) {
+    if (!hasCompatibleConfigurations(snapshot.getNetwork(), snapshot.getSnapshot())) {
+      return null;
+    }
+    Path path = getPostProcessedConfigDir(snapshot, key).resolve(hostname);
+    if (!Files.exists(path)) {
+      return null;
+    }
+    try {
+      return deserializeObject(path, Configuration.class);
+    } catch (BatfishException e) {
+      LOGGER.warn(
+          String.format(
+              "Failed to load post-processed config '%s' for snapshot %s", hostname, snapshot),
+          e);
+      return null;
+    }
+  }
+
+  /**
+   * Whether the given snapshot has serialized configurations that were serialized with a compatible
+   * version of Batfish.
+   */
+  private boolean hasCompatibleConfigurations(NetworkId network, SnapshotId snapshot) {
     Path indepDir = getVendorIndependentConfigDir(network, snapshot);
     // If the directory that would contain these configs does not even exist, no cache exists.
     if (!Files.exists(indepDir)) {
       _logger.debugf("Unable to load configs for %s from disk: no cache directory", snapshot);
-      return null;
+      return false;
     }
 
     // If the directory exists, then likely the configs exist and are useful. Still, we need to
@@ -194,25 +309,21 @@ public class FileBasedStorage implements StorageProvider {
     if (!cachedConfigsAreCompatible(network, snapshot)) {
       _logger.debugf(
           "Unable to load configs for %s from disk: error or incompatible version", snapshot);
-      return null;
+      return false;
     }
+    return true;
+  }
 
-    _logger.info("\n*** DESERIALIZING VENDOR-INDEPENDENT CONFIGURATION STRUCTURES ***\n");
-    Map<Path, String> namesByPath = new TreeMap<>();
+  private @Nonnull List<Path> listConfigurationFiles(NetworkId network, SnapshotId snapshot) {
+    Path indepDir = getVendorIndependentConfigDir(network, snapshot);
+    List<Path> files = new ArrayList<>();
     try (DirectoryStream<Path> stream = Files.newDirectoryStream(indepDir)) {
-      for (Path serializedConfig : stream) {
-        String name = serializedConfig.getFileName().toString();
-        namesByPath.put(serializedConfig, name);
-      }
+      stream.forEach(files::add);
     } catch (IOException e) {
       throw new BatfishException(
           "Error reading vendor-independent configs directory: '" + indepDir + "'", e);
     }
-    try {
-      return deserializeObjects(namesByPath, Configuration.class);
-    } catch (BatfishException e) {
-      return null;
-    }
+    return files;
   }
 
   @Override
@@ -462,9 +573,40 @@ public class FileBasedStorage implements StorageProvider {
             "Serializing %s vendor-independent configuration structures for snapshot %s",
             configurations.size(), snapshot);
 
+    // Post-processed configurations were computed from the configurations being replaced.
+    deleteDirectory(getPostProcessedConfigsDir(network, snapshot));
+
     storeConfigurations(outputDir, batchName, configurations);
   }
 
+  @Override
+  public void storePostProcessedConfigurations(
+      Map<String, Configuration> configurations,
+      NetworkSnapshot snapshot,
+      String key,
+      Executor writer)
+      throws IOException {
+    Path dir = getPostProcessedConfigDir(snapshot, key);
+    Map<Path, byte[]> serialized =
+        configurations.entrySet().parallelStream()
+            .collect(
+                ImmutableMap.toImmutableMap(
+                    e -> dir.resolve(e.getKey()), e -> serializeToBytes(e.getValue())));
+    writer.execute(
+        () -> {
+          try {
+            mkdirs(dir);
+            for (Entry<Path, byte[]> entry : serialized.entrySet()) {
+              writeAtomically(entry.getValue(), entry.getKey());
+            }
+          } catch (IOException | RuntimeException e) {
+            _logger.warnf(
+                "Error writing post-processed configurations for %s: %s",
+                snapshot, Throwables.getStackTraceAsString(e));
+          }
+        });
+  }
+
   @Override
   public void storeConversionContext(ConversionContext conversionContext, NetworkSnapshot snapshot)
       throws IOException {
@@ -515,6 +657,12 @@ public class FileBasedStorage implements StorageProvider {
     writeStringToFile(answerPath, answerStr, UTF_8);
   }
 
+  @Override
+  public void storeAnswer(NetworkId network, SnapshotId snapshot, Answer answer, AnswerId answerId)
+      throws IOException {
+    writeJsonFile(getAnswerPath(network, snapshot, answerId), answer);
+  }
+
   @Override
   public void storeAnswerMetadata(
       NetworkId networkId, SnapshotId snapshotId, AnswerMetadata answerMetadata, AnswerId answerId)
@@ -540,10 +688,10 @@ public class FileBasedStorage implements StorageProvider {
       if (f == Format.GZIP) {
         GZIPInputStream gis =
             closer.register(new GZIPInputStream(pbstream, 8192 /* enlarge buffer */));
-        ois = new ObjectInputStream(gis);
+        ois = newObjectInputStream(gis);
       } else if (f == Format.LZ4) {
         LZ4FrameInputStream lis = closer.register(new LZ4FrameInputStream(pbstream));
-        ois = new ObjectInputStream(lis);
+        ois = newObjectInputStream(lis);
       } else if (f == Format.JAVA_SERIALIZED) {
         ois = new ObjectInputStream(pbstream);
       } else {
@@ -561,6 +709,20 @@ public class FileBasedStorage implements StorageProvider {
     }
   }
 
+  /**
+   * Returns an {@link ObjectInputStream} for the given decompressed stream, which may have been
+   * written by a {@link CompactObjectOutputStream} or, before that was introduced, a standard
+   * {@link ObjectOutputStream}.
+   */
+  private static @Nonnull ObjectInputStream newObjectInputStream(InputStream decompressed)
+      throws IOException {
+    PushbackInputStream pbstream =
+        new PushbackInputStream(decompressed, DEFAULT_HEADER_LENGTH_BYTES);
+    return CompactObjectInputStream.isCompactStream(pbstream)
+        ? new CompactObjectInputStream(pbstream)
+        : new ObjectInputStream(pbstream);
+  }
+
   private <S extends Serializable> SortedMap<String, S> deserializeObjects(
       Map<Path, String> namesByPath, Class<S> outputClass) {
     String outputClassName = outputClass.getName();
@@ -588,6 +750,37 @@ public class FileBasedStorage implements StorageProvider {
    * Writes a single object of the given class to the given file. Uses the {@link FileBasedStorage}
    * default file encoding including serialization format and compression.
    */
+  /**
+   * Serializes the given object to bytes using the {@link FileBasedStorage} default file encoding,
+   * as written by {@link #serializeObject}.
+   */
+  private static byte[] serializeToBytes(Serializable object) {
+    ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+    try (LZ4FrameOutputStream gos = new LZ4FrameOutputStream(bytes);
+        ObjectOutputStream oos = new CompactObjectOutputStream(gos)) {
+      oos.writeObject(object);
+    } catch (IOException e) {
+      throw new UncheckedIOException(e);
+    }
+    return bytes.toByteArray();
+  }
+
+  /**
+   * Writes the given bytes to the given file through a temporary file, so that readers never see a
+   * partially written file.
+   */
+  private void writeAtomically(byte[] bytes, Path outputFile) throws IOException {
+    Path sanitizedOutputFile = validatePath(outputFile);
+    Path tmpFile = Files.createTempFile(null, null);
+    try {
+      Files.write(tmpFile, bytes);
+      mkdirs(sanitizedOutputFile.getParent());
+      Files.move(tmpFile, sanitizedOutputFile, StandardCopyOption.REPLACE_EXISTING);
+    } finally {
+      Files.deleteIfExists(tmpFile);
+    }
+  }
+
   @VisibleForTesting
   void serializeObject(Serializable object, Path outputFile) {
     Path sanitizedOutputFile = validatePath(outputFile);
@@ -596,7 +789,7 @@ public class FileBasedStorage implements StorageProvider {
       try {
         try (OutputStream out = Files.newOutputStream(tmpFile);
             LZ4FrameOutputStream gos = new LZ4FrameOutputStream(out);
-            ObjectOutputStream oos = new ObjectOutputStream(gos)) {
+            ObjectOutputStream oos = new CompactObjectOutputStream(gos)) {
           oos.writeObject(object);
         } catch (Throwable e) {
           throw new BatfishException(
@@ -665,16 +858,16 @@ public class FileBasedStorage implements StorageProvider {
   }
 
   @Override
-  public @Nonnull String loadAnswer(NetworkId networkId, SnapshotId snapshotId, AnswerId answerId)
-      throws IOException {
+  public @Nonnull InputStream loadAnswer(
+      NetworkId networkId, SnapshotId snapshotId, AnswerId answerId) throws IOException {
     Path answerPath = getAnswerPath(networkId, snapshotId, answerId);
     if (Files.exists(answerPath)) {
-      return readFileToString(answerPath, UTF_8);
+      return Files.newInputStream(validatePath(answerPath));
     }
     // look for the answer in the legacy location
     Path oldAnswerPath = getOldAnswerPath(answerId);
     if (Files.exists(oldAnswerPath)) {
-      return readFileToString(oldAnswerPath, UTF_8);
+      return Files.newInputStream(validatePath(oldAnswerPath));
     }
     throw new FileNotFoundException(String.format("Could not find answer with ID: %s", answerId));
   }
@@ -1273,22 +1466,6 @@ public class FileBasedStorage implements StorageProvider {
     }
   }
 
-  private void writeStreamToFile(InputStream inputStream, Path outputFile) throws IOException {
-    Path sanitizedOutputFile = validatePath(outputFile);
-    Path tmpFile = Files.createTempFile(null, null);
-    try (OutputStream fileOutputStream = Files.newOutputStream(tmpFile)) {
-      int read = 0;
-      byte[] bytes = new byte[STREAMED_FILE_BUFFER_SIZE];
-      while ((read = inputStream.read(bytes)) != -1) {
-        fileOutputStream.write(bytes, 0, read);
-      }
-      mkdirs(sanitizedOutputFile.getParent());
-      Files.move(tmpFile, sanitizedOutputFile, StandardCopyOption.REPLACE_EXISTING);
-    } finally {
-      Files.deleteIfExists(tmpFile);
-    }
-  }
-
   @Override
   public @Nonnull BgpTopology loadBgpTopology(NetworkSnapshot networkSnapshot) throws IOException {
     return BatfishObjectMapper.mapper()
@@ -1495,7 +1672,7 @@ public class FileBasedStorage implements StorageProvider {
   @Override
   public void storeUploadSnapshotZip(InputStream inputStream, String key, NetworkId network)
       throws IOException {
-    writeStreamToFile(inputStream, getUploadSnapshotZipPath(key, network));
+    storeInputBlob(inputStream, network, getUploadSnapshotZipPath(key, network));
   }
 
   private @Nonnull Path getUploadSnapshotZipPath(String key, NetworkId network) {
@@ -1512,8 +1689,6 @@ public class FileBasedStorage implements StorageProvider {
     return getOriginalDir(key, network).resolve(RELPATH_FORK_REQUEST_FILE);
   }
 
-  private static final int STREAMED_FILE_BUFFER_SIZE = 1024;
-
   @MustBeClosed
   @Nonnull
   @Override
@@ -1524,9 +1699,157 @@ public class FileBasedStorage implements StorageProvider {
   @Override
   public void storeSnapshotInputObject(
       InputStream inputStream, String key, NetworkSnapshot snapshot) throws IOException {
-    writeStreamToFile(
-        inputStream,
-        getSnapshotInputObjectPath(snapshot.getNetwork(), snapshot.getSnapshot(), key));
+    String hash =
+        storeInputBlob(
+            inputStream,
+            snapshot.getNetwork(),
+            getSnapshotInputObjectPath(snapshot.getNetwork(), snapshot.getSnapshot(), key));
+    recordInputObjectHashes(snapshot, ImmutableMap.of(key, hash));
+  }
+
+  /**
+   * {@inheritDoc}
+   *
+   * <p>Input objects whose hash is recorded in the manifest of {@code source} are hard-linked
+   * rather than copied, so this takes time and space proportional to the number of keys rather than
+   * to the size of the objects.
+   */
+  @Override
+  public void copySnapshotInputObjects(
+      NetworkSnapshot source, Set<String> keys, NetworkSnapshot destination) throws IOException {
+    Map<String, String> sourceHashes = loadInputObjectHashes(source);
+    ImmutableMap.Builder<String, String> destinationHashes = ImmutableMap.builder();
+    for (String key : keys) {
+      Path sourcePath =
+          validatePath(getSnapshotInputObjectPath(source.getNetwork(), source.getSnapshot(), key));
+      if (!Files.isRegularFile(sourcePath)) {
+        throw new FileNotFoundException(String.format("Could not copy: %s", sourcePath));
+      }
+      String hash = sourceHashes.get(key);
+      if (hash == null) {
+        // stored before input objects were content-addressed
+        try (InputStream inputStream = Files.newInputStream(sourcePath)) {
+          storeSnapshotInputObject(inputStream, key, destination);
+        }
+        continue;
+      }
+      Path destinationPath =
+          validatePath(
+              getSnapshotInputObjectPath(destination.getNetwork(), destination.getSnapshot(), key));
+      mkdirs(destinationPath.getParent());
+      linkOrCopy(sourcePath, sourcePath, destinationPath);
+      destinationHashes.put(key, hash);
+    }
+    recordInputObjectHashes(destination, destinationHashes.build());
+  }
+
+  /**
+   * Stores the contents of {@code inputStream} as an input blob of {@code network}, named after the
+   * SHA-256 hash of the contents, and makes them available at {@code outputFile}. Returns the hash.
+   *
+   * <p>{@code outputFile} is a hard link to the blob, so storing the same contents again takes no
+   * additional space. Blobs are immutable: they are made read-only before they are published, and
+   * input objects are only ever replaced, never modified in place. Concurrent first stores of the
+   * same contents publish a single blob, so all links to the contents share one file.
+   */
+  private @Nonnull String storeInputBlob(
+      InputStream inputStream, NetworkId network, Path outputFile) throws IOException {
+    Path sanitizedOutputFile = validatePath(outputFile);
+    Path blobsDir = getInputBlobsDir(network);
+    mkdirs(blobsDir);
+    // In the blobs dir, so that the move below is a rename
+    Path tmpFile = Files.createTempFile(blobsDir, null, null);
+    try {
+      String hash;
+      try (HashingOutputStream outputStream =
+          new HashingOutputStream(Hashing.sha256(), Files.newOutputStream(tmpFile))) {
+        ByteStreams.copy(inputStream, outputStream);
+        hash = outputStream.hash().toString();
+      }
+      Path blob = getInputBlobPath(network, hash);
+      mkdirs(blob.getParent());
+      try {
+        // Refresh an existing blob, so garbage collection does not expunge it before it is linked
+        Files.setLastModifiedTime(blob, FileTime.from(Instant.now()));
+      } catch (NoSuchFileException e) {
+        if (!tmpFile.toFile().setReadOnly()) {
+          throw new IOException(String.format("Could not make input blob %s read-only", tmpFile));
+        }
+        try {
+          // Never replace a blob, which may already be linked from input objects
+          Files.move(tmpFile, blob);
+        } catch (FileAlreadyExistsException alreadyStored) {
+          // Stored concurrently with the same contents
+          Files.setLastModifiedTime(blob, FileTime.from(Instant.now()));
+        }
+      }
+      mkdirs(sanitizedOutputFile.getParent());
+      linkOrCopy(blob, Files.exists(tmpFile) ? tmpFile : blob, sanitizedOutputFile);
+      return hash;
+    } finally {
+      Files.deleteIfExists(tmpFile);
+    }
+  }
+
+  /**
+   * Replaces {@code target} with a hard link to {@code existing}, or with a copy of {@code
+   * fallback} if the link cannot be created, e.g. because the file system does not support links.
+   */
+  private static void linkOrCopy(Path existing, Path fallback, Path target) throws IOException {
+    Files.deleteIfExists(target);
+    try {
+      Files.createLink(target, existing);
+    } catch (UnsupportedOperationException | FileSystemException e) {
+      Files.copy(fallback, target, StandardCopyOption.REPLACE_EXISTING);
+    }
+  }
+
+  private static final Object INPUT_MANIFEST_LOCK = new Object();
+
+  /**
+   * Appends the given hashes of input objects by key to the manifest of {@code snapshot}. Entries
+   * appended later take precedence over earlier entries for the same key.
+   */
+  private void recordInputObjectHashes(NetworkSnapshot snapshot, Map<String, String> hashes)
+      throws IOException {
+    if (hashes.isEmpty()) {
+      return;
+    }
+    Path manifest = validatePath(getInputManifestPath(snapshot));
+    mkdirs(manifest.getParent());
+    List<String> lines =
+        hashes.entrySet().stream()
+            .map(e -> e.getValue() + '\t' + e.getKey())
+            .collect(ImmutableList.toImmutableList());
+    synchronized (INPUT_MANIFEST_LOCK) {
+      Files.write(manifest, lines, UTF_8, StandardOpenOption.CREATE, StandardOpenOption.APPEND);
+    }
+  }
+
+  /**
+   * Returns the hashes of the input objects of {@code snapshot} by key, as recorded in its
+   * manifest. Input objects stored before input objects were content-addressed have no recorded
+   * hash.
+   */
+  @VisibleForTesting
+  @Nonnull
+  Map<String, String> loadInputObjectHashes(NetworkSnapshot snapshot) throws IOException {
+    Path manifest = validatePath(getInputManifestPath(snapshot));
+    if (!Files.exists(manifest)) {
+      return ImmutableMap.of();
+    }
+    List<String> lines;
+    synchronized (INPUT_MANIFEST_LOCK) {
+      lines = Files.readAllLines(manifest, UTF_8);
+    }
+    Map<String, String> hashes = new HashMap<>();
+    for (String line : lines) {
+      int separator = line.indexOf('\t');
+      if (separator > 0) {
+        hashes.put(line.substring(separator + 1), line.substring(0, separator));
+      }
+    }
+    return hashes;
   }
 
   @MustBeClosed
@@ -1706,6 +2029,8 @@ public class FileBasedStorage implements StorageProvider {
   }
 
   private static final String RELPATH_BLOBS = "blobs";
+  private static final String RELPATH_INPUT_BLOBS = "input_blobs";
+  private static final String RELPATH_INPUT_MANIFEST_FILE = "input_manifest";
   private static final String RELPATH_EXTENDED = "extended";
   private static final String RELPATH_NODE_ROLES_DIR = "node_roles";
 
@@ -1809,11 +2134,37 @@ public class FileBasedStorage implements StorageProvider {
     return getSnapshotOutputDir(network, snapshot).resolve(RELPATH_VENDOR_INDEPENDENT_CONFIG_DIR);
   }
 
+  private @Nonnull Path getPostProcessedConfigsDir(NetworkId network, SnapshotId snapshot) {
+    return getSnapshotOutputDir(network, snapshot).resolve(RELPATH_POST_PROCESSED_CONFIG_DIR);
+  }
+
+  @VisibleForTesting
+  @Nonnull
+  Path getPostProcessedConfigDir(NetworkSnapshot snapshot, String key) {
+    return getPostProcessedConfigsDir(snapshot.getNetwork(), snapshot.getSnapshot()).resolve(key);
+  }
+
   @VisibleForTesting
   Path getNetworkBlobsDir(NetworkId networkId) {
     return getNetworkDir(networkId).resolve(RELPATH_BLOBS);
   }
 
+  @VisibleForTesting
+  @Nonnull
+  Path getInputBlobsDir(NetworkId networkId) {
+    return getNetworkDir(networkId).resolve(RELPATH_INPUT_BLOBS);
+  }
+
+  private @Nonnull Path getInputBlobPath(NetworkId networkId, String hash) {
+    // Fan out over subdirectories to keep directories small
+    return getInputBlobsDir(networkId).resolve(hash.substring(0, 2)).resolve(hash);
+  }
+
+  private @Nonnull Path getInputManifestPath(NetworkSnapshot snapshot) {
+    return getSnapshotDir(snapshot.getNetwork(), snapshot.getSnapshot())
+        .resolve(RELPATH_INPUT_MANIFEST_FILE);
+  }
+
   private Path getNetworkObjectsDir(NetworkId networkId) {
     return getNetworkDir(networkId).resolve(RELPATH_EXTENDED);
   }
@@ -2016,6 +2367,60 @@ public class FileBasedStorage implements StorageProvider {
                   LOGGER.error(String.format("Failed to expunge directory %s", dir), e);
                 }
               });
+      // Expunge input blobs after snapshots, since expunging a snapshot unlinks its input objects
+      for (String networkId : extantNetworkIds) {
+        try {
+          expungeUnlinkedInputBlobs(new NetworkId(networkId), expungeBeforeDate);
+        } catch (IOException e) {
+          _logger.errorf(
+              "Failed to expunge input blobs of network with ID '%s': %s",
+              networkId, Throwables.getStackTraceAsString(e));
+          LOGGER.error(
+              String.format("Failed to expunge input blobs of network with ID %s", networkId), e);
+        }
+      }
+    }
+  }
+
+  /**
+   * Deletes the input blobs of the network that are no longer linked from any snapshot input object
+   * or upload, and were last modified before {@code expungeBeforeDate}.
+   */
+  @VisibleForTesting
+  void expungeUnlinkedInputBlobs(NetworkId networkId, Instant expungeBeforeDate)
+      throws IOException {
+    Path blobsDir = getInputBlobsDir(networkId);
+    if (!Files.exists(blobsDir)) {
+      return;
+    }
+    List<Path> blobsToExpunge;
+    try (Stream<Path> blobs = Files.walk(blobsDir)) {
+      blobsToExpunge =
+          blobs
+              .filter(Files::isRegularFile)
+              .filter(blob -> canExpungeInputBlob(blob, expungeBeforeDate))
+              .collect(ImmutableList.toImmutableList());
+    }
+    for (Path blob : blobsToExpunge) {
+      Files.deleteIfExists(blob);
+    }
+  }
+
+  private boolean canExpungeInputBlob(Path blob, Instant expungeBeforeDate) {
+    try {
+      return getLinkCount(blob) <= 1 && getLastModifiedTime(blob).compareTo(expungeBeforeDate) < 0;
+    } catch (IOException e) {
+      // e.g. the blob was just deleted
+      return false;
+    }
+  }
+
+  private static int getLinkCount(Path path) throws IOException {
+    try {
+      return (int) Files.getAttribute(path, "unix:nlink");
+    } catch (UnsupportedOperationException | IllegalArgumentException e) {
+      // Input objects are copies of their blobs where links are not supported
+      return 1;
     }
   }
 
@@ -10,6 +10,7 @@ import java.util.Optional;
 import java.util.Set;
 import java.util.SortedMap;
 import java.util.SortedSet;
+import java.util.concurrent.Executor;
 import java.util.stream.Stream;
 import javax.annotation.Nonnull;
 import javax.annotation.Nullable;
@@ -24,6 +25,7 @@ import org.batfish.datamodel.Configuration;
 import org.batfish.datamodel.DataPlane;
 import org.batfish.datamodel.SnapshotMetadata;
 import org.batfish.datamodel.Topology;
+import org.batfish.datamodel.answers.Answer;
 import org.batfish.datamodel.answers.AnswerMetadata;
 import org.batfish.datamodel.answers.ConvertConfigurationAnswerElement;
 import org.batfish.datamodel.answers.ParseEnvironmentBgpTablesAnswerElement;
@@ -59,6 +61,37 @@ public interface StorageProvider {
   @Nullable
   SortedMap<String, Configuration> loadConfigurations(NetworkId network, SnapshotId snapshot);
 
+  /**
+   * Returns the hostnames of the configurations of the given snapshot, without loading the
+   * configurations. If a serialized copy of these configurations is not already present, then this
+   * function returns {@code null}.
+   */
+  @Nullable
+  SortedSet<String> loadConfigurationHostnames(NetworkId network, SnapshotId snapshot);
+
+  /**
+   * Returns the configuration of the given node in the given snapshot, or {@code null} if there is
+   * no serialized configuration for the node.
+   */
+  @Nullable
+  Configuration loadConfiguration(NetworkId network, SnapshotId snapshot, String hostname);
+
+  /**
+   * Returns the post-processed configurations of the given snapshot stored under the given key, or
+   * {@code null} unless a post-processed copy of every configuration of the snapshot is present.
+   */
+  @Nullable
+  SortedMap<String, Configuration> loadPostProcessedConfigurations(
+      NetworkSnapshot snapshot, String key);
+
+  /**
+   * Returns the post-processed configuration of the given node in the given snapshot stored under
+   * the given key, or {@code null} if there is none.
+   */
+  @Nullable
+  Configuration loadPostProcessedConfiguration(
+      NetworkSnapshot snapshot, String key, String hostname);
+
   /**
    * Returns the {@link ConvertConfigurationAnswerElement} that is the result of the phase that
    * converts vendor-specific configurations to vendor-independent configurations.
@@ -148,6 +181,23 @@ public interface StorageProvider {
       SnapshotId snapshot)
       throws IOException;
 
+  /**
+   * Stores the given post-processed configurations of the given snapshot under the given key,
+   * alongside any already stored under that key. All post-processed configurations of a snapshot
+   * are discarded when its configurations are stored by {@link #storeConfigurations}.
+   *
+   * <p>The configurations are serialized before this method returns, so the caller may modify them
+   * afterwards. Only writing the serialized configurations is done by the given {@code writer}.
+   *
+   * @throws IOException if there is an error serializing the configurations
+   */
+  void storePostProcessedConfigurations(
+      Map<String, Configuration> configurations,
+      NetworkSnapshot snapshot,
+      String key,
+      Executor writer)
+      throws IOException;
+
   /**
    * Store the answer to an ad-hoc or analysis question.
    *
@@ -160,6 +210,19 @@ public interface StorageProvider {
   void storeAnswer(NetworkId network, SnapshotId snapshot, String answerStr, AnswerId answerId)
       throws IOException;
 
+  /**
+   * Store the answer to an ad-hoc or analysis question, serializing it to JSON directly into
+   * storage.
+   *
+   * @param network The id of the network
+   * @param snapshot The id of the snapshot
+   * @param answer The answer
+   * @param answerId The ID of the answer
+   * @throws IOException if there is an error
+   */
+  void storeAnswer(NetworkId network, SnapshotId snapshot, Answer answer, AnswerId answerId)
+      throws IOException;
+
   /**
    * Store the metadata for the answer to an ad-hoc or analysis question.
    *
@@ -198,7 +261,8 @@ public interface StorageProvider {
       NetworkId network, QuestionId question, @Nullable AnalysisId analysis);
 
   /**
-   * Load the JSON-serialized answer to an ad-hoc or analysis question.
+   * Returns a stream of the JSON-serialized answer to an ad-hoc or analysis question. The caller is
+   * responsible for closing it.
    *
    * @param network The id of the network
    * @param snapshot The id of the snapshot
@@ -207,7 +271,7 @@ public interface StorageProvider {
    *     error reading the answer.
    */
   @Nonnull
-  String loadAnswer(NetworkId network, SnapshotId snapshot, AnswerId answerId)
+  InputStream loadAnswer(NetworkId network, SnapshotId snapshot, AnswerId answerId)
       throws FileNotFoundException, IOException;
 
   /**
@@ -727,6 +791,16 @@ public interface StorageProvider {
   void storeSnapshotInputObject(InputStream inputStream, String key, NetworkSnapshot snapshot)
       throws IOException;
 
+  /**
+   * Copies the input objects with the given keys of snapshot {@code source} to snapshot {@code
+   * destination}, where they are stored under the same keys.
+   *
+   * @throws FileNotFoundException if some input object does not exist in {@code source}
+   * @throws IOException if there is any other error
+   */
+  void copySnapshotInputObjects(
+      NetworkSnapshot source, Set<String> keys, NetworkSnapshot destination) throws IOException;
+
   /**
    * Returns a stream of the keys of all input objects for the given snapshot.
    *
@@ -199,6 +199,11 @@ public class IBatfishTestAdapter implements IBatfish {
     throw new UnsupportedOperationException();
   }
 
+  @Override
+  public void storeSnapshotObject(NetworkSnapshot snapshot, String key, String content) {
+    throw new UnsupportedOperationException();
+  }
+
   @Override
   public NetworkId getContainerName() {
     throw new UnsupportedOperationException();
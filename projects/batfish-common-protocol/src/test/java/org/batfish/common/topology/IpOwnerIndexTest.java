@@ -0,0 +1,100 @@
+package org.batfish.common.topology;
+
+import static org.hamcrest.Matchers.anEmptyMap;
+import static org.hamcrest.Matchers.contains;
+import static org.hamcrest.Matchers.empty;
+import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.nullValue;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.assertTrue;
+
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.ImmutableSet;
+import java.util.Map;
+import java.util.Set;
+import org.apache.commons.lang3.SerializationUtils;
+import org.batfish.datamodel.Ip;
+import org.junit.Test;
+
+/** Tests of {@link IpOwnerIndex}. */
+public final class IpOwnerIndexTest {
+
+  private static final Ip LOW = Ip.parse("1.1.1.1");
+  private static final Ip HIGH = Ip.parse("200.0.0.1"); // sign bit set when stored as an int
+  private static final Ip MAX = Ip.MAX;
+
+  private static final Map<Ip, Map<String, Set<String>>> OWNERS =
+      ImmutableMap.of(
+          HIGH,
+          ImmutableMap.of("n2", ImmutableSet.of("i2", "i1"), "n1", ImmutableSet.of("i1")),
+          LOW,
+          ImmutableMap.of("n1", ImmutableSet.of("i3")),
+          MAX,
+          ImmutableMap.of("n3", ImmutableSet.of()));
+
+  @Test
+  public void testAsMap() {
+    Map<Ip, Map<String, Set<String>>> map = IpOwnerIndex.of(OWNERS).asMap();
+
+    assertThat(map, equalTo(OWNERS));
+    assertThat(map.size(), equalTo(3));
+    assertTrue(map.containsKey(HIGH));
+    assertFalse(map.containsKey(Ip.parse("1.1.1.2")));
+    assertFalse(map.containsKey("1.1.1.1"));
+    assertThat(map.get(Ip.ZERO), nullValue());
+    assertThat(map.get(LOW), equalTo(ImmutableMap.of("n1", ImmutableSet.of("i3"))));
+    // iteration is in IP order
+    assertThat(map.keySet(), contains(LOW, HIGH, MAX));
+  }
+
+  @Test
+  public void testHostnamesByIp() {
+    Map<Ip, Set<String>> map = IpOwnerIndex.of(OWNERS).hostnamesByIp();
+
+    assertThat(
+        map,
+        equalTo(
+            ImmutableMap.of(
+                LOW,
+                ImmutableSet.of("n1"),
+                HIGH,
+                ImmutableSet.of("n1", "n2"),
+                MAX,
+                ImmutableSet.of("n3"))));
+    assertThat(map.get(HIGH), contains("n1", "n2"));
+  }
+
+  @Test
+  public void testAsMapLookups() {
+    Map<String, Set<String>> owners = IpOwnerIndex.of(OWNERS).asMap().get(HIGH);
+
+    assertThat(owners.keySet(), contains("n1", "n2"));
+    assertTrue(owners.containsKey("n2"));
+    assertFalse(owners.containsKey("n3"));
+    assertFalse(owners.containsKey(HIGH));
+    assertThat(owners.get("n3"), nullValue());
+    assertThat(owners.getOrDefault("n3", ImmutableSet.of()), empty());
+    assertThat(owners.get("n2"), contains("i1", "i2"));
+    assertTrue(owners.get("n2").contains("i2"));
+    assertFalse(owners.get("n1").contains("i2"));
+    assertFalse(owners.get("n1").contains("i3"));
+    assertThat(owners.get("n2"), equalTo(ImmutableSet.of("i2", "i1")));
+    assertThat(owners.get("n2").hashCode(), equalTo(ImmutableSet.of("i2", "i1").hashCode()));
+  }
+
+  @Test
+  public void testEmpty() {
+    IpOwnerIndex index = IpOwnerIndex.of(ImmutableMap.of());
+
+    assertThat(index.asMap(), anEmptyMap());
+    assertThat(index.hostnamesByIp().get(LOW), nullValue());
+  }
+
+  @Test
+  public void testSerialization() {
+    IpOwnerIndex index = IpOwnerIndex.of(OWNERS);
+
+    assertThat(SerializationUtils.clone(index).asMap(), equalTo(OWNERS));
+  }
+}
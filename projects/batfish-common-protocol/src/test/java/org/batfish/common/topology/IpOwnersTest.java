@@ -5,7 +5,6 @@ import static org.batfish.common.topology.IpOwners.computeInterfaceHostSubnetIps
 import static org.batfish.common.topology.IpOwners.computeInterfaceOwners;
 import static org.batfish.common.topology.IpOwners.computeIpIfaceOwners;
 import static org.batfish.common.topology.IpOwners.computeIpVrfOwners;
-import static org.batfish.common.topology.IpOwners.computeNodeOwners;
 import static org.batfish.common.topology.IpOwners.extractHsrp;
 import static org.batfish.common.topology.IpOwners.extractVrrp;
 import static org.batfish.common.topology.IpOwners.partitionVrrpCandidates;
@@ -702,15 +701,4 @@ public class IpOwnersTest {
         computeInterfaceOwners(deviceOwnedIps),
         equalTo(ImmutableMap.of("c1", ImmutableMap.of("i1", ImmutableSet.of(Ip.ZERO, Ip.MAX)))));
   }
-
-  @Test
-  public void testComputeNodeOwners() {
-    Map<Ip, Map<String, Set<String>>> deviceOwnedIps =
-        ImmutableMap.of(
-            Ip.ZERO, ImmutableMap.of("c1", ImmutableSet.of("i1"), "c2", ImmutableSet.of("i2")));
-
-    assertThat(
-        computeNodeOwners(deviceOwnedIps),
-        equalTo(ImmutableMap.of(Ip.ZERO, ImmutableSet.of("c1", "c2"))));
-  }
 }
@@ -0,0 +1,87 @@
+package org.batfish.datamodel;
+
+import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.nullValue;
+import static org.hamcrest.Matchers.sameInstance;
+import static org.junit.Assert.assertThat;
+
+import com.google.common.collect.ImmutableList;
+import java.util.List;
+import java.util.Random;
+import javax.annotation.Nullable;
+import org.junit.Test;
+
+/** Tests of {@link RouteFilterLineIndex}. */
+public final class RouteFilterLineIndexTest {
+
+  /** Reference first-match semantics: the first line in order matching {@code prefix}. */
+  private static @Nullable RouteFilterLine linearFirstMatch(
+      List<RouteFilterLine> lines, Prefix prefix) {
+    for (RouteFilterLine line : lines) {
+      if (line.getIpWildcard().containsIp(prefix.getStartIp())
+          && line.getLengthRange().includes(prefix.getPrefixLength())) {
+        return line;
+      }
+    }
+    return null;
+  }
+
+  private static RouteFilterLine line(LineAction action, String wildcard, int min, int max) {
+    return new RouteFilterLine(action, IpWildcard.parse(wildcard), new SubRange(min, max));
+  }
+
+  @Test
+  public void testFirstMatch() {
+    RouteFilterLine deny = line(LineAction.DENY, "10.1.0.0/16", 24, 32);
+    RouteFilterLine permit = line(LineAction.PERMIT, "10.0.0.0/8", 8, 32);
+    RouteFilterLine mask = line(LineAction.PERMIT, "1.0.0.1:255.255.255.0", 32, 32);
+    RouteFilterLine all = line(LineAction.DENY, "0.0.0.0/0", 0, 32);
+    RouteFilterLineIndex index = RouteFilterLineIndex.of(ImmutableList.of(deny, permit, mask, all));
+
+    assertThat(index.firstMatch(Prefix.parse("10.1.2.0/24")), sameInstance(deny));
+    // more specific line does not match the length, so the covering line does
+    assertThat(index.firstMatch(Prefix.parse("10.1.0.0/16")), sameInstance(permit));
+    assertThat(index.firstMatch(Prefix.parse("7.0.0.1/32")), sameInstance(mask));
+    assertThat(index.firstMatch(Prefix.parse("7.0.0.2/32")), sameInstance(all));
+  }
+
+  @Test
+  public void testNoMatch() {
+    RouteFilterLineIndex index =
+        RouteFilterLineIndex.of(ImmutableList.of(line(LineAction.PERMIT, "10.0.0.0/8", 8, 8)));
+
+    assertThat(index.firstMatch(Prefix.parse("10.0.0.0/16")), nullValue());
+    assertThat(index.firstMatch(Prefix.parse("11.0.0.0/8")), nullValue());
+    assertThat(RouteFilterLineIndex.of(ImmutableList.of()).firstMatch(Prefix.ZERO), nullValue());
+  }
+
+  @Test
+  public void testMatchesLinearEvaluation() {
+    Random random = new Random(0);
+    ImmutableList.Builder<RouteFilterLine> builder = ImmutableList.builder();
+    for (int i = 0; i < 2000; i++) {
+      // cluster the lines in 10.0.0.0/14 so that they overlap
+      int length = 8 + random.nextInt(25);
+      Prefix prefix = Prefix.create(Ip.create(0x0A000000L | random.nextInt(1 << 18) << 8), length);
+      int min = length + random.nextInt(Prefix.MAX_PREFIX_LENGTH - length + 1);
+      int max = min + random.nextInt(Prefix.MAX_PREFIX_LENGTH - min + 1);
+      builder.add(
+          new RouteFilterLine(
+              random.nextBoolean() ? LineAction.PERMIT : LineAction.DENY,
+              i % 100 == 0
+                  ? IpWildcard.ipWithWildcardMask(prefix.getStartIp(), Ip.create(0x00FF00FFL))
+                  : IpWildcard.create(prefix),
+              new SubRange(min, max)));
+    }
+    List<RouteFilterLine> lines = builder.build();
+    RouteFilterLineIndex index = RouteFilterLineIndex.of(lines);
+
+    for (int i = 0; i < 20000; i++) {
+      Prefix prefix =
+          Prefix.create(
+              Ip.create(0x0A000000L | random.nextInt(1 << 18) << 8 | random.nextInt(256)),
+              8 + random.nextInt(25));
+      assertThat(index.firstMatch(prefix), equalTo(linearFirstMatch(lines, prefix)));
+    }
+  }
+}
@@ -75,4 +75,24 @@ public class RouteFilterListTest {
     assertThat(_rfPrefixExact, permits(acceptedPrefix1));
     assertThat(_rfPrefixExact, rejects(deniedPrefix1));
   }
+
+  @Test
+  public void testIndexedList() {
+    ImmutableList.Builder<RouteFilterLine> lines = ImmutableList.builder();
+    for (int i = 0; i < RouteFilterList.MIN_INDEXED_LINES; i++) {
+      lines.add(
+          new RouteFilterLine(
+              LineAction.DENY, Prefix.create(Ip.create(i << 24), 8), SubRange.singleton(8)));
+    }
+    lines.add(new RouteFilterLine(LineAction.PERMIT, Prefix.ZERO, new SubRange(0, 32)));
+    RouteFilterList list = new RouteFilterList("indexed", lines.build());
+
+    assertThat(list, rejects(Prefix.parse("1.0.0.0/8")));
+    assertThat(list, permits(Prefix.parse("1.0.0.0/16")));
+    assertThat(list, permits(Prefix.parse("16.0.0.0/8")));
+
+    // replacing the lines discards the index
+    list.setLines(ImmutableList.of());
+    assertThat(list, rejects(Prefix.parse("16.0.0.0/16")));
+  }
 }
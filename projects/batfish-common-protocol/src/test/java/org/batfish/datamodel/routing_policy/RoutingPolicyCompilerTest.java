@@ -0,0 +1,285 @@
+package org.batfish.datamodel.routing_policy;
+
+import static org.hamcrest.Matchers.equalTo;
+import static org.junit.Assert.assertThat;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.ImmutableSet;
+import com.google.common.collect.ImmutableSortedMap;
+import java.util.List;
+import org.batfish.datamodel.Bgpv4Route;
+import org.batfish.datamodel.Configuration;
+import org.batfish.datamodel.ConfigurationFormat;
+import org.batfish.datamodel.LineAction;
+import org.batfish.datamodel.Prefix;
+import org.batfish.datamodel.RouteFilterLine;
+import org.batfish.datamodel.RouteFilterList;
+import org.batfish.datamodel.SubRange;
+import org.batfish.datamodel.TraceElement;
+import org.batfish.datamodel.bgp.community.StandardCommunity;
+import org.batfish.datamodel.routing_policy.Environment.Direction;
+import org.batfish.datamodel.routing_policy.RoutingPolicyCompiler.Evaluator;
+import org.batfish.datamodel.routing_policy.communities.CommunityIs;
+import org.batfish.datamodel.routing_policy.communities.CommunitySetMatchExprReference;
+import org.batfish.datamodel.routing_policy.communities.HasCommunity;
+import org.batfish.datamodel.routing_policy.communities.InputCommunities;
+import org.batfish.datamodel.routing_policy.communities.MatchCommunities;
+import org.batfish.datamodel.routing_policy.expr.BooleanExpr;
+import org.batfish.datamodel.routing_policy.expr.BooleanExprs;
+import org.batfish.datamodel.routing_policy.expr.CallExpr;
+import org.batfish.datamodel.routing_policy.expr.Conjunction;
+import org.batfish.datamodel.routing_policy.expr.DestinationNetwork;
+import org.batfish.datamodel.routing_policy.expr.Disjunction;
+import org.batfish.datamodel.routing_policy.expr.FirstMatchChain;
+import org.batfish.datamodel.routing_policy.expr.IntComparator;
+import org.batfish.datamodel.routing_policy.expr.LiteralLong;
+import org.batfish.datamodel.routing_policy.expr.MatchPrefixSet;
+import org.batfish.datamodel.routing_policy.expr.MatchTag;
+import org.batfish.datamodel.routing_policy.expr.NamedPrefixSet;
+import org.batfish.datamodel.routing_policy.expr.Not;
+import org.batfish.datamodel.routing_policy.expr.WithEnvironmentExpr;
+import org.batfish.datamodel.routing_policy.statement.CallStatement;
+import org.batfish.datamodel.routing_policy.statement.Comment;
+import org.batfish.datamodel.routing_policy.statement.If;
+import org.batfish.datamodel.routing_policy.statement.SetDefaultPolicy;
+import org.batfish.datamodel.routing_policy.statement.SetLocalPreference;
+import org.batfish.datamodel.routing_policy.statement.SetTag;
+import org.batfish.datamodel.routing_policy.statement.Statement;
+import org.batfish.datamodel.routing_policy.statement.Statements;
+import org.batfish.datamodel.routing_policy.statement.TraceableStatement;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Differential tests of {@link RoutingPolicyCompiler}: each policy is evaluated on a set of routes
+ * both by the interpreter and by the compiled policy, which must agree on the result, the output
+ * route, and the state left in the environment.
+ */
+public final class RoutingPolicyCompilerTest {
+
+  private static final StandardCommunity COMMUNITY = StandardCommunity.of(1, 1);
+
+  private static final List<Bgpv4Route> ROUTES =
+      ImmutableList.of(
+          route("10.1.0.0/16", 1, true),
+          route("10.0.0.0/8", 2, false),
+          route("20.0.0.0/8", 1, false),
+          route("20.0.0.0/16", 3, true));
+
+  private static Bgpv4Route route(String network, long tag, boolean withCommunity) {
+    return Bgpv4Route.testBuilder()
+        .setNetwork(Prefix.parse(network))
+        .setTag(tag)
+        .setCommunities(withCommunity ? ImmutableSet.of(COMMUNITY) : ImmutableSet.of())
+        .build();
+  }
+
+  private Configuration _c;
+
+  @Before
+  public void setup() {
+    _c =
+        Configuration.builder()
+            .setHostname("c")
+            .setConfigurationFormat(ConfigurationFormat.CISCO_IOS)
+            .build();
+    _c.setRouteFilterLists(
+        ImmutableSortedMap.of(
+            "rfl",
+            new RouteFilterList(
+                "rfl",
+                ImmutableList.of(
+                    new RouteFilterLine(
+                        LineAction.PERMIT,
+                        Prefix.parse("10.0.0.0/8"),
+                        new SubRange(8, Prefix.MAX_PREFIX_LENGTH))))));
+    _c.setCommunitySetMatchExprs(
+        ImmutableMap.of("cm", new HasCommunity(new CommunityIs(COMMUNITY))));
+  }
+
+  private RoutingPolicy policy(String name, Statement... statements) {
+    return RoutingPolicy.builder()
+        .setName(name)
+        .setOwner(_c)
+        .setStatements(ImmutableList.copyOf(statements))
+        .build();
+  }
+
+  private Environment environment(Bgpv4Route route) {
+    return Environment.builder(_c)
+        .setOriginalRoute(route)
+        .setOutputRoute(route.toBuilder())
+        .setDirection(Direction.IN)
+        .build();
+  }
+
+  /** Assert that compiling {@code policy} does not change its behavior on any route. */
+  private void assertCompiledMatchesInterpreter(RoutingPolicy policy) {
+    Evaluator compiled = RoutingPolicyCompiler.compile(policy);
+    for (Bgpv4Route route : ROUTES) {
+      Environment interpreted = environment(route);
+      Environment compiledEnvironment = environment(route);
+
+      Result expected = policy.call(interpreted);
+
+      assertThat(compiled.evaluate(compiledEnvironment), equalTo(expected));
+      assertThat(
+          compiledEnvironment.getOutputRoute().build(),
+          equalTo(interpreted.getOutputRoute().build()));
+      assertThat(compiledEnvironment.getError(), equalTo(interpreted.getError()));
+      assertThat(compiledEnvironment.getSuppressed(), equalTo(interpreted.getSuppressed()));
+      assertThat(compiledEnvironment.getDefaultAction(), equalTo(interpreted.getDefaultAction()));
+      assertThat(
+          compiledEnvironment.getLocalDefaultAction(),
+          equalTo(interpreted.getLocalDefaultAction()));
+      assertThat(
+          compiledEnvironment.getCallExprContext(), equalTo(interpreted.getCallExprContext()));
+      assertThat(
+          compiledEnvironment.getCallStatementContext(),
+          equalTo(interpreted.getCallStatementContext()));
+    }
+  }
+
+  private static If ifThenAcceptElseReject(BooleanExpr guard, Statement... trueStatements) {
+    return new If(
+        guard,
+        ImmutableList.<Statement>builder()
+            .add(trueStatements)
+            .add(Statements.ExitAccept.toStaticStatement())
+            .build(),
+        ImmutableList.of(Statements.ExitReject.toStaticStatement()));
+  }
+
+  private static MatchTag matchTag(long tag) {
+    return new MatchTag(IntComparator.EQ, new LiteralLong(tag));
+  }
+
+  @Test
+  public void testMatchNamedPrefixSet() {
+    assertCompiledMatchesInterpreter(
+        policy(
+            "p",
+            ifThenAcceptElseReject(
+                new MatchPrefixSet(DestinationNetwork.instance(), new NamedPrefixSet("rfl")),
+                new SetLocalPreference(new LiteralLong(200)))));
+  }
+
+  @Test
+  public void testUndefinedPrefixSet() {
+    assertCompiledMatchesInterpreter(
+        policy(
+            "p",
+            ifThenAcceptElseReject(
+                new MatchPrefixSet(
+                    DestinationNetwork.instance(), new NamedPrefixSet("undefined")))));
+  }
+
+  @Test
+  public void testMatchCommunities() {
+    assertCompiledMatchesInterpreter(
+        policy(
+            "p",
+            ifThenAcceptElseReject(
+                new MatchCommunities(
+                    InputCommunities.instance(), new CommunitySetMatchExprReference("cm")),
+                new SetTag(new LiteralLong(7)))));
+  }
+
+  @Test
+  public void testConstantFolding() {
+    assertCompiledMatchesInterpreter(
+        policy(
+            "p",
+            new Comment("folded away"),
+            new If(
+                BooleanExprs.FALSE,
+                ImmutableList.of(Statements.ExitAccept.toStaticStatement()),
+                ImmutableList.of(new SetTag(new LiteralLong(5)))),
+            new If(
+                new Conjunction(ImmutableList.of(BooleanExprs.TRUE, new Not(BooleanExprs.FALSE))),
+                ImmutableList.of(new SetLocalPreference(new LiteralLong(10)))),
+            ifThenAcceptElseReject(
+                new Disjunction(BooleanExprs.FALSE, matchTag(1), BooleanExprs.TRUE, matchTag(3))),
+            // unreachable
+            new SetTag(new LiteralLong(9))));
+    assertCompiledMatchesInterpreter(
+        policy(
+            "q",
+            ifThenAcceptElseReject(
+                new Conjunction(ImmutableList.of(matchTag(1), BooleanExprs.FALSE, matchTag(2))))));
+    assertCompiledMatchesInterpreter(
+        policy("r", Statements.ReturnTrue.toStaticStatement(), new SetTag(new LiteralLong(9))));
+    assertCompiledMatchesInterpreter(policy("empty"));
+  }
+
+  @Test
+  public void testCallInlining() {
+    policy(
+        "sub",
+        Statements.SetLocalDefaultActionAccept.toStaticStatement(),
+        new SetTag(new LiteralLong(100)),
+        new If(matchTag(1), ImmutableList.of(Statements.ReturnFalse.toStaticStatement())),
+        Statements.ReturnLocalDefaultAction.toStaticStatement());
+    policy(
+        "setsDefault",
+        Statements.SetDefaultActionAccept.toStaticStatement(),
+        Statements.Suppress.toStaticStatement());
+    assertCompiledMatchesInterpreter(
+        policy(
+            "p",
+            new CallStatement("setsDefault"),
+            new If(
+                new CallExpr("sub"),
+                ImmutableList.of(new SetLocalPreference(new LiteralLong(300)))),
+            new CallStatement("undefined")));
+  }
+
+  @Test
+  public void testRecursiveCall() {
+    // calls itself once, then accepts from the nested call
+    assertCompiledMatchesInterpreter(
+        policy(
+            "p",
+            new If(
+                BooleanExprs.CALL_STATEMENT_CONTEXT,
+                ImmutableList.of(Statements.ExitAccept.toStaticStatement()),
+                ImmutableList.of(new SetTag(new LiteralLong(4)), new CallStatement("p")))));
+  }
+
+  @Test
+  public void testFirstMatchChain() {
+    policy("sub", new If(matchTag(1), ImmutableList.of(Statements.ReturnTrue.toStaticStatement())));
+    policy("default", new SetTag(new LiteralLong(8)), Statements.ReturnFalse.toStaticStatement());
+    assertCompiledMatchesInterpreter(
+        policy(
+            "p",
+            new SetDefaultPolicy("default"),
+            ifThenAcceptElseReject(new FirstMatchChain(ImmutableList.of(new CallExpr("sub"))))));
+  }
+
+  @Test
+  public void testWithEnvironmentExpr() {
+    WithEnvironmentExpr expr = new WithEnvironmentExpr();
+    expr.setExpr(matchTag(1));
+    expr.setPreStatements(
+        ImmutableList.of(Statements.SetWriteIntermediateBgpAttributes.toStaticStatement()));
+    expr.setPostStatements(
+        ImmutableList.of(Statements.UnsetWriteIntermediateBgpAttributes.toStaticStatement()));
+    expr.setPostTrueStatements(ImmutableList.of(new SetTag(new LiteralLong(6))));
+    assertCompiledMatchesInterpreter(policy("p", ifThenAcceptElseReject(expr)));
+  }
+
+  @Test
+  public void testTraceableStatement() {
+    assertCompiledMatchesInterpreter(
+        policy(
+            "p",
+            new TraceableStatement(
+                TraceElement.of("term"),
+                ImmutableList.of(
+                    ifThenAcceptElseReject(
+                        new MatchPrefixSet(
+                            DestinationNetwork.instance(), new NamedPrefixSet("rfl")))))));
+  }
+}
@@ -0,0 +1,132 @@
+package org.batfish.datamodel.routing_policy;
+
+import static org.hamcrest.Matchers.equalTo;
+import static org.junit.Assert.assertThat;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableSortedMap;
+import java.util.List;
+import org.batfish.datamodel.BgpSessionProperties;
+import org.batfish.datamodel.Bgpv4Route;
+import org.batfish.datamodel.Configuration;
+import org.batfish.datamodel.ConfigurationFormat;
+import org.batfish.datamodel.Ip;
+import org.batfish.datamodel.LineAction;
+import org.batfish.datamodel.Prefix;
+import org.batfish.datamodel.RouteFilterLine;
+import org.batfish.datamodel.RouteFilterList;
+import org.batfish.datamodel.SubRange;
+import org.batfish.datamodel.routing_policy.Environment.Direction;
+import org.batfish.datamodel.routing_policy.expr.DestinationNetwork;
+import org.batfish.datamodel.routing_policy.expr.LiteralLong;
+import org.batfish.datamodel.routing_policy.expr.MatchPrefixSet;
+import org.batfish.datamodel.routing_policy.expr.NamedPrefixSet;
+import org.batfish.datamodel.routing_policy.statement.If;
+import org.batfish.datamodel.routing_policy.statement.SetLocalPreference;
+import org.batfish.datamodel.routing_policy.statement.Statements;
+import org.junit.Test;
+
+/** Tests of {@link RoutingPolicy}. */
+public final class RoutingPolicyTest {
+
+  /** Policy accepting routes in 10.0.0.0/8 with local preference 200, and rejecting others. */
+  private static RoutingPolicy policy() {
+    Configuration c =
+        Configuration.builder()
+            .setHostname("c")
+            .setConfigurationFormat(ConfigurationFormat.CISCO_IOS)
+            .build();
+    c.setRouteFilterLists(
+        ImmutableSortedMap.of(
+            "rfl",
+            new RouteFilterList(
+                "rfl",
+                ImmutableList.of(
+                    new RouteFilterLine(
+                        LineAction.PERMIT,
+                        Prefix.parse("10.0.0.0/8"),
+                        new SubRange(8, Prefix.MAX_PREFIX_LENGTH))))));
+    return RoutingPolicy.builder()
+        .setName("policy")
+        .setOwner(c)
+        .addStatement(
+            new If(
+                new MatchPrefixSet(DestinationNetwork.instance(), new NamedPrefixSet("rfl")),
+                ImmutableList.of(
+                    new SetLocalPreference(new LiteralLong(200)),
+                    Statements.ExitAccept.toStaticStatement()),
+                ImmutableList.of(Statements.ExitReject.toStaticStatement())))
+        .build();
+  }
+
+  private static Bgpv4Route route(String network) {
+    return Bgpv4Route.testBuilder().setNetwork(Prefix.parse(network)).build();
+  }
+
+  @Test
+  public void testProcessBgpRoutes() {
+    RoutingPolicy policy = policy();
+    BgpSessionProperties props =
+        BgpSessionProperties.builder()
+            .setRemoteAs(1)
+            .setLocalAs(2)
+            .setRemoteIp(Ip.parse("1.1.1.1"))
+            .setLocalIp(Ip.parse("2.2.2.2"))
+            .build();
+    List<Bgpv4Route> routes =
+        ImmutableList.of(route("10.1.0.0/16"), route("20.0.0.0/8"), route("10.0.0.0/8"));
+    List<Bgpv4Route.Builder> batchBuilders =
+        ImmutableList.of(
+            routes.get(0).toBuilder(), routes.get(1).toBuilder(), routes.get(2).toBuilder());
+
+    boolean[] accepted = policy.processBgpRoutes(routes, batchBuilders, props, Direction.IN, null);
+
+    assertThat(accepted, equalTo(new boolean[] {true, false, true}));
+    for (int i = 0; i < routes.size(); i++) {
+      // batched evaluation must match evaluating each route on its own
+      Bgpv4Route.Builder builder = routes.get(i).toBuilder();
+      assertThat(
+          policy.processBgpRoute(routes.get(i), builder, props, Direction.IN, null),
+          equalTo(accepted[i]));
+      if (accepted[i]) {
+        assertThat(batchBuilders.get(i).getLocalPreference(), equalTo(200L));
+        assertThat(batchBuilders.get(i).build(), equalTo(builder.build()));
+      }
+    }
+  }
+
+  @Test
+  public void testCompile() {
+    RoutingPolicy policy = policy();
+    List<Bgpv4Route> routes = ImmutableList.of(route("10.1.0.0/16"), route("20.0.0.0/8"));
+    policy.compile();
+
+    Bgpv4Route.Builder accepted = routes.get(0).toBuilder();
+    assertThat(
+        policy.processBgpRoute(routes.get(0), accepted, null, Direction.IN, null), equalTo(true));
+    assertThat(accepted.getLocalPreference(), equalTo(200L));
+    assertThat(
+        policy.processBgpRoute(routes.get(1), routes.get(1).toBuilder(), null, Direction.IN, null),
+        equalTo(false));
+
+    // replacing the statements discards the compiled policy
+    policy.setStatements(ImmutableList.of(Statements.ExitAccept.toStaticStatement()));
+    assertThat(
+        policy.processBgpRoute(routes.get(1), routes.get(1).toBuilder(), null, Direction.IN, null),
+        equalTo(true));
+  }
+
+  @Test
+  public void testProcessBgpRoutesEmpty() {
+    assertThat(
+        policy().processBgpRoutes(ImmutableList.of(), ImmutableList.of(), null, Direction.IN, null),
+        equalTo(new boolean[0]));
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void testProcessBgpRoutesMismatchedBuilders() {
+    policy()
+        .processBgpRoutes(
+            ImmutableList.of(route("10.0.0.0/8")), ImmutableList.of(), null, Direction.IN, null);
+  }
+}
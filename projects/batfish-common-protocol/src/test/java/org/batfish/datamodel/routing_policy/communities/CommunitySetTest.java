@@ -4,6 +4,7 @@ import static org.hamcrest.Matchers.allOf;
 import static org.hamcrest.Matchers.equalTo;
 import static org.hamcrest.Matchers.not;
 import static org.hamcrest.Matchers.notNullValue;
+import static org.hamcrest.Matchers.sameInstance;
 import static org.junit.Assert.assertNotNull;
 import static org.junit.Assert.assertThat;
 
@@ -28,6 +29,12 @@ public final class CommunitySetTest {
     assertThat(SerializationUtils.clone(SET), equalTo(SET));
   }
 
+  @Test
+  public void testJavaSerializationCached() {
+    CommunitySet set = CommunitySet.of(StandardCommunity.of(1L));
+    assertThat(SerializationUtils.clone(set), sameInstance(set));
+  }
+
   @Test
   public void testEquals() {
     new EqualsTester()
@@ -0,0 +1,253 @@
+package org.batfish.storage;
+
+import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.lessThan;
+import static org.hamcrest.Matchers.not;
+import static org.hamcrest.Matchers.sameInstance;
+import static org.junit.Assert.assertThat;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InvalidClassException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.PushbackInputStream;
+import java.io.Serializable;
+import java.io.StreamCorruptedException;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.Objects;
+import org.batfish.datamodel.AclIpSpace;
+import org.batfish.datamodel.ConcreteInterfaceAddress;
+import org.batfish.datamodel.IpSpace;
+import org.batfish.datamodel.Prefix;
+import org.batfish.datamodel.acl.AclLineMatchExpr;
+import org.batfish.datamodel.acl.AclLineMatchExprs;
+import org.batfish.datamodel.acl.AndMatchExpr;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.ExpectedException;
+
+/** Tests of {@link CompactObjectOutputStream} and {@link CompactObjectInputStream}. */
+public final class CompactObjectOutputStreamTest {
+
+  @Rule public ExpectedException _thrown = ExpectedException.none();
+
+  private static final class Value implements Serializable {
+    private final int _number;
+    private final Class<?> _type;
+
+    private Value(int number, Class<?> type) {
+      _number = number;
+      _type = type;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+      if (this == o) {
+        return true;
+      } else if (!(o instanceof Value)) {
+        return false;
+      }
+      Value value = (Value) o;
+      return _number == value._number && _type == value._type;
+    }
+
+    @Override
+    public int hashCode() {
+      return Objects.hash(_number, _type);
+    }
+  }
+
+  private static final class VersionedValue implements Serializable {
+    private static final long serialVersionUID = 1L;
+
+    private final int _version;
+
+    private VersionedValue(int version) {
+      _version = version;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+      return this == o
+          || (o instanceof VersionedValue && _version == ((VersionedValue) o)._version);
+    }
+
+    @Override
+    public int hashCode() {
+      return _version;
+    }
+  }
+
+  private static byte[] serialize(Object object, boolean compact) throws IOException {
+    ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+    try (ObjectOutputStream oos =
+        compact ? new CompactObjectOutputStream(bytes) : new ObjectOutputStream(bytes)) {
+      oos.writeObject(object);
+    }
+    return bytes.toByteArray();
+  }
+
+  private static Object deserialize(byte[] bytes) throws IOException, ClassNotFoundException {
+    try (ObjectInputStream ois = new CompactObjectInputStream(new ByteArrayInputStream(bytes))) {
+      return ois.readObject();
+    }
+  }
+
+  private static boolean isCompactStream(byte[] bytes) throws IOException {
+    PushbackInputStream stream = new PushbackInputStream(new ByteArrayInputStream(bytes), 4);
+    boolean compact = CompactObjectInputStream.isCompactStream(stream);
+    // the header is not consumed
+    assertThat(stream.read(), equalTo(bytes[0] & 0xFF));
+    return compact;
+  }
+
+  @Test
+  public void testRoundTrip() throws IOException, ClassNotFoundException {
+    Object object =
+        ImmutableMap.of(
+            "value",
+            new Value(1, int.class),
+            "values",
+            ImmutableList.of(new Value(2, String.class), new Value(3, long[].class)),
+            "address",
+            ConcreteInterfaceAddress.parse("10.0.0.1/24"),
+            "prefix",
+            Prefix.parse("10.0.0.0/24"));
+
+    assertThat(deserialize(serialize(object, true)), equalTo(object));
+  }
+
+  @Test
+  public void testSmallerThanStandardSerialization() throws IOException {
+    Object object = ImmutableList.of(new Value(1, int.class), new Value(2, String.class));
+
+    assertThat(serialize(object, true).length, lessThan(serialize(object, false).length));
+  }
+
+  @Test
+  public void testIsCompactStream() throws IOException {
+    assertThat(isCompactStream(serialize(new Value(1, int.class), true)), equalTo(true));
+    assertThat(isCompactStream(serialize(new Value(1, int.class), false)), equalTo(false));
+    assertThat(
+        CompactObjectInputStream.isCompactStream(
+            new PushbackInputStream(new ByteArrayInputStream(new byte[] {1}), 4)),
+        equalTo(false));
+  }
+
+  @Test
+  public void testVersionMismatch() throws IOException, ClassNotFoundException {
+    byte[] bytes = serialize(new Value(1, int.class), true);
+    // the version follows the two-byte magic
+    bytes[3] ^= 1;
+
+    // still detected as a compact stream, so it is not misread as standard serialization
+    assertThat(isCompactStream(bytes), equalTo(true));
+    _thrown.expect(StreamCorruptedException.class);
+    _thrown.expectMessage("unsupported compact stream version");
+    deserialize(bytes);
+  }
+
+  @Test
+  public void testSerialVersionUidMismatch() throws IOException, ClassNotFoundException {
+    byte[] bytes = serialize(new Value(1, int.class), true);
+    // corrupt the serial version UID, which follows the class name
+    byte[] name = Value.class.getName().getBytes(StandardCharsets.UTF_8);
+    int nameIndex = indexOf(bytes, name);
+    bytes[nameIndex + name.length] ^= 1;
+
+    _thrown.expect(InvalidClassException.class);
+    deserialize(bytes);
+  }
+
+  @Test
+  public void testDeclaresSerialVersionUid() {
+    assertThat(
+        CompactObjectOutputStream.declaresSerialVersionUid(VersionedValue.class), equalTo(true));
+    assertThat(CompactObjectOutputStream.declaresSerialVersionUid(Value.class), equalTo(false));
+    assertThat(CompactObjectOutputStream.declaresSerialVersionUid(int[].class), equalTo(false));
+    assertThat(CompactObjectOutputStream.declaresSerialVersionUid(null), equalTo(false));
+  }
+
+  @Test
+  public void testFullDescriptorForDeclaredSerialVersionUid()
+      throws IOException, ClassNotFoundException {
+    Object object = ImmutableList.of(new VersionedValue(1), new Value(2, int.class));
+    byte[] bytes = serialize(object, true);
+
+    // field names are only written for the class that declares its serial version UID
+    assertThat(indexOf(bytes, "_version".getBytes(StandardCharsets.UTF_8)), not(equalTo(-1)));
+    assertThat(indexOf(bytes, "_number".getBytes(StandardCharsets.UTF_8)), equalTo(-1));
+    assertThat(deserialize(bytes), equalTo(object));
+  }
+
+  @Test
+  public void testFieldTypeMismatch() throws IOException, ClassNotFoundException {
+    byte[] bytes = serialize(new VersionedValue(1), true);
+    // change the type code of the field, which precedes its length-prefixed name, from int to long
+    int nameIndex = indexOf(bytes, "_version".getBytes(StandardCharsets.UTF_8));
+    assertThat(bytes[nameIndex - 3], equalTo((byte) 'I'));
+    bytes[nameIndex - 3] = (byte) 'J';
+
+    _thrown.expect(InvalidClassException.class);
+    deserialize(bytes);
+  }
+
+  @Test
+  public void testInternsAcrossStreams() throws IOException, ClassNotFoundException {
+    // new String to make sure the deserialized copies are not the literal itself
+    String name = new String("GigabitEthernet0/0");
+    IpSpace ipSpace =
+        AclIpSpace.union(
+            Prefix.parse("10.0.0.0/8").toIpSpace(), Prefix.parse("10.1.0.0/16").toIpSpace());
+    AclLineMatchExpr expr =
+        AclLineMatchExprs.and(
+            AclLineMatchExprs.permittedByAcl(name), AclLineMatchExprs.matchSrcInterface(name));
+    byte[] bytes = serialize(ImmutableList.of(name, ipSpace, expr), true);
+
+    List<?> first = (List<?>) deserialize(bytes);
+    List<?> second = (List<?>) deserialize(bytes);
+
+    assertThat(first, equalTo(ImmutableList.of(name, ipSpace, expr)));
+    assertThat(first, not(sameInstance(second)));
+    for (int i = 0; i < first.size(); i++) {
+      assertThat(second.get(i), sameInstance(first.get(i)));
+    }
+  }
+
+  @Test
+  public void testDoesNotInternMutableValues() throws IOException, ClassNotFoundException {
+    // MatchHeaderSpace wraps a mutable HeaderSpace, so neither it nor its parents may be shared
+    IpSpace ipSpace = Prefix.parse("10.0.0.0/8").toIpSpace();
+    AclLineMatchExpr expr =
+        AclLineMatchExprs.and(
+            AclLineMatchExprs.matchSrc(ipSpace), AclLineMatchExprs.matchSrcInterface("i1"));
+    byte[] bytes = serialize(expr, true);
+
+    AndMatchExpr first = (AndMatchExpr) deserialize(bytes);
+    AndMatchExpr second = (AndMatchExpr) deserialize(bytes);
+
+    assertThat(first, equalTo(expr));
+    assertThat(second, not(sameInstance(first)));
+    assertThat(second.getConjuncts().get(0), not(sameInstance(first.getConjuncts().get(0))));
+    // immutable children are still shared
+    assertThat(second.getConjuncts().get(1), sameInstance(first.getConjuncts().get(1)));
+  }
+
+  private static int indexOf(byte[] bytes, byte[] target) {
+    for (int i = 0; i + target.length <= bytes.length; i++) {
+      boolean match = true;
+      for (int j = 0; j < target.length && match; j++) {
+        match = bytes[i + j] == target[j];
+      }
+      if (match) {
+        return i;
+      }
+    }
+    return -1;
+  }
+}
@@ -1,14 +1,17 @@
 package org.batfish.storage;
 
+import static com.google.common.util.concurrent.MoreExecutors.directExecutor;
 import static java.nio.charset.StandardCharsets.UTF_8;
 import static org.batfish.storage.FileBasedStorage.GC_SKEW_ALLOWANCE;
 import static org.batfish.storage.FileBasedStorage.ISP_CONFIGURATION_KEY;
 import static org.batfish.storage.FileBasedStorage.getWorkLogPath;
 import static org.batfish.storage.FileBasedStorage.keyInDir;
 import static org.batfish.storage.FileBasedStorage.objectKeyToRelativePath;
+import static org.hamcrest.Matchers.contains;
 import static org.hamcrest.Matchers.containsInAnyOrder;
 import static org.hamcrest.Matchers.containsString;
 import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.hasItem;
 import static org.hamcrest.Matchers.instanceOf;
 import static org.hamcrest.Matchers.not;
 import static org.hamcrest.Matchers.notNullValue;
@@ -30,10 +33,14 @@ import java.io.File;
 import java.io.FileNotFoundException;
 import java.io.IOException;
 import java.io.InputStream;
+import java.io.ObjectOutputStream;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
 import java.nio.file.attribute.FileTime;
+import java.nio.file.attribute.PosixFilePermission;
 import java.time.Instant;
 import java.time.temporal.ChronoUnit;
 import java.util.ArrayList;
@@ -43,7 +50,9 @@ import java.util.Map;
 import java.util.Optional;
 import java.util.concurrent.CyclicBarrier;
 import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.IntStream;
 import java.util.stream.Stream;
+import net.jpountz.lz4.LZ4FrameOutputStream;
 import org.apache.commons.io.FileUtils;
 import org.apache.commons.io.IOUtils;
 import org.batfish.common.BatfishException;
@@ -61,6 +70,7 @@ import org.batfish.common.util.UnzipUtility;
 import org.batfish.datamodel.Configuration;
 import org.batfish.datamodel.ConfigurationFormat;
 import org.batfish.datamodel.Ip;
+import org.batfish.datamodel.answers.Answer;
 import org.batfish.datamodel.answers.AnswerMetadata;
 import org.batfish.datamodel.answers.AnswerStatus;
 import org.batfish.datamodel.answers.ConvertConfigurationAnswerElement;
@@ -118,6 +128,78 @@ public final class FileBasedStorageTest {
     assertThat(deserialized.keySet(), equalTo(Sets.newHashSet("node1")));
   }
 
+  @Test
+  public void roundTripSingleConfigurationSucceeds() throws IOException {
+    NetworkId network = new NetworkId("network");
+    SnapshotId snapshot = new SnapshotId("snapshot");
+
+    Map<String, Configuration> configs = new HashMap<>();
+    configs.put("node1", new Configuration("node1", ConfigurationFormat.CISCO_IOS));
+    configs.put("node2", new Configuration("node2", ConfigurationFormat.JUNIPER));
+
+    _storage.storeConfigurations(
+        configs, new ConvertConfigurationAnswerElement(), Layer1Topology.EMPTY, network, snapshot);
+    assertThat(_storage.loadConfigurationHostnames(network, snapshot), contains("node1", "node2"));
+    Configuration node2 = _storage.loadConfiguration(network, snapshot, "node2");
+    assertThat(node2, not(nullValue()));
+    assertThat(node2.getConfigurationFormat(), equalTo(ConfigurationFormat.JUNIPER));
+    assertThat(_storage.loadConfiguration(network, snapshot, "node3"), nullValue());
+  }
+
+  @Test
+  public void roundTripPostProcessedConfigurations() throws IOException {
+    NetworkId network = new NetworkId("network");
+    SnapshotId snapshot = new SnapshotId("snapshot");
+    NetworkSnapshot networkSnapshot = new NetworkSnapshot(network, snapshot);
+    String key = "key";
+
+    Configuration node1 = new Configuration("node1", ConfigurationFormat.CISCO_IOS);
+    Configuration node2 = new Configuration("node2", ConfigurationFormat.JUNIPER);
+    _storage.storeConfigurations(
+        ImmutableMap.of("node1", node1, "node2", node2),
+        new ConvertConfigurationAnswerElement(),
+        Layer1Topology.EMPTY,
+        network,
+        snapshot);
+    assertThat(_storage.loadPostProcessedConfigurations(networkSnapshot, key), nullValue());
+
+    // only some nodes are post-processed
+    _storage.storePostProcessedConfigurations(
+        ImmutableMap.of("node2", node2), networkSnapshot, key, directExecutor());
+    assertThat(_storage.loadPostProcessedConfigurations(networkSnapshot, key), nullValue());
+    assertThat(
+        _storage.loadPostProcessedConfiguration(networkSnapshot, key, "node2"), not(nullValue()));
+    assertThat(_storage.loadPostProcessedConfiguration(networkSnapshot, key, "node1"), nullValue());
+    assertThat(
+        _storage.loadPostProcessedConfiguration(networkSnapshot, "otherKey", "node2"), nullValue());
+
+    // all nodes are post-processed
+    _storage.storePostProcessedConfigurations(
+        ImmutableMap.of("node1", node1), networkSnapshot, key, directExecutor());
+    Map<String, Configuration> postProcessed =
+        _storage.loadPostProcessedConfigurations(networkSnapshot, key);
+    assertThat(postProcessed, not(nullValue()));
+    assertThat(postProcessed.keySet(), contains("node1", "node2"));
+
+    // re-storing the configurations discards post-processed ones
+    _storage.storeConfigurations(
+        ImmutableMap.of("node1", node1, "node2", node2),
+        new ConvertConfigurationAnswerElement(),
+        Layer1Topology.EMPTY,
+        network,
+        snapshot);
+    assertThat(_storage.loadPostProcessedConfigurations(networkSnapshot, key), nullValue());
+    assertThat(_storage.loadPostProcessedConfiguration(networkSnapshot, key, "node2"), nullValue());
+  }
+
+  @Test
+  public void loadMissingConfigurationHostnamesReturnsNull() {
+    assertThat(
+        _storage.loadConfigurationHostnames(
+            new NetworkId("nonexistent"), new SnapshotId("nonexistent")),
+        nullValue());
+  }
+
   @Test
   public void loadMissingConfigurationsReturnsNull() {
     assertThat(
@@ -137,6 +219,24 @@ public final class FileBasedStorageTest {
     assertThat(loadedContext, instanceOf(ConversionContext.class));
   }
 
+  @Test
+  public void testLoadConversionContext_standardSerialization() throws IOException {
+    NetworkId networkId = new NetworkId("network");
+    SnapshotId snapshotId = new SnapshotId("snapshot");
+    // written before objects were serialized with compact class descriptors
+    Path conversionContextPath = _storage.getConversionContextPath(networkId, snapshotId);
+    _storage.mkdirs(conversionContextPath.getParent());
+    try (OutputStream out = Files.newOutputStream(conversionContextPath);
+        LZ4FrameOutputStream lz4 = new LZ4FrameOutputStream(out);
+        ObjectOutputStream oos = new ObjectOutputStream(lz4)) {
+      oos.writeObject(new ConversionContext());
+    }
+
+    assertThat(
+        _storage.loadConversionContext(new NetworkSnapshot(networkId, snapshotId)),
+        instanceOf(ConversionContext.class));
+  }
+
   @Test
   public void testLoadConversionContext_fileNotFound() throws IOException {
     _thrown.expect(FileNotFoundException.class);
@@ -179,6 +279,168 @@ public final class FileBasedStorageTest {
     assertThat(ispConfiguration, equalTo(readIspConfiguration));
   }
 
+  @Test
+  public void testStoreSnapshotInputObjectDeduplicates() throws IOException {
+    NetworkId network = new NetworkId("network");
+    NetworkSnapshot snapshot1 = new NetworkSnapshot(network, new SnapshotId("snapshot1"));
+    NetworkSnapshot snapshot2 = new NetworkSnapshot(network, new SnapshotId("snapshot2"));
+    byte[] content = "content".getBytes(UTF_8);
+    _storage.storeSnapshotInputObject(new ByteArrayInputStream(content), "configs/c", snapshot1);
+    _storage.storeSnapshotInputObject(new ByteArrayInputStream(content), "configs/c", snapshot2);
+
+    Path path1 = _storage.getSnapshotInputObjectPath(network, snapshot1.getSnapshot(), "configs/c");
+    Path path2 = _storage.getSnapshotInputObjectPath(network, snapshot2.getSnapshot(), "configs/c");
+    assertThat(Files.readAllBytes(path2), equalTo(content));
+    assertTrue(Files.isSameFile(path1, path2));
+    assertThat(
+        _storage.loadInputObjectHashes(snapshot2),
+        equalTo(_storage.loadInputObjectHashes(snapshot1)));
+    assertThat(_storage.loadInputObjectHashes(snapshot1).keySet(), contains("configs/c"));
+  }
+
+  @Test
+  public void testStoreSnapshotInputObjectConcurrently() throws IOException {
+    NetworkId network = new NetworkId("network");
+    byte[] content = "content".getBytes(UTF_8);
+    List<SnapshotId> snapshots =
+        IntStream.range(0, 8)
+            .mapToObj(i -> new SnapshotId("snapshot" + i))
+            .collect(ImmutableList.toImmutableList());
+
+    snapshots.parallelStream()
+        .forEach(
+            snapshot -> {
+              try {
+                _storage.storeSnapshotInputObject(
+                    new ByteArrayInputStream(content),
+                    "key",
+                    new NetworkSnapshot(network, snapshot));
+              } catch (IOException e) {
+                throw new UncheckedIOException(e);
+              }
+            });
+
+    // all first stores of the same contents share a single read-only blob
+    Path path0 = _storage.getSnapshotInputObjectPath(network, snapshots.get(0), "key");
+    for (SnapshotId snapshot : snapshots) {
+      Path path = _storage.getSnapshotInputObjectPath(network, snapshot, "key");
+      assertThat(Files.readAllBytes(path), equalTo(content));
+      assertTrue(Files.isSameFile(path0, path));
+    }
+    assertThat(countRegularFiles(_storage.getInputBlobsDir(network)), equalTo(1L));
+    assertThat(Files.getPosixFilePermissions(path0), not(hasItem(PosixFilePermission.OWNER_WRITE)));
+  }
+
+  @Test
+  public void testStoreSnapshotInputObjectReplace() throws IOException {
+    NetworkId network = new NetworkId("network");
+    NetworkSnapshot snapshot1 = new NetworkSnapshot(network, new SnapshotId("snapshot1"));
+    NetworkSnapshot snapshot2 = new NetworkSnapshot(network, new SnapshotId("snapshot2"));
+    byte[] content = "content".getBytes(UTF_8);
+    byte[] newContent = "new content".getBytes(UTF_8);
+    _storage.storeSnapshotInputObject(new ByteArrayInputStream(content), "key", snapshot1);
+    _storage.storeSnapshotInputObject(new ByteArrayInputStream(content), "key", snapshot2);
+    String hash = _storage.loadInputObjectHashes(snapshot1).get("key");
+
+    _storage.storeSnapshotInputObject(new ByteArrayInputStream(newContent), "key", snapshot2);
+
+    // replacing the object of one snapshot leaves the shared blob untouched
+    assertThat(
+        Files.readAllBytes(
+            _storage.getSnapshotInputObjectPath(network, snapshot1.getSnapshot(), "key")),
+        equalTo(content));
+    assertThat(
+        Files.readAllBytes(
+            _storage.getSnapshotInputObjectPath(network, snapshot2.getSnapshot(), "key")),
+        equalTo(newContent));
+    assertThat(_storage.loadInputObjectHashes(snapshot1).get("key"), equalTo(hash));
+    assertThat(_storage.loadInputObjectHashes(snapshot2).get("key"), not(equalTo(hash)));
+  }
+
+  @Test
+  public void testCopySnapshotInputObjects() throws IOException {
+    NetworkId network = new NetworkId("network");
+    NetworkSnapshot source = new NetworkSnapshot(network, new SnapshotId("source"));
+    NetworkSnapshot destination = new NetworkSnapshot(network, new SnapshotId("destination"));
+    byte[] content = "content".getBytes(UTF_8);
+    _storage.storeSnapshotInputObject(new ByteArrayInputStream(content), "configs/c", source);
+    _storage.storeSnapshotInputObject(new ByteArrayInputStream(content), "other", source);
+
+    _storage.copySnapshotInputObjects(source, ImmutableSet.of("configs/c"), destination);
+
+    Path sourcePath =
+        _storage.getSnapshotInputObjectPath(network, source.getSnapshot(), "configs/c");
+    Path destinationPath =
+        _storage.getSnapshotInputObjectPath(network, destination.getSnapshot(), "configs/c");
+    assertThat(Files.readAllBytes(destinationPath), equalTo(content));
+    assertTrue(Files.isSameFile(sourcePath, destinationPath));
+    assertThat(
+        _storage.loadInputObjectHashes(destination),
+        equalTo(
+            ImmutableMap.of("configs/c", _storage.loadInputObjectHashes(source).get("configs/c"))));
+    assertFalse(_storage.hasSnapshotInputObject("other", destination));
+  }
+
+  @Test
+  public void testCopySnapshotInputObjectsWithoutHash() throws IOException {
+    NetworkId network = new NetworkId("network");
+    NetworkSnapshot source = new NetworkSnapshot(network, new SnapshotId("source"));
+    NetworkSnapshot destination = new NetworkSnapshot(network, new SnapshotId("destination"));
+    // stored before input objects were content-addressed
+    Path sourcePath = _storage.getSnapshotInputObjectPath(network, source.getSnapshot(), "key");
+    _storage.mkdirs(sourcePath.getParent());
+    Files.write(sourcePath, "content".getBytes(UTF_8));
+
+    _storage.copySnapshotInputObjects(source, ImmutableSet.of("key"), destination);
+
+    assertThat(
+        Files.readAllBytes(
+            _storage.getSnapshotInputObjectPath(network, destination.getSnapshot(), "key")),
+        equalTo("content".getBytes(UTF_8)));
+    assertThat(_storage.loadInputObjectHashes(destination).keySet(), contains("key"));
+  }
+
+  @Test
+  public void testCopySnapshotInputObjectsMissing() throws IOException {
+    NetworkId network = new NetworkId("network");
+    NetworkSnapshot source = new NetworkSnapshot(network, new SnapshotId("source"));
+    NetworkSnapshot destination = new NetworkSnapshot(network, new SnapshotId("destination"));
+    _storage.mkdirs(_storage.getSnapshotInputObjectsDir(network, source.getSnapshot()));
+
+    _thrown.expect(FileNotFoundException.class);
+    _storage.copySnapshotInputObjects(source, ImmutableSet.of("missing"), destination);
+  }
+
+  @Test
+  public void testExpungeUnlinkedInputBlobs() throws IOException {
+    NetworkId network = new NetworkId("network");
+    NetworkSnapshot snapshot = new NetworkSnapshot(network, new SnapshotId("snapshot"));
+    _storage.storeSnapshotInputObject(
+        new ByteArrayInputStream("content".getBytes(UTF_8)), "key", snapshot);
+    Path blobsDir = _storage.getInputBlobsDir(network);
+    Instant future = Instant.now().plus(1, ChronoUnit.MINUTES);
+
+    // linked from the snapshot
+    _storage.expungeUnlinkedInputBlobs(network, future);
+    assertThat(countRegularFiles(blobsDir), equalTo(1L));
+
+    FileUtils.deleteDirectory(_storage.getSnapshotDir(network, snapshot.getSnapshot()).toFile());
+
+    // unlinked, but not old enough
+    _storage.expungeUnlinkedInputBlobs(
+        network, Instant.now().minus(GC_SKEW_ALLOWANCE).minus(1, ChronoUnit.MINUTES));
+    assertThat(countRegularFiles(blobsDir), equalTo(1L));
+
+    _storage.expungeUnlinkedInputBlobs(network, future);
+    assertThat(countRegularFiles(blobsDir), equalTo(0L));
+  }
+
+  private static long countRegularFiles(Path dir) throws IOException {
+    try (Stream<Path> paths = Files.walk(dir)) {
+      return paths.filter(Files::isRegularFile).count();
+    }
+  }
+
   @Test
   public void testCheckNetworkExistsTrue() {
     NetworkId network = new NetworkId("network");
@@ -499,6 +761,27 @@ public final class FileBasedStorageTest {
             new StoredObjectMetadata(key2, content2.getBytes().length)));
   }
 
+  private String loadAnswerString(NetworkId networkId, SnapshotId snapshotId, AnswerId answerId)
+      throws IOException {
+    try (InputStream inputStream = _storage.loadAnswer(networkId, snapshotId, answerId)) {
+      return IOUtils.toString(inputStream, UTF_8);
+    }
+  }
+
+  @Test
+  public void testStoreAnswer() throws IOException {
+    NetworkId networkId = new NetworkId("network");
+    SnapshotId snapshotId = new SnapshotId("snapshot");
+    AnswerId answerId = new AnswerId("answerId");
+    Answer answer = Answer.failureAnswer("failed", null);
+
+    _storage.storeAnswer(networkId, snapshotId, answer, answerId);
+
+    assertThat(
+        loadAnswerString(networkId, snapshotId, answerId),
+        equalTo(BatfishObjectMapper.writeString(answer)));
+  }
+
   /**
    * Test that the answer is loaded from the legacy location if nothing is found in the primary
    * location
@@ -514,7 +797,7 @@ public final class FileBasedStorageTest {
     _storage.mkdirs(answerPath);
     _storage.writeStringToFile(answerPath, answerStr, UTF_8);
 
-    assertThat(_storage.loadAnswer(networkId, snapshotId, answerId), equalTo(answerStr));
+    assertThat(loadAnswerString(networkId, snapshotId, answerId), equalTo(answerStr));
 
     _thrown.expect(FileNotFoundException.class);
     _storage.loadAnswer(networkId, snapshotId, new AnswerId("missing"));
@@ -8,6 +8,7 @@ import java.util.Optional;
 import java.util.Set;
 import java.util.SortedMap;
 import java.util.SortedSet;
+import java.util.concurrent.Executor;
 import java.util.stream.Stream;
 import javax.annotation.Nonnull;
 import javax.annotation.Nullable;
@@ -21,6 +22,7 @@ import org.batfish.datamodel.Configuration;
 import org.batfish.datamodel.DataPlane;
 import org.batfish.datamodel.SnapshotMetadata;
 import org.batfish.datamodel.Topology;
+import org.batfish.datamodel.answers.Answer;
 import org.batfish.datamodel.answers.AnswerMetadata;
 import org.batfish.datamodel.answers.ConvertConfigurationAnswerElement;
 import org.batfish.datamodel.answers.ParseEnvironmentBgpTablesAnswerElement;
@@ -52,6 +54,28 @@ public class TestStorageProvider implements StorageProvider {
     throw new UnsupportedOperationException("no implementation for generated method");
   }
 
+  @Override
+  public SortedSet<String> loadConfigurationHostnames(NetworkId network, SnapshotId snapshot) {
+    throw new UnsupportedOperationException("no implementation for generated method");
+  }
+
+  @Override
+  public Configuration loadConfiguration(NetworkId network, SnapshotId snapshot, String hostname) {
+    throw new UnsupportedOperationException("no implementation for generated method");
+  }
+
+  @Override
+  public SortedMap<String, Configuration> loadPostProcessedConfigurations(
+      NetworkSnapshot snapshot, String key) {
+    throw new UnsupportedOperationException("no implementation for generated method");
+  }
+
+  @Override
+  public Configuration loadPostProcessedConfiguration(
+      NetworkSnapshot snapshot, String key, String hostname) {
+    throw new UnsupportedOperationException("no implementation for generated method");
+  }
+
   @Nullable
   @Override
   public ConversionContext loadConversionContext(NetworkSnapshot snapshot) {
@@ -116,6 +140,15 @@ public class TestStorageProvider implements StorageProvider {
     throw new UnsupportedOperationException("no implementation for generated method");
   }
 
+  @Override
+  public void storePostProcessedConfigurations(
+      Map<String, Configuration> configurations,
+      NetworkSnapshot snapshot,
+      String key,
+      Executor writer) {
+    throw new UnsupportedOperationException("no implementation for generated method");
+  }
+
   @Override
   public void storeConversionContext(
       ConversionContext conversionContext, NetworkSnapshot snapshot) {
@@ -149,6 +182,12 @@ public class TestStorageProvider implements StorageProvider {
     throw new UnsupportedOperationException("no implementation for generated method");
   }
 
+  @Override
+  public void storeAnswer(
+      NetworkId network, SnapshotId snapshot, Answer answer, AnswerId answerId) {
+    throw new UnsupportedOperationException("no implementation for generated method");
+  }
+
   @Override
   public void storeAnswerMetadata(
       NetworkId network, SnapshotId snapshot, AnswerMetadata answerMetadata, AnswerId answerId) {
@@ -156,7 +195,7 @@ public class TestStorageProvider implements StorageProvider {
   }
 
   @Override
-  public String loadAnswer(NetworkId network, SnapshotId snapshot, AnswerId answerId) {
+  public InputStream loadAnswer(NetworkId network, SnapshotId snapshot, AnswerId answerId) {
     throw new UnsupportedOperationException("no implementation for generated method");
   }
 
@@ -467,6 +506,12 @@ public class TestStorageProvider implements StorageProvider {
     throw new UnsupportedOperationException();
   }
 
+  @Override
+  public void copySnapshotInputObjects(
+      NetworkSnapshot source, Set<String> keys, NetworkSnapshot destination) throws IOException {
+    throw new UnsupportedOperationException();
+  }
+
   @Nonnull
   @Override
   public Stream<String> listSnapshotInputObjectKeys(NetworkSnapshot snapshot) throws IOException {
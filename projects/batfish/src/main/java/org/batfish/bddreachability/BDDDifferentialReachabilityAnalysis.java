@@ -0,0 +1,173 @@
+package org.batfish.bddreachability;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static org.batfish.bddreachability.BDDReachabilityUtils.getIngressLocationBdds;
+
+import com.google.common.annotations.VisibleForTesting;
+import com.google.common.base.Suppliers;
+import com.google.common.collect.HashBasedTable;
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.ImmutableSet;
+import com.google.common.collect.Sets;
+import com.google.common.collect.Table;
+import io.opentracing.Scope;
+import io.opentracing.Span;
+import io.opentracing.util.GlobalTracer;
+import java.util.ArrayDeque;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.Queue;
+import java.util.Set;
+import java.util.function.Supplier;
+import net.sf.javabdd.BDD;
+import org.batfish.bddreachability.transition.Transition;
+import org.batfish.symbolic.IngressLocation;
+import org.batfish.symbolic.state.Query;
+import org.batfish.symbolic.state.StateExpr;
+
+/**
+ * Differential backward reachability over a base and a delta {@link BDDReachabilityAnalysis} built
+ * with the same {@link org.batfish.common.bdd.BDDPacket}.
+ *
+ * <p>Because both graphs share one BDD factory, transitions of unchanged nodes are equal across the
+ * two graphs. A state whose outgoing edges are the same in both graphs, and from which no changed
+ * state is reachable, has the same reverse-reachable set in both snapshots. So the base graph is
+ * solved once, and the delta graph is only solved on the frontier of states that can reach a
+ * changed state, seeded with the base results of the unchanged states at its boundary.
+ *
+ * <p>Transitions that do not implement value equality are conservatively treated as changed.
+ */
+public final class BDDDifferentialReachabilityAnalysis {
+  private final BDDReachabilityAnalysis _base;
+  private final BDDReachabilityAnalysis _delta;
+
+  private final Supplier<Map<StateExpr, BDD>> _baseReverseReachableStates;
+  private final Supplier<Map<StateExpr, BDD>> _deltaReverseReachableStates;
+
+  public BDDDifferentialReachabilityAnalysis(
+      BDDReachabilityAnalysis base, BDDReachabilityAnalysis delta) {
+    checkArgument(
+        base.getBDDPacket() == delta.getBDDPacket(),
+        "Base and delta analyses must share a BDDPacket");
+    _base = base;
+    _delta = delta;
+    _baseReverseReachableStates = Suppliers.memoize(base::computeReverseReachableStates);
+    _deltaReverseReachableStates = Suppliers.memoize(this::computeDeltaReverseReachableStates);
+  }
+
+  /**
+   * Map of base {@link IngressLocation IngressLocations} to the BDD of flows reaching the query.
+   */
+  public Map<IngressLocation, BDD> getBaseIngressLocationBdds() {
+    return getIngressLocationBdds(
+        _baseReverseReachableStates.get(),
+        _base.getIngressLocationStates(),
+        _base.getBDDPacket().getFactory().zero());
+  }
+
+  /**
+   * Map of delta {@link IngressLocation IngressLocations} to the BDD of flows reaching the query.
+   * The BDDs of locations that cannot reach a changed state are shared with the base result.
+   */
+  public Map<IngressLocation, BDD> getDeltaIngressLocationBdds() {
+    return getIngressLocationBdds(
+        _deltaReverseReachableStates.get(),
+        _delta.getIngressLocationStates(),
+        _delta.getBDDPacket().getFactory().zero());
+  }
+
+  private Map<StateExpr, BDD> computeDeltaReverseReachableStates() {
+    if (!_base.getQueryHeaderSpaceBdd().equals(_delta.getQueryHeaderSpaceBdd())) {
+      // Every state that reaches the query may differ, so there is nothing to share.
+      return _delta.computeReverseReachableStates();
+    }
+    Span span =
+        GlobalTracer.get()
+            .buildSpan("BDDDifferentialReachabilityAnalysis.computeDeltaReverseReachableStates")
+            .start();
+    try (Scope scope = GlobalTracer.get().scopeManager().activate(span)) {
+      assert scope != null; // avoid unused warning
+      Map<StateExpr, Map<StateExpr, Transition>> baseEdges = _base.getForwardEdgeMap();
+      Map<StateExpr, Map<StateExpr, Transition>> deltaEdges = _delta.getForwardEdgeMap();
+      Set<StateExpr> changed = changedStates(baseEdges, deltaEdges);
+      Set<StateExpr> affected = affectedStates(changed, _delta.getTransposedEdgeTable());
+      span.setTag("changedStates", changed.size());
+      span.setTag("affectedStates", affected.size());
+      span.setTag("totalStates", Sets.union(baseEdges.keySet(), deltaEdges.keySet()).size());
+
+      Map<StateExpr, BDD> baseResult = _baseReverseReachableStates.get();
+      if (affected.isEmpty()) {
+        return baseResult;
+      }
+
+      // Restrict the delta graph to edges out of affected states, and seed the fixpoint with the
+      // base results of the unaffected states those edges lead to.
+      Table<StateExpr, StateExpr, Transition> frontierTransposedEdges = HashBasedTable.create();
+      Map<StateExpr, BDD> deltaFrontierResult = new HashMap<>();
+      for (StateExpr preState : affected) {
+        for (Entry<StateExpr, Transition> e :
+            deltaEdges.getOrDefault(preState, ImmutableMap.of()).entrySet()) {
+          StateExpr postState = e.getKey();
+          frontierTransposedEdges.put(postState, preState, e.getValue());
+          if (!affected.contains(postState)) {
+            BDD seed = baseResult.get(postState);
+            if (seed != null) {
+              deltaFrontierResult.put(postState, seed);
+            }
+          }
+        }
+      }
+      BDDReachabilityUtils.backwardFixpointTransposed(frontierTransposedEdges, deltaFrontierResult);
+
+      Map<StateExpr, BDD> result = new HashMap<>(baseResult);
+      // Affected states that can no longer reach the query are absent in the delta.
+      result.keySet().removeAll(affected);
+      deltaFrontierResult.forEach(
+          (state, bdd) -> {
+            if (affected.contains(state)) {
+              result.put(state, bdd);
+            }
+          });
+      return ImmutableMap.copyOf(result);
+    } finally {
+      span.finish();
+    }
+  }
+
+  /** States whose outgoing edges differ between the two graphs. */
+  @VisibleForTesting
+  static Set<StateExpr> changedStates(
+      Map<StateExpr, Map<StateExpr, Transition>> baseEdges,
+      Map<StateExpr, Map<StateExpr, Transition>> deltaEdges) {
+    ImmutableSet.Builder<StateExpr> changed = ImmutableSet.builder();
+    for (StateExpr state : Sets.union(baseEdges.keySet(), deltaEdges.keySet())) {
+      if (!baseEdges
+          .getOrDefault(state, ImmutableMap.of())
+          .equals(deltaEdges.getOrDefault(state, ImmutableMap.of()))) {
+        changed.add(state);
+      }
+    }
+    return changed.build();
+  }
+
+  /** Changed states and every state from which a changed state is reachable. */
+  @VisibleForTesting
+  static Set<StateExpr> affectedStates(
+      Set<StateExpr> changed, Table<StateExpr, StateExpr, Transition> transposedEdges) {
+    Set<StateExpr> affected = new HashSet<>(changed);
+    Queue<StateExpr> queue = new ArrayDeque<>(changed);
+    while (!queue.isEmpty()) {
+      StateExpr state = queue.remove();
+      for (StateExpr preState : transposedEdges.row(state).keySet()) {
+        if (affected.add(preState)) {
+          queue.add(preState);
+        }
+      }
+    }
+    // The query state has no outgoing edges; it is only ever a seed.
+    affected.remove(Query.INSTANCE);
+    return affected;
+  }
+}
@@ -1,12 +1,15 @@
 package org.batfish.bddreachability;
 
+import static com.google.common.base.Preconditions.checkArgument;
 import static org.batfish.bddreachability.BDDReachabilityUtils.backwardFixpoint;
+import static org.batfish.bddreachability.BDDReachabilityUtils.forwardReachableSubgraph;
 import static org.batfish.bddreachability.BDDReachabilityUtils.getIngressStateExprBdds;
 import static org.batfish.bddreachability.BDDReachabilityUtils.toIngressLocation;
 import static org.batfish.common.util.CollectionUtil.toImmutableMap;
 
 import com.google.common.collect.ImmutableMap;
 import com.google.common.collect.Table;
+import com.google.common.collect.Tables;
 import io.opentracing.Scope;
 import io.opentracing.Span;
 import io.opentracing.util.GlobalTracer;
@@ -27,7 +30,7 @@ import org.batfish.symbolic.IngressLocation;
 import org.batfish.symbolic.state.StateExpr;
 
 /** A reachability analysis that detects loops. */
-public class BDDLoopDetectionAnalysis {
+public class BDDLoopDetectionAnalysis implements IngressLocationAnalysis {
   private final BDDPacket _bddPacket;
   private final Table<StateExpr, StateExpr, Transition> _forwardEdgeTable;
   private final Set<StateExpr> _ingressLocationStates;
@@ -62,6 +65,34 @@ public class BDDLoopDetectionAnalysis {
                 entry -> toIngressLocation(entry.getKey()), Entry::getValue));
   }
 
+  @Override
+  public Set<StateExpr> getIngressLocationStates() {
+    return _ingressLocationStates;
+  }
+
+  @Override
+  public Table<StateExpr, StateExpr, Transition> getForwardEdgeTable() {
+    return Tables.unmodifiableTable(_forwardEdgeTable);
+  }
+
+  @Override
+  public Map<IngressLocation, BDD> getIngressLocationBdds() {
+    return detectLoops();
+  }
+
+  /** Detect loops from {@code ingressLocationStates} only. */
+  @Override
+  public Map<IngressLocation, BDD> getIngressLocationBdds(Set<StateExpr> ingressLocationStates) {
+    checkArgument(
+        _ingressLocationStates.containsAll(ingressLocationStates),
+        "Not ingress location states of this analysis");
+    return new BDDLoopDetectionAnalysis(
+            _bddPacket,
+            forwardReachableSubgraph(_forwardEdgeTable, ingressLocationStates),
+            ingressLocationStates)
+        .detectLoops();
+  }
+
   /*
    * Detect infinite routing loops in the network.
    */
@@ -1,7 +1,8 @@
 package org.batfish.bddreachability;
 
+import static com.google.common.base.Preconditions.checkArgument;
 import static org.batfish.bddreachability.BDDReachabilityUtils.computeForwardEdgeTable;
-import static org.batfish.bddreachability.BDDReachabilityUtils.getIngressLocationBdds;
+import static org.batfish.bddreachability.BDDReachabilityUtils.forwardReachableSubgraph;
 
 import com.google.common.base.Suppliers;
 import com.google.common.collect.ImmutableMap;
@@ -49,7 +50,7 @@ import org.batfish.symbolic.state.StateExpr;
  * source, which is very expensive for a large number of sources. For queries that have to consider
  * all packets that can reach the query state, backward reachability is much more efficient.
  */
-public class BDDReachabilityAnalysis {
+public class BDDReachabilityAnalysis implements IngressLocationAnalysis {
   private final BDDPacket _bddPacket;
 
   // preState --> postState --> transition from pre to post
@@ -154,6 +155,7 @@ public class BDDReachabilityAnalysis {
     return _bddPacket;
   }
 
+  @Override
   public ImmutableSet<StateExpr> getIngressLocationStates() {
     return _ingressLocationStates;
   }
@@ -163,6 +165,24 @@ public class BDDReachabilityAnalysis {
     return getIngressLocationBDDs(reverseReachableStates);
   }
 
+  @Override
+  public Map<IngressLocation, BDD> getIngressLocationBdds() {
+    return getIngressLocationReachableBDDs();
+  }
+
+  @Override
+  public Map<IngressLocation, BDD> getIngressLocationBdds(Set<StateExpr> ingressLocationStates) {
+    checkArgument(
+        _ingressLocationStates.containsAll(ingressLocationStates),
+        "Not ingress location states of this analysis");
+    Map<StateExpr, BDD> reverseReachableStates = new HashMap<>();
+    reverseReachableStates.put(Query.INSTANCE, _queryHeaderSpaceBdd);
+    BDDReachabilityUtils.backwardFixpoint(
+        forwardReachableSubgraph(_forwardEdgeTable, ingressLocationStates), reverseReachableStates);
+    return BDDReachabilityUtils.getIngressLocationBdds(
+        reverseReachableStates, ingressLocationStates, _bddPacket.getFactory().zero());
+  }
+
   /**
    * Like {@link #getIngressLocationReachableBDDs()}, but for only the specified states (with
    * initial BDDs).
@@ -185,7 +205,7 @@ public class BDDReachabilityAnalysis {
 
   private Map<IngressLocation, BDD> getIngressLocationBDDs(
       Map<StateExpr, BDD> reverseReachableStates) {
-    return getIngressLocationBdds(
+    return BDDReachabilityUtils.getIngressLocationBdds(
         reverseReachableStates, _ingressLocationStates, _bddPacket.getFactory().zero());
   }
 
@@ -193,7 +213,17 @@ public class BDDReachabilityAnalysis {
     return _forwardEdgeTable.rowMap();
   }
 
+  @Override
   public Table<StateExpr, StateExpr, Transition> getForwardEdgeTable() {
     return ImmutableTable.copyOf(_forwardEdgeTable);
   }
+
+  /** postState --> preState --> transition from pre to post. Materialized on first use. */
+  Table<StateExpr, StateExpr, Transition> getTransposedEdgeTable() {
+    return _transposedEdgeTable.get();
+  }
+
+  BDD getQueryHeaderSpaceBdd() {
+    return _queryHeaderSpaceBdd;
+  }
 }
@@ -64,7 +64,6 @@ import org.batfish.datamodel.Configuration;
 import org.batfish.datamodel.FlowDisposition;
 import org.batfish.datamodel.ForwardingAnalysis;
 import org.batfish.datamodel.Interface;
-import org.batfish.datamodel.InterfaceForwardingBehavior;
 import org.batfish.datamodel.IpAccessList;
 import org.batfish.datamodel.IpSpace;
 import org.batfish.datamodel.UniverseIpSpace;
@@ -294,38 +293,17 @@ public final class BDDReachabilityAnalysisFactory {
       _bddIncomingTransformations = computeBDDIncomingTransformations();
       _bddOutgoingTransformations = computeBDDOutgoingTransformations();
 
-      _arpTrueEdgeBDDs = computeArpTrueEdgeBDDs(vrfForwardingBehavior, _dstIpSpaceToBDD);
-      _neighborUnreachableBDDs =
-          computeIfaceForwardingBehaviorBDDs(
-              vrfForwardingBehavior,
-              InterfaceForwardingBehavior::getNeighborUnreachable,
-              _dstIpSpaceToBDD);
-      _deliveredToSubnetBDDs =
-          computeIfaceForwardingBehaviorBDDs(
-              vrfForwardingBehavior,
-              InterfaceForwardingBehavior::getDeliveredToSubnet,
-              _dstIpSpaceToBDD);
-      _exitsNetworkBDDs =
-          computeIfaceForwardingBehaviorBDDs(
-              vrfForwardingBehavior,
-              InterfaceForwardingBehavior::getExitsNetwork,
-              _dstIpSpaceToBDD);
-      _insufficientInfoBDDs =
-          computeIfaceForwardingBehaviorBDDs(
-              vrfForwardingBehavior,
-              InterfaceForwardingBehavior::getInsufficientInfo,
-              _dstIpSpaceToBDD);
-      _nullRoutedBDDs =
-          computeVrfForwardingBehaviorBDDs(
-              vrfForwardingBehavior, VrfForwardingBehavior::getNullRoutedIps, _dstIpSpaceToBDD);
-      _routableBDDs =
-          computeVrfForwardingBehaviorBDDs(
-              vrfForwardingBehavior, VrfForwardingBehavior::getRoutableIps, _dstIpSpaceToBDD);
-      _ifaceAcceptBDDs =
-          computeIfaceForwardingBehaviorBDDs(
-              vrfForwardingBehavior, InterfaceForwardingBehavior::getAcceptedIps, _dstIpSpaceToBDD);
+      ForwardingBdds forwardingBdds = ForwardingBdds.compute(_bddPacket, vrfForwardingBehavior);
+      _arpTrueEdgeBDDs = forwardingBdds.getArpTrueEdgeBdds();
+      _neighborUnreachableBDDs = forwardingBdds.getNeighborUnreachableBdds();
+      _deliveredToSubnetBDDs = forwardingBdds.getDeliveredToSubnetBdds();
+      _exitsNetworkBDDs = forwardingBdds.getExitsNetworkBdds();
+      _insufficientInfoBDDs = forwardingBdds.getInsufficientInfoBdds();
+      _nullRoutedBDDs = forwardingBdds.getNullRoutedBdds();
+      _routableBDDs = forwardingBdds.getRoutableBdds();
+      _ifaceAcceptBDDs = forwardingBdds.getIfaceAcceptBdds();
       _vrfAcceptBDDs = computeVrfAcceptBDDs(); // must do this after populating _ifaceAcceptBDDs
-      _nextVrfBDDs = computeNextVrfBDDs(vrfForwardingBehavior, _dstIpSpaceToBDD);
+      _nextVrfBDDs = forwardingBdds.getNextVrfBdds();
       _interfacesToVrfsMap = computeInterfacesToVrfsMap(configs);
 
       _dstIpVars = _bddPacket.getFactory().andAll(_bddPacket.getDstIp().getBitvec());
@@ -485,29 +463,6 @@ public final class BDDReachabilityAnalysisFactory {
     }
   }
 
-  private static @Nonnull Map<String, Map<String, BDD>> computeVrfForwardingBehaviorBDDs(
-      Map<String, Map<String, VrfForwardingBehavior>> vrfForwardingBehavior,
-      Function<VrfForwardingBehavior, IpSpace> ipSpaceGetter,
-      IpSpaceToBDD toBDD) {
-    Span span =
-        GlobalTracer.get()
-            .buildSpan("BDDReachabilityAnalysisFactory.computeVrfForwardingBehaviorBDDs")
-            .start();
-    try (Scope scope = GlobalTracer.get().scopeManager().activate(span)) {
-      assert scope != null; // avoid unused warning
-      return toImmutableMap(
-          vrfForwardingBehavior,
-          Entry::getKey, // node
-          nodeEntry ->
-              toImmutableMap(
-                  nodeEntry.getValue(),
-                  Entry::getKey, // vrf
-                  vrfEntry -> ipSpaceGetter.apply(vrfEntry.getValue()).accept(toBDD)));
-    } finally {
-      span.finish();
-    }
-  }
-
   IpSpaceToBDD getIpSpaceToBDD() {
     return _dstIpSpaceToBDD;
   }
@@ -520,63 +475,6 @@ public final class BDDReachabilityAnalysisFactory {
     return _requiredTransitNodeBDD;
   }
 
-  private static Map<String, Map<String, Map<org.batfish.datamodel.Edge, BDD>>>
-      computeArpTrueEdgeBDDs(
-          Map<String, Map<String, VrfForwardingBehavior>> vrfForwardingBehavior,
-          IpSpaceToBDD ipSpaceToBDD) {
-    Span span =
-        GlobalTracer.get()
-            .buildSpan("BDDReachabilityAnalysisFactory.computeArpTrueEdgeBDDs")
-            .start();
-    try (Scope scope = GlobalTracer.get().scopeManager().activate(span)) {
-      assert scope != null; // avoid unused warning
-      return toImmutableMap(
-          vrfForwardingBehavior,
-          Entry::getKey, // node
-          nodeEntry ->
-              toImmutableMap(
-                  nodeEntry.getValue(),
-                  Entry::getKey, // vrf
-                  vrfEntry ->
-                      toImmutableMap(
-                          vrfEntry.getValue().getArpTrueEdge(),
-                          Entry::getKey,
-                          edgeEntry -> edgeEntry.getValue().accept(ipSpaceToBDD))));
-    } finally {
-      span.finish();
-    }
-  }
-
-  private static Map<String, Map<String, Map<String, BDD>>> computeIfaceForwardingBehaviorBDDs(
-      Map<String, Map<String, VrfForwardingBehavior>> vrfForwardingBehavior,
-      Function<InterfaceForwardingBehavior, IpSpace> dispositionIpSpaceGetter,
-      IpSpaceToBDD ipSpaceToBDD) {
-    Span span =
-        GlobalTracer.get()
-            .buildSpan("BDDReachabilityAnalysisFactory.computeDispositionBDDs")
-            .start();
-    try (Scope scope = GlobalTracer.get().scopeManager().activate(span)) {
-      assert scope != null; // avoid unused warning
-      return toImmutableMap(
-          vrfForwardingBehavior,
-          Entry::getKey,
-          nodeEntry ->
-              toImmutableMap(
-                  nodeEntry.getValue(),
-                  Entry::getKey,
-                  vrfEntry ->
-                      toImmutableMap(
-                          vrfEntry.getValue().getInterfaceForwardingBehavior(),
-                          Entry::getKey,
-                          ifaceEntry ->
-                              dispositionIpSpaceGetter
-                                  .apply(ifaceEntry.getValue())
-                                  .accept(ipSpaceToBDD))));
-    } finally {
-      span.finish();
-    }
-  }
-
   private Stream<Edge> generateRootEdges(Map<StateExpr, BDD> rootBdds) {
     return Streams.concat(
         generateRootEdges_OriginateInterfaceLink_PreInInterface(rootBdds),
@@ -1365,43 +1263,62 @@ public final class BDDReachabilityAnalysisFactory {
       Set<String> requiredTransitNodes,
       Set<String> finalNodes,
       Set<FlowDisposition> actions) {
-    checkArgument(!actions.isEmpty(), "No actions");
     Span span = GlobalTracer.get().buildSpan("BDDReachabilityAnalysisFactory.getAllBDDs").start();
     try (Scope scope = GlobalTracer.get().scopeManager().activate(span)) {
       assert scope != null; // avoid unused warning
-
-      Set<FlowDisposition> nonLoopActions = new HashSet<>(actions);
-      boolean loopIncluded = nonLoopActions.remove(LOOP);
-
-      if (nonLoopActions.isEmpty()) {
-        // since actions is not empty, loopIncluded must be true. Thus just detect loops
-        return bddLoopDetectionAnalysis(srcIpSpaceAssignment).detectLoops();
-      } else if (!loopIncluded) {
-        // only reachability, no loop detection
-        return bddReachabilityAnalysis(
-                srcIpSpaceAssignment,
-                initialHeaderSpace,
-                forbiddenTransitNodes,
-                requiredTransitNodes,
-                finalNodes,
-                nonLoopActions)
-            .getIngressLocationReachableBDDs();
-      } else {
-        // both reachability and loop detection
-        return bddReachabilityAndLoopDetectionAnalysis(
-                srcIpSpaceAssignment,
-                initialHeaderSpace,
-                forbiddenTransitNodes,
-                requiredTransitNodes,
-                finalNodes,
-                nonLoopActions)
-            .getIngressLocationBdds();
-      }
+      return ingressLocationAnalysis(
+              srcIpSpaceAssignment,
+              initialHeaderSpace,
+              forbiddenTransitNodes,
+              requiredTransitNodes,
+              finalNodes,
+              actions)
+          .getIngressLocationBdds();
     } finally {
       span.finish();
     }
   }
 
+  /**
+   * Create the {@link IngressLocationAnalysis} computed by {@link #getAllBDDs}, so that it can be
+   * run one {@link IngressLocationAnalysis#ingressGroups group} of ingress locations at a time.
+   * Parameters are as in {@link #getAllBDDs}.
+   */
+  public IngressLocationAnalysis ingressLocationAnalysis(
+      IpSpaceAssignment srcIpSpaceAssignment,
+      AclLineMatchExpr initialHeaderSpace,
+      Set<String> forbiddenTransitNodes,
+      Set<String> requiredTransitNodes,
+      Set<String> finalNodes,
+      Set<FlowDisposition> actions) {
+    checkArgument(!actions.isEmpty(), "No actions");
+    Set<FlowDisposition> nonLoopActions = new HashSet<>(actions);
+    boolean loopIncluded = nonLoopActions.remove(LOOP);
+
+    if (nonLoopActions.isEmpty()) {
+      // since actions is not empty, loopIncluded must be true. Thus just detect loops
+      return bddLoopDetectionAnalysis(srcIpSpaceAssignment);
+    } else if (!loopIncluded) {
+      // only reachability, no loop detection
+      return bddReachabilityAnalysis(
+          srcIpSpaceAssignment,
+          initialHeaderSpace,
+          forbiddenTransitNodes,
+          requiredTransitNodes,
+          finalNodes,
+          nonLoopActions);
+    } else {
+      // both reachability and loop detection
+      return bddReachabilityAndLoopDetectionAnalysis(
+          srcIpSpaceAssignment,
+          initialHeaderSpace,
+          forbiddenTransitNodes,
+          requiredTransitNodes,
+          finalNodes,
+          nonLoopActions);
+    }
+  }
+
   private BDDReachabilityAndLoopDetectionAnalysis bddReachabilityAndLoopDetectionAnalysis(
       IpSpaceAssignment srcIpSpaceAssignment,
       AclLineMatchExpr initialHeaderSpace,
@@ -1817,31 +1734,6 @@ public final class BDDReachabilityAnalysisFactory {
                 Interface::getVrfName));
   }
 
-  private Map<String, Map<String, Map<String, BDD>>> computeNextVrfBDDs(
-      Map<String, Map<String, VrfForwardingBehavior>> vrfForwardingBehavior,
-      IpSpaceToBDD ipSpaceToBDD) {
-    Span span =
-        GlobalTracer.get().buildSpan("BDDReachabilityAnalysisFactory.computeNextVrfBDDs").start();
-    try (Scope scope = GlobalTracer.get().scopeManager().activate(span)) {
-      assert scope != null; // avoid unused warning
-      return toImmutableMap(
-          vrfForwardingBehavior,
-          Entry::getKey /* node */,
-          nextVrfIpsByNodeVrfEntry ->
-              toImmutableMap(
-                  nextVrfIpsByNodeVrfEntry.getValue() /* nextVrfIpsByVrf */,
-                  Entry::getKey /* vrf */,
-                  nextVrfIpsByVrfEntry ->
-                      toImmutableMap(
-                          nextVrfIpsByVrfEntry.getValue().getNextVrfIps() /* nextVrfIpsByNextVrf */,
-                          Entry::getKey,
-                          nextVrfIpsByNextVrfEntry ->
-                              nextVrfIpsByNextVrfEntry.getValue().accept(ipSpaceToBDD))));
-    } finally {
-      span.finish();
-    }
-  }
-
   /**
    * Adapt an edge to set the bit indicating that one of the nodes required to be transited has now
    * been transited.
@@ -1,18 +1,24 @@
 package org.batfish.bddreachability;
 
+import com.google.common.collect.ImmutableList;
 import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.Table;
+import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
+import java.util.Set;
 import java.util.stream.Stream;
 import net.sf.javabdd.BDD;
+import org.batfish.bddreachability.transition.Transition;
 import org.batfish.symbolic.IngressLocation;
+import org.batfish.symbolic.state.StateExpr;
 
 /**
  * An analysis that does both reachability and loop detection. Simply wraps a {@link
  * BDDReachabilityAnalysis} and a {@link BDDLoopDetectionAnalysis}. The point of this class is to
  * reduce repeated work in constructing the analyses.
  */
-public class BDDReachabilityAndLoopDetectionAnalysis {
+public class BDDReachabilityAndLoopDetectionAnalysis implements IngressLocationAnalysis {
   private final BDDReachabilityAnalysis _reachabilityAnalysis;
   private final BDDLoopDetectionAnalysis _loopDetectionAnalysis;
 
@@ -23,10 +29,41 @@ public class BDDReachabilityAndLoopDetectionAnalysis {
     _loopDetectionAnalysis = loopDetectionAnalysis;
   }
 
+  @Override
   public Map<IngressLocation, BDD> getIngressLocationBdds() {
-    return Stream.concat(
-            _reachabilityAnalysis.getIngressLocationReachableBDDs().entrySet().stream(),
-            _loopDetectionAnalysis.detectLoops().entrySet().stream())
+    return merge(
+        _reachabilityAnalysis.getIngressLocationReachableBDDs(),
+        _loopDetectionAnalysis.detectLoops());
+  }
+
+  @Override
+  public Map<IngressLocation, BDD> getIngressLocationBdds(Set<StateExpr> ingressLocationStates) {
+    return merge(
+        _reachabilityAnalysis.getIngressLocationBdds(ingressLocationStates),
+        _loopDetectionAnalysis.getIngressLocationBdds(ingressLocationStates));
+  }
+
+  @Override
+  public Set<StateExpr> getIngressLocationStates() {
+    return _reachabilityAnalysis.getIngressLocationStates();
+  }
+
+  /** The forward edges of the reachability graph. */
+  @Override
+  public Table<StateExpr, StateExpr, Transition> getForwardEdgeTable() {
+    return _reachabilityAnalysis.getForwardEdgeTable();
+  }
+
+  /** The forward edges of both the reachability and the loop detection graphs. */
+  @Override
+  public List<Table<StateExpr, StateExpr, Transition>> getForwardEdgeTables() {
+    return ImmutableList.of(
+        _reachabilityAnalysis.getForwardEdgeTable(), _loopDetectionAnalysis.getForwardEdgeTable());
+  }
+
+  private static Map<IngressLocation, BDD> merge(
+      Map<IngressLocation, BDD> reachableBdds, Map<IngressLocation, BDD> loopBdds) {
+    return Stream.concat(reachableBdds.entrySet().stream(), loopBdds.entrySet().stream())
         .collect(ImmutableMap.toImmutableMap(Entry::getKey, Entry::getValue, BDD::or));
   }
 }
@@ -5,6 +5,7 @@ import static com.google.common.collect.ImmutableTable.toImmutableTable;
 import static org.batfish.common.util.CollectionUtil.toImmutableMap;
 
 import com.google.common.annotations.VisibleForTesting;
+import com.google.common.collect.ImmutableList;
 import com.google.common.collect.ImmutableSet;
 import com.google.common.collect.ImmutableTable;
 import com.google.common.collect.Iterables;
@@ -16,10 +17,17 @@ import com.google.common.collect.Tables;
 import io.opentracing.Scope;
 import io.opentracing.Span;
 import io.opentracing.util.GlobalTracer;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.Comparator;
+import java.util.Deque;
 import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
@@ -58,6 +66,50 @@ public final class BDDReachabilityUtils {
             Edge::getPreState, Edge::getPostState, Edge::getTransition, Transitions::or));
   }
 
+  /**
+   * Counters describing the work done by one {@link #fixpoint(Map, Table, BiFunction) fixpoint}.
+   */
+  @VisibleForTesting
+  static final class FixpointStats {
+    private int _states;
+    private int _sccs;
+    private int _largestScc;
+    private long _nodeVisits;
+    private long _bddOperations;
+
+    /** The number of states reachable from the initial states. */
+    int getStates() {
+      return _states;
+    }
+
+    /** The number of strongly connected components among the reachable states. */
+    int getSccs() {
+      return _sccs;
+    }
+
+    int getLargestScc() {
+      return _largestScc;
+    }
+
+    /** The number of times a state was removed from the work queue. */
+    long getNodeVisits() {
+      return _nodeVisits;
+    }
+
+    /** The number of BDD disjunction inputs and edge traversals. */
+    long getBddOperations() {
+      return _bddOperations;
+    }
+
+    private void record(Span span) {
+      span.setTag("states", _states);
+      span.setTag("sccs", _sccs);
+      span.setTag("largestScc", _largestScc);
+      span.setTag("nodeVisits", _nodeVisits);
+      span.setTag("bddOperations", _bddOperations);
+    }
+  }
+
   /** Apply edges to the reachableSets until a fixed point is reached. */
   @VisibleForTesting
   static void fixpoint(
@@ -67,39 +119,77 @@ public final class BDDReachabilityUtils {
     Span span = GlobalTracer.get().buildSpan("BDDReachabilityAnalysis.fixpoint").start();
     try (Scope scope = GlobalTracer.get().scopeManager().activate(span)) {
       assert scope != null; // avoid unused warning
+      fixpointWithStats(reachableSets, edges, traverse).record(span);
+    } finally {
+      span.finish();
+    }
+  }
 
-      if (reachableSets.isEmpty()) {
-        // No work to do.
-        return;
+  /**
+   * Apply edges to the reachableSets until a fixed point is reached, and return counters describing
+   * the work done.
+   *
+   * <p>The states reachable from the initial states are partitioned into strongly connected
+   * components (SCCs), which are processed in topological order. Since no edge leads from a later
+   * SCC back to an earlier one, each SCC is finished before any of its successors is started, and
+   * iteration to a fixed point only happens within cyclic SCCs.
+   */
+  @VisibleForTesting
+  static FixpointStats fixpointWithStats(
+      Map<StateExpr, BDD> reachableSets,
+      Table<StateExpr, StateExpr, Transition> edges,
+      BiFunction<Transition, BDD, BDD> traverse) {
+    FixpointStats stats = new FixpointStats();
+    if (reachableSets.isEmpty()) {
+      // No work to do.
+      return stats;
+    }
+    // Get a BDDFactory for zero and orAll.
+    BDDFactory factory = reachableSets.entrySet().iterator().next().getValue().getFactory();
+
+    List<List<StateExpr>> sccs = stronglyConnectedComponents(reachableSets.keySet(), edges);
+    Map<StateExpr, Integer> sccIndex = new HashMap<>();
+    for (int i = 0; i < sccs.size(); i++) {
+      List<StateExpr> scc = sccs.get(i);
+      for (StateExpr state : scc) {
+        sccIndex.put(state, i);
+      }
+      stats._largestScc = Math.max(stats._largestScc, scc.size());
+    }
+    stats._states = sccIndex.size();
+    stats._sccs = sccs.size();
+
+    // For each state to process, all the incoming BDDs.
+    ListMultimap<StateExpr, BDD> dirtyInputs = LinkedListMultimap.create();
+
+    // Seed the dirty inputs with the initial reachable sets, then clear the reachable sets.
+    reachableSets.forEach((key, value) -> dirtyInputs.put(key, value.id()));
+    reachableSets.clear();
+
+    // To (try to) minimize how many times we're transiting the same edges, dirtyStates will be
+    // removed in order of increasing visitCounts.
+    // invariants:
+    // 1. the queue never contains duplicate elements.
+    // 2. visitCounts are never incremented while the state is in the queue.
+    // 3. the queue only contains states of the current SCC.
+    HashMap<StateExpr, Integer> visitCounts = new HashMap<>();
+    PriorityQueue<StateExpr> dirtyStates =
+        new PriorityQueue<>(Comparator.comparingInt(st -> visitCounts.getOrDefault(st, 0)));
+
+    for (int currentScc = 0; currentScc < sccs.size(); currentScc++) {
+      for (StateExpr state : sccs.get(currentScc)) {
+        if (dirtyInputs.containsKey(state)) {
+          dirtyStates.add(state);
+        }
       }
-      // Get a BDDFactory for zero and orAll.
-      BDDFactory factory = reachableSets.entrySet().iterator().next().getValue().getFactory();
-
-      // For each state to process in the next round, all the incoming BDDs.
-      ListMultimap<StateExpr, BDD> dirtyInputs = LinkedListMultimap.create();
-
-      // To (try to) minimize how many times we're transiting the same edges, dirtyStates will be
-      // removed in order of increasing visitCounts.
-      // invariants:
-      // 1. the queue never contains duplicate elements.
-      // 2. visitCounts are never incremented while the state is in the queue.
-      HashMap<StateExpr, Integer> visitCounts = new HashMap<>();
-      PriorityQueue<StateExpr> dirtyStates =
-          new PriorityQueue<>(Comparator.comparingInt(st -> visitCounts.getOrDefault(st, 0)));
-
-      // Seed the dirty inputs with the initial reachable sets, then clear the reachable sets.
-      reachableSets.forEach(
-          (key, value) -> {
-            dirtyInputs.put(key, value.id());
-            dirtyStates.add(key);
-          });
-      reachableSets.clear();
 
       while (!dirtyStates.isEmpty()) {
         StateExpr dirtyState = dirtyStates.remove();
+        stats._nodeVisits++;
         visitCounts.compute(dirtyState, (unused, oldCount) -> oldCount == null ? 1 : oldCount + 1);
         List<BDD> inputs = dirtyInputs.removeAll(dirtyState);
         assert !inputs.isEmpty();
+        stats._bddOperations += inputs.size();
         BDD prior = reachableSets.get(dirtyState);
         BDD newValue =
             prior == null
@@ -128,17 +218,22 @@ public final class BDDReachabilityUtils {
         BDD learned = prior == null ? newValue.id() : factory.orAllAndFree(inputs);
 
         // Forward the learned BDDs along each outgoing edge.
+        int sccOfDirtyState = currentScc;
         dirtyStateEdges.forEach(
             (neighbor, edge) -> {
               long priorBDDs = factory.numOutstandingBDDs();
               BDD result = traverse.apply(edge, learned);
+              stats._bddOperations++;
               long newBDDs = factory.numOutstandingBDDs();
               assert newBDDs - priorBDDs == 1
                   : "Leak of size " + (newBDDs - priorBDDs - 1) + ": " + edge;
               if (!result.isZero()) {
-                // this is a new result. add it to neighbor's inputs. if neighbor isn't already in
-                // the dirtyStates queue, add it.
-                if (!dirtyInputs.containsKey(neighbor)) {
+                // this is a new result. add it to neighbor's inputs. if neighbor is in the current
+                // SCC and isn't already in the dirtyStates queue, add it. Neighbors in later SCCs
+                // are queued when their SCC is processed.
+                int sccOfNeighbor = sccIndex.get(neighbor);
+                assert sccOfNeighbor >= sccOfDirtyState;
+                if (sccOfNeighbor == sccOfDirtyState && !dirtyInputs.containsKey(neighbor)) {
                   dirtyStates.add(neighbor);
                 }
                 dirtyInputs.put(neighbor, result);
@@ -146,9 +241,167 @@ public final class BDDReachabilityUtils {
             });
         learned.free();
       }
-    } finally {
-      span.finish();
     }
+    assert dirtyInputs.isEmpty();
+    return stats;
+  }
+
+  /**
+   * Returns the strongly connected components of the graph induced by {@code edges} on the states
+   * reachable from {@code roots}, in topological order: every edge between two different components
+   * goes from an earlier component to a later one.
+   */
+  @VisibleForTesting
+  static List<List<StateExpr>> stronglyConnectedComponents(
+      Collection<StateExpr> roots, Table<StateExpr, StateExpr, ?> edges) {
+    SccFinder finder = new SccFinder(edges);
+    roots.forEach(finder::visitFrom);
+    // Tarjan's algorithm finds components in reverse topological order.
+    List<List<StateExpr>> sccs = finder._sccs;
+    Collections.reverse(sccs);
+    return sccs;
+  }
+
+  /** An iterative implementation of Tarjan's strongly connected components algorithm. */
+  private static final class SccFinder {
+    private final Table<StateExpr, StateExpr, ?> _edges;
+    private final Map<StateExpr, Integer> _index = new HashMap<>();
+    private final Map<StateExpr, Integer> _lowLink = new HashMap<>();
+    private final Deque<StateExpr> _sccStack = new ArrayDeque<>();
+    private final Set<StateExpr> _onSccStack = new HashSet<>();
+    private final Deque<StateExpr> _callStack = new ArrayDeque<>();
+    private final Deque<Iterator<StateExpr>> _successors = new ArrayDeque<>();
+    private final List<List<StateExpr>> _sccs = new ArrayList<>();
+
+    SccFinder(Table<StateExpr, StateExpr, ?> edges) {
+      _edges = edges;
+    }
+
+    private void push(StateExpr state) {
+      int index = _index.size();
+      _index.put(state, index);
+      _lowLink.put(state, index);
+      _sccStack.push(state);
+      _onSccStack.add(state);
+      _callStack.push(state);
+      _successors.push(_edges.row(state).keySet().iterator());
+    }
+
+    void visitFrom(StateExpr root) {
+      if (_index.containsKey(root)) {
+        return;
+      }
+      push(root);
+      while (!_callStack.isEmpty()) {
+        StateExpr state = _callStack.peek();
+        Iterator<StateExpr> successors = _successors.peek();
+        if (successors.hasNext()) {
+          StateExpr successor = successors.next();
+          if (!_index.containsKey(successor)) {
+            push(successor);
+          } else if (_onSccStack.contains(successor)) {
+            _lowLink.put(state, Math.min(_lowLink.get(state), _index.get(successor)));
+          }
+          continue;
+        }
+        _callStack.pop();
+        _successors.pop();
+        int lowLink = _lowLink.get(state);
+        if (!_callStack.isEmpty()) {
+          StateExpr caller = _callStack.peek();
+          _lowLink.put(caller, Math.min(_lowLink.get(caller), lowLink));
+        }
+        if (lowLink == _index.get(state)) {
+          List<StateExpr> scc = new ArrayList<>();
+          StateExpr member;
+          do {
+            member = _sccStack.pop();
+            _onSccStack.remove(member);
+            scc.add(member);
+          } while (!member.equals(state));
+          _sccs.add(scc);
+        }
+      }
+    }
+  }
+
+  /**
+   * Partitions {@code ingressStates} into groups that can be analyzed independently on the graphs
+   * {@code edgeTables}: no state with out-edges is forward-reachable from two different groups.
+   * States without out-edges (e.g. dispositions or the query state) may be shared by groups, since
+   * they do not propagate anything further.
+   *
+   * <p>Groups are returned in the iteration order of their first member in {@code ingressStates}.
+   */
+  public static List<Set<StateExpr>> partitionIngressStates(
+      Collection<Table<StateExpr, StateExpr, Transition>> edgeTables,
+      Set<StateExpr> ingressStates) {
+    Map<StateExpr, StateExpr> parents = new HashMap<>();
+    for (Table<StateExpr, StateExpr, Transition> edgeTable : edgeTables) {
+      edgeTable
+          .rowMap()
+          .forEach(
+              (preState, postStates) ->
+                  postStates.keySet().stream()
+                      .filter(postState -> !edgeTable.row(postState).isEmpty())
+                      .forEach(postState -> union(parents, preState, postState)));
+    }
+    Map<StateExpr, Set<StateExpr>> groups = new LinkedHashMap<>();
+    for (StateExpr ingressState : ingressStates) {
+      groups
+          .computeIfAbsent(find(parents, ingressState), k -> new LinkedHashSet<>())
+          .add(ingressState);
+    }
+    return ImmutableList.copyOf(groups.values());
+  }
+
+  private static StateExpr find(Map<StateExpr, StateExpr> parents, StateExpr state) {
+    StateExpr root = state;
+    StateExpr parent;
+    while ((parent = parents.get(root)) != null) {
+      root = parent;
+    }
+    // path compression
+    StateExpr current = state;
+    while (!current.equals(root)) {
+      StateExpr next = parents.get(current);
+      parents.put(current, root);
+      current = next;
+    }
+    return root;
+  }
+
+  private static void union(Map<StateExpr, StateExpr> parents, StateExpr a, StateExpr b) {
+    StateExpr rootA = find(parents, a);
+    StateExpr rootB = find(parents, b);
+    if (!rootA.equals(rootB)) {
+      parents.put(rootA, rootB);
+    }
+  }
+
+  /**
+   * Returns the subgraph of {@code forwardEdgeTable} of edges out of states that are
+   * forward-reachable from {@code roots}. Analyses of {@code roots} on the subgraph have the same
+   * results as on the whole graph.
+   */
+  public static Table<StateExpr, StateExpr, Transition> forwardReachableSubgraph(
+      Table<StateExpr, StateExpr, Transition> forwardEdgeTable, Collection<StateExpr> roots) {
+    Set<StateExpr> visited = new HashSet<>(roots);
+    Deque<StateExpr> queue = new ArrayDeque<>(roots);
+    ImmutableTable.Builder<StateExpr, StateExpr, Transition> subgraph = ImmutableTable.builder();
+    while (!queue.isEmpty()) {
+      StateExpr preState = queue.remove();
+      forwardEdgeTable
+          .row(preState)
+          .forEach(
+              (postState, transition) -> {
+                subgraph.put(preState, postState, transition);
+                if (visited.add(postState)) {
+                  queue.add(postState);
+                }
+              });
+    }
+    return subgraph.build();
   }
 
   @VisibleForTesting
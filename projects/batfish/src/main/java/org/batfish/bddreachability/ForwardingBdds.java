@@ -0,0 +1,393 @@
+package org.batfish.bddreachability;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static com.google.common.base.Preconditions.checkState;
+import static org.batfish.common.util.CollectionUtil.toImmutableMap;
+
+import com.google.common.annotations.VisibleForTesting;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.Lists;
+import io.opentracing.Scope;
+import io.opentracing.Span;
+import io.opentracing.util.GlobalTracer;
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.function.Function;
+import javax.annotation.Nonnull;
+import javax.annotation.ParametersAreNonnullByDefault;
+import net.sf.javabdd.BDD;
+import net.sf.javabdd.BDDFactory;
+import org.batfish.common.bdd.BDDInteger;
+import org.batfish.common.bdd.BDDPacket;
+import org.batfish.common.bdd.IpSpaceToBDD;
+import org.batfish.datamodel.Edge;
+import org.batfish.datamodel.InterfaceForwardingBehavior;
+import org.batfish.datamodel.IpSpace;
+import org.batfish.datamodel.VrfForwardingBehavior;
+
+/**
+ * The destination IP constraints of the forwarding behavior of every node, VRF, and interface, as
+ * {@link BDD BDDs}. These are the inputs of {@link BDDFibGenerator}.
+ *
+ * <p>For large networks, the BDDs are built in parallel: the nodes are split into contiguous
+ * chunks, each chunk is converted in its own {@link BDDPacket}, and the results are then imported
+ * into the shared packet's factory with {@link BDDFactory#importBDD(BDD)}. Imports are serialized
+ * and grow with the number of chunks, so only a few chunks are used.
+ */
+@ParametersAreNonnullByDefault
+final class ForwardingBdds {
+  /**
+   * Minimum number of nodes for which forwarding BDDs are built in parallel. For smaller networks,
+   * creating a BDD factory per worker costs more than it saves.
+   */
+  @VisibleForTesting static final int PARALLEL_MIN_NODES = 64;
+
+  /**
+   * Maximum number of chunks, each with its own BDD factory, that forwarding BDDs are built in.
+   * Each factory costs about 20 MB up front, and importing the chunks' BDDs into the shared factory
+   * is serial and costs more with each chunk.
+   */
+  @VisibleForTesting static final int MAX_PARALLELISM = 4;
+
+  private final Map<String, Map<String, Map<Edge, BDD>>> _arpTrueEdgeBdds;
+  private final Map<String, Map<String, Map<String, BDD>>> _neighborUnreachableBdds;
+  private final Map<String, Map<String, Map<String, BDD>>> _deliveredToSubnetBdds;
+  private final Map<String, Map<String, Map<String, BDD>>> _exitsNetworkBdds;
+  private final Map<String, Map<String, Map<String, BDD>>> _insufficientInfoBdds;
+  private final Map<String, Map<String, Map<String, BDD>>> _ifaceAcceptBdds;
+  private final Map<String, Map<String, BDD>> _nullRoutedBdds;
+  private final Map<String, Map<String, BDD>> _routableBdds;
+  private final Map<String, Map<String, Map<String, BDD>>> _nextVrfBdds;
+
+  private ForwardingBdds(
+      Map<String, Map<String, Map<Edge, BDD>>> arpTrueEdgeBdds,
+      Map<String, Map<String, Map<String, BDD>>> neighborUnreachableBdds,
+      Map<String, Map<String, Map<String, BDD>>> deliveredToSubnetBdds,
+      Map<String, Map<String, Map<String, BDD>>> exitsNetworkBdds,
+      Map<String, Map<String, Map<String, BDD>>> insufficientInfoBdds,
+      Map<String, Map<String, Map<String, BDD>>> ifaceAcceptBdds,
+      Map<String, Map<String, BDD>> nullRoutedBdds,
+      Map<String, Map<String, BDD>> routableBdds,
+      Map<String, Map<String, Map<String, BDD>>> nextVrfBdds) {
+    _arpTrueEdgeBdds = arpTrueEdgeBdds;
+    _neighborUnreachableBdds = neighborUnreachableBdds;
+    _deliveredToSubnetBdds = deliveredToSubnetBdds;
+    _exitsNetworkBdds = exitsNetworkBdds;
+    _insufficientInfoBdds = insufficientInfoBdds;
+    _ifaceAcceptBdds = ifaceAcceptBdds;
+    _nullRoutedBdds = nullRoutedBdds;
+    _routableBdds = routableBdds;
+    _nextVrfBdds = nextVrfBdds;
+  }
+
+  /**
+   * Compute the forwarding BDDs of the network in the factory of {@code pkt}, in up to {@link
+   * #MAX_PARALLELISM} chunks if the network has at least {@link #PARALLEL_MIN_NODES} nodes and more
+   * than one processor is available.
+   */
+  static @Nonnull ForwardingBdds compute(
+      BDDPacket pkt, Map<String, Map<String, VrfForwardingBehavior>> vrfForwardingBehavior) {
+    int parallelism =
+        vrfForwardingBehavior.size() < PARALLEL_MIN_NODES
+            ? 1
+            : Math.min(MAX_PARALLELISM, Runtime.getRuntime().availableProcessors());
+    return compute(pkt, vrfForwardingBehavior, parallelism);
+  }
+
+  /**
+   * Compute the forwarding BDDs of the network in the factory of {@code pkt}, split across at most
+   * {@code parallelism} workers.
+   */
+  @VisibleForTesting
+  static @Nonnull ForwardingBdds compute(
+      BDDPacket pkt,
+      Map<String, Map<String, VrfForwardingBehavior>> vrfForwardingBehavior,
+      int parallelism) {
+    checkArgument(parallelism > 0, "parallelism must be positive");
+    if (parallelism == 1 || vrfForwardingBehavior.size() < 2) {
+      return compute(vrfForwardingBehavior, pkt.getDstIpSpaceToBDD());
+    }
+    Span span = GlobalTracer.get().buildSpan("ForwardingBdds.compute").start();
+    try (Scope scope = GlobalTracer.get().scopeManager().activate(span)) {
+      assert scope != null; // avoid unused warning
+      List<Entry<String, Map<String, VrfForwardingBehavior>>> nodes =
+          ImmutableList.copyOf(vrfForwardingBehavior.entrySet());
+      List<List<Entry<String, Map<String, VrfForwardingBehavior>>>> chunks =
+          Lists.partition(nodes, (nodes.size() + parallelism - 1) / parallelism);
+      span.setTag("nodes", nodes.size());
+      span.setTag("chunks", chunks.size());
+
+      BDDFactory factory = pkt.getFactory();
+      List<ForwardingBdds> results =
+          chunks.parallelStream()
+              .map(
+                  chunk -> {
+                    Map<String, Map<String, VrfForwardingBehavior>> chunkBehavior =
+                        ImmutableMap.copyOf(chunk);
+                    BDDPacket workerPkt = new BDDPacket();
+                    checkSameDstIpVars(pkt.getDstIp(), workerPkt.getDstIp());
+                    ForwardingBdds local =
+                        compute(span, chunkBehavior, workerPkt.getDstIpSpaceToBDD());
+                    // BDD factories are not thread-safe.
+                    synchronized (factory) {
+                      return local.importInto(span, factory);
+                    }
+                  })
+              .collect(ImmutableList.toImmutableList());
+      return merge(results);
+    } finally {
+      span.finish();
+    }
+  }
+
+  private static void checkSameDstIpVars(BDDInteger expected, BDDInteger actual) {
+    BDD[] expectedBits = expected.getBitvec();
+    BDD[] actualBits = actual.getBitvec();
+    checkState(expectedBits.length == actualBits.length, "Mismatched dstIp width");
+    for (int i = 0; i < expectedBits.length; i++) {
+      checkState(expectedBits[i].var() == actualBits[i].var(), "Mismatched dstIp variables");
+    }
+  }
+
+  private static @Nonnull ForwardingBdds compute(
+      Span parent,
+      Map<String, Map<String, VrfForwardingBehavior>> vrfForwardingBehavior,
+      IpSpaceToBDD ipSpaceToBDD) {
+    Span span =
+        GlobalTracer.get().buildSpan("ForwardingBdds.computeChunk").asChildOf(parent).start();
+    try (Scope scope = GlobalTracer.get().scopeManager().activate(span)) {
+      assert scope != null; // avoid unused warning
+      span.setTag("nodes", vrfForwardingBehavior.size());
+      return compute(vrfForwardingBehavior, ipSpaceToBDD);
+    } finally {
+      span.finish();
+    }
+  }
+
+  /** Compute the forwarding BDDs of the network sequentially, using {@code ipSpaceToBDD}. */
+  private static @Nonnull ForwardingBdds compute(
+      Map<String, Map<String, VrfForwardingBehavior>> vrfForwardingBehavior,
+      IpSpaceToBDD ipSpaceToBDD) {
+    return new ForwardingBdds(
+        computeArpTrueEdgeBDDs(vrfForwardingBehavior, ipSpaceToBDD),
+        computeIfaceForwardingBehaviorBDDs(
+            vrfForwardingBehavior,
+            InterfaceForwardingBehavior::getNeighborUnreachable,
+            ipSpaceToBDD),
+        computeIfaceForwardingBehaviorBDDs(
+            vrfForwardingBehavior, InterfaceForwardingBehavior::getDeliveredToSubnet, ipSpaceToBDD),
+        computeIfaceForwardingBehaviorBDDs(
+            vrfForwardingBehavior, InterfaceForwardingBehavior::getExitsNetwork, ipSpaceToBDD),
+        computeIfaceForwardingBehaviorBDDs(
+            vrfForwardingBehavior, InterfaceForwardingBehavior::getInsufficientInfo, ipSpaceToBDD),
+        computeIfaceForwardingBehaviorBDDs(
+            vrfForwardingBehavior, InterfaceForwardingBehavior::getAcceptedIps, ipSpaceToBDD),
+        computeVrfForwardingBehaviorBDDs(
+            vrfForwardingBehavior, VrfForwardingBehavior::getNullRoutedIps, ipSpaceToBDD),
+        computeVrfForwardingBehaviorBDDs(
+            vrfForwardingBehavior, VrfForwardingBehavior::getRoutableIps, ipSpaceToBDD),
+        computeNextVrfBDDs(vrfForwardingBehavior, ipSpaceToBDD));
+  }
+
+  /** Copy all BDDs into {@code factory}. */
+  private @Nonnull ForwardingBdds importInto(Span parent, BDDFactory factory) {
+    Span span = GlobalTracer.get().buildSpan("ForwardingBdds.importInto").asChildOf(parent).start();
+    try (Scope scope = GlobalTracer.get().scopeManager().activate(span)) {
+      assert scope != null; // avoid unused warning
+      return new ForwardingBdds(
+          importBdds3(_arpTrueEdgeBdds, factory),
+          importBdds3(_neighborUnreachableBdds, factory),
+          importBdds3(_deliveredToSubnetBdds, factory),
+          importBdds3(_exitsNetworkBdds, factory),
+          importBdds3(_insufficientInfoBdds, factory),
+          importBdds3(_ifaceAcceptBdds, factory),
+          importBdds2(_nullRoutedBdds, factory),
+          importBdds2(_routableBdds, factory),
+          importBdds3(_nextVrfBdds, factory));
+    } finally {
+      span.finish();
+    }
+  }
+
+  private static <K> Map<String, Map<String, Map<K, BDD>>> importBdds3(
+      Map<String, Map<String, Map<K, BDD>>> bdds, BDDFactory factory) {
+    return toImmutableMap(
+        bdds,
+        Entry::getKey, // node
+        nodeEntry ->
+            toImmutableMap(
+                nodeEntry.getValue(),
+                Entry::getKey, // vrf
+                vrfEntry ->
+                    toImmutableMap(
+                        vrfEntry.getValue(),
+                        Entry::getKey,
+                        entry -> factory.importBDD(entry.getValue()))));
+  }
+
+  private static Map<String, Map<String, BDD>> importBdds2(
+      Map<String, Map<String, BDD>> bdds, BDDFactory factory) {
+    return toImmutableMap(
+        bdds,
+        Entry::getKey, // node
+        nodeEntry ->
+            toImmutableMap(
+                nodeEntry.getValue(),
+                Entry::getKey, // vrf
+                vrfEntry -> factory.importBDD(vrfEntry.getValue())));
+  }
+
+  /** Combine the results of disjoint sets of nodes, in order. */
+  private static @Nonnull ForwardingBdds merge(List<ForwardingBdds> parts) {
+    return new ForwardingBdds(
+        merge(parts, ForwardingBdds::getArpTrueEdgeBdds),
+        merge(parts, ForwardingBdds::getNeighborUnreachableBdds),
+        merge(parts, ForwardingBdds::getDeliveredToSubnetBdds),
+        merge(parts, ForwardingBdds::getExitsNetworkBdds),
+        merge(parts, ForwardingBdds::getInsufficientInfoBdds),
+        merge(parts, ForwardingBdds::getIfaceAcceptBdds),
+        merge(parts, ForwardingBdds::getNullRoutedBdds),
+        merge(parts, ForwardingBdds::getRoutableBdds),
+        merge(parts, ForwardingBdds::getNextVrfBdds));
+  }
+
+  private static <V> Map<String, V> merge(
+      List<ForwardingBdds> parts, Function<ForwardingBdds, Map<String, V>> getter) {
+    ImmutableMap.Builder<String, V> builder = ImmutableMap.builder();
+    parts.forEach(part -> builder.putAll(getter.apply(part)));
+    return builder.build();
+  }
+
+  private static Map<String, Map<String, Map<Edge, BDD>>> computeArpTrueEdgeBDDs(
+      Map<String, Map<String, VrfForwardingBehavior>> vrfForwardingBehavior,
+      IpSpaceToBDD ipSpaceToBDD) {
+    Span span = GlobalTracer.get().buildSpan("ForwardingBdds.computeArpTrueEdgeBDDs").start();
+    try (Scope scope = GlobalTracer.get().scopeManager().activate(span)) {
+      assert scope != null; // avoid unused warning
+      return toImmutableMap(
+          vrfForwardingBehavior,
+          Entry::getKey, // node
+          nodeEntry ->
+              toImmutableMap(
+                  nodeEntry.getValue(),
+                  Entry::getKey, // vrf
+                  vrfEntry ->
+                      toImmutableMap(
+                          vrfEntry.getValue().getArpTrueEdge(),
+                          Entry::getKey,
+                          edgeEntry -> edgeEntry.getValue().accept(ipSpaceToBDD))));
+    } finally {
+      span.finish();
+    }
+  }
+
+  private static Map<String, Map<String, Map<String, BDD>>> computeIfaceForwardingBehaviorBDDs(
+      Map<String, Map<String, VrfForwardingBehavior>> vrfForwardingBehavior,
+      Function<InterfaceForwardingBehavior, IpSpace> dispositionIpSpaceGetter,
+      IpSpaceToBDD ipSpaceToBDD) {
+    Span span = GlobalTracer.get().buildSpan("ForwardingBdds.computeDispositionBDDs").start();
+    try (Scope scope = GlobalTracer.get().scopeManager().activate(span)) {
+      assert scope != null; // avoid unused warning
+      return toImmutableMap(
+          vrfForwardingBehavior,
+          Entry::getKey,
+          nodeEntry ->
+              toImmutableMap(
+                  nodeEntry.getValue(),
+                  Entry::getKey,
+                  vrfEntry ->
+                      toImmutableMap(
+                          vrfEntry.getValue().getInterfaceForwardingBehavior(),
+                          Entry::getKey,
+                          ifaceEntry ->
+                              dispositionIpSpaceGetter
+                                  .apply(ifaceEntry.getValue())
+                                  .accept(ipSpaceToBDD))));
+    } finally {
+      span.finish();
+    }
+  }
+
+  private static @Nonnull Map<String, Map<String, BDD>> computeVrfForwardingBehaviorBDDs(
+      Map<String, Map<String, VrfForwardingBehavior>> vrfForwardingBehavior,
+      Function<VrfForwardingBehavior, IpSpace> ipSpaceGetter,
+      IpSpaceToBDD toBDD) {
+    Span span =
+        GlobalTracer.get().buildSpan("ForwardingBdds.computeVrfForwardingBehaviorBDDs").start();
+    try (Scope scope = GlobalTracer.get().scopeManager().activate(span)) {
+      assert scope != null; // avoid unused warning
+      return toImmutableMap(
+          vrfForwardingBehavior,
+          Entry::getKey, // node
+          nodeEntry ->
+              toImmutableMap(
+                  nodeEntry.getValue(),
+                  Entry::getKey, // vrf
+                  vrfEntry -> ipSpaceGetter.apply(vrfEntry.getValue()).accept(toBDD)));
+    } finally {
+      span.finish();
+    }
+  }
+
+  private static Map<String, Map<String, Map<String, BDD>>> computeNextVrfBDDs(
+      Map<String, Map<String, VrfForwardingBehavior>> vrfForwardingBehavior,
+      IpSpaceToBDD ipSpaceToBDD) {
+    Span span = GlobalTracer.get().buildSpan("ForwardingBdds.computeNextVrfBDDs").start();
+    try (Scope scope = GlobalTracer.get().scopeManager().activate(span)) {
+      assert scope != null; // avoid unused warning
+      return toImmutableMap(
+          vrfForwardingBehavior,
+          Entry::getKey /* node */,
+          nextVrfIpsByNodeVrfEntry ->
+              toImmutableMap(
+                  nextVrfIpsByNodeVrfEntry.getValue() /* nextVrfIpsByVrf */,
+                  Entry::getKey /* vrf */,
+                  nextVrfIpsByVrfEntry ->
+                      toImmutableMap(
+                          nextVrfIpsByVrfEntry.getValue().getNextVrfIps() /* nextVrfIpsByNextVrf */,
+                          Entry::getKey,
+                          nextVrfIpsByNextVrfEntry ->
+                              nextVrfIpsByNextVrfEntry.getValue().accept(ipSpaceToBDD))));
+    } finally {
+      span.finish();
+    }
+  }
+
+  Map<String, Map<String, Map<Edge, BDD>>> getArpTrueEdgeBdds() {
+    return _arpTrueEdgeBdds;
+  }
+
+  Map<String, Map<String, Map<String, BDD>>> getNeighborUnreachableBdds() {
+    return _neighborUnreachableBdds;
+  }
+
+  Map<String, Map<String, Map<String, BDD>>> getDeliveredToSubnetBdds() {
+    return _deliveredToSubnetBdds;
+  }
+
+  Map<String, Map<String, Map<String, BDD>>> getExitsNetworkBdds() {
+    return _exitsNetworkBdds;
+  }
+
+  Map<String, Map<String, Map<String, BDD>>> getInsufficientInfoBdds() {
+    return _insufficientInfoBdds;
+  }
+
+  Map<String, Map<String, Map<String, BDD>>> getIfaceAcceptBdds() {
+    return _ifaceAcceptBdds;
+  }
+
+  Map<String, Map<String, BDD>> getNullRoutedBdds() {
+    return _nullRoutedBdds;
+  }
+
+  Map<String, Map<String, BDD>> getRoutableBdds() {
+    return _routableBdds;
+  }
+
+  Map<String, Map<String, Map<String, BDD>>> getNextVrfBdds() {
+    return _nextVrfBdds;
+  }
+}
@@ -0,0 +1,63 @@
+package org.batfish.bddreachability;
+
+import static org.batfish.bddreachability.BDDReachabilityUtils.partitionIngressStates;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableSet;
+import com.google.common.collect.Table;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import net.sf.javabdd.BDD;
+import org.batfish.bddreachability.transition.Transition;
+import org.batfish.symbolic.IngressLocation;
+import org.batfish.symbolic.state.StateExpr;
+
+/**
+ * An analysis that computes a {@link BDD} of flows for each of its {@link IngressLocation
+ * IngressLocations}, and that can be run on any subset of them. Running it on {@link
+ * BDDReachabilityUtils#partitionIngressStates independent groups} of ingress locations one group at
+ * a time bounds the memory used by intermediate results: each group only needs the part of the
+ * graph that is forward-reachable from its ingress locations.
+ */
+public interface IngressLocationAnalysis {
+
+  /** The states of all ingress locations of the analysis. */
+  Set<StateExpr> getIngressLocationStates();
+
+  /** The forward edges of the graph of the analysis. */
+  Table<StateExpr, StateExpr, Transition> getForwardEdgeTable();
+
+  /**
+   * The forward edges of all the graphs the analysis runs on. Analyses that combine several graphs
+   * must return each of them, so that {@link #ingressGroups} are independent in all of them.
+   */
+  default List<Table<StateExpr, StateExpr, Transition>> getForwardEdgeTables() {
+    return ImmutableList.of(getForwardEdgeTable());
+  }
+
+  /** Compute the results for {@code ingressLocationStates}, a subset of the ingress locations. */
+  Map<IngressLocation, BDD> getIngressLocationBdds(Set<StateExpr> ingressLocationStates);
+
+  /** Compute the results for all ingress locations. */
+  default Map<IngressLocation, BDD> getIngressLocationBdds() {
+    return getIngressLocationBdds(getIngressLocationStates());
+  }
+
+  /**
+   * Partitions the ingress locations of {@code analyses} into groups that share no intermediate
+   * state in any of the analyses.
+   */
+  static List<Set<StateExpr>> ingressGroups(
+      Collection<? extends IngressLocationAnalysis> analyses) {
+    ImmutableSet.Builder<StateExpr> ingressStates = ImmutableSet.builder();
+    ImmutableList.Builder<Table<StateExpr, StateExpr, Transition>> edgeTables =
+        ImmutableList.builder();
+    for (IngressLocationAnalysis analysis : analyses) {
+      ingressStates.addAll(analysis.getIngressLocationStates());
+      edgeTables.addAll(analysis.getForwardEdgeTables());
+    }
+    return partitionIngressStates(edgeTables.build(), ingressStates.build());
+  }
+}
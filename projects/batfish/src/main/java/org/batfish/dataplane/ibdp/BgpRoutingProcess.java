@@ -12,6 +12,7 @@ import static org.batfish.datamodel.OriginMechanism.NETWORK;
 import static org.batfish.datamodel.OriginMechanism.REDISTRIBUTE;
 import static org.batfish.datamodel.routing_policy.Environment.Direction.IN;
 import static org.batfish.datamodel.routing_policy.Environment.Direction.OUT;
+import static org.batfish.dataplane.ibdp.DataplaneUtil.messageQueueSize;
 import static org.batfish.dataplane.ibdp.DataplaneUtil.messageQueueStream;
 import static org.batfish.dataplane.protocols.BgpProtocolHelper.toBgpv4Route;
 import static org.batfish.dataplane.protocols.BgpProtocolHelper.transformBgpRouteOnImport;
@@ -29,6 +30,7 @@ import com.google.common.collect.MultimapBuilder;
 import com.google.common.collect.Sets;
 import com.google.common.collect.Streams;
 import com.google.common.graph.ValueGraph;
+import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Comparator;
 import java.util.HashSet;
@@ -179,7 +181,11 @@ final class BgpRoutingProcess implements RoutingProcess<BgpTopology, BgpRoute<?,
   @Nonnull private RibDelta<Bgpv4Route> _bgpv4DeltaPrev = RibDelta.empty();
   @Nonnull private RibDelta<Bgpv4Route> _bgpv4DeltaPrevBestPath = RibDelta.empty();
 
-  // copy of RIBs from prev round, for new links in the current round.
+  /*
+   * Copy of RIBs from prev round, for new links in the current round. Only kept during the round
+   * after new sessions come up, since they are only read when exporting to new sessions; otherwise
+   * they are empty, so that unchanged RIBs are not copied each round.
+   */
   private @Nonnull Set<Bgpv4Route> _ebgpv4Prev;
   private @Nonnull Set<Bgpv4Route> _ebgpv4PrevBestPath;
   private @Nonnull Set<Bgpv4Route> _bgpv4Prev;
@@ -504,8 +510,11 @@ final class BgpRoutingProcess implements RoutingProcess<BgpTopology, BgpRoute<?,
       if (!_exportFromBgpRib) {
         _mainRibPrev = _mainRib.getTypedRoutes();
       }
+      // New sessions may pull from us before our next inner round starts.
+      snapshotBgpRibs();
     } else {
       assert _mainRibPrev.isEmpty();
+      assert _bgpv4Prev.isEmpty();
     }
     _topology = topology;
     // TODO: compute edges that went down, remove routes we received from those neighbors
@@ -559,6 +568,14 @@ final class BgpRoutingProcess implements RoutingProcess<BgpTopology, BgpRoute<?,
     _bgpv4DeltaBestPathBuilder.from(updateDelta.getBestPathDelta());
   }
 
+  /**
+   * Returns the number of times the next hop IP of a BGP route in this process became resolvable or
+   * unresolvable in the main RIB.
+   */
+  int getNextHopResolutionChanges() {
+    return _bgpv4Rib.getNextHopResolutionChanges();
+  }
+
   @Override
   public void redistribute(RibDelta<AnnotatedRoute<AbstractRoute>> mainRibDelta) {
     // A redistribution policy must be defined iff exporting from BGP RIB
@@ -675,6 +692,17 @@ final class BgpRoutingProcess implements RoutingProcess<BgpTopology, BgpRoute<?,
         || !_evpnInitializationDelta.isEmpty();
   }
 
+  /**
+   * Return the number of route advertisements waiting to be processed by this process's neighbors:
+   * queued EVPN messages, plus the IPv4 deltas from the previous round that neighbors will pull.
+   */
+  int getPendingMessageCount() {
+    return messageQueueSize(_evpnType3IncomingRoutes)
+        + messageQueueSize(_evpnType5IncomingRoutes)
+        + _ebgpv4DeltaPrev.size()
+        + _bgpv4DeltaPrev.size();
+  }
+
   /**
    * Process all incoming BGP messages: across all neighbors, across all address families.
    *
@@ -842,7 +870,10 @@ final class BgpRoutingProcess implements RoutingProcess<BgpTopology, BgpRoute<?,
             .sorted(Comparator.comparing(ra -> !ra.isWithdrawn()))
             .iterator();
 
-    // Process all routes from neighbor
+    // Apply core protocol import transformations to all routes from neighbor
+    List<RouteAdvertisement<Bgpv4Route>> importCandidates = new ArrayList<>();
+    List<Bgpv4Route> remoteRoutes = new ArrayList<>();
+    List<Bgpv4Route.Builder> transformedIncomingRouteBuilders = new ArrayList<>();
     while (exportedRoutes.hasNext()) {
       // consume exported routes
       RouteAdvertisement<Bgpv4Route> remoteRouteAdvert = exportedRoutes.next();
@@ -871,24 +902,33 @@ final class BgpRoutingProcess implements RoutingProcess<BgpTopology, BgpRoute<?,
             IN);
         continue;
       }
+      importCandidates.add(remoteRouteAdvert);
+      remoteRoutes.add(remoteRoute);
+      transformedIncomingRouteBuilders.add(transformedIncomingRouteBuilder);
+    }
 
-      // Process route through import policy, if one exists
-      String importPolicyName = ourBgpConfig.getIpv4UnicastAddressFamily().getImportPolicy();
-      boolean acceptIncoming = true;
-      // TODO: ensure there is always an import policy
-      if (importPolicyName != null) {
-        RoutingPolicy importPolicy = _policies.get(importPolicyName).orElse(null);
-        if (importPolicy != null) {
-          acceptIncoming =
-              importPolicy.processBgpRoute(
-                  remoteRoute,
-                  transformedIncomingRouteBuilder,
-                  ourSessionProperties,
-                  IN,
-                  _ribExprEvaluator);
-        }
+    // Process all remaining routes through import policy in one batch, if one exists
+    String importPolicyName = ourBgpConfig.getIpv4UnicastAddressFamily().getImportPolicy();
+    boolean[] acceptIncoming = null;
+    // TODO: ensure there is always an import policy
+    if (importPolicyName != null) {
+      RoutingPolicy importPolicy = _policies.get(importPolicyName).orElse(null);
+      if (importPolicy != null) {
+        acceptIncoming =
+            importPolicy.processBgpRoutes(
+                remoteRoutes,
+                transformedIncomingRouteBuilders,
+                ourSessionProperties,
+                IN,
+                _ribExprEvaluator);
       }
-      if (!acceptIncoming) {
+    }
+
+    for (int i = 0; i < importCandidates.size(); i++) {
+      RouteAdvertisement<Bgpv4Route> remoteRouteAdvert = importCandidates.get(i);
+      Bgpv4Route remoteRoute = remoteRoutes.get(i);
+      Bgpv4Route.Builder transformedIncomingRouteBuilder = transformedIncomingRouteBuilders.get(i);
+      if (acceptIncoming != null && !acceptIncoming[i]) {
         // Route could not be imported due to routing policy
         _prefixTracer.filtered(
             remoteRoute.getNetwork(),
@@ -2039,9 +2079,9 @@ final class BgpRoutingProcess implements RoutingProcess<BgpTopology, BgpRoute<?,
     return Streams.concat(
             Stream.of(
                 // RIBs
-                _bgpv4Rib.getTypedRoutes(),
-                _evpnType3Rib.getTypedRoutes(),
-                _evpnType5Rib.getTypedRoutes(),
+                _bgpv4Rib.getRoutesHashCode(),
+                _evpnType3Rib.getRoutesHashCode(),
+                _evpnType5Rib.getRoutesHashCode(),
                 // Outgoing RIB deltas
                 _ebgpv4DeltaPrev,
                 _ebgpv4DeltaPrevBestPath,
@@ -2266,12 +2306,24 @@ final class BgpRoutingProcess implements RoutingProcess<BgpTopology, BgpRoute<?,
     _unicastEdgesWentUp = ImmutableSet.of();
     // Delete the external state, now that it is no longer needed
     _mainRibPrev = ImmutableSet.of();
+    _bgpv4Prev = ImmutableSet.of();
+    _ebgpv4Prev = ImmutableSet.of();
+    _bgpv4PrevBestPath = ImmutableSet.of();
+    _ebgpv4PrevBestPath = ImmutableSet.of();
     // Main RIB delta for exporting directly from main RIB
     _mainRibDelta = RibDelta.empty();
   }
 
   /** Record state at beginning of round prior to pulling from neighbors. */
   public void startOfInnerRound() {
+    // The snapshots are only read by new sessions, which only exist in the first round after a
+    // topology update.
+    if (!_unicastEdgesWentUp.isEmpty()) {
+      snapshotBgpRibs();
+    }
+  }
+
+  private void snapshotBgpRibs() {
     // Take a snapshot of current RIBs so we know to to send to new add-path sessions.
     _bgpv4Prev = _bgpv4Rib.getTypedRoutes();
     _ebgpv4Prev = _ebgpv4Rib.getTypedRoutes();
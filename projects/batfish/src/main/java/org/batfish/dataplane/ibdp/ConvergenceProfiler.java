@@ -0,0 +1,410 @@
+package org.batfish.dataplane.ibdp;
+
+import static com.google.common.base.Preconditions.checkArgument;
+
+import com.google.common.annotations.VisibleForTesting;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.Maps;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Consumer;
+import javax.annotation.Nonnull;
+import javax.annotation.ParametersAreNonnullByDefault;
+import org.batfish.common.util.BatfishObjectMapper;
+import org.batfish.datamodel.answers.Schema;
+import org.batfish.datamodel.pojo.Node;
+import org.batfish.datamodel.table.ColumnMetadata;
+import org.batfish.datamodel.table.Row;
+import org.batfish.datamodel.table.TableAnswerElement;
+import org.batfish.datamodel.table.TableMetadata;
+
+/**
+ * Records where time goes during the dependent routes (EGP) portion of the dataplane computation:
+ * the wall time each {@link VirtualRouter} spends in each {@link Phase} of each iteration, along
+ * with per-iteration route and queue statistics. When disabled, {@link #forEach} simply runs the
+ * action on all virtual routers.
+ */
+@ParametersAreNonnullByDefault
+final class ConvergenceProfiler {
+
+  /** A profiled phase of a dataplane iteration. */
+  enum Phase {
+    REDISTRIBUTE,
+    STATIC_ROUTES,
+    GENERATED_ROUTES,
+    EIGRP,
+    ISIS,
+    OSPF,
+    BGP,
+    CROSS_VRF
+  }
+
+  static final String COL_ITERATION = "Iteration";
+  static final String COL_MAIN_RIB_CHANGES = "Main_Rib_Changes";
+  static final String COL_MAIN_RIB_ROUTES = "Main_Rib_Routes";
+  static final String COL_MAX_PENDING_MESSAGES = "Max_Pending_Messages";
+  static final String COL_NODE = "Node";
+  static final String COL_PHASE = "Phase";
+  static final String COL_SLOWEST_NODE = "Slowest_Node";
+  static final String COL_SLOWEST_NODE_TIME_MS = "Slowest_Node_Time_Ms";
+  static final String COL_SLOWEST_PHASE = "Slowest_Phase";
+  static final String COL_SLOWEST_VRF = "Slowest_VRF";
+  static final String COL_TIME_MS = "Time_Ms";
+  static final String COL_VRF = "VRF";
+
+  private static final Phase[] PHASES = Phase.values();
+
+  /** Return a profiler that records nothing. */
+  static @Nonnull ConvergenceProfiler disabled() {
+    return new ConvergenceProfiler(false, 0);
+  }
+
+  /** Return a profiler that records samples and reports the {@code topN} slowest entries. */
+  static @Nonnull ConvergenceProfiler enabled(int topN) {
+    checkArgument(topN > 0, "Number of reported entries must be positive: %s", topN);
+    return new ConvergenceProfiler(true, topN);
+  }
+
+  private ConvergenceProfiler(boolean enabled, int topN) {
+    _enabled = enabled;
+    _topN = topN;
+    _phaseNanos = new ConcurrentHashMap<>();
+    _samples = new ArrayList<>();
+  }
+
+  boolean isEnabled() {
+    return _enabled;
+  }
+
+  /**
+   * Run {@code action} on each of {@code vrs} in parallel, attributing the time spent on each
+   * virtual router to {@code phase} of the current iteration.
+   */
+  void forEach(Phase phase, Collection<VirtualRouter> vrs, Consumer<VirtualRouter> action) {
+    if (!_enabled) {
+      vrs.parallelStream().forEach(action);
+      return;
+    }
+    vrs.parallelStream()
+        .forEach(
+            vr -> {
+              long start = System.nanoTime();
+              action.accept(vr);
+              long elapsed = System.nanoTime() - start;
+              // A virtual router is only processed by one thread at a time.
+              _phaseNanos.computeIfAbsent(vr, v -> new long[PHASES.length])[phase.ordinal()] +=
+                  elapsed;
+            });
+  }
+
+  /**
+   * Record the statistics of {@code vrs} at the end of dataplane iteration {@code iteration},
+   * together with the time they spent in each phase of the iteration.
+   */
+  void endIteration(int iteration, Collection<VirtualRouter> vrs) {
+    if (!_enabled) {
+      return;
+    }
+    for (VirtualRouter vr : vrs) {
+      long[] phaseNanos = _phaseNanos.remove(vr);
+      _samples.add(
+          new Sample(
+              iteration,
+              vr.getHostname(),
+              vr.getName(),
+              phaseNanos == null ? new long[PHASES.length] : phaseNanos,
+              vr.getNumMainRibChanges(),
+              vr.getPendingMessageCount(),
+              vr.getMainRib().getTypedRoutes().size(),
+              vr.getNumBgpPaths()));
+    }
+    _phaseNanos.clear();
+  }
+
+  /** The statistics of a single virtual router at the end of a single iteration. */
+  @VisibleForTesting
+  static final class Sample {
+    Sample(
+        int iteration,
+        String hostname,
+        String vrf,
+        long[] phaseNanos,
+        int mainRibChanges,
+        int pendingMessages,
+        int mainRibRoutes,
+        int bgpPaths) {
+      checkArgument(phaseNanos.length == PHASES.length, "Expected a time for each phase");
+      _iteration = iteration;
+      _hostname = hostname;
+      _vrf = vrf;
+      _phaseNanos = phaseNanos;
+      _mainRibChanges = mainRibChanges;
+      _pendingMessages = pendingMessages;
+      _mainRibRoutes = mainRibRoutes;
+      _bgpPaths = bgpPaths;
+    }
+
+    long getTotalNanos() {
+      return Arrays.stream(_phaseNanos).sum();
+    }
+
+    private final int _iteration;
+    private final @Nonnull String _hostname;
+    private final @Nonnull String _vrf;
+    private final @Nonnull long[] _phaseNanos;
+    private final int _mainRibChanges;
+    private final int _pendingMessages;
+    private final int _mainRibRoutes;
+    private final int _bgpPaths;
+  }
+
+  @VisibleForTesting
+  void addSample(Sample sample) {
+    _samples.add(sample);
+  }
+
+  /**
+   * Return a table of the virtual routers that spent the most time in the dataplane computation,
+   * with the phase each spent the most time in and their route and queue statistics.
+   */
+  @Nonnull
+  TableAnswerElement slowestRouters() {
+    Map<String, ColumnMetadata> columns =
+        TableMetadata.toColumnMap(
+            ImmutableList.of(
+                new ColumnMetadata(COL_NODE, Schema.NODE, "Node", true, false),
+                new ColumnMetadata(COL_VRF, Schema.STRING, "VRF", true, false),
+                new ColumnMetadata(
+                    COL_TIME_MS, Schema.DOUBLE, "Total time spent, in ms", false, true),
+                new ColumnMetadata(
+                    COL_SLOWEST_PHASE,
+                    Schema.STRING,
+                    "Phase in which the most time was spent",
+                    false,
+                    true),
+                new ColumnMetadata(
+                    COL_MAIN_RIB_CHANGES,
+                    Schema.INTEGER,
+                    "Total number of main RIB changes over all iterations",
+                    false,
+                    true),
+                new ColumnMetadata(
+                    COL_MAX_PENDING_MESSAGES,
+                    Schema.INTEGER,
+                    "Largest number of queued messages at the end of an iteration",
+                    false,
+                    true),
+                new ColumnMetadata(
+                    COL_MAIN_RIB_ROUTES,
+                    Schema.INTEGER,
+                    "Number of main RIB routes at the end of the last iteration",
+                    false,
+                    true)));
+
+    // sorted so that ties in time are broken by node and VRF
+    Map<List<String>, List<Sample>> samplesByVrf =
+        new TreeMap<>(
+            Comparator.<List<String>, String>comparing(k -> k.get(0)).thenComparing(k -> k.get(1)));
+    for (Sample sample : _samples) {
+      samplesByVrf
+          .computeIfAbsent(ImmutableList.of(sample._hostname, sample._vrf), k -> new ArrayList<>())
+          .add(sample);
+    }
+    List<Entry<Long, Row>> rows = new ArrayList<>();
+    samplesByVrf.forEach(
+        (key, samples) -> {
+          long[] phaseNanos = new long[PHASES.length];
+          int mainRibChanges = 0;
+          int maxPendingMessages = 0;
+          for (Sample sample : samples) {
+            for (int i = 0; i < PHASES.length; i++) {
+              phaseNanos[i] += sample._phaseNanos[i];
+            }
+            mainRibChanges += sample._mainRibChanges;
+            maxPendingMessages = Math.max(maxPendingMessages, sample._pendingMessages);
+          }
+          int slowestPhase = 0;
+          for (int i = 1; i < PHASES.length; i++) {
+            if (phaseNanos[i] > phaseNanos[slowestPhase]) {
+              slowestPhase = i;
+            }
+          }
+          long totalNanos = Arrays.stream(phaseNanos).sum();
+          rows.add(
+              Maps.immutableEntry(
+                  totalNanos,
+                  Row.builder(columns)
+                      .put(COL_NODE, new Node(key.get(0)))
+                      .put(COL_VRF, key.get(1))
+                      .put(COL_TIME_MS, toMillis(totalNanos))
+                      .put(COL_SLOWEST_PHASE, PHASES[slowestPhase].toString())
+                      .put(COL_MAIN_RIB_CHANGES, mainRibChanges)
+                      .put(COL_MAX_PENDING_MESSAGES, maxPendingMessages)
+                      .put(COL_MAIN_RIB_ROUTES, samples.get(samples.size() - 1)._mainRibRoutes)
+                      .build()));
+        });
+    return toTable(columns, "Virtual routers that took the longest to converge", rows);
+  }
+
+  /**
+   * Return a table of the iteration phases that took the most time (summed over all virtual
+   * routers), with the virtual router that spent the most time in each.
+   */
+  @Nonnull
+  TableAnswerElement slowestPhases() {
+    Map<String, ColumnMetadata> columns =
+        TableMetadata.toColumnMap(
+            ImmutableList.of(
+                new ColumnMetadata(COL_ITERATION, Schema.INTEGER, "Iteration", true, false),
+                new ColumnMetadata(COL_PHASE, Schema.STRING, "Phase", true, false),
+                new ColumnMetadata(
+                    COL_TIME_MS,
+                    Schema.DOUBLE,
+                    "Time spent, in ms, summed over all virtual routers",
+                    false,
+                    true),
+                new ColumnMetadata(
+                    COL_SLOWEST_NODE,
+                    Schema.NODE,
+                    "Node of the virtual router that spent the most time in this phase",
+                    false,
+                    true),
+                new ColumnMetadata(
+                    COL_SLOWEST_VRF,
+                    Schema.STRING,
+                    "VRF of the virtual router that spent the most time in this phase",
+                    false,
+                    true),
+                new ColumnMetadata(
+                    COL_SLOWEST_NODE_TIME_MS,
+                    Schema.DOUBLE,
+                    "Time spent, in ms, by the slowest virtual router",
+                    false,
+                    true)));
+
+    Map<Integer, List<Sample>> samplesByIteration = new TreeMap<>();
+    for (Sample sample : _samples) {
+      samplesByIteration.computeIfAbsent(sample._iteration, k -> new ArrayList<>()).add(sample);
+    }
+    List<Entry<Long, Row>> rows = new ArrayList<>();
+    samplesByIteration.forEach(
+        (iteration, samples) -> {
+          for (Phase phase : PHASES) {
+            int p = phase.ordinal();
+            long totalNanos = 0;
+            Sample slowest = samples.get(0);
+            for (Sample sample : samples) {
+              totalNanos += sample._phaseNanos[p];
+              if (sample._phaseNanos[p] > slowest._phaseNanos[p]) {
+                slowest = sample;
+              }
+            }
+            rows.add(
+                Maps.immutableEntry(
+                    totalNanos,
+                    Row.builder(columns)
+                        .put(COL_ITERATION, iteration)
+                        .put(COL_PHASE, phase.toString())
+                        .put(COL_TIME_MS, toMillis(totalNanos))
+                        .put(COL_SLOWEST_NODE, new Node(slowest._hostname))
+                        .put(COL_SLOWEST_VRF, slowest._vrf)
+                        .put(COL_SLOWEST_NODE_TIME_MS, toMillis(slowest._phaseNanos[p]))
+                        .build()));
+          }
+        });
+    return toTable(columns, "Iteration phases that took the longest", rows);
+  }
+
+  /**
+   * Return a table of the {@link #_topN} rows that took the most time. The sort is stable, so ties
+   * keep the order of {@code rowsByNanos}.
+   */
+  private TableAnswerElement toTable(
+      Map<String, ColumnMetadata> columns, String description, List<Entry<Long, Row>> rowsByNanos) {
+    TableAnswerElement table =
+        new TableAnswerElement(
+            new TableMetadata(ImmutableList.copyOf(columns.values()), description));
+    rowsByNanos.stream()
+        .sorted(Comparator.comparing(Entry<Long, Row>::getKey).reversed())
+        .limit(_topN)
+        .map(Entry::getValue)
+        .forEach(table::addRow);
+    return table;
+  }
+
+  /** Return the report tables, serialized as JSON. */
+  @Nonnull
+  String toJson() {
+    return BatfishObjectMapper.writePrettyStringRuntimeError(
+        ImmutableMap.of("slowestRouters", slowestRouters(), "slowestPhases", slowestPhases()));
+  }
+
+  /**
+   * Return all recorded samples as CSV, with one row per iteration and virtual router. Times are in
+   * milliseconds.
+   */
+  @Nonnull
+  String toCsv() {
+    StringBuilder sb = new StringBuilder("iteration,node,vrf");
+    for (Phase phase : PHASES) {
+      sb.append(',').append(phase.toString().toLowerCase(Locale.ROOT)).append("_ms");
+    }
+    sb.append(",total_ms,main_rib_changes,pending_messages,main_rib_routes,bgp_paths\n");
+    for (Sample sample : _samples) {
+      sb.append(sample._iteration)
+          .append(',')
+          .append(csvEscape(sample._hostname))
+          .append(',')
+          .append(csvEscape(sample._vrf));
+      for (long nanos : sample._phaseNanos) {
+        sb.append(',').append(toMillis(nanos));
+      }
+      sb.append(',')
+          .append(toMillis(sample.getTotalNanos()))
+          .append(',')
+          .append(sample._mainRibChanges)
+          .append(',')
+          .append(sample._pendingMessages)
+          .append(',')
+          .append(sample._mainRibRoutes)
+          .append(',')
+          .append(sample._bgpPaths)
+          .append('\n');
+    }
+    return sb.toString();
+  }
+
+  /** Quote {@code value} if it contains characters that are special in CSV. */
+  @VisibleForTesting
+  static @Nonnull String csvEscape(String value) {
+    if (value.indexOf(',') < 0
+        && value.indexOf('"') < 0
+        && value.indexOf('\n') < 0
+        && value.indexOf('\r') < 0) {
+      return value;
+    }
+    return '"' + value.replace("\"", "\"\"") + '"';
+  }
+
+  /** Convert {@code nanos} to milliseconds, with microsecond precision. */
+  private static double toMillis(long nanos) {
+    return Math.round(nanos / 1000.0) / 1000.0;
+  }
+
+  private final boolean _enabled;
+  private final int _topN;
+
+  /** Time spent by each virtual router in each phase of the current iteration. */
+  private final @Nonnull Map<VirtualRouter, long[]> _phaseNanos;
+
+  private final @Nonnull List<Sample> _samples;
+}
@@ -173,5 +173,10 @@ public final class DataplaneUtil {
     return input.entrySet().stream().flatMap(DataplaneUtil::edgeQueueStream);
   }
 
+  /** Return the total number of messages in all of the queues of {@code input}. */
+  static int messageQueueSize(Map<?, ? extends Queue<?>> input) {
+    return input.values().stream().mapToInt(Queue::size).sum();
+  }
+
   private DataplaneUtil() {}
 }
@@ -3,6 +3,7 @@ package org.batfish.dataplane.ibdp;
 import static java.util.Objects.requireNonNull;
 import static org.batfish.common.util.CollectionUtil.toImmutableSortedMap;
 import static org.batfish.common.util.CollectionUtil.toOrderedHashCode;
+import static org.batfish.dataplane.ibdp.DataplaneUtil.messageQueueSize;
 import static org.batfish.dataplane.ibdp.DataplaneUtil.messageQueueStream;
 import static org.batfish.dataplane.rib.RibDelta.importRibDelta;
 
@@ -240,6 +241,11 @@ final class EigrpRoutingProcess implements RoutingProcess<EigrpTopology, EigrpRo
         || !_initializationDelta.isEmpty();
   }
 
+  /** Return the number of route advertisements waiting in this process's message queues. */
+  int getPendingMessageCount() {
+    return messageQueueSize(_incomingInternalRoutes) + messageQueueSize(_incomingExternalRoutes);
+  }
+
   /**
    * Init internal routes from connected routes. For each interface prefix, construct a new internal
    * route.
@@ -600,7 +606,7 @@ final class EigrpRoutingProcess implements RoutingProcess<EigrpTopology, EigrpRo
     assert _queuedForRedistribution.isEmpty(); // expected invariant
     assert _initializationDelta.isEmpty(); // expected invariant
     return Streams.concat(
-            Stream.of(_rib),
+            Stream.of(_rib.getRoutesHashCode()),
             messageQueueStream(_incomingInternalRoutes),
             messageQueueStream(_incomingExternalRoutes),
             _changeSet.build().getActions())
@@ -2,6 +2,7 @@ package org.batfish.dataplane.ibdp;
 
 import java.util.Map;
 import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
 import javax.annotation.ParametersAreNonnullByDefault;
 import org.batfish.common.plugin.DataPlanePlugin.ComputeDataPlaneResult;
 import org.batfish.common.topology.TopologyContainer;
@@ -10,7 +11,8 @@ import org.batfish.datamodel.answers.DataPlaneAnswerElement;
 
 /**
  * A specific type of {@link ComputeDataPlaneResult} returned by {@link IncrementalBdpEngine} which
- * includes a map of all {@link Node}s.
+ * includes a map of all {@link Node}s, and the {@link ConvergenceProfiler} if profiling was
+ * enabled.
  *
  * <p>To be used in tests.
  */
@@ -18,18 +20,26 @@ import org.batfish.datamodel.answers.DataPlaneAnswerElement;
 final class IbdpResult extends ComputeDataPlaneResult {
 
   @Nonnull private final Map<String, Node> _nodes;
+  @Nullable private final ConvergenceProfiler _convergenceProfiler;
 
   IbdpResult(
       DataPlaneAnswerElement answerElement,
       DataPlane dataPlane,
       TopologyContainer topologies,
-      Map<String, Node> nodes) {
+      Map<String, Node> nodes,
+      @Nullable ConvergenceProfiler convergenceProfiler) {
     super(answerElement, dataPlane, topologies);
     _nodes = nodes;
+    _convergenceProfiler = convergenceProfiler;
   }
 
   @Nonnull
   Map<String, Node> getNodes() {
     return _nodes;
   }
+
+  @Nullable
+  ConvergenceProfiler getConvergenceProfiler() {
+    return _convergenceProfiler;
+  }
 }
@@ -0,0 +1,140 @@
+package org.batfish.dataplane.ibdp;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.ImmutableSet;
+import com.google.common.collect.Maps;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.Optional;
+import java.util.Set;
+import java.util.function.Predicate;
+import java.util.stream.Stream;
+import javax.annotation.Nonnull;
+import javax.annotation.ParametersAreNonnullByDefault;
+import org.batfish.datamodel.NetworkConfigurations;
+import org.batfish.datamodel.eigrp.EigrpEdge;
+import org.batfish.datamodel.eigrp.EigrpNeighborConfigId;
+import org.batfish.datamodel.isis.IsisEdge;
+import org.batfish.datamodel.isis.IsisNode;
+import org.jgrapht.alg.util.UnionFind;
+
+/**
+ * Partition of the virtual routers into EIGRP and IS-IS routing domains, i.e., the connected
+ * components of the {@link org.batfish.datamodel.eigrp.EigrpTopology} and {@link
+ * org.batfish.datamodel.isis.IsisTopology}. IGP routes are only exchanged within a domain, so a
+ * domain without pending work can be skipped, and distinct domains can converge independently.
+ */
+@ParametersAreNonnullByDefault
+final class IgpDomains {
+
+  /** Build the EIGRP and IS-IS domains from the IGP topologies in {@code topologyContext}. */
+  static @Nonnull IgpDomains fromTopologies(
+      TopologyContext topologyContext, Map<String, Node> nodes, NetworkConfigurations nc) {
+    ImmutableList.Builder<Entry<VirtualRouter, VirtualRouter>> eigrpAdjacencies =
+        ImmutableList.builder();
+    for (EigrpEdge edge : topologyContext.getEigrpTopology().getNetwork().edges()) {
+      addAdjacency(
+          eigrpAdjacencies,
+          virtualRouter(nodes, edge.getNode1()),
+          virtualRouter(nodes, edge.getNode2()));
+    }
+    ImmutableList.Builder<Entry<VirtualRouter, VirtualRouter>> isisAdjacencies =
+        ImmutableList.builder();
+    for (IsisEdge edge : topologyContext.getIsisTopology().getNetwork().edges()) {
+      addAdjacency(
+          isisAdjacencies,
+          virtualRouter(nodes, edge.getNode1(), nc),
+          virtualRouter(nodes, edge.getNode2(), nc));
+    }
+    return new IgpDomains(
+        representatives(eigrpAdjacencies.build()), representatives(isisAdjacencies.build()));
+  }
+
+  private static @Nonnull Optional<VirtualRouter> virtualRouter(
+      Map<String, Node> nodes, EigrpNeighborConfigId id) {
+    return Optional.ofNullable(nodes.get(id.getHostname()))
+        .flatMap(node -> node.getVirtualRouter(id.getVrf()));
+  }
+
+  private static @Nonnull Optional<VirtualRouter> virtualRouter(
+      Map<String, Node> nodes, IsisNode isisNode, NetworkConfigurations nc) {
+    return Optional.ofNullable(isisNode.getInterface(nc))
+        .flatMap(
+            iface ->
+                Optional.ofNullable(nodes.get(isisNode.getNode()))
+                    .flatMap(node -> node.getVirtualRouter(iface.getVrfName())));
+  }
+
+  private static void addAdjacency(
+      ImmutableList.Builder<Entry<VirtualRouter, VirtualRouter>> adjacencies,
+      Optional<VirtualRouter> vr1,
+      Optional<VirtualRouter> vr2) {
+    if (vr1.isPresent() && vr2.isPresent()) {
+      adjacencies.add(Maps.immutableEntry(vr1.get(), vr2.get()));
+    }
+  }
+
+  /** Map each VR with an adjacency to a representative VR of its connected component. */
+  private static @Nonnull Map<VirtualRouter, VirtualRouter> representatives(
+      List<Entry<VirtualRouter, VirtualRouter>> adjacencies) {
+    Set<VirtualRouter> vrs =
+        adjacencies.stream()
+            .flatMap(adjacency -> Stream.of(adjacency.getKey(), adjacency.getValue()))
+            .collect(ImmutableSet.toImmutableSet());
+    UnionFind<VirtualRouter> domains = new UnionFind<>(vrs);
+    adjacencies.forEach(adjacency -> domains.union(adjacency.getKey(), adjacency.getValue()));
+    return vrs.stream().collect(ImmutableMap.toImmutableMap(vr -> vr, domains::find));
+  }
+
+  private IgpDomains(
+      Map<VirtualRouter, VirtualRouter> eigrpRepresentatives,
+      Map<VirtualRouter, VirtualRouter> isisRepresentatives) {
+    _eigrpRepresentatives = eigrpRepresentatives;
+    _isisRepresentatives = isisRepresentatives;
+  }
+
+  /**
+   * Return the virtual routers in {@code vrs} that run EIGRP, grouped by EIGRP domain. A VR without
+   * EIGRP adjacencies forms its own domain.
+   */
+  @Nonnull
+  List<List<VirtualRouter>> eigrpDomains(Collection<VirtualRouter> vrs) {
+    return group(vrs, VirtualRouter::hasEigrpProcesses, _eigrpRepresentatives);
+  }
+
+  /**
+   * Return the virtual routers in {@code vrs} that run IS-IS, grouped by IS-IS domain. A VR without
+   * IS-IS adjacencies forms its own domain.
+   */
+  @Nonnull
+  List<List<VirtualRouter>> isisDomains(Collection<VirtualRouter> vrs) {
+    return group(vrs, VirtualRouter::hasIsisProcess, _isisRepresentatives);
+  }
+
+  private static @Nonnull List<List<VirtualRouter>> group(
+      Collection<VirtualRouter> vrs,
+      Predicate<VirtualRouter> runsProtocol,
+      Map<VirtualRouter, VirtualRouter> representatives) {
+    Map<VirtualRouter, ImmutableList.Builder<VirtualRouter>> domains = new LinkedHashMap<>();
+    for (VirtualRouter vr : vrs) {
+      if (runsProtocol.test(vr)) {
+        domains
+            .computeIfAbsent(representatives.getOrDefault(vr, vr), r -> ImmutableList.builder())
+            .add(vr);
+      }
+    }
+    return domains.values().stream()
+        .map(ImmutableList.Builder::build)
+        .collect(ImmutableList.toImmutableList());
+  }
+
+  /** Representative VR of the EIGRP domain of each VR with at least one EIGRP adjacency. */
+  private final @Nonnull Map<VirtualRouter, VirtualRouter> _eigrpRepresentatives;
+
+  /** Representative VR of the IS-IS domain of each VR with at least one IS-IS adjacency. */
+  private final @Nonnull Map<VirtualRouter, VirtualRouter> _isisRepresentatives;
+}
@@ -15,17 +15,30 @@ import static org.batfish.datamodel.vxlan.VxlanTopologyUtils.vxlanTopologyToLaye
 import static org.batfish.dataplane.rib.AbstractRib.importRib;
 
 import com.google.common.annotations.VisibleForTesting;
+import com.google.common.collect.ImmutableList;
 import com.google.common.collect.ImmutableSet;
+import com.google.common.collect.ImmutableTable;
+import com.google.common.collect.Maps;
+import com.google.common.collect.MultimapBuilder;
+import com.google.common.collect.Sets;
+import com.google.common.collect.SortedSetMultimap;
+import com.google.common.collect.Table;
+import com.google.common.collect.Table.Cell;
 import io.opentracing.Scope;
 import io.opentracing.Span;
 import io.opentracing.util.GlobalTracer;
+import java.util.Collection;
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
+import java.util.NavigableMap;
+import java.util.Objects;
 import java.util.Set;
 import java.util.SortedMap;
 import java.util.SortedSet;
+import java.util.TreeMap;
 import java.util.TreeSet;
 import java.util.concurrent.atomic.AtomicBoolean;
 import org.apache.logging.log4j.LogManager;
@@ -55,8 +68,10 @@ import org.batfish.datamodel.eigrp.EigrpTopology;
 import org.batfish.datamodel.eigrp.EigrpTopologyUtils;
 import org.batfish.datamodel.ipsec.IpsecTopology;
 import org.batfish.datamodel.ospf.OspfTopology;
+import org.batfish.datamodel.routing_policy.RoutingPolicy;
 import org.batfish.datamodel.vxlan.VxlanTopology;
 import org.batfish.dataplane.TracerouteEngineImpl;
+import org.batfish.dataplane.ibdp.ConvergenceProfiler.Phase;
 import org.batfish.dataplane.ibdp.schedule.IbdpSchedule;
 import org.batfish.dataplane.ibdp.schedule.IbdpSchedule.Schedule;
 import org.batfish.dataplane.rib.RibDelta;
@@ -75,6 +90,14 @@ final class IncrementalBdpEngine {
   private int _numIterations;
   private final IncrementalDataPlaneSettings _settings;
 
+  /**
+   * VRFs (by hostname) whose state changed during the detected oscillation, if any. Only populated
+   * when {@link IncrementalDataPlaneSettings#getIterationFingerprints() iteration fingerprints} are
+   * enabled.
+   */
+  private SortedSetMultimap<String, String> _oscillatingVrfs =
+      MultimapBuilder.treeKeys().treeSetValues().build();
+
   IncrementalBdpEngine(IncrementalDataPlaneSettings settings) {
     _settings = settings;
   }
@@ -232,6 +255,25 @@ final class IncrementalBdpEngine {
         .build();
   }
 
+  /**
+   * Compile the routing policies of each configuration once, so that all of its virtual routers
+   * share the compiled policies.
+   */
+  private static void compileRoutingPolicies(Collection<Configuration> configurations) {
+    Span span = GlobalTracer.get().buildSpan("Compile routing policies").start();
+    try (Scope scope = GlobalTracer.get().scopeManager().activate(span)) {
+      assert scope != null; // avoid unused warning
+      configurations.parallelStream()
+          .forEach(
+              c ->
+                  c.getRoutingPolicies().values().stream()
+                      .filter(policy -> policy.getOwner() == c)
+                      .forEach(RoutingPolicy::compile));
+    } finally {
+      span.finish();
+    }
+  }
+
   ComputeDataPlaneResult computeDataPlane(
       Map<String, Configuration> configurations,
       TopologyContext initialTopologyContext,
@@ -247,6 +289,10 @@ final class IncrementalBdpEngine {
       Map<Ip, Map<String, Set<String>>> ipVrfOwners = ipOwners.getIpVrfOwners();
       Map<String, Map<String, Set<Ip>>> activeInterfaceOwners = ipOwners.getInterfaceOwners(true);
 
+      if (_settings.getCompileRoutingPolicies()) {
+        compileRoutingPolicies(configurations.values());
+      }
+
       // Generate our nodes, keyed by name, sorted for determinism
       SortedMap<String, Node> nodes =
           toImmutableSortedMap(configurations.values(), Configuration::getHostname, Node::new);
@@ -266,6 +312,10 @@ final class IncrementalBdpEngine {
        * - Finally, compute FIBs, return answer
        */
       IncrementalBdpAnswerElement answerElement = new IncrementalBdpAnswerElement();
+      ConvergenceProfiler profiler =
+          _settings.getConvergenceProfile()
+              ? ConvergenceProfiler.enabled(_settings.getConvergenceProfileTopN())
+              : ConvergenceProfiler.disabled();
       // TODO: eventually, IGP needs to be part of fixed-point below, because tunnels.
       computeIgpDataPlane(
           nodes, vrs, initialTopologyContext, ipVrfOwners, activeInterfaceOwners, answerElement);
@@ -314,11 +364,22 @@ final class IncrementalBdpEngine {
 
           boolean isOscillating =
               computeNonMonotonicPortionOfDataPlane(
-                  nodes, vrs, answerElement, currentTopologyContext, networkConfigurations);
+                  nodes,
+                  vrs,
+                  answerElement,
+                  currentTopologyContext,
+                  networkConfigurations,
+                  profiler);
           if (isOscillating) {
             // If we are oscillating here, network has no stable solution.
-            LOGGER.error("Network has no stable solution");
-            throw new BdpOscillationException("Network has no stable solution");
+            String message =
+                _oscillatingVrfs.isEmpty()
+                    ? "Network has no stable solution"
+                    : String.format(
+                        "Network has no stable solution. Oscillating VRFs by node: %s",
+                        _oscillatingVrfs.asMap());
+            LOGGER.error(message);
+            throw new BdpOscillationException(message);
           }
 
           currentDataplane = nextDataplane(currentTopologyContext, nodes, vrs);
@@ -349,12 +410,21 @@ final class IncrementalBdpEngine {
       // TODO: Properly finalize topologies, IpOwners, etc.
       LOGGER.info("Finalizing dataplane");
       answerElement.setVersion(BatfishVersion.getVersionStatic());
+      if (profiler.isEnabled()) {
+        answerElement.setConvergenceProfileRouters(profiler.slowestRouters());
+        answerElement.setConvergenceProfilePhases(profiler.slowestPhases());
+      }
       IncrementalDataPlane finalDataplane =
           IncrementalDataPlane.builder()
               .setNodes(nodes)
               .setPartialDataplane(currentDataplane)
               .build();
-      return new IbdpResult(answerElement, finalDataplane, currentTopologyContext, nodes);
+      return new IbdpResult(
+          answerElement,
+          finalDataplane,
+          currentTopologyContext,
+          nodes,
+          profiler.isEnabled() ? profiler : null);
     } finally {
       span.finish();
     }
@@ -373,13 +443,17 @@ final class IncrementalBdpEngine {
    * @param vrs virtual routers that are participating in the computation
    * @param iterationLabel iteration label (for stats tracking)
    * @param allNodes all nodes in the network (for correct neighbor referencing)
+   * @param igpDomains EIGRP and IS-IS domains of the VRs, used to skip domains without pending work
+   * @param profiler records the time spent by each virtual router in each phase
    */
   private static void computeDependentRoutesIteration(
       List<VirtualRouter> vrs,
       String iterationLabel,
       Map<String, Node> allNodes,
       NetworkConfigurations networkConfigurations,
-      int iteration) {
+      int iteration,
+      IgpDomains igpDomains,
+      ConvergenceProfiler profiler) {
     Span overallSpan =
         GlobalTracer.get().buildSpan(iterationLabel + ": Compute dependent routes").start();
     LOGGER.info("{}: Compute dependent routes", iterationLabel);
@@ -394,7 +468,7 @@ final class IncrementalBdpEngine {
       LOGGER.info("{}: Recompute conditional static routes", iterationLabel);
       try (Scope innerScope = GlobalTracer.get().scopeManager().activate(nhIpSpan)) {
         assert innerScope != null; // avoid unused warning
-        vrs.parallelStream().forEach(VirtualRouter::activateStaticRoutes);
+        profiler.forEach(Phase.STATIC_ROUTES, vrs, VirtualRouter::activateStaticRoutes);
       } finally {
         nhIpSpan.finish();
       }
@@ -407,19 +481,30 @@ final class IncrementalBdpEngine {
       LOGGER.info("{}: Recompute aggregate/generated routes", iterationLabel);
       try (Scope innerScope = GlobalTracer.get().scopeManager().activate(genRoutesSpan)) {
         assert innerScope != null; // avoid unused warning
-        vrs.parallelStream().forEach(VirtualRouter::recomputeGeneratedRoutes);
+        profiler.forEach(Phase.GENERATED_ROUTES, vrs, VirtualRouter::recomputeGeneratedRoutes);
       } finally {
         genRoutesSpan.finish();
       }
 
-      // EIGRP
+      // EIGRP: only domains in which some VR has pending work
       Span eigrpSpan =
           GlobalTracer.get().buildSpan(iterationLabel + ": propagate EIGRP routes").start();
       LOGGER.info("{}: Propagate EIGRP routes", iterationLabel);
       try (Scope innerScope = GlobalTracer.get().scopeManager().activate(eigrpSpan)) {
         assert innerScope != null; // avoid unused warning
-        vrs.parallelStream().forEach(vr -> vr.eigrpIteration(allNodes));
-        vrs.parallelStream().forEach(VirtualRouter::mergeEigrpRoutesToMainRib);
+        List<List<VirtualRouter>> eigrpDomains =
+            igpDomains.eigrpDomains(vrs).stream()
+                .filter(domain -> domain.stream().anyMatch(VirtualRouter::hasPendingEigrpWork))
+                .collect(ImmutableList.toImmutableList());
+        List<VirtualRouter> eigrpVrs =
+            eigrpDomains.stream().flatMap(List::stream).collect(ImmutableList.toImmutableList());
+        eigrpSpan.setTag("domains", eigrpDomains.size());
+        LOGGER.debug(
+            "{}: Propagate EIGRP routes in {} domains with pending work",
+            iterationLabel,
+            eigrpDomains.size());
+        profiler.forEach(Phase.EIGRP, eigrpVrs, vr -> vr.eigrpIteration(allNodes));
+        profiler.forEach(Phase.EIGRP, eigrpVrs, VirtualRouter::mergeEigrpRoutesToMainRib);
       } finally {
         eigrpSpan.finish();
       }
@@ -430,41 +515,37 @@ final class IncrementalBdpEngine {
       LOGGER.info("{}: Recompute IS-IS routes", iterationLabel);
       try (Scope innerScope = GlobalTracer.get().scopeManager().activate(isisSpan)) {
         assert innerScope != null; // avoid unused warning
-        vrs.parallelStream()
-            .forEach(vr -> vr.initIsisExports(iteration, allNodes, networkConfigurations));
+        profiler.forEach(
+            Phase.ISIS, vrs, vr -> vr.initIsisExports(iteration, allNodes, networkConfigurations));
       } finally {
         isisSpan.finish();
       }
 
-      // IS-IS route propagation
-      AtomicBoolean isisChanged = new AtomicBoolean(true);
-      int isisSubIterations = 0;
-      while (isisChanged.get()) {
-        isisSubIterations++;
-        Span isisSpanRecompute =
-            GlobalTracer.get()
-                .buildSpan(
-                    iterationLabel + ": Recompute IS-IS routes: subIteration: " + isisSubIterations)
-                .start();
+      // IS-IS route propagation: each domain runs its own sub-iterations until none of its VRs
+      // has unprocessed routes, concurrently with the other domains.
+      Span isisSpanRecompute =
+          GlobalTracer.get().buildSpan(iterationLabel + ": Recompute IS-IS routes").start();
+      LOGGER.info("{}: Recompute IS-IS routes", iterationLabel);
+      try (Scope innerScope = GlobalTracer.get().scopeManager().activate(isisSpanRecompute)) {
+        assert innerScope != null; // avoid unused warning
+        List<List<VirtualRouter>> isisDomains = igpDomains.isisDomains(vrs);
+        int maxSubIterations =
+            isisDomains.parallelStream()
+                .mapToInt(
+                    domain ->
+                        propagateIsisRoutes(
+                            domain, iterationLabel, allNodes, networkConfigurations, profiler))
+                .max()
+                .orElse(0);
+        isisSpanRecompute.setTag("domains", isisDomains.size());
+        isisSpanRecompute.setTag("maxSubIterations", maxSubIterations);
         LOGGER.info(
-            "{}: Recompute IS-IS routes: subIteration {}", iterationLabel, isisSubIterations);
-        try (Scope innerScope = GlobalTracer.get().scopeManager().activate(isisSpanRecompute)) {
-          assert innerScope != null; // avoid unused warning
-          isisChanged.set(false);
-          vrs.parallelStream()
-              .forEach(
-                  vr -> {
-                    Entry<RibDelta<IsisRoute>, RibDelta<IsisRoute>> p =
-                        vr.propagateIsisRoutes(networkConfigurations);
-                    if (p != null
-                        && vr.unstageIsisRoutes(
-                            allNodes, networkConfigurations, p.getKey(), p.getValue())) {
-                      isisChanged.set(true);
-                    }
-                  });
-        } finally {
-          isisSpanRecompute.finish();
-        }
+            "{}: Recomputed IS-IS routes in {} domains, at most {} subIterations",
+            iterationLabel,
+            isisDomains.size(),
+            maxSubIterations);
+      } finally {
+        isisSpanRecompute.finish();
       }
 
       Span span =
@@ -472,15 +553,15 @@ final class IncrementalBdpEngine {
       LOGGER.info("{}: Propagate OSPF external", iterationLabel);
       try (Scope innerScope = GlobalTracer.get().scopeManager().activate(span)) {
         assert innerScope != null; // avoid unused warning
-        vrs.parallelStream().forEach(vr -> vr.ospfIteration(allNodes));
-        vrs.parallelStream().forEach(VirtualRouter::mergeOspfRoutesToMainRib);
+        profiler.forEach(Phase.OSPF, vrs, vr -> vr.ospfIteration(allNodes));
+        profiler.forEach(Phase.OSPF, vrs, VirtualRouter::mergeOspfRoutesToMainRib);
       } finally {
         span.finish();
       }
 
-      computeIterationOfBgpRoutes(iterationLabel, allNodes, vrs);
+      computeIterationOfBgpRoutes(iterationLabel, allNodes, vrs, profiler);
 
-      leakAcrossVrfs(vrs, iterationLabel);
+      leakAcrossVrfs(vrs, iterationLabel, profiler);
 
       // Tell each VR that a BGP route computation inner round (schedule) has ended.
       vrs.parallelStream().forEach(VirtualRouter::endOfEgpInnerRound);
@@ -490,14 +571,51 @@ final class IncrementalBdpEngine {
     }
   }
 
+  /**
+   * Propagate IS-IS routes among the VRs of one IS-IS {@code domain} until none of them has
+   * unprocessed routes.
+   *
+   * @return the number of sub-iterations it took the domain to converge
+   */
+  private static int propagateIsisRoutes(
+      List<VirtualRouter> domain,
+      String iterationLabel,
+      Map<String, Node> allNodes,
+      NetworkConfigurations networkConfigurations,
+      ConvergenceProfiler profiler) {
+    int subIterations = 0;
+    while (domain.stream().anyMatch(VirtualRouter::hasPendingIsisRoutes)) {
+      subIterations++;
+      profiler.forEach(
+          Phase.ISIS,
+          domain,
+          vr -> {
+            Entry<RibDelta<IsisRoute>, RibDelta<IsisRoute>> p =
+                vr.propagateIsisRoutes(networkConfigurations);
+            if (p != null) {
+              vr.unstageIsisRoutes(allNodes, networkConfigurations, p.getKey(), p.getValue());
+            }
+          });
+    }
+    LOGGER.debug(
+        "{}: IS-IS domain of {} VRs converged after {} subIterations",
+        iterationLabel,
+        domain.size(),
+        subIterations);
+    return subIterations;
+  }
+
   private static void computeIterationOfBgpRoutes(
-      String iterationLabel, Map<String, Node> allNodes, List<VirtualRouter> vrs) {
+      String iterationLabel,
+      Map<String, Node> allNodes,
+      List<VirtualRouter> vrs,
+      ConvergenceProfiler profiler) {
     Span span =
         GlobalTracer.get().buildSpan(iterationLabel + ": Init for new BGP iteration").start();
     LOGGER.info("{}: Init for new BGP iteration", iterationLabel);
     try (Scope scope = GlobalTracer.get().scopeManager().activate(span)) {
       assert scope != null; // avoid unused warning
-      vrs.parallelStream().forEach(vr -> vr.bgpIteration(allNodes));
+      profiler.forEach(Phase.BGP, vrs, vr -> vr.bgpIteration(allNodes));
     } finally {
       span.finish();
     }
@@ -509,7 +627,7 @@ final class IncrementalBdpEngine {
     try (Scope innerScope = GlobalTracer.get().scopeManager().activate(genSpan)) {
       assert innerScope != null; // avoid unused warning
       // first let's initialize nodes-level generated/aggregate routes
-      vrs.parallelStream().forEach(VirtualRouter::initBgpAggregateRoutes);
+      profiler.forEach(Phase.BGP, vrs, VirtualRouter::initBgpAggregateRoutes);
     } finally {
       genSpan.finish();
     }
@@ -522,7 +640,7 @@ final class IncrementalBdpEngine {
       assert innerScope != null; // avoid unused warning
 
       // Merge BGP routes from BGP process into the main RIB
-      vrs.parallelStream().forEach(VirtualRouter::mergeBgpRoutesToMainRib);
+      profiler.forEach(Phase.BGP, vrs, VirtualRouter::mergeBgpRoutesToMainRib);
     } finally {
       propSpan.finish();
     }
@@ -537,30 +655,32 @@ final class IncrementalBdpEngine {
       assert innerScope != null; // avoid unused warning
 
       // Merge BGP routes from BGP process into the main RIB
-      vrs.parallelStream().forEach(VirtualRouter::updateLayer3Vnis);
+      profiler.forEach(Phase.BGP, vrs, VirtualRouter::updateLayer3Vnis);
     } finally {
       propSpan.finish();
     }
   }
 
-  private static void queueRoutesForCrossVrfLeaking(List<VirtualRouter> vrs) {
+  private static void queueRoutesForCrossVrfLeaking(
+      List<VirtualRouter> vrs, ConvergenceProfiler profiler) {
     Span span = GlobalTracer.get().buildSpan("Queueing routes to leak across VRFs").start();
     LOGGER.info("Queueing routes to leak across VRFs");
     try (Scope scope = GlobalTracer.get().scopeManager().activate(span)) {
       assert scope != null; // avoid unused warning
-      vrs.parallelStream().forEach(VirtualRouter::queueCrossVrfImports);
+      profiler.forEach(Phase.CROSS_VRF, vrs, VirtualRouter::queueCrossVrfImports);
     } finally {
       span.finish();
     }
   }
 
-  private static void leakAcrossVrfs(List<VirtualRouter> vrs, String iterationLabel) {
+  private static void leakAcrossVrfs(
+      List<VirtualRouter> vrs, String iterationLabel, ConvergenceProfiler profiler) {
     Span span =
         GlobalTracer.get().buildSpan(iterationLabel + ": Leaking routes across VRFs").start();
     LOGGER.info("{}: Leaking routes across VRFs", iterationLabel);
     try (Scope scope = GlobalTracer.get().scopeManager().activate(span)) {
       assert scope != null; // avoid unused warning
-      vrs.parallelStream().forEach(VirtualRouter::processCrossVrfRoutes);
+      profiler.forEach(Phase.CROSS_VRF, vrs, VirtualRouter::processCrossVrfRoutes);
     } finally {
       span.finish();
     }
@@ -653,6 +773,7 @@ final class IncrementalBdpEngine {
    * @param ae The output answer element in which to store a report of the computation. Also
    *     contains the current recovery iteration.
    * @param topologyContext The various network topologies
+   * @param profiler Records the time spent by each virtual router in each phase of each iteration
    * @return true iff the computation is oscillating
    */
   private boolean computeNonMonotonicPortionOfDataPlane(
@@ -660,7 +781,8 @@ final class IncrementalBdpEngine {
       List<VirtualRouter> vrs,
       IncrementalBdpAnswerElement ae,
       TopologyContext topologyContext,
-      NetworkConfigurations networkConfigurations) {
+      NetworkConfigurations networkConfigurations,
+      ConvergenceProfiler profiler) {
     LOGGER.info("Compute EGP");
     Span span = GlobalTracer.get().buildSpan("Compute EGP").start();
     try (Scope scope = GlobalTracer.get().scopeManager().activate(span)) {
@@ -682,6 +804,9 @@ final class IncrementalBdpEngine {
         initializationSpan.finish();
       }
 
+      IgpDomains igpDomains =
+          IgpDomains.fromTopologies(topologyContext, nodes, networkConfigurations);
+
       /*
        * Setup maps to track iterations. We need this for oscillation detection.
        * Specifically, if we detect that an iteration hashcode (a hash of all the nodes' RIBs)
@@ -689,9 +814,31 @@ final class IncrementalBdpEngine {
        */
 
       Map<Integer, SortedSet<Integer>> iterationsByHashCode = new HashMap<>();
+      /*
+       * Optionally keep a fingerprint of each VRF at each iteration, so that an oscillation can be
+       * attributed to the VRFs whose state changed during the oscillation.
+       */
+      NavigableMap<Integer, Table<String, String, Integer>> fingerprintsByIteration =
+          _settings.getIterationFingerprints() ? new TreeMap<>() : null;
 
       Schedule currentSchedule = _settings.getScheduleName();
 
+      /*
+       * With dirty-set scheduling, each iteration only runs the nodes that have pending work or
+       * whose neighbors do; the first iteration runs all nodes. The VRs checked for a fixed point
+       * are those that ran and their neighbors, since no other VR's state can have changed.
+       */
+      NodeDependencyGraph dependencies =
+          _settings.getDirtySetScheduling()
+              ? NodeDependencyGraph.fromTopologies(topologyContext)
+              : null;
+      Set<String> activeNodes = nodes.keySet();
+      List<VirtualRouter> fixedPointVrs = vrs;
+      // Total number of BGP next hop resolvability changes as of the previous iteration. The
+      // counters are cumulative across topology rounds, so start from their current total.
+      int nextHopResolutionChanges =
+          vrs.parallelStream().mapToInt(VirtualRouter::getNumBgpNextHopResolutionChanges).sum();
+
       // Go into iteration mode, until the routes converge (or oscillation is detected)
       do {
         _numIterations++;
@@ -712,58 +859,51 @@ final class IncrementalBdpEngine {
             computeScheduleSpan.finish();
           }
 
-          // (Re)initialization of dependent route calculation
-          //  Since this is a local step, coloring not required.
-
-          LOGGER.info("Re-Init for new route iteration");
-          Span depRoutesspan =
-              GlobalTracer.get().buildSpan("Re-Init for new route iteration").start();
-
-          try (Scope reiinitscope = GlobalTracer.get().scopeManager().activate(depRoutesspan)) {
-            assert reiinitscope != null; // avoid unused warning
-
-            vrs.parallelStream().forEach(VirtualRouter::reinitForNewIteration);
-          } finally {
-            depRoutesspan.finish();
-          }
-
-          /*
-          Redistribution: take all the routes merged into the main RIB during previous iteration
-          and offer them to each routing process.
-
-          This must be called before any `executeIteration` calls on any routing process.
-          Since this is a local step, coloring not required.
-          */
-          Span redistributeSpan = GlobalTracer.get().buildSpan("Redistribute").start();
-          LOGGER.info("Redistribute");
-          try (Scope redistscope = GlobalTracer.get().scopeManager().activate(redistributeSpan)) {
-            assert redistscope != null; // avoid unused warning
-            vrs.parallelStream().forEach(VirtualRouter::redistribute);
-
-            // Handle process-specific route resolution and cross-VRF leaking here too.
-            vrs.parallelStream().forEach(VirtualRouter::updateResolvableRoutes);
-            queueRoutesForCrossVrfLeaking(vrs);
-          } finally {
-            redistributeSpan.finish();
-          }
+          Set<String> iterationActiveNodes = new HashSet<>(activeNodes);
+          reinitForNewIteration(
+              dependencies == null ? vrs : virtualRouters(nodes, iterationActiveNodes), profiler);
 
           // compute dependent routes for each allowable set of nodes until we cover all nodes
           int nodeSet = 0;
           while (schedule.hasNext()) {
             Map<String, Node> iterationNodes = schedule.next();
+            if (dependencies != null) {
+              iterationNodes = Maps.filterKeys(iterationNodes, iterationActiveNodes::contains);
+            }
             List<VirtualRouter> iterationVrs =
                 toListInRandomOrder(
                     iterationNodes.values().stream().flatMap(n -> n.getVirtualRouters().stream()));
             String iterationlabel =
                 String.format("Iteration %d Schedule %d", _numIterations, nodeSet);
             computeDependentRoutesIteration(
-                iterationVrs, iterationlabel, nodes, networkConfigurations, _numIterations);
+                iterationVrs,
+                iterationlabel,
+                nodes,
+                networkConfigurations,
+                _numIterations,
+                igpDomains,
+                profiler);
             ++nodeSet;
+            if (dependencies != null) {
+              // Nodes scheduled later in this iteration pull the deltas produced by this node set,
+              // so the neighbors of nodes that now have pending work must run in this iteration.
+              Set<String> newlyActiveNodes =
+                  Sets.difference(
+                          dependencies.withNeighbors(nodesWithPendingWork(iterationVrs)),
+                          iterationActiveNodes)
+                      .immutableCopy();
+              if (!newlyActiveNodes.isEmpty()) {
+                reinitForNewIteration(virtualRouters(nodes, newlyActiveNodes), profiler);
+                iterationActiveNodes.addAll(newlyActiveNodes);
+              }
+            }
           }
+          iterSpan.setTag("activeNodes", iterationActiveNodes.size());
 
           // Tell each VR that a route computation round has ended.
           // This must be the last thing called on a VR in a routing round.
-          vrs.parallelStream().forEach(VirtualRouter::endOfEgpRound);
+          (dependencies == null ? vrs : virtualRouters(nodes, iterationActiveNodes))
+              .parallelStream().forEach(VirtualRouter::endOfEgpRound);
 
           /*
            * Perform various bookkeeping at the end of the iteration:
@@ -772,9 +912,27 @@ final class IncrementalBdpEngine {
            * - Check for oscillations
            */
           computeIterationStatistics(vrs, ae, _numIterations);
+          int totalNextHopResolutionChanges =
+              vrs.parallelStream().mapToInt(VirtualRouter::getNumBgpNextHopResolutionChanges).sum();
+          iterSpan.setTag(
+              "bgpNextHopResolutionChanges",
+              totalNextHopResolutionChanges - nextHopResolutionChanges);
+          LOGGER.info(
+              "Iteration {}: {} BGP next hops changed resolvability",
+              _numIterations,
+              totalNextHopResolutionChanges - nextHopResolutionChanges);
+          nextHopResolutionChanges = totalNextHopResolutionChanges;
+          profiler.endIteration(_numIterations, vrs);
 
           // This hashcode uniquely identifies the iteration (i.e., network state)
-          int iterationHashCode = computeIterationHashCode(vrs);
+          int iterationHashCode;
+          if (fingerprintsByIteration != null) {
+            Table<String, String, Integer> fingerprints = computeIterationFingerprints(vrs);
+            fingerprintsByIteration.put(_numIterations, fingerprints);
+            iterationHashCode = fingerprints.values().stream().mapToInt(Integer::intValue).sum();
+          } else {
+            iterationHashCode = computeIterationHashCode(vrs);
+          }
           SortedSet<Integer> iterationsWithThisHashCode =
               iterationsByHashCode.computeIfAbsent(iterationHashCode, h -> new TreeSet<>());
 
@@ -789,19 +947,84 @@ final class IncrementalBdpEngine {
                   _numIterations);
               currentSchedule = Schedule.NODE_SERIALIZED;
             } else {
+              if (fingerprintsByIteration != null) {
+                _oscillatingVrfs =
+                    oscillatingVrfs(
+                        fingerprintsByIteration
+                            .subMap(iterationsWithThisHashCode.first(), true, _numIterations, true)
+                            .values());
+              }
               return true; // Found an oscillation
             }
           }
+
+          if (dependencies != null) {
+            fixedPointVrs = virtualRouters(nodes, dependencies.withNeighbors(iterationActiveNodes));
+            activeNodes = dependencies.withNeighbors(nodesWithPendingWork(fixedPointVrs));
+          }
         } finally {
           iterSpan.finish();
         }
-      } while (hasNotReachedRoutingFixedPoint(vrs));
+      } while (hasNotReachedRoutingFixedPoint(fixedPointVrs));
 
       ae.setDependentRoutesIterations(_numIterations);
       return false; // No oscillations
     }
   }
 
+  /**
+   * (Re)initialize {@code vrs} for a new iteration of dependent route calculation: reset their
+   * per-iteration state, redistribute the routes merged into their main RIBs during the previous
+   * iteration, and queue routes to leak across VRFs.
+   *
+   * <p>This must be called on a VR before any routing process of the VR executes an iteration.
+   * Since this is a local step, coloring is not required.
+   */
+  private static void reinitForNewIteration(List<VirtualRouter> vrs, ConvergenceProfiler profiler) {
+    LOGGER.info("Re-Init for new route iteration");
+    Span depRoutesspan = GlobalTracer.get().buildSpan("Re-Init for new route iteration").start();
+    try (Scope reiinitscope = GlobalTracer.get().scopeManager().activate(depRoutesspan)) {
+      assert reiinitscope != null; // avoid unused warning
+      profiler.forEach(Phase.REDISTRIBUTE, vrs, VirtualRouter::reinitForNewIteration);
+    } finally {
+      depRoutesspan.finish();
+    }
+
+    Span redistributeSpan = GlobalTracer.get().buildSpan("Redistribute").start();
+    LOGGER.info("Redistribute");
+    try (Scope redistscope = GlobalTracer.get().scopeManager().activate(redistributeSpan)) {
+      assert redistscope != null; // avoid unused warning
+      profiler.forEach(Phase.REDISTRIBUTE, vrs, VirtualRouter::redistribute);
+
+      // Handle process-specific route resolution and cross-VRF leaking here too.
+      profiler.forEach(Phase.REDISTRIBUTE, vrs, VirtualRouter::updateResolvableRoutes);
+      queueRoutesForCrossVrfLeaking(vrs, profiler);
+    } finally {
+      redistributeSpan.finish();
+    }
+  }
+
+  /** Return the virtual routers of the given {@code nodeNames}. */
+  private static List<VirtualRouter> virtualRouters(
+      Map<String, Node> nodes, Collection<String> nodeNames) {
+    return nodeNames.stream()
+        .map(nodes::get)
+        .filter(Objects::nonNull)
+        .flatMap(n -> n.getVirtualRouters().stream())
+        .collect(ImmutableList.toImmutableList());
+  }
+
+  /**
+   * Return the names of the nodes with at least one virtual router in {@code vrs} that {@link
+   * VirtualRouter#hasPendingWork has pending work}.
+   */
+  private static Set<String> nodesWithPendingWork(List<VirtualRouter> vrs) {
+    return vrs.parallelStream()
+        .filter(VirtualRouter::hasPendingWork)
+        .map(vr -> vr.getConfiguration().getHostname())
+        .collect(ImmutableSet.toImmutableSet());
+  }
+
   /** Check if we have reached a routing fixed point */
   private boolean hasNotReachedRoutingFixedPoint(List<VirtualRouter> vrs) {
     Span span =
@@ -836,6 +1059,51 @@ final class IncrementalBdpEngine {
     }
   }
 
+  /**
+   * Compute the fingerprint of each virtual router at a given iteration: the hashcode that
+   * identifies its state, as a table of hostname -&gt; VRF name -&gt; hashcode. The fingerprints of
+   * all virtual routers sum to the {@link #computeIterationHashCode iteration hashcode}.
+   *
+   * @param vrs all virtual routers in the network
+   */
+  private Table<String, String, Integer> computeIterationFingerprints(List<VirtualRouter> vrs) {
+    Span span =
+        GlobalTracer.get()
+            .buildSpan("Iteration " + _numIterations + ": Compute fingerprints")
+            .start();
+    LOGGER.info("Iteration {}: Compute fingerprints", _numIterations);
+    try (Scope scope = GlobalTracer.get().scopeManager().activate(span)) {
+      assert scope != null; // avoid unused warning
+      return vrs.parallelStream()
+          .collect(
+              ImmutableTable.toImmutableTable(
+                  vr -> vr.getConfiguration().getHostname(),
+                  VirtualRouter::getName,
+                  VirtualRouter::computeIterationHashCode));
+    } finally {
+      span.finish();
+    }
+  }
+
+  /**
+   * Return the VRFs, by hostname, whose fingerprint is not the same in all of the given iterations.
+   */
+  @VisibleForTesting
+  static SortedSetMultimap<String, String> oscillatingVrfs(
+      Collection<Table<String, String, Integer>> fingerprintsByIteration) {
+    SortedSetMultimap<String, String> oscillating =
+        MultimapBuilder.treeKeys().treeSetValues().build();
+    Table<String, String, Integer> firstIteration = fingerprintsByIteration.iterator().next();
+    for (Table<String, String, Integer> fingerprints : fingerprintsByIteration) {
+      for (Cell<String, String, Integer> cell : fingerprints.cellSet()) {
+        if (!cell.getValue().equals(firstIteration.get(cell.getRowKey(), cell.getColumnKey()))) {
+          oscillating.put(cell.getRowKey(), cell.getColumnKey());
+        }
+      }
+    }
+    return oscillating;
+  }
+
   private static void computeIterationStatistics(
       List<VirtualRouter> vrs, IncrementalBdpAnswerElement ae, int dependentRoutesIterations) {
     Span span = GlobalTracer.get().buildSpan("Compute iteration statistics").start();
@@ -886,6 +1154,16 @@ final class IncrementalBdpEngine {
    * @return the number of iterations it took for internal OSPF routes to converge
    */
   private int initOspfInternalRoutes(Map<String, Node> allNodes, OspfTopology ospfTopology) {
+    if (_settings.getOspfSpf()) {
+      Span spfSpan = GlobalTracer.get().buildSpan("OSPF internal: shortest paths").start();
+      LOGGER.info("OSPF internal: Computing intra-area shortest paths");
+      try (Scope scope = GlobalTracer.get().scopeManager().activate(spfSpan)) {
+        assert scope != null; // avoid unused warning
+        OspfIntraAreaSpf.seedIntraAreaRoutes(allNodes, ospfTopology);
+      } finally {
+        spfSpan.finish();
+      }
+    }
     int ospfInternalIterations = 0;
     boolean dirty = true;
 
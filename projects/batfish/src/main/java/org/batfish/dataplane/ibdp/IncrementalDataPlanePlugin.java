@@ -1,6 +1,7 @@
 package org.batfish.dataplane.ibdp;
 
 import com.google.auto.service.AutoService;
+import java.io.IOException;
 import java.util.Map;
 import java.util.Set;
 import org.apache.logging.log4j.LogManager;
@@ -22,6 +23,12 @@ public final class IncrementalDataPlanePlugin extends DataPlanePlugin {
 
   public static final String PLUGIN_NAME = "ibdp";
 
+  /** Snapshot object key of the JSON report of the slowest routers and phases, when profiling. */
+  public static final String CONVERGENCE_PROFILE_JSON_KEY = "convergence_profile.json";
+
+  /** Snapshot object key of the per-iteration, per-router CSV samples, when profiling. */
+  public static final String CONVERGENCE_PROFILE_CSV_KEY = "convergence_profile.csv";
+
   private IncrementalBdpEngine _engine;
 
   public IncrementalDataPlanePlugin() {}
@@ -53,9 +60,24 @@ public final class IncrementalDataPlanePlugin extends DataPlanePlugin {
         "Generated data-plane for snapshot:%s; iterations:%s",
         snapshot.getSnapshot(),
         ((IncrementalBdpAnswerElement) answer._answerElement).getDependentRoutesIterations());
+    ConvergenceProfiler profiler = ((IbdpResult) answer).getConvergenceProfiler();
+    if (profiler != null) {
+      storeConvergenceProfile(snapshot, profiler);
+    }
     return answer;
   }
 
+  private void storeConvergenceProfile(NetworkSnapshot snapshot, ConvergenceProfiler profiler) {
+    LOGGER.info("Storing dataplane convergence profile");
+    try {
+      _batfish.storeSnapshotObject(snapshot, CONVERGENCE_PROFILE_JSON_KEY, profiler.toJson());
+      _batfish.storeSnapshotObject(snapshot, CONVERGENCE_PROFILE_CSV_KEY, profiler.toCsv());
+    } catch (IOException e) {
+      // The profile is a debugging aid, so do not fail the dataplane computation.
+      LOGGER.warn("Failed to store dataplane convergence profile", e);
+    }
+  }
+
   @Override
   protected void dataPlanePluginInitialize() {
     _engine =
@@ -17,6 +17,12 @@ public final class IncrementalDataPlaneSettings {
   private Configuration _config;
 
   public static final String PROP_COLORING = "coloring";
+  public static final String PROP_COMPILE_ROUTING_POLICIES = "compileroutingpolicies";
+  public static final String PROP_CONVERGENCE_PROFILE = "convergenceprofile";
+  public static final String PROP_CONVERGENCE_PROFILE_TOP_N = "convergenceprofiletopn";
+  public static final String PROP_DIRTY_SET_SCHEDULING = "dirtysetscheduling";
+  public static final String PROP_ITERATION_FINGERPRINTS = "iterationfingerprints";
+  public static final String PROP_OSPF_SPF = "ospfspf";
   public static final String PROP_SCHEDULE = "schedule";
 
   /**
@@ -48,6 +54,12 @@ public final class IncrementalDataPlaneSettings {
   /** Initialize defaults for all properties */
   private void initDefaults() {
     _config.setProperty(PROP_COLORING, SATURATION.toString());
+    _config.setProperty(PROP_COMPILE_ROUTING_POLICIES, true);
+    _config.setProperty(PROP_CONVERGENCE_PROFILE, false);
+    _config.setProperty(PROP_CONVERGENCE_PROFILE_TOP_N, 10);
+    _config.setProperty(PROP_DIRTY_SET_SCHEDULING, false);
+    _config.setProperty(PROP_ITERATION_FINGERPRINTS, false);
+    _config.setProperty(PROP_OSPF_SPF, false);
     _config.setProperty(PROP_SCHEDULE, NODE_COLORED.toString());
   }
 
@@ -63,4 +75,49 @@ public final class IncrementalDataPlaneSettings {
   public Coloring getColoringType() {
     return Coloring.valueOf(_config.getString(PROP_COLORING));
   }
+
+  /**
+   * Whether to compile the routing policies of each device before computing the dataplane, rather
+   * than interpreting them for every route.
+   */
+  public boolean getCompileRoutingPolicies() {
+    return _config.getBoolean(PROP_COMPILE_ROUTING_POLICIES);
+  }
+
+  /**
+   * Whether each dataplane iteration after the first should only run the nodes with pending work
+   * and their neighbors, rather than all nodes.
+   */
+  public boolean getDirtySetScheduling() {
+    return _config.getBoolean(PROP_DIRTY_SET_SCHEDULING);
+  }
+
+  /**
+   * Whether to keep a fingerprint of each VRF at each dataplane iteration, so that oscillations can
+   * be reported with the VRFs that oscillate.
+   */
+  public boolean getIterationFingerprints() {
+    return _config.getBoolean(PROP_ITERATION_FINGERPRINTS);
+  }
+
+  /**
+   * Whether to profile the dataplane computation, recording the time each virtual router spends in
+   * each phase of each iteration.
+   */
+  public boolean getConvergenceProfile() {
+    return _config.getBoolean(PROP_CONVERGENCE_PROFILE);
+  }
+
+  /** The number of slowest routers and phases to report when profiling the dataplane. */
+  public int getConvergenceProfileTopN() {
+    return _config.getInt(PROP_CONVERGENCE_PROFILE_TOP_N);
+  }
+
+  /**
+   * Whether to compute the converged OSPF intra-area routes from shortest paths in each area before
+   * exchanging OSPF routes, rather than only by exchanging routes until convergence.
+   */
+  public boolean getOspfSpf() {
+    return _config.getBoolean(PROP_OSPF_SPF);
+  }
 }
@@ -0,0 +1,74 @@
+package org.batfish.dataplane.ibdp;
+
+import com.google.common.collect.ImmutableSet;
+import com.google.common.collect.ImmutableSetMultimap;
+import com.google.common.collect.SetMultimap;
+import com.google.common.graph.EndpointPair;
+import java.util.Collection;
+import java.util.Set;
+import javax.annotation.Nonnull;
+import javax.annotation.ParametersAreNonnullByDefault;
+import org.batfish.datamodel.BgpPeerConfigId;
+import org.batfish.datamodel.Edge;
+import org.batfish.datamodel.eigrp.EigrpEdge;
+import org.batfish.datamodel.isis.IsisEdge;
+import org.batfish.datamodel.ospf.OspfTopology.EdgeId;
+import org.batfish.datamodel.vxlan.VxlanNode;
+
+/**
+ * Undirected graph of the nodes whose routing state may directly affect each other during a
+ * dataplane iteration, i.e., nodes that exchange routes over some protocol adjacency or that share
+ * a layer-3 edge. Used to schedule iterations only on nodes with pending work and their neighbors.
+ */
+@ParametersAreNonnullByDefault
+final class NodeDependencyGraph {
+
+  /** Build the dependency graph from all adjacencies in {@code topologyContext}. */
+  static @Nonnull NodeDependencyGraph fromTopologies(TopologyContext topologyContext) {
+    ImmutableSetMultimap.Builder<String, String> neighbors = ImmutableSetMultimap.builder();
+    for (EndpointPair<BgpPeerConfigId> edge : topologyContext.getBgpTopology().getGraph().edges()) {
+      addEdge(neighbors, edge.source().getHostname(), edge.target().getHostname());
+    }
+    for (EigrpEdge edge : topologyContext.getEigrpTopology().getNetwork().edges()) {
+      addEdge(neighbors, edge.getNode1().getHostname(), edge.getNode2().getHostname());
+    }
+    for (IsisEdge edge : topologyContext.getIsisTopology().getNetwork().edges()) {
+      addEdge(neighbors, edge.getNode1().getNode(), edge.getNode2().getNode());
+    }
+    for (Edge edge : topologyContext.getLayer3Topology().getEdges()) {
+      addEdge(neighbors, edge.getNode1(), edge.getNode2());
+    }
+    for (EdgeId edge : topologyContext.getOspfTopology().edges()) {
+      addEdge(neighbors, edge.getTail().getHostname(), edge.getHead().getHostname());
+    }
+    for (EndpointPair<VxlanNode> edge : topologyContext.getVxlanTopology().getGraph().edges()) {
+      addEdge(neighbors, edge.nodeU().getHostname(), edge.nodeV().getHostname());
+    }
+    return new NodeDependencyGraph(neighbors.build());
+  }
+
+  private static void addEdge(
+      ImmutableSetMultimap.Builder<String, String> neighbors, String node1, String node2) {
+    if (!node1.equals(node2)) {
+      neighbors.put(node1, node2);
+      neighbors.put(node2, node1);
+    }
+  }
+
+  NodeDependencyGraph(SetMultimap<String, String> neighbors) {
+    _neighbors = ImmutableSetMultimap.copyOf(neighbors);
+  }
+
+  /** Return {@code nodes} together with all of their neighbors. */
+  @Nonnull
+  Set<String> withNeighbors(Collection<String> nodes) {
+    ImmutableSet.Builder<String> result = ImmutableSet.builder();
+    for (String node : nodes) {
+      result.add(node);
+      result.addAll(_neighbors.get(node));
+    }
+    return result.build();
+  }
+
+  private final @Nonnull ImmutableSetMultimap<String, String> _neighbors;
+}
@@ -0,0 +1,270 @@
+package org.batfish.dataplane.ibdp;
+
+import static org.batfish.dataplane.ibdp.OspfRoutingProcess.getNeighborProcess;
+import static org.batfish.dataplane.ibdp.OspfRoutingProcess.transformIntraAreaRoutesOnExport;
+
+import com.google.common.collect.ArrayListMultimap;
+import com.google.common.collect.HashMultimap;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableSet;
+import com.google.common.collect.ListMultimap;
+import com.google.common.collect.SetMultimap;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.PriorityQueue;
+import java.util.Set;
+import java.util.stream.IntStream;
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+import javax.annotation.ParametersAreNonnullByDefault;
+import org.batfish.datamodel.Configuration;
+import org.batfish.datamodel.Interface;
+import org.batfish.datamodel.OspfIntraAreaRoute;
+import org.batfish.datamodel.Prefix;
+import org.batfish.datamodel.ospf.OspfArea;
+import org.batfish.datamodel.ospf.OspfNeighborConfigId;
+import org.batfish.datamodel.ospf.OspfSessionProperties;
+import org.batfish.datamodel.ospf.OspfTopology;
+import org.batfish.datamodel.ospf.OspfTopology.EdgeId;
+import org.batfish.dataplane.rib.RibDelta;
+import org.batfish.dataplane.rib.RouteAdvertisement;
+
+/**
+ * Computes the converged intra-area routes of all OSPF processes from the shortest paths in the
+ * graph of adjacencies of each area, rather than by exchanging route advertisements until
+ * convergence, which takes as many iterations as the diameter of the area.
+ *
+ * <p>The metric of a route is the metric with which it is originated plus the cost of each
+ * interface on which it is received, so the best metric of each prefix at each process is found
+ * with one Dijkstra computation per process and area over the reversed adjacencies. Each process
+ * then receives the routes it would have received from each neighbor at convergence: those whose
+ * metric through the neighbor is the best metric for their prefix. These are processed exactly as
+ * advertisements from neighbors would be, and the usual message passing then only has to confirm
+ * them and propagate inter-area and external routes.
+ *
+ * <p>Areas with inbound distribute lists, which may change routes on import, and prefixes
+ * originated in more than one area, whose routes compete across areas, are left to message passing.
+ */
+@ParametersAreNonnullByDefault
+final class OspfIntraAreaSpf {
+
+  /** Seed the intra-area routes of all OSPF processes of {@code allNodes}. */
+  static void seedIntraAreaRoutes(Map<String, Node> allNodes, OspfTopology topology) {
+    new OspfIntraAreaSpf(allNodes, topology).seed();
+  }
+
+  /** An adjacency over which a process receives routes. */
+  private static final class InEdge {
+    private final @Nonnull EdgeId _edge;
+    /** Index of the sending process */
+    private final int _tail;
+    /** Cost of the receiving interface */
+    private final long _cost;
+
+    private InEdge(EdgeId edge, int tail, long cost) {
+      _edge = edge;
+      _tail = tail;
+      _cost = cost;
+    }
+  }
+
+  /** The graph of adjacencies of an area and the routes originated in it. */
+  private static final class Area {
+    private final long _areaNumber;
+    private final @Nonnull List<OspfRoutingProcess> _processes = new ArrayList<>();
+    private final @Nonnull Map<OspfRoutingProcess, Integer> _indices = new IdentityHashMap<>();
+    private final @Nonnull List<List<InEdge>> _inEdges = new ArrayList<>();
+    /** Originated routes by prefix, and the index of their originator */
+    private final @Nonnull ListMultimap<Prefix, OspfIntraAreaRoute> _originated =
+        ArrayListMultimap.create();
+
+    private final @Nonnull Map<OspfIntraAreaRoute, Integer> _originators = new IdentityHashMap<>();
+
+    private Area(long areaNumber) {
+      _areaNumber = areaNumber;
+    }
+
+    private int index(OspfRoutingProcess process) {
+      return _indices.computeIfAbsent(
+          process,
+          p -> {
+            _processes.add(p);
+            _inEdges.add(new ArrayList<>());
+            return _processes.size() - 1;
+          });
+    }
+
+    /**
+     * Return the best metric of each prefix at the process with the given index: the minimum over
+     * the originators of the prefix of the originated metric plus the cost of the shortest path
+     * from the originator to the process.
+     */
+    private @Nonnull Map<Prefix, Long> bestMetrics(int target) {
+      long[] distances = new long[_processes.size()];
+      Arrays.fill(distances, Long.MAX_VALUE);
+      distances[target] = 0;
+      PriorityQueue<long[]> queue = new PriorityQueue<>((a, b) -> Long.compare(a[0], b[0]));
+      queue.add(new long[] {0, target});
+      while (!queue.isEmpty()) {
+        long[] next = queue.remove();
+        int head = (int) next[1];
+        if (next[0] > distances[head]) {
+          continue;
+        }
+        for (InEdge inEdge : _inEdges.get(head)) {
+          long distance = next[0] + inEdge._cost;
+          if (distance < distances[inEdge._tail]) {
+            distances[inEdge._tail] = distance;
+            queue.add(new long[] {distance, inEdge._tail});
+          }
+        }
+      }
+      Map<Prefix, Long> bestMetrics = new HashMap<>();
+      _originated.forEach(
+          (prefix, route) -> {
+            long distance = distances[_originators.get(route)];
+            if (distance != Long.MAX_VALUE) {
+              bestMetrics.merge(prefix, route.getMetric() + distance, Math::min);
+            }
+          });
+      return bestMetrics;
+    }
+  }
+
+  private final @Nonnull Map<String, Node> _allNodes;
+  private final @Nonnull OspfTopology _topology;
+
+  private OspfIntraAreaSpf(Map<String, Node> allNodes, OspfTopology topology) {
+    _allNodes = allNodes;
+    _topology = topology;
+  }
+
+  private void seed() {
+    List<OspfRoutingProcess> processes =
+        _allNodes.values().stream()
+            .flatMap(n -> n.getVirtualRouters().stream())
+            .flatMap(vr -> vr.getOspfProcesses().values().stream())
+            .collect(ImmutableList.toImmutableList());
+
+    // Prefixes originated in more than one area
+    SetMultimap<Prefix, Long> areasByPrefix = HashMultimap.create();
+    processes.forEach(
+        p -> p.getIntraAreaRoutes().forEach(r -> areasByPrefix.put(r.getNetwork(), r.getArea())));
+    Set<Prefix> excludedPrefixes =
+        areasByPrefix.asMap().entrySet().stream()
+            .filter(e -> e.getValue().size() > 1)
+            .map(Map.Entry::getKey)
+            .collect(ImmutableSet.toImmutableSet());
+
+    Map<Long, Area> areas = new HashMap<>();
+    Set<Long> excludedAreas = new HashSet<>();
+    for (EdgeId edge : _topology.edges()) {
+      Optional<OspfSessionProperties> session = _topology.getSession(edge);
+      assert session.isPresent();
+      long areaNumber = session.get().getArea();
+      OspfRoutingProcess tail = getNeighborProcess(edge.getTail(), _allNodes);
+      OspfRoutingProcess head = getNeighborProcess(edge.getHead(), _allNodes);
+      if (tail == null || head == null || hasInboundDistributeList(edge.getHead())) {
+        excludedAreas.add(areaNumber);
+        continue;
+      }
+      Area area = areas.computeIfAbsent(areaNumber, Area::new);
+      long cost = head.getIncrementalCost(edge.getHead().getInterfaceName(), false);
+      area._inEdges.get(area.index(head)).add(new InEdge(edge, area.index(tail), cost));
+    }
+    excludedAreas.forEach(areas::remove);
+    for (OspfRoutingProcess process : processes) {
+      for (OspfIntraAreaRoute route : process.getIntraAreaRoutes()) {
+        Area area = areas.get(route.getArea());
+        if (area != null && !excludedPrefixes.contains(route.getNetwork())) {
+          area._originated.put(route.getNetwork(), route);
+          area._originators.put(route, area.index(process));
+        }
+      }
+    }
+
+    // Best metrics by area, process index, and prefix
+    Map<Area, List<Map<Prefix, Long>>> bestMetrics = new IdentityHashMap<>();
+    areas
+        .values()
+        .forEach(
+            area ->
+                bestMetrics.put(
+                    area,
+                    IntStream.range(0, area._processes.size())
+                        .parallel()
+                        .mapToObj(area::bestMetrics)
+                        .collect(ImmutableList.toImmutableList())));
+
+    // Advertisements received by each process at convergence
+    Map<OspfRoutingProcess, Map<EdgeId, List<RouteAdvertisement<OspfIntraAreaRoute>>>>
+        advertisements = new IdentityHashMap<>();
+    areas
+        .values()
+        .forEach(
+            area -> {
+              List<Map<Prefix, Long>> areaBestMetrics = bestMetrics.get(area);
+              for (int head = 0; head < area._processes.size(); head++) {
+                Map<Prefix, Long> headBestMetrics = areaBestMetrics.get(head);
+                for (InEdge inEdge : area._inEdges.get(head)) {
+                  List<RouteAdvertisement<OspfIntraAreaRoute>> received =
+                      receivedAdvertisements(
+                          area, inEdge, areaBestMetrics.get(inEdge._tail), headBestMetrics);
+                  if (!received.isEmpty()) {
+                    advertisements
+                        .computeIfAbsent(area._processes.get(head), p -> new HashMap<>())
+                        .put(inEdge._edge, received);
+                  }
+                }
+              }
+            });
+    advertisements.entrySet().parallelStream()
+        .forEach(e -> e.getKey().seedIntraAreaRoutes(e.getValue()));
+  }
+
+  /**
+   * Return the advertisements the head of {@code inEdge} receives over it at convergence: the best
+   * routes of the tail, for the prefixes whose best metric at the head is through the tail.
+   */
+  private @Nonnull List<RouteAdvertisement<OspfIntraAreaRoute>> receivedAdvertisements(
+      Area area,
+      InEdge inEdge,
+      Map<Prefix, Long> tailBestMetrics,
+      Map<Prefix, Long> headBestMetrics) {
+    OspfRoutingProcess tail = area._processes.get(inEdge._tail);
+    OspfArea areaConfig = tail.getProcess().getAreas().get(area._areaNumber);
+    // The tail advertises its routes to the head on the reverse of the head's incoming edge
+    Optional<OspfSessionProperties> session = _topology.getSession(inEdge._edge.reverse());
+    if (areaConfig == null || !session.isPresent()) {
+      return ImmutableList.of();
+    }
+    RibDelta.Builder<OspfIntraAreaRoute> tailBestRoutes = RibDelta.builder();
+    tailBestMetrics.forEach(
+        (prefix, metric) -> {
+          Long headBestMetric = headBestMetrics.get(prefix);
+          if (headBestMetric != null && headBestMetric == metric + inEdge._cost) {
+            // Originated routes of a prefix only differ in attributes set on import and export
+            tailBestRoutes.add(
+                area._originated.get(prefix).get(0).toBuilder().setMetric(metric).build());
+          }
+        });
+    return transformIntraAreaRoutesOnExport(
+            tailBestRoutes.build(), areaConfig, session.get().getIpLink().getIp2())
+        .collect(ImmutableList.toImmutableList());
+  }
+
+  /** Whether the interface of the given neighbor has an inbound distribute list. */
+  private boolean hasInboundDistributeList(OspfNeighborConfigId neighbor) {
+    Node node = _allNodes.get(neighbor.getHostname());
+    Configuration c = node == null ? null : node.getConfiguration();
+    @Nullable
+    Interface iface = c == null ? null : c.getAllInterfaces().get(neighbor.getInterfaceName());
+    return iface == null || iface.getOspfInboundDistributeListPolicy() != null;
+  }
+}
@@ -2,6 +2,7 @@ package org.batfish.dataplane.ibdp;
 
 import static com.google.common.base.MoreObjects.firstNonNull;
 import static org.batfish.common.util.CollectionUtil.toOrderedHashCode;
+import static org.batfish.dataplane.ibdp.DataplaneUtil.messageQueueSize;
 import static org.batfish.dataplane.ibdp.DataplaneUtil.messageQueueStream;
 
 import com.google.common.annotations.VisibleForTesting;
@@ -14,6 +15,7 @@ import java.util.AbstractMap.SimpleEntry;
 import java.util.Collection;
 import java.util.Comparator;
 import java.util.HashSet;
+import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
 import java.util.Objects;
@@ -339,6 +341,14 @@ final class OspfRoutingProcess implements RoutingProcess<OspfTopology, OspfRoute
         || !_type2IncomingRoutes.values().stream().allMatch(Queue::isEmpty);
   }
 
+  /** Return the number of route advertisements waiting in this process's message queues. */
+  int getPendingMessageCount() {
+    return messageQueueSize(_intraAreaIncomingRoutes)
+        + messageQueueSize(_interAreaIncomingRoutes)
+        + messageQueueSize(_type1IncomingRoutes)
+        + messageQueueSize(_type2IncomingRoutes);
+  }
+
   /** Initialize intra-area routes based on available interfaces. */
   private void initializeIntraAreaRoutes() {
     RibDelta.Builder<OspfIntraAreaRoute> intraAreaBuilder = RibDelta.builder();
@@ -352,6 +362,58 @@ final class OspfRoutingProcess implements RoutingProcess<OspfTopology, OspfRoute
     _changeset.from(RibDelta.importRibDelta(_ospfRib, intraAreaDelta));
   }
 
+  /**
+   * Return the intra-area routes in this process's RIB. Right after {@link #initialize}, these are
+   * the routes it originates for its interfaces.
+   */
+  @Nonnull
+  Set<OspfIntraAreaRoute> getIntraAreaRoutes() {
+    return _intraAreaRib.getTypedRoutes();
+  }
+
+  /** Return the configuration of this process. */
+  @Nonnull
+  OspfProcess getProcess() {
+    return _process;
+  }
+
+  /**
+   * Process intra-area route advertisements computed by {@link OspfIntraAreaSpf} as if they had
+   * arrived from neighbors, and send out the resulting changes along with the initialization delta.
+   * Must be called after {@link #initialize} and before the first iteration.
+   *
+   * @param advertisementsByEdge route advertisements by the incoming edge they would arrive on
+   */
+  void seedIntraAreaRoutes(
+      Map<EdgeId, List<RouteAdvertisement<OspfIntraAreaRoute>>> advertisementsByEdge) {
+    RibDelta.Builder<OspfIntraAreaRoute> intraAreaDelta = RibDelta.builder();
+    RibDelta.Builder<OspfInterAreaRoute> interAreaDelta = RibDelta.builder();
+    advertisementsByEdge.forEach(
+        (edgeId, advertisements) -> {
+          String ifaceName = edgeId.getHead().getInterfaceName();
+          long incrementalCost = getIncrementalCost(ifaceName, false);
+          advertisements.forEach(
+              advertisement ->
+                  processIntraAreaAdvertisement(
+                      intraAreaDelta, interAreaDelta, ifaceName, incrementalCost, advertisement));
+        });
+    RibDelta<OspfIntraAreaRoute> seededIntraArea = intraAreaDelta.build();
+    RibDelta<OspfInterAreaRoute> seededInterArea = interAreaDelta.build();
+    _initializationDelta =
+        new InternalDelta(
+            RibDelta.<OspfIntraAreaRoute>builder()
+                .from(_initializationDelta._intraArea)
+                .from(seededIntraArea)
+                .build(),
+            RibDelta.<OspfInterAreaRoute>builder()
+                .from(_initializationDelta._interArea)
+                .from(seededInterArea)
+                .build(),
+            _initializationDelta._internalSummary);
+    _changeset.from(RibDelta.importRibDelta(_ospfRib, seededIntraArea));
+    _changeset.from(RibDelta.importRibDelta(_ospfRib, seededInterArea));
+  }
+
   /** Initialize inter-area routes based the initial intra-area routes. */
   @VisibleForTesting
   @Nonnull
@@ -471,7 +533,7 @@ final class OspfRoutingProcess implements RoutingProcess<OspfTopology, OspfRoute
    * OspfNeighborId}
    */
   @Nullable
-  private static OspfRoutingProcess getNeighborProcess(
+  static OspfRoutingProcess getNeighborProcess(
       OspfNeighborConfigId ospfNeighborId, Map<String, Node> allNodes) {
     return allNodes
         .get(ospfNeighborId.getHostname())
@@ -1690,7 +1752,7 @@ final class OspfRoutingProcess implements RoutingProcess<OspfTopology, OspfRoute
             _activatedGeneratedRoutes.getActions(),
             // RIB state
             Stream.of(_intraAreaRib, _interAreaRib, _internalSummaryRib, _type1Rib, _type2Rib)
-                .map(AbstractRib::getTypedRoutes))
+                .map(AbstractRib::getRoutesHashCode))
         .collect(toOrderedHashCode());
   }
 
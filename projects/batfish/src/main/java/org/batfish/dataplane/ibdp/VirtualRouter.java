@@ -6,6 +6,7 @@ import static org.batfish.common.util.CollectionUtil.toImmutableSortedMap;
 import static org.batfish.common.util.CollectionUtil.toOrderedHashCode;
 import static org.batfish.datamodel.ResolutionRestriction.alwaysTrue;
 import static org.batfish.datamodel.routing_policy.Environment.Direction.IN;
+import static org.batfish.dataplane.ibdp.DataplaneUtil.messageQueueSize;
 import static org.batfish.dataplane.ibdp.DataplaneUtil.messageQueueStream;
 import static org.batfish.dataplane.protocols.IsisProtocolHelper.convertRouteLevel1ToLevel2;
 import static org.batfish.dataplane.protocols.IsisProtocolHelper.exportNonIsisRouteToIsis;
@@ -1409,6 +1410,14 @@ public final class VirtualRouter {
     return _bgpRoutingProcess == null ? 0 : _bgpRoutingProcess.getV4Routes().size();
   }
 
+  /**
+   * Get the number of times the next hop IP of a BGP route became resolvable or unresolvable. To be
+   * used during dataplane computation only
+   */
+  int getNumBgpNextHopResolutionChanges() {
+    return _bgpRoutingProcess == null ? 0 : _bgpRoutingProcess.getNextHopResolutionChanges();
+  }
+
   /** Convenience method to get the VirtualRouter's hostname */
   String getHostname() {
     return _c.getHostname();
@@ -1429,7 +1438,7 @@ public final class VirtualRouter {
   int computeIterationHashCode() {
     return Streams.concat(
             // RIB State
-            Stream.of(_mainRib.getTypedRoutes()),
+            Stream.of(_mainRib.getRoutesHashCode()),
             // Message queues
             messageQueueStream(_isisIncomingRoutes),
             messageQueueStream(_crossVrfIncomingRoutes),
@@ -1567,6 +1576,56 @@ public final class VirtualRouter {
         || (_bgpRoutingProcess != null && _bgpRoutingProcess.isDirty());
   }
 
+  /**
+   * Whether this VR has work to do in the next iteration: it is {@link #isDirty() dirty}, or its
+   * main RIB changed during the last round and the change has yet to be redistributed.
+   */
+  boolean hasPendingWork() {
+    return isDirty() || !_mainRibDeltaPrevRound.isEmpty();
+  }
+
+  /**
+   * Return the number of route advertisements waiting in the message queues of this VR and its
+   * routing processes.
+   */
+  int getPendingMessageCount() {
+    return messageQueueSize(_isisIncomingRoutes)
+        + messageQueueSize(_crossVrfIncomingRoutes)
+        + _ospfProcesses.values().stream()
+            .mapToInt(OspfRoutingProcess::getPendingMessageCount)
+            .sum()
+        + _eigrpProcesses.values().stream()
+            .mapToInt(EigrpRoutingProcess::getPendingMessageCount)
+            .sum()
+        + (_bgpRoutingProcess == null ? 0 : _bgpRoutingProcess.getPendingMessageCount());
+  }
+
+  /** Return the number of main RIB changes made by this VR during the last round. */
+  int getNumMainRibChanges() {
+    return _mainRibDeltaPrevRound.size();
+  }
+
+  /** Return whether this VR has any EIGRP process configured. */
+  boolean hasEigrpProcesses() {
+    return !_vrf.getEigrpProcesses().isEmpty();
+  }
+
+  /** Return whether any EIGRP process of this VR has work to do in its next iteration. */
+  boolean hasPendingEigrpWork() {
+    return _eigrpProcesses.values().stream().anyMatch(EigrpRoutingProcess::isDirty);
+  }
+
+  /** Return whether this VR has an IS-IS process configured. */
+  boolean hasIsisProcess() {
+    return _vrf.getIsisProcess() != null;
+  }
+
+  /** Return whether this VR has received IS-IS routes that it has not yet processed. */
+  boolean hasPendingIsisRoutes() {
+    return _isisIncomingRoutes != null
+        && !_isisIncomingRoutes.values().stream().allMatch(Queue::isEmpty);
+  }
+
   void eigrpIteration(Map<String, Node> allNodes) {
     _eigrpProcesses.values().forEach(p -> p.executeIteration(allNodes));
   }
@@ -36,6 +36,12 @@ public abstract class AbstractRib<R extends AbstractRouteDecorator> implements G
   /** Memoized set of all routes in this RIB */
   @Nullable private transient Set<R> _allRoutes;
 
+  /**
+   * Sum of the hash codes of all routes in this RIB, i.e., the hash code of {@link
+   * #getTypedRoutes()}. Maintained incrementally as routes are added and removed.
+   */
+  private int _routesHashCode;
+
   /**
    * Keep a (insert ordered) set of alternative routes. Used to update the RIB if best routes are
    * withdrawn.
@@ -127,6 +133,7 @@ public abstract class AbstractRib<R extends AbstractRouteDecorator> implements G
   public final void clear() {
     _tree.clear();
     _allRoutes = null;
+    _routesHashCode = 0;
   }
 
   @Override
@@ -205,6 +212,29 @@ public abstract class AbstractRib<R extends AbstractRouteDecorator> implements G
     return _tree.getLongestPrefixMatch(address, maxPrefixLength, restriction);
   }
 
+  /**
+   * Apply the hash codes of the routes added and removed by {@code delta}, which must be exactly
+   * the change made to the routes in {@link #_tree}.
+   */
+  private void updateRoutesHashCode(RibDelta<R> delta) {
+    delta
+        .getActions()
+        .forEach(
+            action -> {
+              int routeHashCode = action.getRoute().hashCode();
+              _routesHashCode += action.isWithdrawn() ? -routeHashCode : routeHashCode;
+            });
+  }
+
+  /**
+   * Return the hash code of the set of all routes in this RIB, equal to {@code
+   * getTypedRoutes().hashCode()}. Runs in constant time, since it is maintained as routes are
+   * merged and removed.
+   */
+  public int getRoutesHashCode() {
+    return _routesHashCode;
+  }
+
   /**
    * Add a new route to the RIB.
    *
@@ -219,6 +249,7 @@ public abstract class AbstractRib<R extends AbstractRouteDecorator> implements G
     if (!delta.isEmpty()) {
       // A change to routes has been made
       _allRoutes = null;
+      updateRoutesHashCode(delta);
     }
     return delta;
   }
@@ -250,6 +281,7 @@ public abstract class AbstractRib<R extends AbstractRouteDecorator> implements G
     if (!delta.isEmpty()) {
       // A change to routes has been made
       _allRoutes = null;
+      updateRoutesHashCode(delta);
     }
     return delta;
   }
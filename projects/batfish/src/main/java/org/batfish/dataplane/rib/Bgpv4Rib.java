@@ -4,6 +4,7 @@ import static org.batfish.datamodel.ResolutionRestriction.alwaysTrue;
 import static org.batfish.datamodel.bgp.NextHopIpTieBreaker.HIGHEST_NEXT_HOP_IP;
 
 import com.google.common.collect.ImmutableSet;
+import com.google.common.collect.Iterables;
 import com.google.common.collect.Multimaps;
 import com.google.common.collect.SetMultimap;
 import com.google.common.collect.SortedSetMultimap;
@@ -12,11 +13,11 @@ import java.util.EnumMap;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.Map;
+import java.util.Objects;
 import java.util.Optional;
 import java.util.Set;
 import java.util.SortedSet;
 import java.util.TreeSet;
-import java.util.stream.Stream;
 import javax.annotation.Nonnull;
 import javax.annotation.Nullable;
 import javax.annotation.ParametersAreNonnullByDefault;
@@ -42,36 +43,124 @@ import org.batfish.datamodel.route.nh.NextHopVtep;
 /** BGPv4-specific RIB implementation */
 @ParametersAreNonnullByDefault
 public final class Bgpv4Rib extends BgpRib<Bgpv4Route> {
+  /**
+   * Tracks the resolution of the next hop IPs of BGP routes. Each resolvable next hop IP is
+   * recorded with the network of the main RIB routes resolving it and indexed by that network, so
+   * that a main RIB change revisits only the next hop IPs it can affect, and (de)activates their
+   * routes only if their resolvability actually changed.
+   */
   private final class ResolvabilityEnforcer {
     /** Map of NHIP to {@link Bgpv4Route} with that NHIP */
     private final @Nonnull SetMultimap<Ip, Bgpv4Route> _bgpRoutesByNhip;
 
     private final @Nonnull RibResolutionTrie _mainRibPrefixesAndBgpNhips;
 
+    /** Map of resolvable NHIP to the network of the main RIB routes resolving it */
+    private final @Nonnull Map<Ip, Prefix> _resolvingNetworks;
+
+    /** Map of main RIB network to the NHIPs it resolves. Inverse of {@link #_resolvingNetworks}. */
+    private final @Nonnull SetMultimap<Prefix, Ip> _nhipsByResolvingNetwork;
+
+    /**
+     * NHIPs whose resolvability changed when a route was added for them, so that their other routes
+     * have yet to be (de)activated.
+     */
+    private final @Nonnull Set<Ip> _unreconciledNhips;
+
+    /** Number of times the resolvability of a NHIP changed */
+    private int _resolutionChanges;
+
     private ResolvabilityEnforcer() {
       _bgpRoutesByNhip = Multimaps.newSetMultimap(new HashMap<>(), HashSet::new);
       _mainRibPrefixesAndBgpNhips = new RibResolutionTrie();
+      _resolvingNetworks = new HashMap<>();
+      _nhipsByResolvingNetwork = Multimaps.newSetMultimap(new HashMap<>(), HashSet::new);
+      _unreconciledNhips = new HashSet<>();
     }
 
-    void addBgpRoute(Bgpv4Route route) {
+    /** Start tracking the given route. Returns whether its NHIP is resolvable. */
+    boolean addBgpRoute(Bgpv4Route route) {
       Ip nhip = route.getNextHopIp();
+      boolean tracked = _bgpRoutesByNhip.containsKey(nhip);
       _bgpRoutesByNhip.put(nhip, route);
-      _mainRibPrefixesAndBgpNhips.addNextHopIp(nhip);
+      if (!tracked) {
+        _mainRibPrefixesAndBgpNhips.addNextHopIp(nhip);
+      }
+      boolean wasResolvable = _resolvingNetworks.containsKey(nhip);
+      boolean resolvable = recordResolution(nhip);
+      if (tracked && resolvable != wasResolvable) {
+        // The main RIB changed since the other routes with this NHIP were (de)activated.
+        _unreconciledNhips.add(nhip);
+        _resolutionChanges++;
+      }
+      return resolvable;
     }
 
     void removeBgpRoute(Bgpv4Route route) {
       Ip nhip = route.getNextHopIp();
-      _bgpRoutesByNhip.remove(nhip, route);
-      if (!_bgpRoutesByNhip.containsKey(nhip)) {
+      if (_bgpRoutesByNhip.remove(nhip, route) && !_bgpRoutesByNhip.containsKey(nhip)) {
         _mainRibPrefixesAndBgpNhips.removeNextHopIp(nhip);
+        Prefix network = _resolvingNetworks.remove(nhip);
+        if (network != null) {
+          _nhipsByResolvingNetwork.remove(network, nhip);
+        }
+        _unreconciledNhips.remove(nhip);
       }
     }
 
+    /**
+     * Record the current resolution of the given tracked NHIP in the main RIB. Returns whether it
+     * is resolvable.
+     */
+    private boolean recordResolution(Ip nhip) {
+      Prefix network = resolvingNetwork(nhip);
+      Prefix oldNetwork =
+          network == null ? _resolvingNetworks.remove(nhip) : _resolvingNetworks.put(nhip, network);
+      if (Objects.equals(network, oldNetwork)) {
+        return network != null;
+      }
+      if (oldNetwork != null) {
+        _nhipsByResolvingNetwork.remove(oldNetwork, nhip);
+      }
+      if (network != null) {
+        _nhipsByResolvingNetwork.put(network, nhip);
+      }
+      return network != null;
+    }
+
+    /**
+     * Update the resolution of the NHIPs affected by the given main RIB delta. Returns whether each
+     * NHIP whose routes must be (de)activated is now resolvable.
+     */
     @Nonnull
-    Stream<Ip> getAffectedNextHopIps(Stream<Prefix> changedPrefixes) {
-      return changedPrefixes
-          .flatMap(prefix -> _mainRibPrefixesAndBgpNhips.getAffectedNextHopIps(prefix).stream())
-          .distinct();
+    Map<Ip, Boolean> updateResolution(RibDelta<AnnotatedRoute<AbstractRoute>> mainRibDelta) {
+      updateMainRibPrefixes(mainRibDelta);
+      // A NHIP may only become resolvable through a network containing it that is now present, and
+      // may only become unresolvable if the network resolving it is now absent.
+      Set<Ip> affectedNhips = new HashSet<>(_unreconciledNhips);
+      mainRibDelta
+          .getPrefixes()
+          .forEach(
+              prefix -> {
+                if (_mainRib.getRoutes(prefix).isEmpty()) {
+                  affectedNhips.addAll(_nhipsByResolvingNetwork.get(prefix));
+                } else {
+                  affectedNhips.addAll(_mainRibPrefixesAndBgpNhips.getAffectedNextHopIps(prefix));
+                }
+              });
+      Map<Ip, Boolean> changedNhips = new HashMap<>();
+      for (Ip nhip : affectedNhips) {
+        boolean wasResolvable = _resolvingNetworks.containsKey(nhip);
+        boolean resolvable = recordResolution(nhip);
+        if (resolvable != wasResolvable) {
+          _resolutionChanges++;
+          changedNhips.put(nhip, resolvable);
+        } else if (_unreconciledNhips.contains(nhip)) {
+          changedNhips.put(nhip, resolvable);
+        }
+      }
+      _unreconciledNhips.clear();
+      return changedNhips;
     }
 
     @Nonnull
@@ -79,7 +168,7 @@ public final class Bgpv4Rib extends BgpRib<Bgpv4Route> {
       return ImmutableSet.copyOf(_bgpRoutesByNhip.get(nhip));
     }
 
-    void updateMainRibPrefixes(RibDelta<AnnotatedRoute<AbstractRoute>> mainRibDelta) {
+    private void updateMainRibPrefixes(RibDelta<AnnotatedRoute<AbstractRoute>> mainRibDelta) {
       mainRibDelta
           .getActions()
           // TODO Filter to routes that pass the resolution restriction, when one is added
@@ -98,6 +187,13 @@ public final class Bgpv4Rib extends BgpRib<Bgpv4Route> {
   }
 
   private final @Nonnull ResolvabilityEnforcer _resolvabilityEnforcer;
+
+  /**
+   * Whether routes are being deactivated because their NHIP became unresolvable, in which case they
+   * remain tracked so they can be reactivated once it is resolvable again.
+   */
+  private boolean _deactivatingUnresolvable;
+
   private final @Nonnull Map<OriginMechanism, SortedSetMultimap<Prefix, Bgpv4Route>> _localRoutes;
   private final @Nonnull Map<OriginMechanism, Comparator<Bgpv4Route>> _localRouteComparators;
 
@@ -152,8 +248,7 @@ public final class Bgpv4Rib extends BgpRib<Bgpv4Route> {
       - routes that have a next vrf as the next hop
     */
     if (shouldCheckNextHopReachability(route) && _mainRib != null) {
-      _resolvabilityEnforcer.addBgpRoute(route);
-      if (!isResolvable(route.getNextHopIp())) {
+      if (!_resolvabilityEnforcer.addBgpRoute(route)) {
         return RibDelta.empty();
       }
     } else if (route.isTrackableLocalRoute()) {
@@ -211,9 +306,11 @@ public final class Bgpv4Rib extends BgpRib<Bgpv4Route> {
     if (route.isTrackableLocalRoute()) {
       return removeLocalRoute(route);
     }
-    // Remove route from resolvability enforcer so it can't get reactivated.
-    // No effect if the main RIB is null or if the route doesn't need resolving.
-    _resolvabilityEnforcer.removeBgpRoute(route);
+    // Remove route from resolvability enforcer so it can't get reactivated, unless it is only being
+    // deactivated. No effect if the main RIB is null or if the route doesn't need resolving.
+    if (!_deactivatingUnresolvable) {
+      _resolvabilityEnforcer.removeBgpRoute(route);
+    }
     return super.removeRouteGetDelta(route);
   }
 
@@ -240,27 +337,26 @@ public final class Bgpv4Rib extends BgpRib<Bgpv4Route> {
     return delta.build();
   }
 
+  /**
+   * (De)activate the BGP routes whose NHIP became resolvable or unresolvable following the given
+   * main RIB delta.
+   */
   public MultipathRibDelta<Bgpv4Route> updateActiveRoutes(
       RibDelta<AnnotatedRoute<AbstractRoute>> mainRibDelta) {
     // Should only be null in tests, and those tests shouldn't be using this function
     assert _mainRib != null;
 
-    // Update resolvability enforcer's record of main RIB prefixes
-    _resolvabilityEnforcer.updateMainRibPrefixes(mainRibDelta);
-
-    // (De)activate BGP routes based on updated main RIB
     RibDelta.Builder<Bgpv4Route> bestPathDelta = RibDelta.builder();
     RibDelta.Builder<Bgpv4Route> multipathDelta = RibDelta.builder();
     _resolvabilityEnforcer
-        .getAffectedNextHopIps(mainRibDelta.getPrefixes())
+        .updateResolution(mainRibDelta)
         .forEach(
-            nhip -> {
-              boolean resolvable = isResolvable(nhip);
+            (nhip, resolvable) -> {
               for (Bgpv4Route affectedRoute : _resolvabilityEnforcer.getRoutesWithNhip(nhip)) {
                 MultipathRibDelta<Bgpv4Route> delta =
                     resolvable
                         ? super.multipathMergeRouteGetDelta(affectedRoute)
-                        : super.multipathRemoveRouteGetDelta(affectedRoute);
+                        : deactivateRoute(affectedRoute);
                 bestPathDelta.from(delta.getBestPathDelta());
                 multipathDelta.from(delta.getMultipathDelta());
               }
@@ -268,14 +364,34 @@ public final class Bgpv4Rib extends BgpRib<Bgpv4Route> {
     return new MultipathRibDelta<>(bestPathDelta.build(), multipathDelta.build());
   }
 
+  /** Remove the given route from the RIB, but keep tracking its NHIP to reactivate it later. */
+  private @Nonnull MultipathRibDelta<Bgpv4Route> deactivateRoute(Bgpv4Route route) {
+    _deactivatingUnresolvable = true;
+    try {
+      return super.multipathRemoveRouteGetDelta(route);
+    } finally {
+      _deactivatingUnresolvable = false;
+    }
+  }
+
+  /**
+   * Returns the number of times the NHIP of a BGP route in this RIB became resolvable or
+   * unresolvable.
+   */
+  public int getNextHopResolutionChanges() {
+    return _resolvabilityEnforcer._resolutionChanges;
+  }
+
   /**
-   * Returns whether the given next hop IP is resolvable in the main RIB. Assumes that main RIB is
-   * not {@code null}.
+   * Returns the network of the main RIB routes resolving the given next hop IP, or {@code null} if
+   * it is not resolvable. Assumes that main RIB is not {@code null}.
    */
-  private boolean isResolvable(Ip nhip) {
+  private @Nullable Prefix resolvingNetwork(Ip nhip) {
     assert _mainRib != null;
     // TODO: implement resolution restriction
-    return !_mainRib.longestPrefixMatch(nhip, alwaysTrue()).isEmpty();
+    AnnotatedRoute<AbstractRoute> route =
+        Iterables.getFirst(_mainRib.longestPrefixMatch(nhip, alwaysTrue()), null);
+    return route == null ? null : route.getNetwork();
   }
 
   /**
@@ -42,6 +42,14 @@ public final class EvpnMasterRib<R extends EvpnRoute<?, ?>> {
         .collect(ImmutableSet.toImmutableSet());
   }
 
+  /**
+   * Return the hash code of {@link #getTypedRoutes()} without building the set. Routes with
+   * different route distinguishers are distinct, so this is the sum of the per-RD RIB hash codes.
+   */
+  public int getRoutesHashCode() {
+    return _ribsByRd.values().stream().mapToInt(AbstractRib::getRoutesHashCode).sum();
+  }
+
   public @Nonnull RibDelta<R> removeRouteGetDelta(R route) {
     return getOrCreateRib(route.getRouteDistinguisher()).removeRouteGetDelta(route);
   }
@@ -88,6 +88,11 @@ public final class RibDelta<R extends AbstractRouteDecorator> {
     return _actions.stream();
   }
 
+  /** Return the number of RIB actions in this delta */
+  public int size() {
+    return _actions.size();
+  }
+
   /** Check whether this delta is empty (has no outstanding actions) */
   public boolean isEmpty() {
     return _actions.isEmpty();
@@ -34,6 +34,7 @@ import com.fasterxml.jackson.core.JsonProcessingException;
 import com.fasterxml.jackson.core.type.TypeReference;
 import com.fasterxml.jackson.databind.JsonNode;
 import com.google.common.annotations.VisibleForTesting;
+import com.google.common.base.Suppliers;
 import com.google.common.base.Throwables;
 import com.google.common.cache.Cache;
 import com.google.common.collect.HashMultimap;
@@ -48,6 +49,7 @@ import com.google.common.collect.Sets;
 import com.google.common.collect.Table;
 import com.google.common.hash.Hasher;
 import com.google.common.hash.Hashing;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
 import com.google.errorprone.annotations.MustBeClosed;
 import io.opentracing.References;
 import io.opentracing.Scope;
@@ -80,9 +82,15 @@ import java.util.SortedMap;
 import java.util.SortedSet;
 import java.util.TreeMap;
 import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicInteger;
 import java.util.function.BiFunction;
 import java.util.function.Function;
+import java.util.function.Supplier;
 import java.util.regex.Pattern;
 import java.util.stream.Collectors;
 import java.util.stream.Stream;
@@ -95,10 +103,12 @@ import org.apache.commons.configuration2.ImmutableConfiguration;
 import org.apache.commons.lang3.SerializationUtils;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
+import org.batfish.bddreachability.BDDDifferentialReachabilityAnalysis;
 import org.batfish.bddreachability.BDDLoopDetectionAnalysis;
 import org.batfish.bddreachability.BDDReachabilityAnalysis;
 import org.batfish.bddreachability.BDDReachabilityAnalysisFactory;
 import org.batfish.bddreachability.BidirectionalReachabilityAnalysis;
+import org.batfish.bddreachability.IngressLocationAnalysis;
 import org.batfish.bddreachability.IpsRoutedOutInterfacesFactory;
 import org.batfish.common.Answerer;
 import org.batfish.common.BatfishException;
@@ -244,6 +254,7 @@ import org.batfish.specifier.UnionLocationSpecifier;
 import org.batfish.storage.FileBasedStorage;
 import org.batfish.storage.StorageProvider;
 import org.batfish.symbolic.IngressLocation;
+import org.batfish.symbolic.state.StateExpr;
 import org.batfish.topology.TopologyProviderImpl;
 import org.batfish.vendor.ConversionContext;
 import org.batfish.vendor.VendorConfiguration;
@@ -472,6 +483,12 @@ public class Batfish extends PluginConsumer implements IBatfish {
 
   private final TopologyProvider _topologyProvider;
 
+  /**
+   * Writes post-processed configurations in the background, so that writing them does not delay
+   * answering the question that loaded them. Its thread exits when idle.
+   */
+  private final ThreadPoolExecutor _postProcessedConfigurationsWriter;
+
   public Batfish(
       Settings settings,
       Cache<NetworkSnapshot, SortedMap<String, Configuration>> cachedConfigurations,
@@ -499,6 +516,18 @@ public class Batfish extends PluginConsumer implements IBatfish {
     _idResolver =
         alternateIdResolver != null ? alternateIdResolver : new StorageBasedIdResolver(_storage);
     _topologyProvider = new TopologyProviderImpl(this, _storage);
+    _postProcessedConfigurationsWriter =
+        new ThreadPoolExecutor(
+            1,
+            1,
+            30,
+            TimeUnit.SECONDS,
+            new LinkedBlockingQueue<>(),
+            new ThreadFactoryBuilder()
+                .setDaemon(true)
+                .setNameFormat("write-post-processed-configurations-%d")
+                .build());
+    _postProcessedConfigurationsWriter.allowCoreThreadTimeOut(true);
     loadPlugins();
   }
 
@@ -915,70 +944,67 @@ public class Batfish extends PluginConsumer implements IBatfish {
         getTopologyProvider().getIpOwners(snapshot), loadConfigurations(snapshot));
   }
 
-  private void disableUnusableVlanInterfaces(Map<String, Configuration> configurations) {
-    for (Configuration c : configurations.values()) {
-      String hostname = c.getHostname();
-
-      Map<Integer, Interface> vlanInterfaces = new HashMap<>();
-      Map<Integer, Integer> vlanMemberCounts = new HashMap<>();
-      Set<Interface> nonVlanInterfaces = new HashSet<>();
-      // Populate vlanInterface and nonVlanInterfaces, and initialize
-      // vlanMemberCounts:
-      for (Interface iface : c.getActiveInterfaces().values()) {
-        Integer vlanNumber = iface.getVlan();
-        if (iface.getInterfaceType() == InterfaceType.VLAN && vlanNumber != null) {
-          vlanInterfaces.put(vlanNumber, iface);
-          vlanMemberCounts.put(vlanNumber, 0);
+  private void disableUnusableVlanInterfaces(Configuration c) {
+    String hostname = c.getHostname();
+
+    Map<Integer, Interface> vlanInterfaces = new HashMap<>();
+    Map<Integer, Integer> vlanMemberCounts = new HashMap<>();
+    Set<Interface> nonVlanInterfaces = new HashSet<>();
+    // Populate vlanInterface and nonVlanInterfaces, and initialize
+    // vlanMemberCounts:
+    for (Interface iface : c.getActiveInterfaces().values()) {
+      Integer vlanNumber = iface.getVlan();
+      if (iface.getInterfaceType() == InterfaceType.VLAN && vlanNumber != null) {
+        vlanInterfaces.put(vlanNumber, iface);
+        vlanMemberCounts.put(vlanNumber, 0);
+      } else {
+        nonVlanInterfaces.add(iface);
+      }
+    }
+    // Update vlanMemberCounts:
+    for (Interface iface : nonVlanInterfaces) {
+      IntegerSpace.Builder vlans = IntegerSpace.builder();
+      if (iface.getSwitchportMode() == SwitchportMode.TRUNK) { // vlan trunked interface
+        IntegerSpace allowed = iface.getAllowedVlans();
+        if (!allowed.isEmpty()) {
+          // Explicit list of allowed VLANs
+          vlans.including(allowed);
         } else {
-          nonVlanInterfaces.add(iface);
+          // No explicit list, so all VLANs are allowed.
+          vlanInterfaces.keySet().forEach(vlans::including);
         }
-      }
-      // Update vlanMemberCounts:
-      for (Interface iface : nonVlanInterfaces) {
-        IntegerSpace.Builder vlans = IntegerSpace.builder();
-        if (iface.getSwitchportMode() == SwitchportMode.TRUNK) { // vlan trunked interface
-          IntegerSpace allowed = iface.getAllowedVlans();
-          if (!allowed.isEmpty()) {
-            // Explicit list of allowed VLANs
-            vlans.including(allowed);
-          } else {
-            // No explicit list, so all VLANs are allowed.
-            vlanInterfaces.keySet().forEach(vlans::including);
-          }
-          // Add the native VLAN as well.
-          Integer nativeVlan = iface.getNativeVlan();
-          if (nativeVlan != null) {
-            vlans.including(nativeVlan);
-          }
-        } else if (iface.getSwitchportMode() == SwitchportMode.ACCESS) { // access mode ACCESS
-          Integer accessVlan = iface.getAccessVlan();
-          if (accessVlan != null) {
-            vlans.including(accessVlan);
-          }
-          // Any other Switch Port mode is unsupported
-        } else if (iface.getSwitchportMode() != SwitchportMode.NONE) {
-          _logger.warnf(
-              "WARNING: Unsupported switch port mode %s, assuming no VLANs allowed: \"%s:%s\"\n",
-              iface.getSwitchportMode(), hostname, iface.getName());
+        // Add the native VLAN as well.
+        Integer nativeVlan = iface.getNativeVlan();
+        if (nativeVlan != null) {
+          vlans.including(nativeVlan);
         }
-
-        vlans.build().stream()
-            .forEach(
-                vlanId -> vlanMemberCounts.compute(vlanId, (k, v) -> (v == null) ? 1 : (v + 1)));
-      }
-      // Disable all "normal" vlan interfaces with zero member counts:
-      IntegerSpace normalVlanRange = c.getNormalVlanRange();
-      for (Map.Entry<Integer, Integer> entry : vlanMemberCounts.entrySet()) {
-        if (entry.getValue() == 0) {
-          int vlanNumber = entry.getKey();
-          if (normalVlanRange.contains(vlanNumber)) {
-            Interface iface = vlanInterfaces.get(vlanNumber);
-            if ((iface != null) && iface.getAutoState()) {
-              _logger.warnf(
-                  "Disabling unusable vlan interface because no switch port is assigned to it: %s",
-                  NodeInterfacePair.of(iface));
-              iface.deactivate(AUTOSTATE_FAILURE);
-            }
+      } else if (iface.getSwitchportMode() == SwitchportMode.ACCESS) { // access mode ACCESS
+        Integer accessVlan = iface.getAccessVlan();
+        if (accessVlan != null) {
+          vlans.including(accessVlan);
+        }
+        // Any other Switch Port mode is unsupported
+      } else if (iface.getSwitchportMode() != SwitchportMode.NONE) {
+        _logger.warnf(
+            "WARNING: Unsupported switch port mode %s, assuming no VLANs allowed: \"%s:%s\"\n",
+            iface.getSwitchportMode(), hostname, iface.getName());
+      }
+
+      vlans.build().stream()
+          .forEach(vlanId -> vlanMemberCounts.compute(vlanId, (k, v) -> (v == null) ? 1 : (v + 1)));
+    }
+    // Disable all "normal" vlan interfaces with zero member counts:
+    IntegerSpace normalVlanRange = c.getNormalVlanRange();
+    for (Map.Entry<Integer, Integer> entry : vlanMemberCounts.entrySet()) {
+      if (entry.getValue() == 0) {
+        int vlanNumber = entry.getKey();
+        if (normalVlanRange.contains(vlanNumber)) {
+          Interface iface = vlanInterfaces.get(vlanNumber);
+          if ((iface != null) && iface.getAutoState()) {
+            _logger.warnf(
+                "Disabling unusable vlan interface because no switch port is assigned to it: %s",
+                NodeInterfacePair.of(iface));
+            iface.deactivate(AUTOSTATE_FAILURE);
           }
         }
       }
@@ -1230,6 +1256,21 @@ public class Batfish extends PluginConsumer implements IBatfish {
       }
       _logger.debugf("Loading configurations for %s, cache miss", snapshot);
 
+      // Next, see if the configurations on disk can be loaded on demand.
+      configurations = loadConfigurationsLazily(snapshot);
+      if (configurations != null) {
+        _cachedConfigurations.put(snapshot, configurations);
+        return Optional.of(configurations);
+      }
+
+      // Next, see if we have up-to-date post-processed configurations on disk.
+      configurations = _storage.loadPostProcessedConfigurations(snapshot, postProcessingKey());
+      if (configurations != null) {
+        _logger.debugf("Loaded post-processed configurations for %s off disk", snapshot);
+        _cachedConfigurations.put(snapshot, configurations);
+        return Optional.of(configurations);
+      }
+
       // Next, see if we have an up-to-date configurations on disk.
       configurations = _storage.loadConfigurations(snapshot.getNetwork(), snapshot.getSnapshot());
       if (configurations == null && !parseIfNeeded) {
@@ -1245,6 +1286,7 @@ public class Batfish extends PluginConsumer implements IBatfish {
 
       // Apply things like blacklist and aggregations before installing in the cache.
       postProcessSnapshot(snapshot, configurations);
+      storePostProcessedConfigurations(snapshot, configurations);
       _cachedConfigurations.put(snapshot, configurations);
 
       return Optional.of(configurations);
@@ -1253,6 +1295,123 @@ public class Batfish extends PluginConsumer implements IBatfish {
     }
   }
 
+  /**
+   * Returns a map of the configurations on disk for the given snapshot that only loads and
+   * post-processes each configuration when it is first accessed, so that questions about a few
+   * nodes do not pay for loading the whole network. Returns {@code null} if there are no up-to-date
+   * configurations on disk, or if the snapshot has a layer-1 topology: interface dependencies then
+   * span nodes, so configurations can only be post-processed all together.
+   */
+  @Nullable
+  private SortedMap<String, Configuration> loadConfigurationsLazily(NetworkSnapshot snapshot) {
+    if (hasLayer1Topology(snapshot)) {
+      return null;
+    }
+    NetworkId networkId = snapshot.getNetwork();
+    SnapshotId snapshotId = snapshot.getSnapshot();
+    SortedSet<String> hostnames = _storage.loadConfigurationHostnames(networkId, snapshotId);
+    if (hostnames == null) {
+      return null;
+    }
+    String postProcessingKey = postProcessingKey();
+    // Loaded at most once, and only if some configuration needs post-processing.
+    Supplier<PostProcessingInputs> postProcessingInputs =
+        Suppliers.memoize(() -> loadPostProcessingInputs(snapshot));
+    return new LazyConfigurations(
+        hostnames,
+        hostname -> {
+          Configuration c =
+              _storage.loadPostProcessedConfiguration(snapshot, postProcessingKey, hostname);
+          if (c != null) {
+            return c;
+          }
+          c = _storage.loadConfiguration(networkId, snapshotId, hostname);
+          verify(c != null, "Configuration for %s disappeared from disk", hostname);
+          Map<String, Configuration> configurations = ImmutableSortedMap.of(hostname, c);
+          postProcessSnapshot(postProcessingInputs.get(), configurations);
+          storePostProcessedConfigurations(snapshot, configurations);
+          return c;
+        },
+        missing -> {
+          Map<String, Configuration> postProcessed = new ConcurrentHashMap<>();
+          Map<String, Configuration> unprocessed = new ConcurrentHashMap<>();
+          missing.parallelStream()
+              .forEach(
+                  hostname -> {
+                    Configuration c =
+                        _storage.loadPostProcessedConfiguration(
+                            snapshot, postProcessingKey, hostname);
+                    if (c != null) {
+                      postProcessed.put(hostname, c);
+                      return;
+                    }
+                    c = _storage.loadConfiguration(networkId, snapshotId, hostname);
+                    verify(c != null, "Configuration for %s disappeared from disk", hostname);
+                    unprocessed.put(hostname, c);
+                  });
+          if (!unprocessed.isEmpty()) {
+            postProcessSnapshot(postProcessingInputs.get(), unprocessed);
+            storePostProcessedConfigurations(snapshot, unprocessed);
+          }
+          return ImmutableSortedMap.<String, Configuration>naturalOrder()
+              .putAll(postProcessed)
+              .putAll(unprocessed)
+              .build();
+        });
+  }
+
+  /**
+   * Identifies the settings of this worker that influence {@link #postProcessSnapshot}. The other
+   * inputs to post-processing (configurations, blacklists, runtime data, and layer-1 topologies)
+   * are fixed for a given snapshot, and stored post-processed configurations are discarded whenever
+   * the snapshot's configurations are re-stored.
+   */
+  @VisibleForTesting
+  @Nonnull
+  String postProcessingKey() {
+    return String.format(
+        "%s_%s",
+        BatfishVersion.getVersionStatic(),
+        _settings.ignoreManagementInterfaces() ? "ignore_mgmt" : "default");
+  }
+
+  /**
+   * Stores the given post-processed configurations, so that workers loading the snapshot later can
+   * skip post-processing. They are serialized on the calling thread, before they are published to
+   * callers that may modify them, and only written to disk in the background. Failure to store them
+   * is logged, since they can always be recomputed.
+   */
+  private void storePostProcessedConfigurations(
+      NetworkSnapshot snapshot, Map<String, Configuration> configurations) {
+    try {
+      _storage.storePostProcessedConfigurations(
+          configurations, snapshot, postProcessingKey(), _postProcessedConfigurationsWriter);
+    } catch (IOException | RuntimeException e) {
+      _logger.warnf(
+          "Error storing post-processed configurations for %s: %s",
+          snapshot, Throwables.getStackTraceAsString(e));
+    }
+  }
+
+  /** Waits until all post-processed configurations stored so far have been written. */
+  @VisibleForTesting
+  void awaitPostProcessedConfigurationsStored() throws ExecutionException, InterruptedException {
+    _postProcessedConfigurationsWriter.submit(() -> {}).get();
+  }
+
+  /** Whether the given snapshot has a non-empty raw or synthesized layer-1 topology. */
+  private boolean hasLayer1Topology(NetworkSnapshot snapshot) {
+    Optional<Layer1Topology> synthesized;
+    try {
+      synthesized = _storage.loadSynthesizedLayer1Topology(snapshot);
+    } catch (IOException e) {
+      // be conservative
+      return true;
+    }
+    return Stream.of(synthesized, _topologyProvider.getRawLayer1PhysicalTopology(snapshot))
+        .anyMatch(l1 -> l1.isPresent() && !l1.get().getGraph().edges().isEmpty());
+  }
+
   @Nonnull
   private SortedMap<String, Configuration> actuallyParseConfigurations(NetworkSnapshot snapshot) {
     _logger.infof("Repairing configurations for testrig %s", snapshot.getSnapshot());
@@ -1481,34 +1640,34 @@ public class Batfish extends PluginConsumer implements IBatfish {
       // - answering a question
       // - question successful
       // - client did not request full successful answers
-      String answerString = BatfishObjectMapper.writeString(answer);
       boolean summarizeWorkJsonLogAnswer =
           writeLog
               && _settings.getQuestionName() != null
               && !_settings.getAlwaysIncludeAnswerInWorkJsonLog()
               && answer.getStatus() == AnswerStatus.SUCCESS;
-      String workJsonLogAnswerString;
+      Answer workJsonLogAnswer;
       if (summarizeWorkJsonLogAnswer) {
         Answer summaryAnswer = new Answer();
         summaryAnswer.setQuestion(answer.getQuestion());
         summaryAnswer.setStatus(answer.getStatus());
         summaryAnswer.setSummary(answer.getSummary());
         // do not include answer elements
-        workJsonLogAnswerString = BatfishObjectMapper.writeString(summaryAnswer);
+        workJsonLogAnswer = summaryAnswer;
       } else {
-        workJsonLogAnswerString = answerString;
+        workJsonLogAnswer = answer;
+      }
+      if (_logger.isActive(BatfishLogger.LEVEL_DEBUG)) {
+        _logger.debug(BatfishObjectMapper.writeString(answer));
       }
-      _logger.debug(answerString);
-      writeJsonAnswerWithLog(answerString, workJsonLogAnswerString, writeLog);
+      writeJsonAnswerWithLog(answer, workJsonLogAnswer, writeLog);
     } catch (Exception e) {
       BatfishException be = new BatfishException("Error in sending answer", e);
       try {
         Answer failureAnswer = Answer.failureAnswer(e.toString(), answer.getQuestion());
         failureAnswer.addAnswerElement(be.getBatfishStackTrace());
-        String answerString = BatfishObjectMapper.writeString(failureAnswer);
-        _logger.error(answerString);
+        _logger.error(BatfishObjectMapper.writeString(failureAnswer));
         // write "answer" to work json log if caller requested
-        writeJsonAnswerWithLog(answerString, answerString, writeLog);
+        writeJsonAnswerWithLog(failureAnswer, failureAnswer, writeLog);
       } catch (Exception e1) {
         _logger.errorf(
             "Could not serialize failure answer. %s", Throwables.getStackTraceAsString(e1));
@@ -1726,12 +1885,6 @@ public class Batfish extends PluginConsumer implements IBatfish {
             .build());
   }
 
-  private void postProcessAggregatedInterfaces(Map<String, Configuration> configurations) {
-    configurations
-        .values()
-        .forEach(c -> postProcessAggregatedInterfacesHelper(c.getAllInterfaces()));
-  }
-
   private void postProcessAggregatedInterfacesHelper(Map<String, Interface> interfaces) {
     /* Populate aggregated interfaces with members referring to them. */
     interfaces.forEach(
@@ -1741,16 +1894,10 @@ public class Batfish extends PluginConsumer implements IBatfish {
     computeAggregatedInterfaceBandwidths(interfaces);
   }
 
-  private void postProcessRedundantInterfaces(Map<String, Configuration> configurations) {
-    configurations
+  private void postProcessRedundantInterfaces(Configuration c) {
+    c.getVrfs()
         .values()
-        .forEach(
-            c ->
-                c.getVrfs()
-                    .values()
-                    .forEach(
-                        v ->
-                            postProcessRedundantInterfacesHelper(c.getAllInterfaces(v.getName()))));
+        .forEach(v -> postProcessRedundantInterfacesHelper(c.getAllInterfaces(v.getName())));
   }
 
   private void postProcessRedundantInterfacesHelper(Map<String, Interface> interfaces) {
@@ -1795,9 +1942,8 @@ public class Batfish extends PluginConsumer implements IBatfish {
                     .deactivate(inactiveReason));
   }
 
-  private void postProcessEigrpCosts(Map<String, Configuration> configurations) {
-    configurations.values().stream()
-        .flatMap(c -> c.getAllInterfaces().values().stream())
+  private void postProcessEigrpCosts(Configuration c) {
+    c.getAllInterfaces().values().stream()
         .filter(
             iface ->
                 iface.getEigrp() != null
@@ -1815,18 +1961,14 @@ public class Batfish extends PluginConsumer implements IBatfish {
             });
   }
 
-  private void postProcessOspfCosts(Map<String, Configuration> configurations) {
-    configurations
+  private void postProcessOspfCosts(Configuration c) {
+    c.getVrfs()
         .values()
         .forEach(
-            c ->
-                c.getVrfs()
-                    .values()
-                    .forEach(
-                        vrf -> {
-                          // Compute OSPF interface costs where they are missing
-                          vrf.getOspfProcesses().values().forEach(p -> p.initInterfaceCosts(c));
-                        }));
+            vrf -> {
+              // Compute OSPF interface costs where they are missing
+              vrf.getOspfProcesses().values().forEach(p -> p.initInterfaceCosts(c));
+            });
   }
 
   @Override
@@ -2015,6 +2157,27 @@ public class Batfish extends PluginConsumer implements IBatfish {
     serializeIndependentConfigs(snapshot);
   }
 
+  /** Load the network-wide inputs to post-processing the configurations of the given snapshot. */
+  private @Nonnull PostProcessingInputs loadPostProcessingInputs(NetworkSnapshot snapshot) {
+    NetworkId networkId = snapshot.getNetwork();
+    SnapshotId snapshotId = snapshot.getSnapshot();
+    SortedSet<String> blacklistedNodes = _storage.loadNodeBlacklist(networkId, snapshotId);
+    // If interface blacklist was provided, it was converted to runtime data file by WorkMgr
+    SnapshotRuntimeData runtimeData = _storage.loadRuntimeData(networkId, snapshotId);
+    Layer1Topology synthesizedLayer1Topology;
+    try {
+      synthesizedLayer1Topology =
+          _storage.loadSynthesizedLayer1Topology(snapshot).orElse(Layer1Topology.EMPTY);
+    } catch (IOException e) {
+      synthesizedLayer1Topology = Layer1Topology.EMPTY;
+    }
+    return new PostProcessingInputs(
+        firstNonNull(blacklistedNodes, ImmutableSet.of()),
+        runtimeData != null ? runtimeData.getBlacklistedInterfaces() : ImmutableSet.of(),
+        _topologyProvider.getRawLayer1PhysicalTopology(snapshot).orElse(Layer1Topology.EMPTY),
+        synthesizedLayer1Topology);
+  }
+
   /**
    * Post-process the configuration in the current snapshot. Post-processing includes:
    *
@@ -2024,21 +2187,12 @@ public class Batfish extends PluginConsumer implements IBatfish {
    * </ul>
    */
   private void updateBlacklistedAndInactiveConfigs(
-      NetworkSnapshot snapshot, Map<String, Configuration> configurations) {
+      PostProcessingInputs inputs, Map<String, Configuration> configurations) {
     NetworkConfigurations nc = NetworkConfigurations.of(configurations);
-    NetworkId networkId = snapshot.getNetwork();
-    SnapshotId snapshotId = snapshot.getSnapshot();
 
     // Start of blacklisting. Nothing should touch line status until after blacklisting is done.
-    SortedSet<String> blacklistedNodes = _storage.loadNodeBlacklist(networkId, snapshotId);
-    if (blacklistedNodes != null) {
-      processNodeBlacklist(blacklistedNodes, nc);
-    }
-    // If interface blacklist was provided, it was converted to runtime data file by WorkMgr
-    SnapshotRuntimeData runtimeData = _storage.loadRuntimeData(networkId, snapshotId);
-    if (runtimeData != null) {
-      processInterfaceBlacklist(runtimeData.getBlacklistedInterfaces(), nc);
-    }
+    processNodeBlacklist(inputs.getBlacklistedNodes(), nc);
+    processInterfaceBlacklist(inputs.getBlacklistedInterfaces(), nc);
     // End of blacklisting.
 
     // Currently NOP
@@ -2053,27 +2207,15 @@ public class Batfish extends PluginConsumer implements IBatfish {
      * load configurations (which we're in the middle of loading now). We don't yet have the "real" configs, so the
      * adjacencies we build now may not match what we get later.
      */
-    Layer1Topology synthesizedLayer1Topology;
-    try {
-      synthesizedLayer1Topology =
-          _storage.loadSynthesizedLayer1Topology(snapshot).orElse(Layer1Topology.EMPTY);
-    } catch (IOException e) {
-      synthesizedLayer1Topology = Layer1Topology.EMPTY;
-    }
     Layer1Topologies l1Topologies =
         Layer1TopologiesFactory.create(
-            _topologyProvider.getRawLayer1PhysicalTopology(snapshot).orElse(Layer1Topology.EMPTY),
-            synthesizedLayer1Topology,
-            configurations);
+            inputs.getRawLayer1Topology(), inputs.getSynthesizedLayer1Topology(), configurations);
 
     postProcessInterfaceDependencies(configurations, l1Topologies);
 
     // We do not process the edge blacklist here. Instead, we rely on these edges being explicitly
     // deleted from the Topology (aka list of edges) that is used along with configurations in
     // answering questions.
-
-    // TODO: take this out once dependencies are *the* definitive way to disable interfaces
-    disableUnusableVlanInterfaces(configurations);
   }
 
   @VisibleForTesting
@@ -2118,13 +2260,33 @@ public class Batfish extends PluginConsumer implements IBatfish {
    */
   private void postProcessSnapshot(
       NetworkSnapshot snapshot, Map<String, Configuration> configurations) {
-    updateBlacklistedAndInactiveConfigs(snapshot, configurations);
-    postProcessAggregatedInterfaces(configurations);
-    postProcessRedundantInterfaces(configurations);
-    NetworkConfigurations nc = NetworkConfigurations.of(configurations);
+    postProcessSnapshot(loadPostProcessingInputs(snapshot), configurations);
+  }
+
+  /**
+   * Post-process the given configurations of a snapshot, given the network-wide inputs to
+   * post-processing loaded by {@link #loadPostProcessingInputs}.
+   */
+  private void postProcessSnapshot(
+      PostProcessingInputs inputs, Map<String, Configuration> configurations) {
+    updateBlacklistedAndInactiveConfigs(inputs, configurations);
+    configurations.entrySet().parallelStream()
+        .forEach(e -> postProcessConfiguration(e.getKey(), e.getValue()));
+  }
+
+  /**
+   * Post-processing of a single configuration that does not depend on any other configuration, run
+   * after the network-wide steps of {@link #updateBlacklistedAndInactiveConfigs}.
+   */
+  private void postProcessConfiguration(String hostname, Configuration c) {
+    // TODO: take this out once dependencies are *the* definitive way to disable interfaces
+    disableUnusableVlanInterfaces(c);
+    postProcessAggregatedInterfacesHelper(c.getAllInterfaces());
+    postProcessRedundantInterfaces(c);
+    NetworkConfigurations nc = NetworkConfigurations.of(ImmutableMap.of(hostname, c));
     OspfTopologyUtils.initNeighborConfigs(nc);
-    postProcessOspfCosts(configurations);
-    postProcessEigrpCosts(configurations); // must be after postProcessAggregatedInterfaces
+    postProcessOspfCosts(c);
+    postProcessEigrpCosts(c); // must be after postProcessAggregatedInterfacesHelper
     EigrpTopologyUtils.initNeighborConfigs(nc);
   }
 
@@ -2171,6 +2333,14 @@ public class Batfish extends PluginConsumer implements IBatfish {
     return _storage.loadSnapshotInputObject(snapshot.getNetwork(), snapshot.getSnapshot(), key);
   }
 
+  @Override
+  public void storeSnapshotObject(NetworkSnapshot snapshot, String key, String content)
+      throws IOException {
+    try (InputStream inputStream = new ByteArrayInputStream(content.getBytes(UTF_8))) {
+      _storage.storeSnapshotObject(inputStream, snapshot.getNetwork(), snapshot.getSnapshot(), key);
+    }
+  }
+
   private void repairEnvironmentBgpTables(NetworkSnapshot snapshot) {
     try {
       _storage.deleteParseEnvironmentBgpTablesAnswerElement(snapshot);
@@ -3168,37 +3338,13 @@ public class Batfish extends PluginConsumer implements IBatfish {
       BDDLoopDetectionAnalysis analysis =
           bddReachabilityAnalysisFactory.bddLoopDetectionAnalysis(
               getAllSourcesInferFromLocationIpSpaceAssignment(snapshot));
-      Map<IngressLocation, BDD> loopBDDs = analysis.detectLoops();
-
-      Span span1 = GlobalTracer.get().buildSpan("bddLoopDetection.computeResultFlows").start();
-      try (Scope scope1 = GlobalTracer.get().scopeManager().activate(span)) {
-        assert scope1 != null; // avoid unused warning
-        return loopBDDs.entrySet().stream()
-            .map(
-                entry ->
-                    pkt.getFlow(entry.getValue())
-                        .map(
-                            fb -> {
-                              IngressLocation loc = entry.getKey();
-                              fb.setIngressNode(loc.getNode());
-                              switch (loc.getType()) {
-                                case INTERFACE_LINK:
-                                  fb.setIngressInterface(loc.getInterface());
-                                  break;
-                                case VRF:
-                                  fb.setIngressVrf(loc.getVrf());
-                                  break;
-                                default:
-                                  throw new BatfishException(
-                                      "Unknown Location Type: " + loc.getType());
-                              }
-                              return fb.build();
-                            }))
-            .flatMap(optional -> optional.map(Stream::of).orElse(Stream.empty()))
-            .collect(ImmutableSet.toImmutableSet());
-      } finally {
-        span1.finish();
+      // One independent group at a time, so that only one group's intermediate BDDs are live
+      ImmutableSet.Builder<Flow> flows = ImmutableSet.builder();
+      for (Set<StateExpr> group :
+          IngressLocationAnalysis.ingressGroups(ImmutableList.of(analysis))) {
+        flows.addAll(constructFlows(pkt, analysis.getIngressLocationBdds(group)));
       }
+      return flows.build();
     } finally {
       span.finish();
     }
@@ -3233,16 +3379,16 @@ public class Batfish extends PluginConsumer implements IBatfish {
               FlowDisposition.EXITS_NETWORK);
       Set<String> forbiddenTransitNodes = parameters.getForbiddenTransitNodes();
       Set<String> requiredTransitNodes = parameters.getRequiredTransitNodes();
-      Map<IngressLocation, BDD> successBdds =
-          bddReachabilityAnalysisFactory.getAllBDDs(
+      IngressLocationAnalysis successAnalysis =
+          bddReachabilityAnalysisFactory.ingressLocationAnalysis(
               srcIpSpaceAssignment,
               parameters.getHeaderSpace(),
               forbiddenTransitNodes,
               requiredTransitNodes,
               finalNodes,
               successDispositions);
-      Map<IngressLocation, BDD> failureBdds =
-          bddReachabilityAnalysisFactory.getAllBDDs(
+      IngressLocationAnalysis failureAnalysis =
+          bddReachabilityAnalysisFactory.ingressLocationAnalysis(
               srcIpSpaceAssignment,
               parameters.getHeaderSpace(),
               forbiddenTransitNodes,
@@ -3250,7 +3396,18 @@ public class Batfish extends PluginConsumer implements IBatfish {
               finalNodes,
               failureDispositions);
 
-      return ImmutableSet.copyOf(computeMultipathInconsistencies(pkt, successBdds, failureBdds));
+      // One independent group at a time, so that only one group's intermediate BDDs are live
+      ImmutableSet.Builder<Flow> flows = ImmutableSet.builder();
+      for (Set<StateExpr> group :
+          IngressLocationAnalysis.ingressGroups(
+              ImmutableList.of(successAnalysis, failureAnalysis))) {
+        flows.addAll(
+            computeMultipathInconsistencies(
+                pkt,
+                successAnalysis.getIngressLocationBdds(group),
+                failureAnalysis.getIngressLocationBdds(group)));
+      }
+      return flows.build();
     } finally {
       span.finish();
     }
@@ -3338,25 +3495,50 @@ public class Batfish extends PluginConsumer implements IBatfish {
        * differential reachability, but we currently won't find it because it won't be in the
        * IpSpaceAssignment.
        */
-      Map<IngressLocation, BDD> baseAcceptBDDs =
-          getBddReachabilityAnalysisFactory(snapshot, pkt, parameters.getIgnoreFilters())
-              .getAllBDDs(
-                  parameters.getIpSpaceAssignment(),
-                  headerSpace,
-                  parameters.getForbiddenTransitNodes(),
-                  parameters.getRequiredTransitNodes(),
-                  parameters.getFinalNodes(),
-                  parameters.getFlowDispositions());
-
-      Map<IngressLocation, BDD> deltaAcceptBDDs =
-          getBddReachabilityAnalysisFactory(reference, pkt, parameters.getIgnoreFilters())
-              .getAllBDDs(
-                  parameters.getIpSpaceAssignment(),
-                  headerSpace,
-                  parameters.getForbiddenTransitNodes(),
-                  parameters.getRequiredTransitNodes(),
-                  parameters.getFinalNodes(),
-                  parameters.getFlowDispositions());
+      Map<IngressLocation, BDD> baseAcceptBDDs;
+      Map<IngressLocation, BDD> deltaAcceptBDDs;
+      if (parameters.getFlowDispositions().contains(FlowDisposition.LOOP)) {
+        baseAcceptBDDs =
+            getBddReachabilityAnalysisFactory(snapshot, pkt, parameters.getIgnoreFilters())
+                .getAllBDDs(
+                    parameters.getIpSpaceAssignment(),
+                    headerSpace,
+                    parameters.getForbiddenTransitNodes(),
+                    parameters.getRequiredTransitNodes(),
+                    parameters.getFinalNodes(),
+                    parameters.getFlowDispositions());
+        deltaAcceptBDDs =
+            getBddReachabilityAnalysisFactory(reference, pkt, parameters.getIgnoreFilters())
+                .getAllBDDs(
+                    parameters.getIpSpaceAssignment(),
+                    headerSpace,
+                    parameters.getForbiddenTransitNodes(),
+                    parameters.getRequiredTransitNodes(),
+                    parameters.getFinalNodes(),
+                    parameters.getFlowDispositions());
+      } else {
+        // Solve the reference graph only where it differs from the base graph.
+        BDDDifferentialReachabilityAnalysis analysis =
+            new BDDDifferentialReachabilityAnalysis(
+                getBddReachabilityAnalysisFactory(snapshot, pkt, parameters.getIgnoreFilters())
+                    .bddReachabilityAnalysis(
+                        parameters.getIpSpaceAssignment(),
+                        headerSpace,
+                        parameters.getForbiddenTransitNodes(),
+                        parameters.getRequiredTransitNodes(),
+                        parameters.getFinalNodes(),
+                        parameters.getFlowDispositions()),
+                getBddReachabilityAnalysisFactory(reference, pkt, parameters.getIgnoreFilters())
+                    .bddReachabilityAnalysis(
+                        parameters.getIpSpaceAssignment(),
+                        headerSpace,
+                        parameters.getForbiddenTransitNodes(),
+                        parameters.getRequiredTransitNodes(),
+                        parameters.getFinalNodes(),
+                        parameters.getFlowDispositions()));
+        baseAcceptBDDs = analysis.getBaseIngressLocationBdds();
+        deltaAcceptBDDs = analysis.getDeltaIngressLocationBdds();
+      }
 
       Set<IngressLocation> commonSources =
           Sets.intersection(baseAcceptBDDs.keySet(), deltaAcceptBDDs.keySet());
@@ -3406,7 +3588,7 @@ public class Batfish extends PluginConsumer implements IBatfish {
         .collect(ImmutableSet.toImmutableSet());
   }
 
-  private void writeJsonAnswer(String structuredAnswerString) throws IOException {
+  private void writeJsonAnswer(Answer answer) throws IOException {
     SnapshotId referenceSnapshot = _settings.getDiffQuestion() ? _referenceSnapshot : null;
     NetworkId networkId = _settings.getContainer();
     QuestionId questionId = _settings.getQuestionName();
@@ -3418,21 +3600,21 @@ public class Batfish extends PluginConsumer implements IBatfish {
     AnswerId baseAnswerId =
         _idResolver.getAnswerId(
             networkId, _snapshot, questionId, networkNodeRolesId, referenceSnapshot, analysisId);
-    _storage.storeAnswer(networkId, _snapshot, structuredAnswerString, baseAnswerId);
+    _storage.storeAnswer(networkId, _snapshot, answer, baseAnswerId);
   }
 
-  private void writeJsonAnswerWithLog(
-      String answerOutput, String workJsonLogAnswerString, boolean writeLog) throws IOException {
+  private void writeJsonAnswerWithLog(Answer answer, Answer workJsonLogAnswer, boolean writeLog)
+      throws IOException {
     if (writeLog && _settings.getTaskId() != null) {
       _storage.storeWorkJson(
-          workJsonLogAnswerString,
+          BatfishObjectMapper.writeString(workJsonLogAnswer),
           _settings.getContainer(),
           _settings.getTestrig(),
           _settings.getTaskId());
     }
     // Write answer if WorkItem was answering a question
     if (_settings.getQuestionName() != null) {
-      writeJsonAnswer(answerOutput);
+      writeJsonAnswer(answer);
     }
   }
 
@@ -0,0 +1,150 @@
+package org.batfish.main;
+
+import com.google.common.collect.ImmutableSortedMap;
+import com.google.common.collect.ImmutableSortedSet;
+import java.util.AbstractMap;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.Map;
+import java.util.Set;
+import java.util.SortedMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Function;
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+import javax.annotation.ParametersAreNonnullByDefault;
+import org.batfish.datamodel.Configuration;
+
+/**
+ * An unmodifiable map of the configurations of a snapshot whose hostnames are known up front, but
+ * whose configurations are only loaded when first accessed.
+ *
+ * <p>Looking up a configuration with {@link #get(Object)} loads only that configuration, and the
+ * key set can be used without loading any. Operations over the values or entries load all the
+ * configurations not loaded yet in a single batch. Lookups of the same hostname load its
+ * configuration only once. A lookup racing a batch load may load a configuration the batch also
+ * loads, but only the first one loaded is kept, so callers always see the same instance for a given
+ * hostname.
+ */
+@ParametersAreNonnullByDefault
+final class LazyConfigurations extends AbstractMap<String, Configuration>
+    implements SortedMap<String, Configuration> {
+
+  /**
+   * @param hostnames the hostnames of all the configurations
+   * @param loader loads the configuration of a single hostname
+   * @param batchLoader loads the configurations of a set of hostnames
+   */
+  LazyConfigurations(
+      Set<String> hostnames,
+      Function<String, Configuration> loader,
+      Function<Set<String>, Map<String, Configuration>> batchLoader) {
+    _hostnames = ImmutableSortedSet.copyOf(hostnames);
+    _loader = loader;
+    _batchLoader = batchLoader;
+    _loaded = new ConcurrentHashMap<>();
+  }
+
+  /** Return the hostnames whose configurations have been loaded so far. */
+  @Nonnull
+  Set<String> getLoadedHostnames() {
+    return ImmutableSortedSet.copyOf(_loaded.keySet());
+  }
+
+  @Override
+  public @Nullable Configuration get(Object key) {
+    if (!_hostnames.contains(key)) {
+      return null;
+    }
+    // Blocks concurrent lookups of the same hostname until it is loaded, so it is loaded only once.
+    return _loaded.computeIfAbsent((String) key, _loader);
+  }
+
+  @Override
+  public boolean containsKey(Object key) {
+    return _hostnames.contains(key);
+  }
+
+  @Override
+  public int size() {
+    return _hostnames.size();
+  }
+
+  @Override
+  public boolean isEmpty() {
+    return _hostnames.isEmpty();
+  }
+
+  @Override
+  public @Nonnull Set<String> keySet() {
+    return _hostnames;
+  }
+
+  @Override
+  public @Nonnull Collection<Configuration> values() {
+    return materialize().values();
+  }
+
+  @Override
+  public @Nonnull Set<Entry<String, Configuration>> entrySet() {
+    return materialize().entrySet();
+  }
+
+  @Override
+  public @Nullable Comparator<? super String> comparator() {
+    // natural ordering, as in TreeMap
+    return null;
+  }
+
+  @Override
+  public @Nonnull SortedMap<String, Configuration> subMap(String fromKey, String toKey) {
+    return materialize().subMap(fromKey, toKey);
+  }
+
+  @Override
+  public @Nonnull SortedMap<String, Configuration> headMap(String toKey) {
+    return materialize().headMap(toKey);
+  }
+
+  @Override
+  public @Nonnull SortedMap<String, Configuration> tailMap(String fromKey) {
+    return materialize().tailMap(fromKey);
+  }
+
+  @Override
+  public String firstKey() {
+    return _hostnames.first();
+  }
+
+  @Override
+  public String lastKey() {
+    return _hostnames.last();
+  }
+
+  /** Load all the configurations not loaded yet, and return all the configurations. */
+  private @Nonnull SortedMap<String, Configuration> materialize() {
+    SortedMap<String, Configuration> all = _all;
+    if (all != null) {
+      return all;
+    }
+    synchronized (this) {
+      if (_all == null) {
+        Set<String> missing =
+            _hostnames.stream()
+                .filter(hostname -> !_loaded.containsKey(hostname))
+                .collect(ImmutableSortedSet.toImmutableSortedSet(Comparator.naturalOrder()));
+        if (!missing.isEmpty()) {
+          _batchLoader.apply(missing).forEach(_loaded::putIfAbsent);
+        }
+        _all = ImmutableSortedMap.copyOf(_loaded);
+      }
+      return _all;
+    }
+  }
+
+  private final @Nonnull ImmutableSortedSet<String> _hostnames;
+  private final @Nonnull Function<String, Configuration> _loader;
+  private final @Nonnull Function<Set<String>, Map<String, Configuration>> _batchLoader;
+  private final @Nonnull ConcurrentHashMap<String, Configuration> _loaded;
+  private volatile @Nullable SortedMap<String, Configuration> _all;
+}
@@ -0,0 +1,53 @@
+package org.batfish.main;
+
+import com.google.common.collect.ImmutableSet;
+import java.util.Set;
+import javax.annotation.Nonnull;
+import javax.annotation.ParametersAreNonnullByDefault;
+import org.batfish.common.topology.Layer1Topology;
+import org.batfish.datamodel.collections.NodeInterfacePair;
+
+/**
+ * The network-wide inputs to post-processing the configurations of a snapshot: the node and
+ * interface blacklists and the layer-1 topologies. Loading these once allows configurations to be
+ * post-processed a few at a time without re-reading them from storage.
+ */
+@ParametersAreNonnullByDefault
+final class PostProcessingInputs {
+
+  PostProcessingInputs(
+      Set<String> blacklistedNodes,
+      Set<NodeInterfacePair> blacklistedInterfaces,
+      Layer1Topology rawLayer1Topology,
+      Layer1Topology synthesizedLayer1Topology) {
+    _blacklistedNodes = ImmutableSet.copyOf(blacklistedNodes);
+    _blacklistedInterfaces = ImmutableSet.copyOf(blacklistedInterfaces);
+    _rawLayer1Topology = rawLayer1Topology;
+    _synthesizedLayer1Topology = synthesizedLayer1Topology;
+  }
+
+  @Nonnull
+  Set<String> getBlacklistedNodes() {
+    return _blacklistedNodes;
+  }
+
+  @Nonnull
+  Set<NodeInterfacePair> getBlacklistedInterfaces() {
+    return _blacklistedInterfaces;
+  }
+
+  @Nonnull
+  Layer1Topology getRawLayer1Topology() {
+    return _rawLayer1Topology;
+  }
+
+  @Nonnull
+  Layer1Topology getSynthesizedLayer1Topology() {
+    return _synthesizedLayer1Topology;
+  }
+
+  private final @Nonnull Set<String> _blacklistedNodes;
+  private final @Nonnull Set<NodeInterfacePair> _blacklistedInterfaces;
+  private final @Nonnull Layer1Topology _rawLayer1Topology;
+  private final @Nonnull Layer1Topology _synthesizedLayer1Topology;
+}
@@ -0,0 +1,108 @@
+package org.batfish.bddreachability;
+
+import static org.batfish.bddreachability.BDDDifferentialReachabilityAnalysis.affectedStates;
+import static org.batfish.bddreachability.BDDDifferentialReachabilityAnalysis.changedStates;
+import static org.batfish.bddreachability.BDDReachabilityUtils.computeForwardEdgeTable;
+import static org.batfish.bddreachability.BDDReachabilityUtils.transposeAndMaterialize;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.containsInAnyOrder;
+import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.sameInstance;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableSet;
+import java.util.List;
+import java.util.Map;
+import net.sf.javabdd.BDD;
+import org.batfish.common.bdd.BDDPacket;
+import org.batfish.datamodel.Ip;
+import org.batfish.symbolic.IngressLocation;
+import org.batfish.symbolic.state.NodeAccept;
+import org.batfish.symbolic.state.OriginateVrf;
+import org.batfish.symbolic.state.PostInVrf;
+import org.batfish.symbolic.state.Query;
+import org.batfish.symbolic.state.StateExpr;
+import org.junit.Before;
+import org.junit.Test;
+
+/** Tests of {@link BDDDifferentialReachabilityAnalysis}. */
+public final class BDDDifferentialReachabilityAnalysisTest {
+  private static final StateExpr ORIG_A = new OriginateVrf("a", "vrf");
+  private static final StateExpr ORIG_B = new OriginateVrf("b", "vrf");
+  private static final StateExpr POST_IN_A = new PostInVrf("a", "vrf");
+  private static final StateExpr POST_IN_B = new PostInVrf("b", "vrf");
+  private static final StateExpr ACCEPT_A = new NodeAccept("a");
+  private static final StateExpr ACCEPT_B = new NodeAccept("b");
+
+  private BDDPacket _pkt;
+  private BDD _dstIp1;
+  private BDD _dstIp2;
+
+  @Before
+  public void setup() {
+    _pkt = new BDDPacket();
+    _dstIp1 = _pkt.getDstIp().value(Ip.parse("1.1.1.1").asLong());
+    _dstIp2 = _pkt.getDstIp().value(Ip.parse("2.2.2.2").asLong());
+  }
+
+  private BDDReachabilityAnalysis analysis(List<Edge> edges) {
+    return new BDDReachabilityAnalysis(
+        _pkt, ImmutableSet.of(ORIG_A, ORIG_B), edges.stream(), _pkt.getFactory().one());
+  }
+
+  /** Two independent nodes a and b; b accepts {@code bAccepts}. */
+  private List<Edge> edges(BDD bAccepts) {
+    return ImmutableList.of(
+        new Edge(ORIG_A, POST_IN_A),
+        new Edge(POST_IN_A, ACCEPT_A, _dstIp1),
+        new Edge(ACCEPT_A, Query.INSTANCE),
+        new Edge(ORIG_B, POST_IN_B),
+        new Edge(POST_IN_B, ACCEPT_B, bAccepts),
+        new Edge(ACCEPT_B, Query.INSTANCE));
+  }
+
+  @Test
+  public void testChangedAndAffectedStates() {
+    BDDReachabilityAnalysis base = analysis(edges(_dstIp1));
+    BDDReachabilityAnalysis delta = analysis(edges(_dstIp2));
+
+    assertThat(
+        changedStates(base.getForwardEdgeMap(), delta.getForwardEdgeMap()),
+        containsInAnyOrder(POST_IN_B));
+    assertThat(
+        affectedStates(
+            ImmutableSet.of(POST_IN_B),
+            transposeAndMaterialize(computeForwardEdgeTable(edges(_dstIp2)))),
+        containsInAnyOrder(POST_IN_B, ORIG_B));
+  }
+
+  @Test
+  public void testDeltaMatchesFullComputation() {
+    BDDReachabilityAnalysis base = analysis(edges(_dstIp1));
+    BDDReachabilityAnalysis delta = analysis(edges(_dstIp2));
+    BDDDifferentialReachabilityAnalysis differential =
+        new BDDDifferentialReachabilityAnalysis(base, delta);
+
+    Map<IngressLocation, BDD> baseBdds = differential.getBaseIngressLocationBdds();
+    Map<IngressLocation, BDD> deltaBdds = differential.getDeltaIngressLocationBdds();
+
+    assertThat(baseBdds, equalTo(base.getIngressLocationReachableBDDs()));
+    assertThat(deltaBdds, equalTo(delta.getIngressLocationReachableBDDs()));
+
+    // the unchanged location shares the base result
+    IngressLocation locA = IngressLocation.vrf("a", "vrf");
+    assertThat(deltaBdds.get(locA), sameInstance(baseBdds.get(locA)));
+  }
+
+  @Test
+  public void testDeltaLosesReachability() {
+    BDDReachabilityAnalysis base = analysis(edges(_dstIp1));
+    BDDReachabilityAnalysis delta = analysis(edges(_pkt.getFactory().zero()));
+    BDDDifferentialReachabilityAnalysis differential =
+        new BDDDifferentialReachabilityAnalysis(base, delta);
+
+    assertThat(
+        differential.getDeltaIngressLocationBdds(),
+        equalTo(delta.getIngressLocationReachableBDDs()));
+  }
+}
@@ -7,11 +7,15 @@ import static org.batfish.symbolic.IngressLocation.interfaceLink;
 import static org.batfish.symbolic.IngressLocation.vrf;
 import static org.junit.Assert.assertEquals;
 
+import com.google.common.collect.ImmutableList;
 import com.google.common.collect.ImmutableMap;
 import com.google.common.collect.ImmutableSet;
 import com.google.common.collect.ImmutableSortedMap;
 import com.google.common.collect.ImmutableSortedSet;
 import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 import java.util.Set;
 import java.util.SortedMap;
@@ -147,6 +151,12 @@ public final class BDDLoopDetectionAnalysisTest {
             .put(vrf(DST_NODE, dstVrf.getName()), loopBdd)
             .build();
     assertEquals(expected, actual);
+
+    Map<IngressLocation, BDD> grouped = new HashMap<>();
+    for (Set<StateExpr> group : IngressLocationAnalysis.ingressGroups(ImmutableList.of(analysis))) {
+      grouped.putAll(analysis.getIngressLocationBdds(group));
+    }
+    assertEquals(expected, grouped);
   }
 
   @Test
@@ -169,4 +179,50 @@ public final class BDDLoopDetectionAnalysisTest {
 
     assertEquals(expected, actual);
   }
+
+  @Test
+  public void testIngressGroups() {
+    StateExpr state1 = new OriginateVrf("node1", "vrf1");
+    StateExpr state2 = new OriginateVrf("node2", "vrf2");
+    StateExpr state3 = new OriginateVrf("node3", "vrf3");
+    StateExpr state4 = new OriginateVrf("node4", "vrf4");
+    BDD dst1 = _dst.toBDD(DST_PREFIX_1);
+    BDD dst2 = _dst.toBDD(DST_PREFIX_2);
+
+    // two independent loops
+    BDDLoopDetectionAnalysis analysis =
+        new BDDLoopDetectionAnalysis(
+            _pkt,
+            Stream.of(
+                new Edge(state1, state2, constraint(dst1)),
+                new Edge(state2, state1, constraint(dst1)),
+                new Edge(state3, state4, constraint(dst2)),
+                new Edge(state4, state3, constraint(dst2))),
+            ImmutableSet.of(state1, state2, state3, state4));
+
+    List<Set<StateExpr>> groups = IngressLocationAnalysis.ingressGroups(ImmutableList.of(analysis));
+    assertEquals(
+        ImmutableList.of(ImmutableSet.of(state1, state2), ImmutableSet.of(state3, state4)), groups);
+
+    List<Map<IngressLocation, BDD>> results = new ArrayList<>();
+    for (Set<StateExpr> group : groups) {
+      results.add(analysis.getIngressLocationBdds(group));
+    }
+    assertEquals(
+        ImmutableList.of(
+            ImmutableMap.of(vrf("node1", "vrf1"), dst1, vrf("node2", "vrf2"), dst1),
+            ImmutableMap.of(vrf("node3", "vrf3"), dst2, vrf("node4", "vrf4"), dst2)),
+        results);
+    assertEquals(
+        analysis.detectLoops(),
+        ImmutableMap.of(
+            vrf("node1", "vrf1"),
+            dst1,
+            vrf("node2", "vrf2"),
+            dst1,
+            vrf("node3", "vrf3"),
+            dst2,
+            vrf("node4", "vrf4"),
+            dst2));
+  }
 }
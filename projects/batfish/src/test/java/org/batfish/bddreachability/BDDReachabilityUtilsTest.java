@@ -0,0 +1,139 @@
+package org.batfish.bddreachability;
+
+import static org.batfish.bddreachability.BDDReachabilityUtils.computeForwardEdgeTable;
+import static org.batfish.bddreachability.BDDReachabilityUtils.fixpointWithStats;
+import static org.batfish.bddreachability.BDDReachabilityUtils.forwardReachableSubgraph;
+import static org.batfish.bddreachability.BDDReachabilityUtils.partitionIngressStates;
+import static org.batfish.bddreachability.BDDReachabilityUtils.stronglyConnectedComponents;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.contains;
+import static org.hamcrest.Matchers.containsInAnyOrder;
+import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.hasSize;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableSet;
+import com.google.common.collect.Table;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import net.sf.javabdd.BDD;
+import org.batfish.bddreachability.BDDReachabilityUtils.FixpointStats;
+import org.batfish.bddreachability.transition.Transition;
+import org.batfish.common.bdd.BDDPacket;
+import org.batfish.symbolic.state.NodeAccept;
+import org.batfish.symbolic.state.StateExpr;
+import org.junit.Test;
+
+/** Tests of {@link BDDReachabilityUtils}. */
+public final class BDDReachabilityUtilsTest {
+  private static final StateExpr A = new NodeAccept("a");
+  private static final StateExpr B = new NodeAccept("b");
+  private static final StateExpr C = new NodeAccept("c");
+  private static final StateExpr D = new NodeAccept("d");
+
+  @Test
+  public void testStronglyConnectedComponents() {
+    // A -> B <-> C -> D
+    Table<StateExpr, StateExpr, Transition> edges =
+        computeForwardEdgeTable(
+            ImmutableList.of(new Edge(A, B), new Edge(B, C), new Edge(C, B), new Edge(C, D)));
+
+    List<List<StateExpr>> sccs = stronglyConnectedComponents(ImmutableSet.of(A), edges);
+
+    assertThat(sccs, hasSize(3));
+    assertThat(sccs.get(0), contains(A));
+    assertThat(sccs.get(1), containsInAnyOrder(B, C));
+    assertThat(sccs.get(2), contains(D));
+  }
+
+  @Test
+  public void testStronglyConnectedComponentsOnlyReachable() {
+    Table<StateExpr, StateExpr, Transition> edges =
+        computeForwardEdgeTable(ImmutableList.of(new Edge(A, B), new Edge(C, D)));
+
+    assertThat(
+        stronglyConnectedComponents(ImmutableSet.of(C), edges),
+        contains(ImmutableList.of(C), ImmutableList.of(D)));
+  }
+
+  @Test
+  public void testFixpointVisitsDagStatesOnce() {
+    BDDPacket pkt = new BDDPacket();
+    BDD x = pkt.getDstIp().value(1);
+    BDD y = pkt.getDstIp().value(2);
+    // A -> B -> D and A -> C -> D: without topological scheduling, D may be visited twice.
+    Table<StateExpr, StateExpr, Transition> edges =
+        computeForwardEdgeTable(
+            ImmutableList.of(new Edge(A, B, x), new Edge(A, C, y), new Edge(B, D), new Edge(C, D)));
+
+    Map<StateExpr, BDD> reachable = new HashMap<>();
+    reachable.put(A, pkt.getFactory().one());
+    FixpointStats stats = fixpointWithStats(reachable, edges, Transition::transitForward);
+
+    assertThat(reachable.get(D), equalTo(x.or(y)));
+    assertThat(stats.getStates(), equalTo(4));
+    assertThat(stats.getSccs(), equalTo(4));
+    assertThat(stats.getNodeVisits(), equalTo(4L));
+  }
+
+  @Test
+  public void testFixpointIteratesWithinScc() {
+    BDDPacket pkt = new BDDPacket();
+    BDD x = pkt.getDstIp().value(1);
+    // A -> B <-> C -> D
+    Table<StateExpr, StateExpr, Transition> edges =
+        computeForwardEdgeTable(
+            ImmutableList.of(new Edge(A, B, x), new Edge(B, C), new Edge(C, B), new Edge(C, D)));
+
+    Map<StateExpr, BDD> reachable = new HashMap<>();
+    reachable.put(A, pkt.getFactory().one());
+    FixpointStats stats = fixpointWithStats(reachable, edges, Transition::transitForward);
+
+    assertThat(reachable.get(B), equalTo(x));
+    assertThat(reachable.get(C), equalTo(x));
+    assertThat(reachable.get(D), equalTo(x));
+    assertThat(stats.getLargestScc(), equalTo(2));
+  }
+
+  @Test
+  public void testPartitionIngressStates() {
+    StateExpr e = new NodeAccept("e");
+    // A -> B -> D and C -> D: D is terminal, so A and C are independent. E shares B with A.
+    Table<StateExpr, StateExpr, Transition> edges =
+        computeForwardEdgeTable(
+            ImmutableList.of(new Edge(A, B), new Edge(B, D), new Edge(C, D), new Edge(e, B)));
+
+    assertThat(
+        partitionIngressStates(ImmutableList.of(edges), ImmutableSet.of(A, C, e)),
+        contains(ImmutableSet.of(A, e), ImmutableSet.of(C)));
+  }
+
+  @Test
+  public void testPartitionIngressStatesMultipleGraphs() {
+    Table<StateExpr, StateExpr, Transition> edges1 =
+        computeForwardEdgeTable(ImmutableList.of(new Edge(A, B), new Edge(B, D)));
+    Table<StateExpr, StateExpr, Transition> edges2 =
+        computeForwardEdgeTable(ImmutableList.of(new Edge(C, B), new Edge(B, D)));
+
+    assertThat(
+        partitionIngressStates(ImmutableList.of(edges1), ImmutableSet.of(A, C)),
+        contains(ImmutableSet.of(A), ImmutableSet.of(C)));
+    assertThat(
+        partitionIngressStates(ImmutableList.of(edges1, edges2), ImmutableSet.of(A, C)),
+        contains(ImmutableSet.of(A, C)));
+  }
+
+  @Test
+  public void testForwardReachableSubgraph() {
+    Table<StateExpr, StateExpr, Transition> edges =
+        computeForwardEdgeTable(
+            ImmutableList.of(new Edge(A, B), new Edge(B, C), new Edge(C, B), new Edge(D, C)));
+
+    Table<StateExpr, StateExpr, Transition> subgraph =
+        forwardReachableSubgraph(edges, ImmutableSet.of(A));
+
+    assertThat(subgraph.rowKeySet(), containsInAnyOrder(A, B, C));
+    assertThat(subgraph.size(), equalTo(3));
+  }
+}
@@ -0,0 +1,72 @@
+package org.batfish.bddreachability;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.contains;
+import static org.hamcrest.Matchers.equalTo;
+
+import com.google.common.collect.ImmutableMap;
+import java.util.Map;
+import org.batfish.common.bdd.BDDPacket;
+import org.batfish.datamodel.Edge;
+import org.batfish.datamodel.InterfaceForwardingBehavior;
+import org.batfish.datamodel.Prefix;
+import org.batfish.datamodel.VrfForwardingBehavior;
+import org.junit.Test;
+
+/** Tests of {@link ForwardingBdds}. */
+public final class ForwardingBddsTest {
+  private static Map<String, Map<String, VrfForwardingBehavior>> network(int numNodes) {
+    ImmutableMap.Builder<String, Map<String, VrfForwardingBehavior>> network =
+        ImmutableMap.builder();
+    for (int i = 0; i < numNodes; i++) {
+      String node = "n" + i;
+      String next = "n" + ((i + 1) % numNodes);
+      Prefix prefix = Prefix.parse(String.format("10.%d.0.0/16", i));
+      VrfForwardingBehavior vrf =
+          VrfForwardingBehavior.builder()
+              .setArpTrueEdge(
+                  ImmutableMap.of(
+                      Edge.of(node, "i", next, "i"), Prefix.parse("10.0.0.0/8").toIpSpace()))
+              .setInterfaceForwardingBehavior(
+                  ImmutableMap.of(
+                      "i",
+                      InterfaceForwardingBehavior.builder()
+                          .setAccepted(prefix.getStartIp().toIpSpace())
+                          .setDeliveredToSubnet(prefix.toIpSpace())
+                          .setExitsNetwork(Prefix.parse("20.0.0.0/8").toIpSpace())
+                          .build()))
+              .setNextVrf(ImmutableMap.of("other", prefix.toIpSpace()))
+              .setNullRoutedIps(Prefix.parse("30.0.0.0/8").toIpSpace())
+              .setRoutableIps(prefix.toIpSpace())
+              .build();
+      network.put(node, ImmutableMap.of("default", vrf, "other", vrf));
+    }
+    return network.build();
+  }
+
+  @Test
+  public void testParallelMatchesSequential() {
+    BDDPacket pkt = new BDDPacket();
+    // allocate extra variables, so the main factory has more variables than the workers'
+    pkt.allocateBDDBit("extra");
+    Map<String, Map<String, VrfForwardingBehavior>> network = network(7);
+
+    ForwardingBdds sequential = ForwardingBdds.compute(pkt, network, 1);
+    ForwardingBdds parallel = ForwardingBdds.compute(pkt, network, 3);
+
+    assertThat(parallel.getArpTrueEdgeBdds(), equalTo(sequential.getArpTrueEdgeBdds()));
+    assertThat(
+        parallel.getNeighborUnreachableBdds(), equalTo(sequential.getNeighborUnreachableBdds()));
+    assertThat(parallel.getDeliveredToSubnetBdds(), equalTo(sequential.getDeliveredToSubnetBdds()));
+    assertThat(parallel.getExitsNetworkBdds(), equalTo(sequential.getExitsNetworkBdds()));
+    assertThat(parallel.getInsufficientInfoBdds(), equalTo(sequential.getInsufficientInfoBdds()));
+    assertThat(parallel.getIfaceAcceptBdds(), equalTo(sequential.getIfaceAcceptBdds()));
+    assertThat(parallel.getNullRoutedBdds(), equalTo(sequential.getNullRoutedBdds()));
+    assertThat(parallel.getRoutableBdds(), equalTo(sequential.getRoutableBdds()));
+    assertThat(parallel.getNextVrfBdds(), equalTo(sequential.getNextVrfBdds()));
+
+    // node order is preserved
+    assertThat(
+        parallel.getRoutableBdds().keySet(), contains("n0", "n1", "n2", "n3", "n4", "n5", "n6"));
+  }
+}
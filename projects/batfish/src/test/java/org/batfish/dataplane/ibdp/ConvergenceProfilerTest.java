@@ -0,0 +1,163 @@
+package org.batfish.dataplane.ibdp;
+
+import static org.batfish.datamodel.Configuration.DEFAULT_VRF_NAME;
+import static org.batfish.dataplane.ibdp.ConvergenceProfiler.COL_ITERATION;
+import static org.batfish.dataplane.ibdp.ConvergenceProfiler.COL_MAIN_RIB_CHANGES;
+import static org.batfish.dataplane.ibdp.ConvergenceProfiler.COL_MAX_PENDING_MESSAGES;
+import static org.batfish.dataplane.ibdp.ConvergenceProfiler.COL_NODE;
+import static org.batfish.dataplane.ibdp.ConvergenceProfiler.COL_PHASE;
+import static org.batfish.dataplane.ibdp.ConvergenceProfiler.COL_SLOWEST_NODE;
+import static org.batfish.dataplane.ibdp.ConvergenceProfiler.COL_SLOWEST_PHASE;
+import static org.batfish.dataplane.ibdp.ConvergenceProfiler.COL_TIME_MS;
+import static org.batfish.dataplane.ibdp.ConvergenceProfiler.COL_VRF;
+import static org.batfish.dataplane.ibdp.ConvergenceProfiler.csvEscape;
+import static org.batfish.dataplane.ibdp.IncrementalDataPlaneSettings.PROP_CONVERGENCE_PROFILE;
+import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.hasSize;
+import static org.hamcrest.Matchers.notNullValue;
+import static org.hamcrest.Matchers.nullValue;
+import static org.hamcrest.Matchers.startsWith;
+import static org.junit.Assert.assertThat;
+
+import com.google.common.collect.ImmutableSet;
+import com.google.common.collect.ImmutableSortedMap;
+import java.util.List;
+import java.util.SortedMap;
+import org.batfish.common.topology.TopologyUtil;
+import org.batfish.datamodel.ConcreteInterfaceAddress;
+import org.batfish.datamodel.Configuration;
+import org.batfish.datamodel.ConfigurationFormat;
+import org.batfish.datamodel.NetworkFactory;
+import org.batfish.datamodel.Vrf;
+import org.batfish.datamodel.answers.IncrementalBdpAnswerElement;
+import org.batfish.datamodel.pojo.Node;
+import org.batfish.datamodel.table.Row;
+import org.batfish.datamodel.table.TableAnswerElement;
+import org.batfish.dataplane.ibdp.ConvergenceProfiler.Sample;
+import org.junit.Test;
+
+/** Tests of {@link ConvergenceProfiler}. */
+public class ConvergenceProfilerTest {
+
+  /** Nanoseconds spent in each phase: {@code bgpMs} in BGP and 1ms in STATIC_ROUTES. */
+  private static long[] phaseNanos(long bgpMs) {
+    long[] nanos = new long[ConvergenceProfiler.Phase.values().length];
+    nanos[ConvergenceProfiler.Phase.BGP.ordinal()] = bgpMs * 1_000_000;
+    nanos[ConvergenceProfiler.Phase.STATIC_ROUTES.ordinal()] = 1_000_000;
+    return nanos;
+  }
+
+  private static ConvergenceProfiler profilerWithSamples(int topN) {
+    ConvergenceProfiler profiler = ConvergenceProfiler.enabled(topN);
+    profiler.addSample(new Sample(1, "r1", "default", phaseNanos(2), 3, 4, 10, 0));
+    profiler.addSample(new Sample(1, "r2", "default", phaseNanos(10), 5, 1, 20, 7));
+    profiler.addSample(new Sample(2, "r1", "default", phaseNanos(3), 1, 0, 11, 0));
+    profiler.addSample(new Sample(2, "r2", "default", phaseNanos(0), 0, 0, 20, 7));
+    return profiler;
+  }
+
+  @Test
+  public void testSlowestRouters() {
+    List<Row> rows = profilerWithSamples(10).slowestRouters().getRowsList();
+
+    assertThat(rows, hasSize(2));
+    Row r2 = rows.get(0);
+    assertThat(r2.getNode(COL_NODE), equalTo(new Node("r2")));
+    assertThat(r2.getString(COL_VRF), equalTo("default"));
+    assertThat(r2.getDouble(COL_TIME_MS), equalTo(12.0));
+    assertThat(r2.getString(COL_SLOWEST_PHASE), equalTo("BGP"));
+    assertThat(r2.getInteger(COL_MAIN_RIB_CHANGES), equalTo(5));
+    assertThat(r2.getInteger(COL_MAX_PENDING_MESSAGES), equalTo(1));
+    Row r1 = rows.get(1);
+    assertThat(r1.getNode(COL_NODE), equalTo(new Node("r1")));
+    assertThat(r1.getDouble(COL_TIME_MS), equalTo(7.0));
+    assertThat(r1.getInteger(COL_MAIN_RIB_CHANGES), equalTo(4));
+    assertThat(r1.getInteger(COL_MAX_PENDING_MESSAGES), equalTo(4));
+  }
+
+  @Test
+  public void testSlowestPhases() {
+    List<Row> rows = profilerWithSamples(2).slowestPhases().getRowsList();
+
+    assertThat(rows, hasSize(2));
+    assertThat(rows.get(0).getInteger(COL_ITERATION), equalTo(1));
+    assertThat(rows.get(0).getString(COL_PHASE), equalTo("BGP"));
+    assertThat(rows.get(0).getDouble(COL_TIME_MS), equalTo(12.0));
+    assertThat(rows.get(0).getNode(COL_SLOWEST_NODE), equalTo(new Node("r2")));
+    assertThat(rows.get(1).getInteger(COL_ITERATION), equalTo(2));
+    assertThat(rows.get(1).getString(COL_PHASE), equalTo("BGP"));
+    assertThat(rows.get(1).getDouble(COL_TIME_MS), equalTo(3.0));
+    assertThat(rows.get(1).getNode(COL_SLOWEST_NODE), equalTo(new Node("r1")));
+  }
+
+  @Test
+  public void testToCsv() {
+    ConvergenceProfiler profiler = ConvergenceProfiler.enabled(1);
+    profiler.addSample(new Sample(1, "r,1", "default", phaseNanos(2), 3, 4, 10, 0));
+
+    assertThat(
+        profiler.toCsv(),
+        equalTo(
+            "iteration,node,vrf,redistribute_ms,static_routes_ms,generated_routes_ms,eigrp_ms,"
+                + "isis_ms,ospf_ms,bgp_ms,cross_vrf_ms,total_ms,main_rib_changes,"
+                + "pending_messages,main_rib_routes,bgp_paths\n"
+                + "1,\"r,1\",default,0.0,1.0,0.0,0.0,0.0,0.0,2.0,0.0,3.0,3,4,10,0\n"));
+  }
+
+  @Test
+  public void testCsvEscape() {
+    assertThat(csvEscape("r1"), equalTo("r1"));
+    assertThat(csvEscape("r,1"), equalTo("\"r,1\""));
+    assertThat(csvEscape("r\"1"), equalTo("\"r\"\"1\""));
+  }
+
+  private static IbdpResult computeDataPlane(boolean profile) {
+    NetworkFactory nf = new NetworkFactory();
+    Configuration c =
+        nf.configurationBuilder()
+            .setHostname("r1")
+            .setConfigurationFormat(ConfigurationFormat.CISCO_IOS)
+            .build();
+    Vrf vrf = nf.vrfBuilder().setName(DEFAULT_VRF_NAME).setOwner(c).build();
+    nf.interfaceBuilder()
+        .setOwner(c)
+        .setVrf(vrf)
+        .setAddress(ConcreteInterfaceAddress.parse("1.2.3.4/24"))
+        .build();
+    SortedMap<String, Configuration> configs = ImmutableSortedMap.of(c.getHostname(), c);
+    IncrementalDataPlaneSettings settings = new IncrementalDataPlaneSettings();
+    settings.getConfig().setProperty(PROP_CONVERGENCE_PROFILE, profile);
+    return (IbdpResult)
+        new IncrementalBdpEngine(settings)
+            .computeDataPlane(
+                configs,
+                TopologyContext.builder()
+                    .setLayer3Topology(TopologyUtil.synthesizeL3Topology(configs))
+                    .build(),
+                ImmutableSet.of());
+  }
+
+  @Test
+  public void testComputeDataPlaneProfile() {
+    IbdpResult result = computeDataPlane(true);
+    IncrementalBdpAnswerElement ae = (IncrementalBdpAnswerElement) result._answerElement;
+
+    assertThat(result.getConvergenceProfiler(), notNullValue());
+    TableAnswerElement routers = ae.getConvergenceProfileRouters();
+    assertThat(routers, notNullValue());
+    assertThat(routers.getRowsList(), hasSize(1));
+    assertThat(routers.getRowsList().get(0).getNode(COL_NODE), equalTo(new Node("r1")));
+    assertThat(ae.getConvergenceProfilePhases(), notNullValue());
+    assertThat(result.getConvergenceProfiler().toCsv(), startsWith("iteration,node,vrf,"));
+  }
+
+  @Test
+  public void testComputeDataPlaneNoProfile() {
+    IbdpResult result = computeDataPlane(false);
+    IncrementalBdpAnswerElement ae = (IncrementalBdpAnswerElement) result._answerElement;
+
+    assertThat(result.getConvergenceProfiler(), nullValue());
+    assertThat(ae.getConvergenceProfileRouters(), nullValue());
+    assertThat(ae.getConvergenceProfilePhases(), nullValue());
+  }
+}
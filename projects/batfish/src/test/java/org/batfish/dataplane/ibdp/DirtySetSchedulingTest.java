@@ -0,0 +1,178 @@
+package org.batfish.dataplane.ibdp;
+
+import static org.batfish.datamodel.Configuration.DEFAULT_VRF_NAME;
+import static org.batfish.datamodel.bgp.LocalOriginationTypeTieBreaker.NO_PREFERENCE;
+import static org.batfish.datamodel.bgp.NextHopIpTieBreaker.HIGHEST_NEXT_HOP_IP;
+import static org.batfish.dataplane.ibdp.IncrementalDataPlaneSettings.PROP_DIRTY_SET_SCHEDULING;
+import static org.batfish.dataplane.ibdp.TestUtils.assertRoute;
+import static org.hamcrest.Matchers.containsInAnyOrder;
+import static org.hamcrest.Matchers.equalTo;
+import static org.junit.Assert.assertThat;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableSet;
+import com.google.common.collect.ImmutableSetMultimap;
+import com.google.common.collect.ImmutableSortedSet;
+import java.util.Set;
+import java.util.SortedMap;
+import java.util.TreeMap;
+import org.batfish.common.topology.TopologyUtil;
+import org.batfish.datamodel.AbstractRoute;
+import org.batfish.datamodel.BgpProcess;
+import org.batfish.datamodel.ConcreteInterfaceAddress;
+import org.batfish.datamodel.Configuration;
+import org.batfish.datamodel.ConfigurationFormat;
+import org.batfish.datamodel.Interface;
+import org.batfish.datamodel.Ip;
+import org.batfish.datamodel.NetworkFactory;
+import org.batfish.datamodel.Prefix;
+import org.batfish.datamodel.RoutingProtocol;
+import org.batfish.datamodel.StaticRoute;
+import org.batfish.datamodel.Vrf;
+import org.batfish.datamodel.bgp.Ipv4UnicastAddressFamily;
+import org.batfish.datamodel.routing_policy.expr.Disjunction;
+import org.batfish.datamodel.routing_policy.expr.MatchProtocol;
+import org.batfish.datamodel.routing_policy.statement.If;
+import org.batfish.datamodel.routing_policy.statement.Statements;
+import org.junit.Test;
+
+/** Tests of dirty-set scheduling in {@link IncrementalBdpEngine}. */
+public class DirtySetSchedulingTest {
+
+  private static final int CHAIN_LENGTH = 6;
+  private static final Prefix ADVERTISED_PREFIX = Prefix.parse("23.23.23.0/24");
+
+  /**
+   * A chain of eBGP routers r0 - r1 - ... where r0 redistributes a static route, so that each
+   * iteration only changes the routes of the next router in the chain.
+   */
+  private static SortedMap<String, Configuration> ebgpChain() {
+    NetworkFactory nf = new NetworkFactory();
+    BgpProcess.Builder pb =
+        nf.bgpProcessBuilder()
+            .setEbgpAdminCost(20)
+            .setIbgpAdminCost(200)
+            .setLocalAdminCost(200)
+            .setLocalOriginationTypeTieBreaker(NO_PREFERENCE)
+            .setNetworkNextHopIpTieBreaker(HIGHEST_NEXT_HOP_IP)
+            .setRedistributeNextHopIpTieBreaker(HIGHEST_NEXT_HOP_IP);
+    SortedMap<String, Configuration> configs = new TreeMap<>();
+    for (int i = 0; i < CHAIN_LENGTH; i++) {
+      Configuration c =
+          nf.configurationBuilder()
+              .setHostname("r" + i)
+              .setConfigurationFormat(ConfigurationFormat.CISCO_IOS)
+              .build();
+      Vrf vrf = nf.vrfBuilder().setName(DEFAULT_VRF_NAME).setOwner(c).build();
+      String exportPolicy =
+          nf.routingPolicyBuilder()
+              .setOwner(c)
+              .setStatements(
+                  ImmutableList.of(
+                      new If(
+                          new Disjunction(
+                              ImmutableList.of(
+                                  new MatchProtocol(RoutingProtocol.BGP),
+                                  new MatchProtocol(RoutingProtocol.STATIC))),
+                          ImmutableList.of(Statements.ExitAccept.toStaticStatement()))))
+              .build()
+              .getName();
+      BgpProcess proc = pb.setRouterId(Ip.create(i + 1)).setVrf(vrf).build();
+      if (i == 0) {
+        Interface iface =
+            nf.interfaceBuilder()
+                .setOwner(c)
+                .setVrf(vrf)
+                .setAddress(ConcreteInterfaceAddress.parse("1.2.3.4/24"))
+                .build();
+        vrf.setStaticRoutes(
+            ImmutableSortedSet.of(
+                StaticRoute.testBuilder()
+                    .setAdministrativeCost(1)
+                    .setNetwork(ADVERTISED_PREFIX)
+                    .setNextHopInterface(iface.getName())
+                    .build()));
+      }
+      // link to previous router: 10.0.(i-1).1/31, to next router: 10.0.i.0/31
+      if (i > 0) {
+        addPeer(nf, c, vrf, proc, exportPolicy, linkIp(i - 1, 1), linkIp(i - 1, 0), i, i - 1);
+      }
+      if (i < CHAIN_LENGTH - 1) {
+        addPeer(nf, c, vrf, proc, exportPolicy, linkIp(i, 0), linkIp(i, 1), i, i + 1);
+      }
+      configs.put(c.getHostname(), c);
+    }
+    return configs;
+  }
+
+  private static Ip linkIp(int link, int side) {
+    return Ip.parse(String.format("10.0.%d.%d", link, side));
+  }
+
+  private static void addPeer(
+      NetworkFactory nf,
+      Configuration c,
+      Vrf vrf,
+      BgpProcess proc,
+      String exportPolicy,
+      Ip localIp,
+      Ip peerIp,
+      long localIndex,
+      long peerIndex) {
+    nf.interfaceBuilder()
+        .setOwner(c)
+        .setVrf(vrf)
+        .setAddress(ConcreteInterfaceAddress.create(localIp, Prefix.MAX_PREFIX_LENGTH - 1))
+        .build();
+    nf.bgpNeighborBuilder()
+        .setBgpProcess(proc)
+        .setLocalIp(localIp)
+        .setPeerAddress(peerIp)
+        .setLocalAs(localIndex + 1)
+        .setRemoteAs(peerIndex + 1)
+        .setIpv4UnicastAddressFamily(
+            Ipv4UnicastAddressFamily.builder().setExportPolicy(exportPolicy).build())
+        .build();
+  }
+
+  private static SortedMap<String, SortedMap<String, Set<AbstractRoute>>> computeRoutes(
+      boolean dirtySetScheduling) {
+    SortedMap<String, Configuration> configs = ebgpChain();
+    IncrementalDataPlaneSettings settings = new IncrementalDataPlaneSettings();
+    settings.getConfig().setProperty(PROP_DIRTY_SET_SCHEDULING, dirtySetScheduling);
+    IncrementalBdpEngine engine = new IncrementalBdpEngine(settings);
+    IncrementalDataPlane dp =
+        (IncrementalDataPlane)
+            engine.computeDataPlane(
+                    configs,
+                    TopologyContext.builder()
+                        .setLayer3Topology(TopologyUtil.synthesizeL3Topology(configs))
+                        .build(),
+                    ImmutableSet.of())
+                ._dataPlane;
+    return IncrementalBdpEngine.getRoutes(dp);
+  }
+
+  @Test
+  public void testDirtySetSchedulingMatchesDefault() {
+    SortedMap<String, SortedMap<String, Set<AbstractRoute>>> routes = computeRoutes(true);
+
+    assertRoute(routes, RoutingProtocol.BGP, "r" + (CHAIN_LENGTH - 1), ADVERTISED_PREFIX, 0);
+    assertThat(routes, equalTo(computeRoutes(false)));
+  }
+
+  @Test
+  public void testDirtySetSchedulingDefaultOff() {
+    assertThat(new IncrementalDataPlaneSettings().getDirtySetScheduling(), equalTo(false));
+  }
+
+  @Test
+  public void testWithNeighbors() {
+    NodeDependencyGraph graph =
+        new NodeDependencyGraph(ImmutableSetMultimap.of("a", "b", "b", "a", "b", "c", "c", "b"));
+
+    assertThat(graph.withNeighbors(ImmutableSet.of("a")), containsInAnyOrder("a", "b"));
+    assertThat(graph.withNeighbors(ImmutableSet.of("b")), containsInAnyOrder("a", "b", "c"));
+    assertThat(graph.withNeighbors(ImmutableSet.of("d")), containsInAnyOrder("d"));
+  }
+}
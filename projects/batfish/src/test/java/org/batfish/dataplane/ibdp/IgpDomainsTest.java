@@ -0,0 +1,132 @@
+package org.batfish.dataplane.ibdp;
+
+import static org.batfish.datamodel.Configuration.DEFAULT_VRF_NAME;
+import static org.hamcrest.Matchers.contains;
+import static org.hamcrest.Matchers.empty;
+import static org.junit.Assert.assertThat;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.ImmutableSortedMap;
+import com.google.common.collect.Maps;
+import com.google.common.graph.MutableNetwork;
+import com.google.common.graph.NetworkBuilder;
+import java.util.List;
+import java.util.Map;
+import java.util.SortedMap;
+import org.batfish.datamodel.Configuration;
+import org.batfish.datamodel.ConfigurationFormat;
+import org.batfish.datamodel.Interface;
+import org.batfish.datamodel.Ip;
+import org.batfish.datamodel.IsoAddress;
+import org.batfish.datamodel.NetworkConfigurations;
+import org.batfish.datamodel.Vrf;
+import org.batfish.datamodel.eigrp.EigrpEdge;
+import org.batfish.datamodel.eigrp.EigrpMetricVersion;
+import org.batfish.datamodel.eigrp.EigrpNeighborConfigId;
+import org.batfish.datamodel.eigrp.EigrpProcess;
+import org.batfish.datamodel.eigrp.EigrpProcessMode;
+import org.batfish.datamodel.eigrp.EigrpTopology;
+import org.batfish.datamodel.isis.IsisEdge;
+import org.batfish.datamodel.isis.IsisLevel;
+import org.batfish.datamodel.isis.IsisLevelSettings;
+import org.batfish.datamodel.isis.IsisNode;
+import org.batfish.datamodel.isis.IsisProcess;
+import org.batfish.datamodel.isis.IsisTopology;
+import org.junit.Before;
+import org.junit.Test;
+
+/** Tests of {@link IgpDomains}. */
+public final class IgpDomainsTest {
+
+  private static final String IFACE = "iface";
+
+  private SortedMap<String, Configuration> _configs;
+  private Map<String, Node> _nodes;
+
+  /**
+   * Create nodes r1 to r4, where r1 to r3 run EIGRP and IS-IS and r4 runs neither. The IGP
+   * adjacencies are added by the tests.
+   */
+  @Before
+  public void setup() {
+    ImmutableSortedMap.Builder<String, Configuration> configs = ImmutableSortedMap.naturalOrder();
+    for (String hostname : ImmutableList.of("r1", "r2", "r3", "r4")) {
+      Configuration c =
+          Configuration.builder()
+              .setHostname(hostname)
+              .setConfigurationFormat(ConfigurationFormat.CISCO_IOS)
+              .build();
+      Vrf vrf = Vrf.builder().setOwner(c).setName(DEFAULT_VRF_NAME).build();
+      Interface.builder().setOwner(c).setVrf(vrf).setName(IFACE).build();
+      if (!hostname.equals("r4")) {
+        vrf.addEigrpProcess(
+            EigrpProcess.builder()
+                .setAsNumber(1)
+                .setMode(EigrpProcessMode.CLASSIC)
+                .setMetricVersion(EigrpMetricVersion.V1)
+                .setRouterId(Ip.ZERO)
+                .build());
+        IsisProcess.builder()
+            .setVrf(vrf)
+            .setNetAddress(new IsoAddress("49.0001.0100.0100.1001.00"))
+            .setLevel2(IsisLevelSettings.builder().build())
+            .build();
+      }
+      configs.put(hostname, c);
+    }
+    _configs = configs.build();
+    _nodes = ImmutableMap.copyOf(Maps.transformValues(_configs, Node::new));
+  }
+
+  private VirtualRouter vr(String hostname) {
+    return _nodes.get(hostname).getVirtualRouterOrThrow(DEFAULT_VRF_NAME);
+  }
+
+  private IgpDomains igpDomains(TopologyContext topologyContext) {
+    return IgpDomains.fromTopologies(topologyContext, _nodes, NetworkConfigurations.of(_configs));
+  }
+
+  private static EigrpNeighborConfigId eigrpNode(String hostname) {
+    return new EigrpNeighborConfigId(1, hostname, IFACE, DEFAULT_VRF_NAME);
+  }
+
+  @Test
+  public void testEigrpDomains() {
+    MutableNetwork<EigrpNeighborConfigId, EigrpEdge> network =
+        NetworkBuilder.directed().allowsParallelEdges(false).allowsSelfLoops(false).build();
+    EigrpEdge edge = new EigrpEdge(eigrpNode("r1"), eigrpNode("r2"));
+    network.addEdge(edge.getNode1(), edge.getNode2(), edge);
+    network.addEdge(edge.getNode2(), edge.getNode1(), edge.reverse());
+    IgpDomains domains =
+        igpDomains(TopologyContext.builder().setEigrpTopology(new EigrpTopology(network)).build());
+    List<VirtualRouter> vrs = ImmutableList.of(vr("r1"), vr("r3"), vr("r2"), vr("r4"));
+
+    // r3 has no adjacency, so forms its own domain; r4 does not run EIGRP
+    assertThat(
+        domains.eigrpDomains(vrs), contains(contains(vr("r1"), vr("r2")), contains(vr("r3"))));
+    // only the given VRs are returned
+    assertThat(domains.eigrpDomains(ImmutableList.of(vr("r2"))), contains(contains(vr("r2"))));
+    assertThat(domains.eigrpDomains(ImmutableList.of(vr("r4"))), empty());
+  }
+
+  @Test
+  public void testIsisDomains() {
+    MutableNetwork<IsisNode, IsisEdge> network =
+        NetworkBuilder.directed().allowsParallelEdges(false).allowsSelfLoops(false).build();
+    IsisEdge edge =
+        new IsisEdge(IsisLevel.LEVEL_2, new IsisNode("r2", IFACE), new IsisNode("r3", IFACE));
+    network.addEdge(edge.getNode1(), edge.getNode2(), edge);
+    network.addEdge(edge.getNode2(), edge.getNode1(), edge.reverse());
+    IgpDomains domains =
+        igpDomains(TopologyContext.builder().setIsisTopology(new IsisTopology(network)).build());
+    List<VirtualRouter> vrs = ImmutableList.of(vr("r1"), vr("r2"), vr("r3"), vr("r4"));
+
+    assertThat(
+        domains.isisDomains(vrs), contains(contains(vr("r1")), contains(vr("r2"), vr("r3"))));
+    // adjacencies of one IGP do not join domains of the other
+    assertThat(
+        domains.eigrpDomains(vrs),
+        contains(contains(vr("r1")), contains(vr("r2")), contains(vr("r3"))));
+  }
+}
@@ -0,0 +1,39 @@
+package org.batfish.dataplane.ibdp;
+
+import static org.batfish.dataplane.ibdp.IncrementalBdpEngine.oscillatingVrfs;
+import static org.hamcrest.Matchers.equalTo;
+import static org.junit.Assert.assertThat;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableSetMultimap;
+import com.google.common.collect.ImmutableTable;
+import com.google.common.collect.Table;
+import org.junit.Test;
+
+/** Tests of {@link IncrementalBdpEngine}. */
+public class IncrementalBdpEngineTest {
+
+  private static Table<String, String, Integer> fingerprints(int r1v1, int r1v2, int r2v1) {
+    return ImmutableTable.<String, String, Integer>builder()
+        .put("r1", "v1", r1v1)
+        .put("r1", "v2", r1v2)
+        .put("r2", "v1", r2v1)
+        .build();
+  }
+
+  @Test
+  public void testOscillatingVrfs() {
+    // r1/v1 flaps and comes back, r2/v1 changes in the middle of the cycle, r1/v2 is stable
+    assertThat(
+        oscillatingVrfs(
+            ImmutableList.of(fingerprints(1, 5, 7), fingerprints(2, 5, 8), fingerprints(1, 5, 7))),
+        equalTo(ImmutableSetMultimap.of("r1", "v1", "r2", "v1")));
+  }
+
+  @Test
+  public void testOscillatingVrfsNone() {
+    assertThat(
+        oscillatingVrfs(ImmutableList.of(fingerprints(1, 5, 7), fingerprints(1, 5, 7))).isEmpty(),
+        equalTo(true));
+  }
+}
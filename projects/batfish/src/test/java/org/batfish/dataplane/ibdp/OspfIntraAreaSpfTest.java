@@ -0,0 +1,226 @@
+package org.batfish.dataplane.ibdp;
+
+import static org.batfish.datamodel.Configuration.DEFAULT_VRF_NAME;
+import static org.batfish.datamodel.RoutingProtocol.OSPF_IA;
+import static org.batfish.datamodel.matchers.AbstractRouteDecoratorMatchers.hasPrefix;
+import static org.batfish.datamodel.matchers.AbstractRouteDecoratorMatchers.hasProtocol;
+import static org.batfish.datamodel.ospf.OspfTopologyUtils.computeOspfTopology;
+import static org.batfish.dataplane.ibdp.IncrementalDataPlaneSettings.PROP_OSPF_SPF;
+import static org.hamcrest.Matchers.allOf;
+import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.hasItem;
+import static org.hamcrest.Matchers.lessThan;
+import static org.junit.Assert.assertThat;
+
+import com.google.common.collect.ImmutableSet;
+import java.util.Set;
+import java.util.SortedMap;
+import java.util.TreeMap;
+import org.batfish.common.plugin.DataPlanePlugin.ComputeDataPlaneResult;
+import org.batfish.common.topology.TopologyUtil;
+import org.batfish.datamodel.AbstractRoute;
+import org.batfish.datamodel.ConcreteInterfaceAddress;
+import org.batfish.datamodel.Configuration;
+import org.batfish.datamodel.ConfigurationFormat;
+import org.batfish.datamodel.Interface;
+import org.batfish.datamodel.Ip;
+import org.batfish.datamodel.NetworkConfigurations;
+import org.batfish.datamodel.NetworkFactory;
+import org.batfish.datamodel.Prefix;
+import org.batfish.datamodel.Topology;
+import org.batfish.datamodel.Vrf;
+import org.batfish.datamodel.answers.IncrementalBdpAnswerElement;
+import org.batfish.datamodel.ospf.OspfArea;
+import org.batfish.datamodel.ospf.OspfInterfaceSettings;
+import org.batfish.datamodel.ospf.OspfNetworkType;
+import org.batfish.datamodel.ospf.OspfProcess;
+import org.batfish.datamodel.ospf.OspfTopologyUtils;
+import org.junit.Test;
+
+/** Tests of {@link OspfIntraAreaSpf}. */
+public class OspfIntraAreaSpfTest {
+
+  private static final int SIZE = 5;
+
+  private static String name(int row, int column) {
+    return "r" + row + "_" + column;
+  }
+
+  private static Prefix loopback(int row, int column) {
+    return Prefix.create(Ip.create(0x01010000L | row << 8 | column), Prefix.MAX_PREFIX_LENGTH);
+  }
+
+  /** Area of routers and links in the given rows: area 0 for the first two rows, else area 1. */
+  private static long area(int row) {
+    return row < 2 ? 0L : 1L;
+  }
+
+  /**
+   * A {@link #SIZE} by {@link #SIZE} grid of routers with varied interface costs, so that there are
+   * both unique and equal-cost shortest paths. The first two rows are in area 0, the others in area
+   * 1, and the routers of the third row are area border routers.
+   */
+  private static SortedMap<String, Configuration> ospfGrid() {
+    NetworkFactory nf = new NetworkFactory();
+    SortedMap<String, Configuration> configs = new TreeMap<>();
+    OspfArea[][][] areas = new OspfArea[SIZE][SIZE][2];
+    for (int row = 0; row < SIZE; row++) {
+      for (int column = 0; column < SIZE; column++) {
+        Configuration c =
+            nf.configurationBuilder()
+                .setHostname(name(row, column))
+                .setConfigurationFormat(ConfigurationFormat.CISCO_IOS)
+                .build();
+        Vrf vrf = nf.vrfBuilder().setOwner(c).setName(DEFAULT_VRF_NAME).build();
+        Prefix loopback = loopback(row, column);
+        OspfProcess proc =
+            nf.ospfProcessBuilder()
+                .setVrf(vrf)
+                .setProcessId("1")
+                .setRouterId(loopback.getStartIp())
+                .build();
+        Interface iface =
+            nf.interfaceBuilder()
+                .setOwner(c)
+                .setVrf(vrf)
+                .setName("lo")
+                .setAddress(ConcreteInterfaceAddress.create(loopback.getStartIp(), 32))
+                .setOspfSettings(
+                    OspfInterfaceSettings.defaultSettingsBuilder()
+                        .setProcess("1")
+                        .setCost(1)
+                        .setPassive(true)
+                        .setAreaName(area(row))
+                        .build())
+                .build();
+        area(nf, areas, proc, row, column, area(row)).addInterface(iface.getName());
+        configs.put(c.getHostname(), c);
+      }
+    }
+    int link = 0;
+    for (int row = 0; row < SIZE; row++) {
+      for (int column = 0; column < SIZE; column++) {
+        if (column + 1 < SIZE) {
+          addLink(nf, configs, areas, link++, row, column, row, column + 1, area(row));
+        }
+        if (row + 1 < SIZE) {
+          addLink(nf, configs, areas, link++, row, column, row + 1, column, area(row));
+        }
+      }
+    }
+    return configs;
+  }
+
+  /** Get or create the area of the given router, so that only routers of the third row are ABRs. */
+  private static OspfArea area(
+      NetworkFactory nf, OspfArea[][][] areas, OspfProcess proc, int row, int column, long area) {
+    OspfArea ospfArea = areas[row][column][(int) area];
+    if (ospfArea == null) {
+      ospfArea = nf.ospfAreaBuilder().setNumber(area).setOspfProcess(proc).build();
+      areas[row][column][(int) area] = ospfArea;
+    }
+    return ospfArea;
+  }
+
+  private static void addLink(
+      NetworkFactory nf,
+      SortedMap<String, Configuration> configs,
+      OspfArea[][][] areas,
+      int link,
+      int row1,
+      int column1,
+      int row2,
+      int column2,
+      long area) {
+    Ip base = Ip.create(0x0A000000L + 2L * link);
+    // vary the costs by link and direction
+    addInterface(nf, configs, areas, base, 1 + link % 3, name(row2, column2), row1, column1, area);
+    addInterface(
+        nf,
+        configs,
+        areas,
+        Ip.create(base.asLong() + 1),
+        1 + (link + 1) % 3,
+        name(row1, column1),
+        row2,
+        column2,
+        area);
+  }
+
+  private static void addInterface(
+      NetworkFactory nf,
+      SortedMap<String, Configuration> configs,
+      OspfArea[][][] areas,
+      Ip ip,
+      int cost,
+      String peer,
+      int row,
+      int column,
+      long area) {
+    Configuration c = configs.get(name(row, column));
+    Interface iface =
+        nf.interfaceBuilder()
+            .setOwner(c)
+            .setVrf(c.getDefaultVrf())
+            .setName("to-" + peer)
+            .setAddress(ConcreteInterfaceAddress.create(ip, Prefix.MAX_PREFIX_LENGTH - 1))
+            .setOspfSettings(
+                OspfInterfaceSettings.defaultSettingsBuilder()
+                    .setProcess("1")
+                    .setCost(cost)
+                    .setNetworkType(OspfNetworkType.POINT_TO_POINT)
+                    .setAreaName(area)
+                    .build())
+            .build();
+    area(nf, areas, c.getDefaultVrf().getOspfProcesses().get("1"), row, column, area)
+        .addInterface(iface.getName());
+  }
+
+  private static ComputeDataPlaneResult computeDataPlane(boolean ospfSpf) {
+    SortedMap<String, Configuration> configs = ospfGrid();
+    IncrementalDataPlaneSettings settings = new IncrementalDataPlaneSettings();
+    settings.getConfig().setProperty(PROP_OSPF_SPF, ospfSpf);
+    IncrementalBdpEngine engine = new IncrementalBdpEngine(settings);
+    OspfTopologyUtils.initNeighborConfigs(NetworkConfigurations.of(configs));
+    Topology topology = TopologyUtil.synthesizeL3Topology(configs);
+    return engine.computeDataPlane(
+        configs,
+        TopologyContext.builder()
+            .setLayer3Topology(topology)
+            .setOspfTopology(computeOspfTopology(NetworkConfigurations.of(configs), topology))
+            .build(),
+        ImmutableSet.of());
+  }
+
+  private static SortedMap<String, SortedMap<String, Set<AbstractRoute>>> getRoutes(
+      ComputeDataPlaneResult result) {
+    return IncrementalBdpEngine.getRoutes((IncrementalDataPlane) result._dataPlane);
+  }
+
+  private static int getOspfInternalIterations(ComputeDataPlaneResult result) {
+    return ((IncrementalBdpAnswerElement) result._answerElement).getOspfInternalIterations();
+  }
+
+  @Test
+  public void testOspfSpfMatchesMessagePassing() {
+    ComputeDataPlaneResult spf = computeDataPlane(true);
+    ComputeDataPlaneResult messagePassing = computeDataPlane(false);
+    SortedMap<String, SortedMap<String, Set<AbstractRoute>>> routes = getRoutes(spf);
+
+    assertThat(
+        routes.get(name(0, 0)).get(DEFAULT_VRF_NAME), hasItem(hasPrefix(loopback(1, SIZE - 1))));
+    assertThat(
+        routes.get(name(0, 0)).get(DEFAULT_VRF_NAME),
+        hasItem(allOf(hasPrefix(loopback(SIZE - 1, SIZE - 1)), hasProtocol(OSPF_IA))));
+    assertThat(
+        routes.get(name(SIZE - 1, 0)).get(DEFAULT_VRF_NAME),
+        hasItem(allOf(hasPrefix(loopback(0, SIZE - 1)), hasProtocol(OSPF_IA))));
+    assertThat(routes, equalTo(getRoutes(messagePassing)));
+    assertThat(getOspfInternalIterations(spf), lessThan(getOspfInternalIterations(messagePassing)));
+  }
+
+  @Test
+  public void testOspfSpfDefaultOff() {
+    assertThat(new IncrementalDataPlaneSettings().getOspfSpf(), equalTo(false));
+  }
+}
@@ -1185,6 +1185,62 @@ public class Bgpv4RibTest {
     }
   }
 
+  @Test
+  public void testBgpRouteReactivation() {
+    Ip nhip = Ip.parse("1.1.1.1");
+    Bgpv4Route dependentRoute =
+        Bgpv4Route.testBuilder()
+            .setNetwork(Prefix.parse("5.0.0.0/8"))
+            .setNextHop(NextHopIp.of(nhip))
+            .build();
+    AnnotatedRoute<AbstractRoute> resolvingRoute =
+        new AnnotatedRoute<>(
+            StaticRoute.testBuilder().setNetwork(nhip.toPrefix()).build(), "default");
+    AnnotatedRoute<AbstractRoute> coveringRoute =
+        new AnnotatedRoute<>(
+            StaticRoute.testBuilder().setNetwork(Prefix.parse("1.0.0.0/8")).build(), "default");
+    Rib mainRib = new Rib();
+    mainRib.mergeRoute(resolvingRoute);
+    Bgpv4Rib bgpRib =
+        new Bgpv4Rib(
+            mainRib,
+            BgpTieBreaker.ARRIVAL_ORDER,
+            1,
+            null,
+            false,
+            LocalOriginationTypeTieBreaker.NO_PREFERENCE,
+            NextHopIpTieBreaker.HIGHEST_NEXT_HOP_IP,
+            NextHopIpTieBreaker.HIGHEST_NEXT_HOP_IP);
+    bgpRib.mergeRoute(dependentRoute);
+
+    // A less specific route does not change resolvability, so no route is touched
+    assertThat(
+        bgpRib.updateActiveRoutes(mainRib.mergeRouteGetDelta(coveringRoute)).getMultipathDelta(),
+        equalTo(RibDelta.empty()));
+    // The NHIP remains resolvable through the covering route
+    assertThat(
+        bgpRib.updateActiveRoutes(mainRib.removeRouteGetDelta(resolvingRoute)).getMultipathDelta(),
+        equalTo(RibDelta.empty()));
+    assertThat(bgpRib.getNextHopResolutionChanges(), equalTo(0));
+
+    // Deactivated once the NHIP is unresolvable, and reactivated once it is resolvable again
+    assertThat(
+        bgpRib.updateActiveRoutes(mainRib.removeRouteGetDelta(coveringRoute)).getMultipathDelta(),
+        equalTo(RibDelta.of(RouteAdvertisement.withdrawing(dependentRoute))));
+    assertThat(bgpRib.getTypedRoutes(), empty());
+    assertThat(
+        bgpRib.updateActiveRoutes(mainRib.mergeRouteGetDelta(resolvingRoute)).getMultipathDelta(),
+        equalTo(RibDelta.adding(dependentRoute)));
+    assertThat(bgpRib.getTypedRoutes(), contains(dependentRoute));
+    assertThat(bgpRib.getNextHopResolutionChanges(), equalTo(2));
+
+    // Withdrawn routes are no longer tracked
+    bgpRib.removeRoute(dependentRoute);
+    mainRib.removeRoute(resolvingRoute);
+    bgpRib.updateActiveRoutes(mainRib.mergeRouteGetDelta(resolvingRoute));
+    assertThat(bgpRib.getTypedRoutes(), empty());
+  }
+
   @Test
   public void testRedistributeRoutes() {
     Ip lowestNhip = Ip.parse("10.0.0.1");
@@ -31,6 +31,32 @@ public class RibTest {
     assertThat(new Rib().getRoutes(), empty());
   }
 
+  @Test
+  public void testRoutesHashCode() {
+    Rib rib = new Rib();
+    StaticRoute.Builder sb =
+        StaticRoute.testBuilder().setNextHopInterface("foo").setNetwork(Prefix.ZERO);
+    AnnotatedRoute<AbstractRoute> worse = annotateRoute(sb.setAdministrativeCost(101).build());
+    AnnotatedRoute<AbstractRoute> better = annotateRoute(sb.setAdministrativeCost(100).build());
+    AnnotatedRoute<AbstractRoute> other =
+        annotateRoute(sb.setNetwork(Prefix.parse("1.0.0.0/8")).build());
+
+    assertThat(rib.getRoutesHashCode(), equalTo(rib.getTypedRoutes().hashCode()));
+    rib.mergeRoute(worse);
+    rib.mergeRoute(other);
+    assertThat(rib.getRoutesHashCode(), equalTo(rib.getTypedRoutes().hashCode()));
+    // replaces the worse route, which is kept as a backup
+    rib.mergeRoute(better);
+    assertThat(rib.getTypedRoutes(), containsInAnyOrder(better, other));
+    assertThat(rib.getRoutesHashCode(), equalTo(rib.getTypedRoutes().hashCode()));
+    // restores the backup route
+    rib.removeRoute(better);
+    assertThat(rib.getTypedRoutes(), containsInAnyOrder(worse, other));
+    assertThat(rib.getRoutesHashCode(), equalTo(rib.getTypedRoutes().hashCode()));
+    rib.clear();
+    assertThat(rib.getRoutesHashCode(), equalTo(0));
+  }
+
   @Test
   public void testNonRoutingIsNotInstalled() {
     Rib rib = new Rib();
@@ -2,6 +2,7 @@ package org.batfish.main;
 
 import static java.nio.charset.StandardCharsets.UTF_8;
 import static org.batfish.common.BfConsts.RELPATH_AWS_CONFIGS_FILE;
+import static org.batfish.common.BfConsts.RELPATH_NODE_BLACKLIST_FILE;
 import static org.batfish.common.matchers.ThrowableMatchers.hasStackTrace;
 import static org.batfish.common.matchers.WarningMatchers.hasText;
 import static org.batfish.common.matchers.WarningsMatchers.hasRedFlag;
@@ -24,10 +25,12 @@ import static org.hamcrest.Matchers.containsString;
 import static org.hamcrest.Matchers.equalTo;
 import static org.hamcrest.Matchers.hasKey;
 import static org.hamcrest.Matchers.hasSize;
+import static org.hamcrest.Matchers.instanceOf;
 import static org.hamcrest.Matchers.is;
 import static org.hamcrest.Matchers.notNullValue;
 import static org.hamcrest.Matchers.nullValue;
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertNotNull;
 import static org.junit.Assert.assertThat;
 import static org.junit.Assert.assertTrue;
@@ -37,6 +40,7 @@ import com.google.common.collect.ImmutableMap;
 import com.google.common.collect.ImmutableSet;
 import com.google.common.collect.ImmutableSortedMap;
 import com.google.common.collect.ImmutableSortedSet;
+import java.io.ByteArrayInputStream;
 import java.io.FileNotFoundException;
 import java.io.IOException;
 import java.io.InputStream;
@@ -99,6 +103,8 @@ import org.batfish.identifiers.NetworkId;
 import org.batfish.identifiers.QuestionId;
 import org.batfish.identifiers.TestIdResolver;
 import org.batfish.job.ParseVendorConfigurationResult;
+import org.batfish.storage.FileBasedStorage;
+import org.batfish.storage.StorageProvider;
 import org.batfish.storage.TestStorageProvider;
 import org.batfish.vendor.VendorConfiguration;
 import org.junit.Rule;
@@ -266,6 +272,56 @@ public class BatfishTest {
         containsInAnyOrder("Ethernet1", "Ethernet2"));
   }
 
+  @Test
+  public void testLoadConfigurationsStoresPostProcessedConfigurations() throws Exception {
+    String snapshotResourcePrefix = "org/batfish/main/snapshots/interface_blacklist";
+    Batfish batfish =
+        BatfishTestUtils.getBatfishFromTestrigText(
+            TestrigText.builder()
+                .setConfigurationFiles(snapshotResourcePrefix, "rtr1")
+                .setRuntimeDataPrefix(snapshotResourcePrefix)
+                .build(),
+            _folder);
+    batfish.loadConfigurations(batfish.getSnapshot()).get("rtr1");
+    batfish.awaitPostProcessedConfigurationsStored();
+
+    // The stored copy already has the runtime data applied
+    StorageProvider storage =
+        new FileBasedStorage(batfish.getSettings().getStorageBase(), batfish.getLogger());
+    Configuration postProcessed =
+        storage.loadPostProcessedConfiguration(
+            batfish.getSnapshot(), batfish.postProcessingKey(), "rtr1");
+    assertThat(postProcessed, notNullValue());
+    assertFalse(postProcessed.getAllInterfaces().get("Ethernet0").getActive());
+    assertTrue(postProcessed.getAllInterfaces().get("Ethernet1").getActive());
+  }
+
+  @Test
+  public void testLoadConfigurationsLazilyAppliesNodeBlacklist() throws IOException {
+    String snapshotResourcePrefix = "org/batfish/main/snapshots/interface_blacklist";
+    Batfish batfish =
+        BatfishTestUtils.getBatfishFromTestrigText(
+            TestrigText.builder().setConfigurationFiles(snapshotResourcePrefix, "rtr1").build(),
+            _folder);
+    NetworkSnapshot snapshot = batfish.getSnapshot();
+    StorageProvider storage =
+        new FileBasedStorage(batfish.getSettings().getStorageBase(), batfish.getLogger());
+    storage.storeSnapshotInputObject(
+        new ByteArrayInputStream("[\"rtr1\"]".getBytes(UTF_8)),
+        RELPATH_NODE_BLACKLIST_FILE,
+        snapshot);
+
+    // Parse and store the configurations, then load them on a worker that has not seen them yet
+    batfish.loadConfigurations(snapshot);
+    SortedMap<String, Configuration> configurations =
+        BatfishTestUtils.getBatfishWithEmptyCaches(batfish).loadConfigurations(snapshot);
+
+    assertThat(configurations, instanceOf(LazyConfigurations.class));
+    assertThat(
+        configurations.get("rtr1").getAllInterfaces().get("Ethernet1"),
+        hasInactiveReason(NODE_DOWN));
+  }
+
   @Test
   public void testInitSnapshotWithEnvironmentBgpTables() throws IOException {
     /* Setup: Config rtr1 has associated environment BGP tables. */
@@ -155,6 +155,25 @@ public class BatfishTestUtils {
     return batfish;
   }
 
+  /**
+   * Get a new Batfish instance for the same storage and snapshots as {@code batfish}, but with
+   * empty caches, like a worker that has not loaded any snapshot yet.
+   */
+  public static Batfish getBatfishWithEmptyCaches(Batfish batfish) {
+    Settings settings = batfish.getSettings();
+    Batfish ret =
+        new Batfish(
+            settings,
+            makeTestrigCache(),
+            makeDataPlaneCache(),
+            makeEnvBgpCache(),
+            makeVendorConfigurationCache(),
+            null,
+            new TestStorageBasedIdResolver(settings.getStorageBase()));
+    registerDataPlanePlugins(ret);
+    return ret;
+  }
+
   private static void registerDataPlanePlugins(Batfish batfish) {
     IncrementalDataPlanePlugin ibdpPlugin = new IncrementalDataPlanePlugin();
     ibdpPlugin.initialize(batfish);
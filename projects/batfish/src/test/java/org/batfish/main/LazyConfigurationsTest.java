@@ -0,0 +1,132 @@
+package org.batfish.main;
+
+import static org.hamcrest.Matchers.contains;
+import static org.hamcrest.Matchers.empty;
+import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.nullValue;
+import static org.hamcrest.Matchers.sameInstance;
+import static org.junit.Assert.assertThat;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.ImmutableSet;
+import com.google.common.util.concurrent.Uninterruptibles;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.batfish.datamodel.Configuration;
+import org.batfish.datamodel.ConfigurationFormat;
+import org.junit.Before;
+import org.junit.Test;
+
+/** Tests of {@link LazyConfigurations}. */
+public final class LazyConfigurationsTest {
+
+  private List<String> _loaded;
+  private List<Set<String>> _batches;
+  private LazyConfigurations _configurations;
+
+  private static Configuration configuration(String hostname) {
+    return new Configuration(hostname, ConfigurationFormat.CISCO_IOS);
+  }
+
+  @Before
+  public void setup() {
+    _loaded = new ArrayList<>();
+    _batches = new ArrayList<>();
+    _configurations =
+        new LazyConfigurations(
+            ImmutableSet.of("c", "a", "b"),
+            hostname -> {
+              _loaded.add(hostname);
+              return configuration(hostname);
+            },
+            hostnames -> {
+              _batches.add(hostnames);
+              return hostnames.stream()
+                  .collect(
+                      ImmutableMap.toImmutableMap(
+                          hostname -> hostname, LazyConfigurationsTest::configuration));
+            });
+  }
+
+  @Test
+  public void testKeysDoNotLoad() {
+    assertThat(_configurations.keySet(), contains("a", "b", "c"));
+    assertThat(_configurations.size(), equalTo(3));
+    assertThat(_configurations.containsKey("b"), equalTo(true));
+    assertThat(_configurations.containsKey("d"), equalTo(false));
+    assertThat(_configurations.firstKey(), equalTo("a"));
+    assertThat(_configurations.lastKey(), equalTo("c"));
+    assertThat(_configurations.getLoadedHostnames(), empty());
+  }
+
+  @Test
+  public void testGetLoadsOnce() {
+    Configuration b = _configurations.get("b");
+
+    assertThat(b.getHostname(), equalTo("b"));
+    assertThat(_configurations.get("b"), sameInstance(b));
+    assertThat(_configurations.get("d"), nullValue());
+    assertThat(_loaded, contains("b"));
+    assertThat(_configurations.getLoadedHostnames(), contains("b"));
+  }
+
+  @Test
+  public void testConcurrentGetsLoadOnce() throws Exception {
+    AtomicInteger loads = new AtomicInteger();
+    LazyConfigurations configurations =
+        new LazyConfigurations(
+            ImmutableSet.of("a"),
+            hostname -> {
+              loads.incrementAndGet();
+              Uninterruptibles.sleepUninterruptibly(50, TimeUnit.MILLISECONDS);
+              return configuration(hostname);
+            },
+            hostnames -> {
+              throw new AssertionError("unexpected batch load");
+            });
+    CountDownLatch start = new CountDownLatch(1);
+    ExecutorService executor = Executors.newFixedThreadPool(4);
+    try {
+      List<Future<Configuration>> gets = new ArrayList<>();
+      for (int i = 0; i < 4; i++) {
+        gets.add(
+            executor.submit(
+                () -> {
+                  start.await();
+                  return configurations.get("a");
+                }));
+      }
+      start.countDown();
+      Configuration a = gets.get(0).get();
+      for (Future<Configuration> get : gets) {
+        assertThat(get.get(), sameInstance(a));
+      }
+    } finally {
+      executor.shutdown();
+    }
+    assertThat(loads.get(), equalTo(1));
+  }
+
+  @Test
+  public void testValuesLoadMissingInOneBatch() {
+    Configuration b = _configurations.get("b");
+
+    assertThat(
+        ImmutableList.copyOf(_configurations.values()).stream()
+            .map(Configuration::getHostname)
+            .collect(ImmutableList.toImmutableList()),
+        contains("a", "b", "c"));
+    assertThat(_configurations.get("b"), sameInstance(b));
+    assertThat(_configurations.entrySet().size(), equalTo(3));
+    assertThat(_batches, contains(ImmutableSet.of("a", "c")));
+    assertThat(_loaded, contains("b"));
+  }
+}
@@ -548,6 +548,16 @@ public abstract class BDDFactory {
     return result;
   }
 
+  /**
+   * Copies a BDD built by another factory into this factory. Both factories must order the
+   * variables of the other factory the same way. This makes it possible to build BDDs concurrently
+   * in several factories, e.g. one per thread, and then combine the results in a single factory.
+   *
+   * @param bdd a BDD owned by any factory of the same kind as this one
+   * @return the equivalent BDD owned by this factory
+   */
+  public abstract BDD importBDD(BDD bdd);
+
   /**
    * Make a new BDDPairing object.
    *
@@ -33,6 +33,8 @@ import java.math.BigInteger;
 import java.util.Arrays;
 import java.util.BitSet;
 import java.util.Collection;
+import java.util.HashMap;
+import java.util.Map;
 import java.util.Random;
 import java.util.function.IntFunction;
 import java.util.function.Supplier;
@@ -4727,6 +4729,50 @@ public final class JFactory extends BDDFactory {
     bdd_setvarorder(neworder);
   }
 
+  @Override
+  public BDD importBDD(BDD bdd) {
+    if (!(bdd.getFactory() instanceof JFactory)) {
+      throw new BDDException("Cannot import a BDD from a " + bdd.getFactory().getClass());
+    }
+    JFactory src = (JFactory) bdd.getFactory();
+    if (src == this) {
+      return bdd.id();
+    }
+    if (src.bddvarnum > bddvarnum) {
+      throw new BDDException(
+          "Cannot import a BDD over " + src.bddvarnum + " variables into " + bddvarnum);
+    }
+    for (int var = 0; var < src.bddvarnum; var++) {
+      if (src.bddvar2level[var] != bddvar2level[var]) {
+        throw new BDDException("Cannot import a BDD with a different variable order");
+      }
+    }
+
+    // Imported nodes are referenced until the import is done, so that garbage collections
+    // triggered by bdd_makenode cannot reclaim them.
+    Map<Integer, Integer> imported = new HashMap<>();
+    int res = import_rec(src, ((BDDImpl) bdd)._index, imported);
+    BDD ret = makeBDD(res);
+    imported.values().forEach(this::bdd_delref);
+    checkresize();
+    return ret;
+  }
+
+  private int import_rec(JFactory src, int r, Map<Integer, Integer> imported) {
+    if (ISCONST(r)) {
+      return r;
+    }
+    Integer cached = imported.get(r);
+    if (cached != null) {
+      return cached;
+    }
+    int low = import_rec(src, src.LOW(r), imported);
+    int high = import_rec(src, src.HIGH(r), imported);
+    int res = bdd_addref(bdd_makenode(src.LEVEL(r), low, high));
+    imported.put(r, res);
+    return res;
+  }
+
   private int[] extroots;
   private int extrootsize;
 
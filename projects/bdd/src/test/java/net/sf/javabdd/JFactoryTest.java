@@ -533,4 +533,48 @@ public class JFactoryTest {
     assertEquals(one, ite.project(_factory.ithVar(7)));
     assertEquals(one, ite.project(_factory.ithVar(9))); // last var
   }
+
+  @Test
+  public void testImportBDD() {
+    _factory.setVarNum(16);
+    JFactory other = (JFactory) JFactory.init(100, 100);
+    other.setVarNum(16);
+
+    BDD expected = _factory.zero();
+    BDD toImport = other.zero();
+    for (int i = 0; i < 16; i += 2) {
+      expected = expected.or(_factory.ithVar(i).xor(_factory.ithVar(i + 1)));
+      toImport = toImport.or(other.ithVar(i).xor(other.ithVar(i + 1)));
+    }
+
+    BDD imported = _factory.importBDD(toImport);
+    assertThat(imported.getFactory(), equalTo(_factory));
+    assertThat(imported, equalTo(expected));
+    assertThat(_factory.importBDD(other.one()), equalTo(_factory.one()));
+    assertThat(_factory.importBDD(other.zero()), equalTo(_factory.zero()));
+  }
+
+  @Test
+  public void testImportBDDSurvivesGarbageCollection() {
+    // A tiny node table forces garbage collections and resizes while importing.
+    JFactory small = (JFactory) JFactory.init(10, 10);
+    small.setVarNum(32);
+    _factory.setVarNum(32);
+
+    BDD toImport = _factory.zero();
+    for (int i = 0; i < 32; i += 2) {
+      toImport = toImport.or(_factory.ithVar(i).and(_factory.nithVar(i + 1)));
+    }
+    BDD imported = small.importBDD(toImport);
+    assertThat(_factory.importBDD(imported), equalTo(toImport));
+  }
+
+  @Test(expected = BDDException.class)
+  public void testImportBDDDifferentVarOrder() {
+    _factory.setVarNum(2);
+    JFactory other = (JFactory) JFactory.init(100, 100);
+    other.setVarNum(2);
+    other.setVarOrder(new int[] {1, 0});
+    _factory.importBDD(other.ithVar(0));
+  }
 }
@@ -0,0 +1,305 @@
+package org.batfish.coordinator;
+
+import static com.google.common.base.Preconditions.checkState;
+
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.util.TokenBuffer;
+import com.google.common.collect.ImmutableList;
+import java.io.IOException;
+import java.util.List;
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+import javax.annotation.ParametersAreNonnullByDefault;
+import org.batfish.common.AnswerRowsOptions;
+import org.batfish.common.BfConsts;
+import org.batfish.common.ColumnFilter;
+import org.batfish.common.util.BatfishObjectMapper;
+import org.batfish.datamodel.answers.Answer;
+import org.batfish.datamodel.answers.AnswerElement;
+import org.batfish.datamodel.answers.AnswerStatus;
+import org.batfish.datamodel.answers.AnswerSummary;
+import org.batfish.datamodel.questions.Question;
+import org.batfish.datamodel.table.Row;
+import org.batfish.datamodel.table.TableAnswerElement;
+import org.batfish.datamodel.table.TableMetadata;
+
+/**
+ * Reads a JSON-serialized {@link Answer} with a streaming {@link JsonParser}, keeping only the
+ * table rows needed to serve an {@link AnswerRowsOptions} request.
+ *
+ * <p>Rows of a table answer are parsed one at a time and dropped unless they match the filters of
+ * the request. If the request neither sorts nor deduplicates rows, only the matching rows on the
+ * requested page are kept.
+ */
+@ParametersAreNonnullByDefault
+final class AnswerRowsReader {
+
+  /** The rows of a table that match the filters of an {@link AnswerRowsOptions}. */
+  static final class FilteredRows {
+
+    /** Returns the rows of {@code table} that match the filters of {@code options}. */
+    static @Nonnull FilteredRows of(TableAnswerElement table, AnswerRowsOptions options) {
+      RowCollector collector = new RowCollector(options);
+      table.getRows().iterator().forEachRemaining(collector::add);
+      return collector.build(table.getMetadata(), table.getSummary());
+    }
+
+    private final @Nonnull TableMetadata _metadata;
+    private final @Nullable AnswerSummary _summary;
+    private final @Nonnull List<Row> _rows;
+    private final @Nonnull List<Integer> _rowIds;
+    private final int _numResults;
+    private final int _numSkipped;
+
+    private FilteredRows(
+        TableMetadata metadata,
+        @Nullable AnswerSummary summary,
+        List<Row> rows,
+        List<Integer> rowIds,
+        int numResults,
+        int numSkipped) {
+      _metadata = metadata;
+      _summary = summary;
+      _rows = rows;
+      _rowIds = rowIds;
+      _numResults = numResults;
+      _numSkipped = numSkipped;
+    }
+
+    @Nonnull
+    TableMetadata getMetadata() {
+      return _metadata;
+    }
+
+    /** The summary of the original table. */
+    @Nullable
+    AnswerSummary getSummary() {
+      return _summary;
+    }
+
+    /** The kept matching rows, in table order. */
+    @Nonnull
+    List<Row> getRows() {
+      return _rows;
+    }
+
+    /** The index in the original table of each of the kept rows. */
+    @Nonnull
+    List<Integer> getRowIds() {
+      return _rowIds;
+    }
+
+    /** The number of matching rows, including those that were not kept. */
+    int getNumResults() {
+      return _numResults;
+    }
+
+    /** The number of matching rows that were dropped before the first kept row. */
+    int getNumSkipped() {
+      return _numSkipped;
+    }
+  }
+
+  /** An {@link Answer} whose first element, if it is a table, is read as {@link FilteredRows}. */
+  static final class FilteredAnswer {
+    private final @Nonnull Answer _answer;
+    private final @Nullable FilteredRows _table;
+
+    private FilteredAnswer(Answer answer, @Nullable FilteredRows table) {
+      _answer = answer;
+      _table = table;
+    }
+
+    /** The answer, without its first element if that is a table. */
+    @Nonnull
+    Answer getAnswer() {
+      return _answer;
+    }
+
+    /** The rows of the first element of the answer, or {@code null} if it is not a table. */
+    @Nullable
+    FilteredRows getTable() {
+      return _table;
+    }
+  }
+
+  /**
+   * Reads the answer at the current position of {@code parser}, keeping only the rows of its first
+   * element, if it is a table, that are needed to serve {@code options}.
+   */
+  static @Nonnull FilteredAnswer read(JsonParser parser, AnswerRowsOptions options)
+      throws IOException {
+    Answer answer = new Answer();
+    FilteredRows table = null;
+    expect(parser.nextToken(), JsonToken.START_OBJECT);
+    while (parser.nextToken() == JsonToken.FIELD_NAME) {
+      String field = parser.getCurrentName();
+      parser.nextToken();
+      switch (field) {
+        case BfConsts.PROP_ANSWER_ELEMENTS:
+          expect(parser.currentToken(), JsonToken.START_ARRAY);
+          if (parser.nextToken() == JsonToken.END_ARRAY) {
+            break;
+          }
+          if (isTable(parser)) {
+            table = readTable(parser, options);
+          } else {
+            answer.addAnswerElement(readRestOfAnswerElement(parser));
+          }
+          while (parser.nextToken() != JsonToken.END_ARRAY) {
+            answer.addAnswerElement(MAPPER.readValue(parser, AnswerElement.class));
+          }
+          break;
+        case BfConsts.PROP_QUESTION:
+          answer.setQuestion(MAPPER.readValue(parser, Question.class));
+          break;
+        case BfConsts.PROP_STATUS:
+          answer.setStatus(MAPPER.readValue(parser, AnswerStatus.class));
+          break;
+        case BfConsts.PROP_SUMMARY:
+          answer.setSummary(MAPPER.readValue(parser, AnswerSummary.class));
+          break;
+        default:
+          parser.skipChildren();
+      }
+    }
+    return new FilteredAnswer(answer, table);
+  }
+
+  private static final ObjectMapper MAPPER = BatfishObjectMapper.mapper();
+
+  /** Name of the property holding the class of an {@link AnswerElement}. */
+  private static final String PROP_CLASS = "class";
+
+  private static final String PROP_METADATA = "metadata";
+
+  private static final String PROP_ROWS = "rows";
+
+  private static final String PROP_SUMMARY = "summary";
+
+  /**
+   * Returns whether the answer element at the current position of {@code parser} is a {@link
+   * TableAnswerElement}, consuming its type property if so. Jackson writes the type property first,
+   * so anything else is read as a generic answer element.
+   */
+  private static boolean isTable(JsonParser parser) throws IOException {
+    expect(parser.currentToken(), JsonToken.START_OBJECT);
+    return parser.nextToken() == JsonToken.FIELD_NAME
+        && parser.getCurrentName().equals(PROP_CLASS)
+        && parser.nextToken() == JsonToken.VALUE_STRING
+        && parser.getText().equals(TableAnswerElement.class.getName());
+  }
+
+  /**
+   * Reads the rest of an answer element whose start {@link #isTable} has consumed, replaying what
+   * it consumed from a buffer.
+   */
+  private static @Nonnull AnswerElement readRestOfAnswerElement(JsonParser parser)
+      throws IOException {
+    TokenBuffer buffer = new TokenBuffer(parser);
+    buffer.writeStartObject();
+    JsonToken token = parser.currentToken();
+    if (token == JsonToken.FIELD_NAME) {
+      // the first property is not the type property
+      buffer.copyCurrentStructure(parser);
+    } else if (token != JsonToken.END_OBJECT) {
+      // the value of the type property
+      buffer.writeFieldName(PROP_CLASS);
+      buffer.copyCurrentStructure(parser);
+    }
+    if (token != JsonToken.END_OBJECT) {
+      while (parser.nextToken() == JsonToken.FIELD_NAME) {
+        buffer.copyCurrentStructure(parser);
+      }
+    }
+    buffer.writeEndObject();
+    return MAPPER.readValue(buffer.asParser(), AnswerElement.class);
+  }
+
+  /** Reads the properties of a {@link TableAnswerElement} after its type property. */
+  private static @Nonnull FilteredRows readTable(JsonParser parser, AnswerRowsOptions options)
+      throws IOException {
+    RowCollector collector = new RowCollector(options);
+    TableMetadata metadata = null;
+    AnswerSummary summary = null;
+    while (parser.nextToken() == JsonToken.FIELD_NAME) {
+      String field = parser.getCurrentName();
+      parser.nextToken();
+      switch (field) {
+        case PROP_METADATA:
+          metadata = MAPPER.readValue(parser, TableMetadata.class);
+          break;
+        case PROP_ROWS:
+          expect(parser.currentToken(), JsonToken.START_ARRAY);
+          while (parser.nextToken() != JsonToken.END_ARRAY) {
+            collector.add(MAPPER.readValue(parser, Row.class));
+          }
+          break;
+        case PROP_SUMMARY:
+          summary = MAPPER.readValue(parser, AnswerSummary.class);
+          break;
+        default:
+          parser.skipChildren();
+      }
+    }
+    checkState(metadata != null, "Table answer element is missing its metadata");
+    return collector.build(metadata, summary);
+  }
+
+  private static void expect(@Nullable JsonToken actual, JsonToken expected) throws IOException {
+    if (actual != expected) {
+      throw new IOException(String.format("Expected %s but found %s", expected, actual));
+    }
+  }
+
+  /** Collects the rows of a table that match the filters of an {@link AnswerRowsOptions}. */
+  private static final class RowCollector {
+    private final @Nonnull List<ColumnFilter> _filters;
+    private final long _firstKept;
+    private final long _lastKept;
+    private final @Nonnull ImmutableList.Builder<Row> _rows;
+    private final @Nonnull ImmutableList.Builder<Integer> _rowIds;
+    private int _numRows;
+    private int _numResults;
+
+    private RowCollector(AnswerRowsOptions options) {
+      _filters = options.getFilters();
+      if (options.getSortOrder().isEmpty() && !options.getUniqueRows()) {
+        // the page is known before all rows are read
+        _firstKept = options.getRowOffset();
+        _lastKept = (long) options.getRowOffset() + options.getMaxRows();
+      } else {
+        _firstKept = 0;
+        _lastKept = Long.MAX_VALUE;
+      }
+      _rows = ImmutableList.builder();
+      _rowIds = ImmutableList.builder();
+    }
+
+    private void add(Row row) {
+      int rowId = _numRows++;
+      if (!_filters.stream().allMatch(filter -> filter.matches(row))) {
+        return;
+      }
+      if (_numResults >= _firstKept && _numResults < _lastKept) {
+        _rows.add(row);
+        _rowIds.add(rowId);
+      }
+      _numResults++;
+    }
+
+    private @Nonnull FilteredRows build(TableMetadata metadata, @Nullable AnswerSummary summary) {
+      return new FilteredRows(
+          metadata,
+          summary,
+          _rows.build(),
+          _rowIds.build(),
+          _numResults,
+          (int) Math.min(_firstKept, _numResults));
+    }
+  }
+
+  private AnswerRowsReader() {}
+}
@@ -5,12 +5,14 @@ import static com.google.common.base.Preconditions.checkArgument;
 import static com.google.common.base.Strings.isNullOrEmpty;
 import static com.google.common.collect.Comparators.lexicographical;
 import static com.google.common.io.MoreFiles.createParentDirectories;
+import static java.nio.charset.StandardCharsets.UTF_8;
 import static java.util.Comparator.comparing;
 import static java.util.Comparator.naturalOrder;
 import static java.util.Comparator.nullsFirst;
 import static java.util.Objects.requireNonNull;
 import static java.util.stream.Collectors.toCollection;
 
+import com.fasterxml.jackson.core.JsonParser;
 import com.fasterxml.jackson.core.JsonProcessingException;
 import com.fasterxml.jackson.core.type.TypeReference;
 import com.google.common.annotations.VisibleForTesting;
@@ -22,6 +24,8 @@ import com.google.common.collect.ImmutableSet;
 import com.google.common.collect.ImmutableSortedMap;
 import com.google.common.collect.ImmutableSortedSet;
 import com.google.common.collect.Maps;
+import com.google.common.collect.Sets;
+import com.google.common.io.ByteStreams;
 import com.google.errorprone.annotations.MustBeClosed;
 import io.opentracing.References;
 import io.opentracing.Scope;
@@ -67,6 +71,8 @@ import java.util.concurrent.TimeUnit;
 import java.util.function.Function;
 import java.util.stream.Collectors;
 import java.util.stream.Stream;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipInputStream;
 import javax.annotation.Nonnull;
 import javax.annotation.Nullable;
 import javax.ws.rs.ProcessingException;
@@ -75,6 +81,7 @@ import javax.ws.rs.client.WebTarget;
 import javax.ws.rs.core.MediaType;
 import javax.ws.rs.core.Response;
 import org.apache.commons.io.FileUtils;
+import org.apache.commons.io.input.CloseShieldInputStream;
 import org.batfish.common.AnswerRowsOptions;
 import org.batfish.common.BatfishException;
 import org.batfish.common.BatfishLogger;
@@ -96,6 +103,8 @@ import org.batfish.common.util.NextHopComparator;
 import org.batfish.common.util.UnzipUtility;
 import org.batfish.common.util.WorkItemBuilder;
 import org.batfish.coordinator.AnalysisMetadataMgr.AnalysisType;
+import org.batfish.coordinator.AnswerRowsReader.FilteredAnswer;
+import org.batfish.coordinator.AnswerRowsReader.FilteredRows;
 import org.batfish.coordinator.WorkDetails.WorkType;
 import org.batfish.coordinator.WorkQueueMgr.QueueType;
 import org.batfish.coordinator.config.Settings;
@@ -794,10 +803,87 @@ public class WorkMgr extends AbstractCoordinator {
       @Nullable String referenceSnapshot,
       @Nullable String analysis)
       throws IOException {
-    String ansString = loadAnswer(network, snapshot, question, referenceSnapshot, analysis);
-    return ansString == null
-        ? null
-        : BatfishObjectMapper.mapper().readValue(ansString, Answer.class);
+    try (InputStream answer =
+        loadAnswer(network, snapshot, question, referenceSnapshot, analysis)) {
+      return answer == null ? null : BatfishObjectMapper.mapper().readValue(answer, Answer.class);
+    }
+  }
+
+  /**
+   * Get the answer for the specified question, keeping only the rows of its table selected by
+   * {@code options}. The stored answer is streamed, so rows that are not selected are never all in
+   * memory at once.
+   *
+   * @return the answer, or {@code null} if the question is not answered
+   * @throws IllegalArgumentException if the network, question, analysis, or snapshots cannot be
+   *     found
+   * @throws IOException if there are any other errors
+   */
+  public @Nullable Answer getFilteredAnswer(
+      String network,
+      String snapshot,
+      String question,
+      @Nullable String referenceSnapshot,
+      @Nullable String analysis,
+      AnswerRowsOptions options)
+      throws IOException {
+    try (InputStream answer =
+        loadAnswer(network, snapshot, question, referenceSnapshot, analysis)) {
+      if (answer == null) {
+        return null;
+      }
+      try (JsonParser parser = BatfishObjectMapper.mapper().getFactory().createParser(answer)) {
+        return filterAnswer(AnswerRowsReader.read(parser, options), options);
+      }
+    }
+  }
+
+  /**
+   * Get the answer for the specified question, processed by {@link #processAnswerRows(String,
+   * AnswerRowsOptions)}, streaming the stored answer.
+   */
+  public @Nonnull Answer getAnswerRows(
+      String network,
+      String snapshot,
+      String question,
+      @Nullable String referenceSnapshot,
+      @Nullable String analysis,
+      AnswerRowsOptions options) {
+    try (InputStream answer =
+        loadAnswer(network, snapshot, question, referenceSnapshot, analysis)) {
+      if (answer == null) {
+        return notAnsweredAnswer();
+      }
+      try (JsonParser parser = BatfishObjectMapper.mapper().getFactory().createParser(answer)) {
+        return processAnswerRows(parser, options);
+      }
+    } catch (IOException e) {
+      return answerLoadFailure(e, network, snapshot, question, referenceSnapshot, analysis);
+    }
+  }
+
+  /**
+   * Get the answer for the specified question, processed by {@link #processAnswerRows2(String,
+   * AnswerRowsOptions)}, streaming the stored answer.
+   */
+  public @Nonnull Answer getAnswerRows2(
+      String network,
+      String snapshot,
+      String question,
+      @Nullable String referenceSnapshot,
+      @Nullable String analysis,
+      AnswerRowsOptions options) {
+    try (InputStream answer =
+        loadAnswer(network, snapshot, question, referenceSnapshot, analysis)) {
+      if (answer == null) {
+        return notAnsweredAnswer();
+      }
+      try (JsonParser parser = BatfishObjectMapper.mapper().getFactory().createParser(answer)) {
+        return processAnswerRows2(parser, options);
+      }
+    } catch (IOException e) {
+      return answerLoadFailure(e, network, snapshot, question, referenceSnapshot, analysis);
+    }
   }
 
   /** Get the answer string for the specified question. */
@@ -808,36 +894,51 @@ public class WorkMgr extends AbstractCoordinator {
       @Nullable String referenceSnapshot,
       @Nullable String analysis)
       throws JsonProcessingException {
-    try {
-      String answer = loadAnswer(network, snapshot, question, referenceSnapshot, analysis);
+    try (InputStream answer =
+        loadAnswer(network, snapshot, question, referenceSnapshot, analysis)) {
       if (answer == null) {
-        Answer ans = Answer.failureAnswer("Not answered", null);
-        ans.setStatus(AnswerStatus.NOTFOUND);
-        return BatfishObjectMapper.writeString(ans);
+        return BatfishObjectMapper.writeString(notAnsweredAnswer());
       }
-      return answer;
+      return new String(ByteStreams.toByteArray(answer), UTF_8);
     } catch (IOException e) {
-      String message =
-          String.format(
-              "Could not get answer: network=%s, snapshot=%s, question=%s, referenceSnapshot=%s,"
-                  + " analysis=%s: %s",
-              network,
-              snapshot,
-              question,
-              referenceSnapshot,
-              analysis,
-              Throwables.getStackTraceAsString(e));
-      Answer ans = Answer.failureAnswer(message, null);
-      ans.setStatus(AnswerStatus.FAILURE);
-      return BatfishObjectMapper.writeString(ans);
+      return BatfishObjectMapper.writeString(
+          answerLoadFailure(e, network, snapshot, question, referenceSnapshot, analysis));
     }
   }
 
+  private static @Nonnull Answer notAnsweredAnswer() {
+    Answer ans = Answer.failureAnswer("Not answered", null);
+    ans.setStatus(AnswerStatus.NOTFOUND);
+    return ans;
+  }
+
+  private static @Nonnull Answer answerLoadFailure(
+      IOException e,
+      String network,
+      String snapshot,
+      String question,
+      @Nullable String referenceSnapshot,
+      @Nullable String analysis) {
+    String message =
+        String.format(
+            "Could not get answer: network=%s, snapshot=%s, question=%s, referenceSnapshot=%s,"
+                + " analysis=%s: %s",
+            network,
+            snapshot,
+            question,
+            referenceSnapshot,
+            analysis,
+            Throwables.getStackTraceAsString(e));
+    Answer ans = Answer.failureAnswer(message, null);
+    ans.setStatus(AnswerStatus.FAILURE);
+    return ans;
+  }
+
   /**
-   * Get the answer string for the specified question. Returns {@code null} if the question is not
-   * answered.
+   * Returns a stream of the serialized answer for the specified question, or {@code null} if the
+   * question is not answered. The caller is responsible for closing it.
    */
-  private @Nullable String loadAnswer(
+  private @Nullable InputStream loadAnswer(
       String network,
       String snapshot,
       String question,
@@ -1307,8 +1408,33 @@ public class WorkMgr extends AbstractCoordinator {
       boolean autoAnalyze,
       Instant creationTime,
       @Nullable SnapshotId parentSnapshotId) {
+    initSnapshot(
+        networkName,
+        snapshotName,
+        srcDir,
+        autoAnalyze,
+        creationTime,
+        parentSnapshotId,
+        _idManager.generateSnapshotId(),
+        ImmutableSet.of());
+  }
+
+  /**
+   * Initializes snapshot {@code snapshotId} from the files in {@code srcDir}, in addition to the
+   * input objects with keys {@code storedKeys} already stored for it without going through {@code
+   * srcDir}.
+   */
+  private void initSnapshot(
+      String networkName,
+      String snapshotName,
+      Path srcDir,
+      boolean autoAnalyze,
+      Instant creationTime,
+      @Nullable SnapshotId parentSnapshotId,
+      SnapshotId snapshotId,
+      Set<String> storedKeys) {
     Path subDir = getSnapshotSubdir(srcDir);
-    validateSnapshotDir(subDir);
+    validateSnapshotDir(subDir, storedKeys);
 
     moveRuntimeDataFile(subDir);
 
@@ -1326,7 +1452,6 @@ public class WorkMgr extends AbstractCoordinator {
     Optional<NetworkId> networkIdOpt = _idManager.getNetworkId(networkName);
     checkArgument(networkIdOpt.isPresent(), "Missing network '%s'", networkName);
     NetworkId networkId = networkIdOpt.get();
-    SnapshotId snapshotId = _idManager.generateSnapshotId();
 
     // Now that the directory exists, we must also create the metadata.
     try {
@@ -1337,7 +1462,9 @@ public class WorkMgr extends AbstractCoordinator {
     }
 
     // things look ok, now make the move
-    boolean bgpTables = false;
+    boolean bgpTables =
+        storedKeys.stream()
+            .anyMatch(key -> Paths.get(key).startsWith(BfConsts.RELPATH_ENVIRONMENT_BGP_TABLES));
     boolean roleData = false;
     boolean referenceLibraryData = false;
     for (Path subFile : subFileList) {
@@ -1406,12 +1533,13 @@ public class WorkMgr extends AbstractCoordinator {
   }
 
   /**
-   * Helper function to assert that the specified dir contains configs
+   * Helper function to assert that the specified dir or the already stored input objects contain
+   * configs
    *
    * @throws BatfishException when specified dir does not contain network configs dir, AWS configs
    *     dir, or a hosts dir
    */
-  private static void validateSnapshotDir(Path subDir) {
+  private static void validateSnapshotDir(Path subDir, Set<String> storedKeys) {
     // Confirm that at least one of the config subfolders is present
     List<Path> configPaths =
         ImmutableList.of(
@@ -1419,7 +1547,10 @@ public class WorkMgr extends AbstractCoordinator {
             subDir.resolve(BfConsts.RELPATH_CONFIGURATIONS_DIR),
             subDir.resolve(BfConsts.RELPATH_AWS_CONFIGS_DIR),
             subDir.resolve(BfConsts.RELPATH_SONIC_CONFIGS_DIR));
-    if (configPaths.stream().noneMatch(Files::exists)) {
+    if (configPaths.stream().noneMatch(Files::exists)
+        && storedKeys.stream()
+            .map(key -> subDir.resolve(Paths.get(key).getName(0)))
+            .noneMatch(configPaths::contains)) {
       Path srcDir = subDir.getParent();
       throw new BatfishException(
           String.format(
@@ -1456,6 +1587,15 @@ public class WorkMgr extends AbstractCoordinator {
 
   private static final int STREAMED_FILE_BUFFER_SIZE = 1024;
 
+  /** Keys of the input objects that {@link #forkSnapshot} may modify or delete. */
+  private static final Set<String> FORK_MODIFIED_INPUT_OBJECT_KEYS =
+      ImmutableSet.of(
+          BfConsts.RELPATH_RUNTIME_DATA_FILE,
+          Paths.get(BfConsts.RELPATH_BATFISH, BfConsts.RELPATH_RUNTIME_DATA_FILE).toString(),
+          BfConsts.RELPATH_INTERFACE_BLACKLIST_FILE,
+          BfConsts.RELPATH_EDGE_BLACKLIST_FILE,
+          BfConsts.RELPATH_NODE_BLACKLIST_FILE);
+
   private void writeStreamToFile(InputStream inputStream, Path outputFile) throws IOException {
     createParentDirectories(outputFile);
     try (OutputStream fileOutputStream = Files.newOutputStream(outputFile)) {
@@ -1504,25 +1644,27 @@ public class WorkMgr extends AbstractCoordinator {
     _storage.storeForkSnapshotRequest(
         BatfishObjectMapper.writeString(forkSnapshotBean), forkSnapshotKey, networkId);
 
-    // Copy baseSnapshot so initSnapshot will see a properly formatted upload
+    // Copy the base snapshot input objects modified below so initSnapshot will see a properly
+    // formatted upload. The other input objects are copied by the storage.
     Path newSnapshotInputsDir =
         CommonUtil.createTempDirectory("files_to_add").resolve(Paths.get(BfConsts.RELPATH_INPUT));
     if (!newSnapshotInputsDir.toFile().mkdirs()) {
       throw new BatfishException("Failed to create directory: '" + newSnapshotInputsDir + "'");
     }
 
-    try (Stream<String> baseInputObjectKeys =
+    Set<String> baseInputObjectKeys;
+    try (Stream<String> keys =
         _storage.listSnapshotInputObjectKeys(new NetworkSnapshot(networkId, baseSnapshotId))) {
-      baseInputObjectKeys.forEach(
-          key -> {
-            try (InputStream baseObjectStream =
-                _storage.loadSnapshotInputObject(networkId, baseSnapshotId, key)) {
-              writeStreamToFile(baseObjectStream, newSnapshotInputsDir.resolve(key));
-            } catch (IOException e) {
-              throw new UncheckedIOException(
-                  String.format("Unable to copy base snapshot input object with key: %s", key), e);
-            }
-          });
+      baseInputObjectKeys = keys.collect(ImmutableSet.toImmutableSet());
+    }
+    for (String key : Sets.intersection(FORK_MODIFIED_INPUT_OBJECT_KEYS, baseInputObjectKeys)) {
+      try (InputStream baseObjectStream =
+          _storage.loadSnapshotInputObject(networkId, baseSnapshotId, key)) {
+        writeStreamToFile(baseObjectStream, newSnapshotInputsDir.resolve(key));
+      } catch (IOException e) {
+        throw new UncheckedIOException(
+            String.format("Unable to copy base snapshot input object with key: %s", key), e);
+      }
     }
     // Write user-specified files to the forked snapshot input dir, overwriting existing ones
     if (forkSnapshotBean.zipFile != null) {
@@ -1577,15 +1719,37 @@ public class WorkMgr extends AbstractCoordinator {
         forkSnapshotBean.restoreNodes,
         new TypeReference<List<String>>() {});
 
+    // Inherit the base snapshot input objects that were neither modified nor overwritten
+    Set<String> newInputObjectKeys;
+    try (Stream<Path> newInputObjects = Files.walk(newSnapshotInputsDir)) {
+      newInputObjectKeys =
+          newInputObjects
+              .filter(Files::isRegularFile)
+              .map(path -> newSnapshotInputsDir.relativize(path).toString())
+              .collect(ImmutableSet.toImmutableSet());
+    }
+    Set<String> inheritedKeys =
+        baseInputObjectKeys.stream()
+            .filter(key -> !FORK_MODIFIED_INPUT_OBJECT_KEYS.contains(key))
+            .filter(key -> !newInputObjectKeys.contains(key))
+            .collect(ImmutableSet.toImmutableSet());
+
     // Use initSnapshot to handle creating metadata, etc.
     try {
+      SnapshotId snapshotId = _idManager.generateSnapshotId();
+      _storage.copySnapshotInputObjects(
+          new NetworkSnapshot(networkId, baseSnapshotId),
+          inheritedKeys,
+          new NetworkSnapshot(networkId, snapshotId));
       initSnapshot(
           networkName,
           snapshotName,
           newSnapshotInputsDir.getParent(),
           false,
           creationTime,
-          baseSnapshotId);
+          baseSnapshotId,
+          snapshotId,
+          inheritedKeys);
     } finally {
       FileUtils.deleteDirectory(newSnapshotInputsDir.toFile());
     }
@@ -2027,15 +2191,29 @@ public class WorkMgr extends AbstractCoordinator {
       throw new UncheckedIOException(e);
     }
 
+    // Store the files of the zip as it is read, only extracting those initSnapshot processes. If
+    // initialization fails, the stored files belong to no snapshot and are garbage collected.
+    SnapshotId snapshotId = _idManager.generateSnapshotId();
     Path unzipDir = CommonUtil.createTempDirectory("tr");
+    Set<String> storedKeys;
     try (InputStream zipStream = _storage.loadUploadSnapshotZip(uploadZipKey, networkId)) {
-      UnzipUtility.unzip(zipStream, unzipDir);
+      storedKeys =
+          storeSnapshotZip(zipStream, new NetworkSnapshot(networkId, snapshotId), unzipDir);
     } catch (IOException e) {
+      CommonUtil.deleteDirectory(unzipDir);
       throw new UncheckedIOException("Failed to extract uploaded zip", e);
     }
 
     try {
-      initSnapshot(networkName, snapshotName, unzipDir, autoAnalyze, creationTime);
+      initSnapshot(
+          networkName,
+          snapshotName,
+          unzipDir,
+          autoAnalyze,
+          creationTime,
+          null,
+          snapshotId,
+          storedKeys);
     } catch (Exception e) {
       throw new BatfishException(
           String.format("Error initializing snapshot: %s", e.getMessage()), e);
@@ -2046,6 +2224,79 @@ public class WorkMgr extends AbstractCoordinator {
     triggerGarbageCollection();
   }
 
+  /**
+   * Stores the files in the single top-level folder of the snapshot zip read from {@code zipStream}
+   * as input objects of {@code snapshot} while the zip is read, and returns their keys. Files
+   * modified or processed by {@link #initSnapshot}, and the top-level entries of the zip used to
+   * check its packaging, are extracted to {@code unzipDir} instead.
+   */
+  @VisibleForTesting
+  @Nonnull
+  Set<String> storeSnapshotZip(InputStream zipStream, NetworkSnapshot snapshot, Path unzipDir)
+      throws IOException {
+    ImmutableSet.Builder<String> storedKeys = ImmutableSet.builder();
+    String topLevelDir = null;
+    try (ZipInputStream zipIn = new ZipInputStream(zipStream)) {
+      for (ZipEntry entry = zipIn.getNextEntry(); entry != null; entry = zipIn.getNextEntry()) {
+        Path entryPath = getZipEntryPath(entry);
+        if (entryPath == null || IGNORED_PATHS.contains(entryPath.getName(0).toString())) {
+          continue;
+        }
+        if (entryPath.getNameCount() == 1 && !entry.isDirectory()) {
+          // A top-level file, which makes the packaging invalid
+          writeStreamToFile(zipIn, unzipDir.resolve(entryPath));
+          continue;
+        }
+        String topLevel = entryPath.getName(0).toString();
+        Files.createDirectories(unzipDir.resolve(topLevel));
+        if (topLevelDir == null) {
+          topLevelDir = topLevel;
+        }
+        if (!topLevel.equals(topLevelDir) || entry.isDirectory()) {
+          // Another top-level folder makes the packaging invalid, so its files need not be stored
+          continue;
+        }
+        String key = entryPath.subpath(1, entryPath.getNameCount()).toString();
+        if (isProcessedOnInit(key)) {
+          writeStreamToFile(zipIn, unzipDir.resolve(entryPath));
+        } else {
+          // the storage must not close the zip stream, which holds the remaining entries
+          _storage.storeSnapshotInputObject(new CloseShieldInputStream(zipIn), key, snapshot);
+          storedKeys.add(key);
+        }
+      }
+    }
+    return storedKeys.build();
+  }
+
+  /**
+   * Returns the normalized relative path of the given zip entry, or {@code null} if it is empty.
+   *
+   * @throws IOException if the entry is outside of the directory the zip is extracted to
+   */
+  private static @Nullable Path getZipEntryPath(ZipEntry entry) throws IOException {
+    // entry may start with '/', in which case it is still relative to the extraction directory
+    Path path = Paths.get(entry.getName().replaceFirst("^/+", "")).normalize();
+    if (path.toString().isEmpty()) {
+      return null;
+    }
+    if (path.startsWith("..")) {
+      throw new IOException(
+          String.format(
+              "Zip entry %s is outside of the extraction target directory", entry.getName()));
+    }
+    return path;
+  }
+
+  /**
+   * Whether the input object with the given key is modified or processed by {@link #initSnapshot},
+   * so must be in the directory it initializes the snapshot from.
+   */
+  private static boolean isProcessedOnInit(String key) {
+    return FORK_MODIFIED_INPUT_OBJECT_KEYS.contains(key)
+        || WELL_KNOWN_NETWORK_FILENAMES.contains(key);
+  }
+
   public boolean checkNetworkExists(String networkName) {
     Optional<NetworkId> networkIdOpt = _idManager.getNetworkId(networkName);
     if (!networkIdOpt.isPresent()) {
@@ -2076,15 +2327,24 @@ public class WorkMgr extends AbstractCoordinator {
       answer.setStatus(AnswerStatus.NOTFOUND);
       return answer;
     }
+    try (JsonParser parser = BatfishObjectMapper.mapper().getFactory().createParser(rawAnswerStr)) {
+      return processAnswerRows(parser, options);
+    } catch (IOException e) {
+      return Answer.failureAnswer(e.getMessage(), null);
+    }
+  }
+
+  private @Nonnull Answer processAnswerRows(JsonParser rawAnswerParser, AnswerRowsOptions options) {
     try {
-      Answer rawAnswer =
-          BatfishObjectMapper.mapper().readValue(rawAnswerStr, new TypeReference<Answer>() {});
+      FilteredAnswer filteredAnswer = AnswerRowsReader.read(rawAnswerParser, options);
+      Answer rawAnswer = filteredAnswer.getAnswer();
       // If the AnswerStatus is not SUCCESS, the answer cannot have any AnswerElements related to
       // actual answers (but, e.g., it might have a BatfishStackTrace). Return that as-is.
       if (rawAnswer.getStatus() != AnswerStatus.SUCCESS) {
         return rawAnswer;
       }
-      TableAnswerElement rawTable = (TableAnswerElement) rawAnswer.getAnswerElements().get(0);
+      FilteredRows rawTable = filteredAnswer.getTable();
+      checkArgument(rawTable != null, "Answer does not start with a table");
       Answer answer = new Answer();
       answer.setStatus(rawAnswer.getStatus());
       answer.addAnswerElement(processAnswerTable(rawTable, options));
@@ -2103,15 +2363,23 @@ public class WorkMgr extends AbstractCoordinator {
       answer.setStatus(AnswerStatus.NOTFOUND);
       return answer;
     }
+    try (JsonParser parser = BatfishObjectMapper.mapper().getFactory().createParser(rawAnswerStr)) {
+      return processAnswerRows2(parser, options);
+    } catch (IOException e) {
+      return Answer.failureAnswer(e.getMessage(), null);
+    }
+  }
+
+  private @Nonnull Answer processAnswerRows2(
+      JsonParser rawAnswerParser, AnswerRowsOptions options) {
     try {
-      Answer rawAnswer =
-          BatfishObjectMapper.mapper().readValue(rawAnswerStr, new TypeReference<Answer>() {});
+      FilteredAnswer filteredAnswer = AnswerRowsReader.read(rawAnswerParser, options);
       // If the AnswerStatus is not SUCCESS, the answer cannot have any AnswerElements related to
       // actual answers (but, e.g., it might have a BatfishStackTrace). Return that as-is.
-      if (rawAnswer.getStatus() != AnswerStatus.SUCCESS) {
-        return rawAnswer;
+      if (filteredAnswer.getAnswer().getStatus() != AnswerStatus.SUCCESS) {
+        return filteredAnswer.getAnswer();
       }
-      return filterAnswer(rawAnswer, options);
+      return filterAnswer(filteredAnswer, options);
     } catch (Exception e) {
       _logger.errorf(
           "Failed to convert answer string to Answer: %s\n", Throwables.getStackTraceAsString(e));
@@ -2120,7 +2388,8 @@ public class WorkMgr extends AbstractCoordinator {
   }
 
   /** Filter the supplied rawAnswer based on the options provided */
-  public Answer filterAnswer(Answer rawAnswer, AnswerRowsOptions options) {
+  @VisibleForTesting
+  Answer filterAnswer(Answer rawAnswer, AnswerRowsOptions options) {
     AnswerElement answerElement = rawAnswer.getAnswerElements().get(0);
     if (!(answerElement instanceof TableAnswerElement)) {
       return rawAnswer;
@@ -2132,23 +2401,34 @@ public class WorkMgr extends AbstractCoordinator {
     return answer;
   }
 
+  private @Nonnull Answer filterAnswer(FilteredAnswer rawAnswer, AnswerRowsOptions options) {
+    FilteredRows rawTable = rawAnswer.getTable();
+    if (rawTable == null) {
+      return rawAnswer.getAnswer();
+    }
+    Answer answer = new Answer();
+    answer.setStatus(rawAnswer.getAnswer().getStatus());
+    answer.addAnswerElement(processAnswerTable2(rawTable, options));
+    return answer;
+  }
+
   @VisibleForTesting
   @Nonnull
   TableAnswerElement processAnswerTable(TableAnswerElement rawTable, AnswerRowsOptions options) {
-    Map<String, ColumnMetadata> rawColumnMap = rawTable.getMetadata().toColumnMap();
-    List<Row> filteredRows =
-        rawTable.getRowsList().stream()
-            .filter(row -> options.getFilters().stream().allMatch(filter -> filter.matches(row)))
-            .collect(ImmutableList.toImmutableList());
+    return processAnswerTable(FilteredRows.of(rawTable, options), options);
+  }
 
-    Stream<Row> rowStream = filteredRows.stream();
+  private @Nonnull TableAnswerElement processAnswerTable(
+      FilteredRows filteredRows, AnswerRowsOptions options) {
+    Map<String, ColumnMetadata> rawColumnMap = filteredRows.getMetadata().toColumnMap();
+    Stream<Row> rowStream = filteredRows.getRows().stream();
     if (!options.getSortOrder().isEmpty()) {
       // sort using specified sort order
       rowStream = rowStream.sorted(buildComparator(rawColumnMap, options.getSortOrder()));
     }
     TableAnswerElement table;
     if (options.getColumns().isEmpty()) {
-      table = new TableAnswerElement(rawTable.getMetadata());
+      table = new TableAnswerElement(filteredRows.getMetadata());
     } else {
       // project to desired columns
       rowStream =
@@ -2159,38 +2439,44 @@ public class WorkMgr extends AbstractCoordinator {
           columnMap.values().stream().collect(ImmutableList.toImmutableList());
       table =
           new TableAnswerElement(
-              new TableMetadata(columnMetadata, rawTable.getMetadata().getTextDesc()));
+              new TableMetadata(columnMetadata, filteredRows.getMetadata().getTextDesc()));
     }
     if (options.getUniqueRows()) {
       // uniquify if desired
       rowStream = rowStream.distinct();
     }
     // offset, truncate, and add to table
-    rowStream.skip(options.getRowOffset()).limit(options.getMaxRows()).forEach(table::addRow);
-    table.setSummary(rawTable.getSummary() != null ? rawTable.getSummary() : new AnswerSummary());
-    table.getSummary().setNumResults(filteredRows.size());
+    rowStream
+        .skip(options.getRowOffset() - filteredRows.getNumSkipped())
+        .limit(options.getMaxRows())
+        .forEach(table::addRow);
+    table.setSummary(
+        filteredRows.getSummary() != null ? filteredRows.getSummary() : new AnswerSummary());
+    table.getSummary().setNumResults(filteredRows.getNumResults());
     return table;
   }
 
   @VisibleForTesting
   @Nonnull
   TableView processAnswerTable2(TableAnswerElement rawTable, AnswerRowsOptions options) {
+    return processAnswerTable2(FilteredRows.of(rawTable, options), options);
+  }
+
+  private @Nonnull TableView processAnswerTable2(
+      FilteredRows filteredRows, AnswerRowsOptions options) {
     Map<Row, Integer> rowIds = Maps.newIdentityHashMap();
-    CommonUtil.forEachWithIndex(rawTable.getRowsList(), (i, row) -> rowIds.put(row, i));
-    Map<String, ColumnMetadata> rawColumnMap = rawTable.getMetadata().toColumnMap();
-    List<Row> filteredRows =
-        rawTable.getRowsList().stream()
-            .filter(row -> options.getFilters().stream().allMatch(filter -> filter.matches(row)))
-            .collect(ImmutableList.toImmutableList());
+    CommonUtil.forEachWithIndex(
+        filteredRows.getRows(), (i, row) -> rowIds.put(row, filteredRows.getRowIds().get(i)));
+    Map<String, ColumnMetadata> rawColumnMap = filteredRows.getMetadata().toColumnMap();
 
-    Stream<Row> rowStream = filteredRows.stream();
+    Stream<Row> rowStream = filteredRows.getRows().stream();
     if (!options.getSortOrder().isEmpty()) {
       // sort using specified sort order
       rowStream = rowStream.sorted(buildComparator(rawColumnMap, options.getSortOrder()));
     }
     TableMetadata tableMetadata;
     if (options.getColumns().isEmpty()) {
-      tableMetadata = rawTable.getMetadata();
+      tableMetadata = filteredRows.getMetadata();
     } else {
       // project to desired columns
       rowStream =
@@ -2218,7 +2504,7 @@ public class WorkMgr extends AbstractCoordinator {
                       }));
       List<ColumnMetadata> columnMetadata =
           columnMap.values().stream().collect(ImmutableList.toImmutableList());
-      tableMetadata = new TableMetadata(columnMetadata, rawTable.getMetadata().getTextDesc());
+      tableMetadata = new TableMetadata(columnMetadata, filteredRows.getMetadata().getTextDesc());
     }
     if (options.getUniqueRows()) {
       // uniquify if desired
@@ -2229,14 +2515,14 @@ public class WorkMgr extends AbstractCoordinator {
         new TableView(
             options,
             rowStream
-                .skip(options.getRowOffset())
+                .skip(options.getRowOffset() - filteredRows.getNumSkipped())
                 .limit(options.getMaxRows())
                 .map(row -> new TableViewRow(rowIds.get(row), row))
                 .collect(ImmutableList.toImmutableList()),
             tableMetadata);
     tableView.setSummary(
-        rawTable.getSummary() != null ? rawTable.getSummary() : new AnswerSummary());
-    tableView.getSummary().setNumResults(filteredRows.size());
+        filteredRows.getSummary() != null ? filteredRows.getSummary() : new AnswerSummary());
+    tableView.getSummary().setNumResults(filteredRows.getNumResults());
     return tableView;
   }
 
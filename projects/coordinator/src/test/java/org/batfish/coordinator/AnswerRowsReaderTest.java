@@ -0,0 +1,142 @@
+package org.batfish.coordinator;
+
+import static org.hamcrest.Matchers.contains;
+import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.notNullValue;
+import static org.hamcrest.Matchers.nullValue;
+import static org.junit.Assert.assertThat;
+
+import com.fasterxml.jackson.core.JsonParser;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableSet;
+import java.io.IOException;
+import org.batfish.common.AnswerRowsOptions;
+import org.batfish.common.ColumnFilter;
+import org.batfish.common.ColumnSortOption;
+import org.batfish.common.util.BatfishObjectMapper;
+import org.batfish.coordinator.AnswerRowsReader.FilteredAnswer;
+import org.batfish.coordinator.AnswerRowsReader.FilteredRows;
+import org.batfish.datamodel.answers.Answer;
+import org.batfish.datamodel.answers.AnswerStatus;
+import org.batfish.datamodel.answers.Schema;
+import org.batfish.datamodel.answers.StringAnswerElement;
+import org.batfish.datamodel.table.ColumnMetadata;
+import org.batfish.datamodel.table.Row;
+import org.batfish.datamodel.table.TableAnswerElement;
+import org.batfish.datamodel.table.TableMetadata;
+import org.junit.Test;
+
+/** Tests of {@link AnswerRowsReader}. */
+public final class AnswerRowsReaderTest {
+
+  private static final String COLUMN = "col";
+
+  private static final Row ROW_A1 = Row.of(COLUMN, "a1");
+  private static final Row ROW_B1 = Row.of(COLUMN, "b1");
+  private static final Row ROW_A2 = Row.of(COLUMN, "a2");
+  private static final Row ROW_A3 = Row.of(COLUMN, "a3");
+
+  private static Answer tableAnswer() {
+    TableAnswerElement table =
+        new TableAnswerElement(
+            new TableMetadata(ImmutableList.of(new ColumnMetadata(COLUMN, Schema.STRING, "desc"))));
+    table.addRow(ROW_A1);
+    table.addRow(ROW_B1);
+    table.addRow(ROW_A2);
+    table.addRow(ROW_A3);
+    Answer answer = new Answer();
+    answer.addAnswerElement(table);
+    answer.setStatus(AnswerStatus.SUCCESS);
+    return answer;
+  }
+
+  private static AnswerRowsOptions options(int maxRows, int rowOffset, boolean sort) {
+    return new AnswerRowsOptions(
+        ImmutableSet.of(),
+        ImmutableList.of(new ColumnFilter(COLUMN, "a")),
+        maxRows,
+        rowOffset,
+        sort ? ImmutableList.of(new ColumnSortOption(COLUMN, true)) : ImmutableList.of(),
+        false);
+  }
+
+  private static FilteredAnswer read(Answer answer, AnswerRowsOptions options) throws IOException {
+    try (JsonParser parser =
+        BatfishObjectMapper.mapper()
+            .getFactory()
+            .createParser(BatfishObjectMapper.writeString(answer))) {
+      return AnswerRowsReader.read(parser, options);
+    }
+  }
+
+  @Test
+  public void testReadKeepsPage() throws IOException {
+    FilteredAnswer answer = read(tableAnswer(), options(1, 1, false));
+
+    assertThat(answer.getAnswer().getStatus(), equalTo(AnswerStatus.SUCCESS));
+    assertThat(answer.getAnswer().getAnswerElements(), equalTo(ImmutableList.of()));
+    FilteredRows rows = answer.getTable();
+    assertThat(rows, notNullValue());
+    assertThat(rows.getRows(), contains(ROW_A2));
+    assertThat(rows.getRowIds(), contains(2));
+    assertThat(rows.getNumResults(), equalTo(3));
+    assertThat(rows.getNumSkipped(), equalTo(1));
+  }
+
+  @Test
+  public void testReadKeepsAllMatchingRowsWhenSorting() throws IOException {
+    FilteredRows rows = read(tableAnswer(), options(1, 1, true)).getTable();
+
+    assertThat(rows, notNullValue());
+    assertThat(rows.getRows(), contains(ROW_A1, ROW_A2, ROW_A3));
+    assertThat(rows.getRowIds(), contains(0, 2, 3));
+    assertThat(rows.getNumResults(), equalTo(3));
+    assertThat(rows.getNumSkipped(), equalTo(0));
+  }
+
+  @Test
+  public void testReadOffsetPastEnd() throws IOException {
+    FilteredRows rows = read(tableAnswer(), options(1, 5, false)).getTable();
+
+    assertThat(rows, notNullValue());
+    assertThat(rows.getRows(), equalTo(ImmutableList.of()));
+    assertThat(rows.getNumResults(), equalTo(3));
+    assertThat(rows.getNumSkipped(), equalTo(3));
+  }
+
+  @Test
+  public void testReadNonTableAnswer() throws IOException {
+    Answer answer = Answer.failureAnswer("failed", null);
+    answer.addAnswerElement(new StringAnswerElement("more"));
+
+    FilteredAnswer filteredAnswer = read(answer, options(1, 0, false));
+
+    assertThat(filteredAnswer.getTable(), nullValue());
+    assertThat(filteredAnswer.getAnswer().getStatus(), equalTo(AnswerStatus.FAILURE));
+    assertThat(
+        BatfishObjectMapper.writeString(filteredAnswer.getAnswer()),
+        equalTo(BatfishObjectMapper.writeString(answer)));
+  }
+
+  @Test
+  public void testReadAnswerWithoutElements() throws IOException {
+    Answer answer = new Answer();
+    answer.setStatus(AnswerStatus.SUCCESS);
+
+    FilteredAnswer filteredAnswer = read(answer, options(1, 0, false));
+
+    assertThat(filteredAnswer.getTable(), nullValue());
+    assertThat(filteredAnswer.getAnswer().getAnswerElements(), equalTo(ImmutableList.of()));
+  }
+
+  @Test
+  public void testFilteredRowsOf() {
+    TableAnswerElement table = (TableAnswerElement) tableAnswer().getAnswerElements().get(0);
+
+    FilteredRows rows = FilteredRows.of(table, options(2, 1, false));
+
+    assertThat(rows.getRows(), contains(ROW_A2, ROW_A3));
+    assertThat(rows.getRowIds(), contains(2, 3));
+    assertThat(rows.getMetadata(), equalTo(table.getMetadata()));
+  }
+}
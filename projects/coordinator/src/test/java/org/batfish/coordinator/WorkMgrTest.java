@@ -40,6 +40,7 @@ import com.google.common.collect.Maps;
 import com.google.common.collect.Sets;
 import com.google.common.collect.Streams;
 import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
 import java.io.File;
 import java.io.FileNotFoundException;
 import java.io.IOException;
@@ -55,11 +56,15 @@ import java.util.Collections;
 import java.util.Comparator;
 import java.util.List;
 import java.util.Map;
+import java.util.Map.Entry;
 import java.util.Optional;
 import java.util.Set;
 import java.util.SortedSet;
 import java.util.TreeSet;
 import java.util.UUID;
+import java.util.stream.Stream;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
 import org.apache.commons.io.FileUtils;
 import org.apache.commons.io.IOUtils;
 import org.batfish.common.AnswerRowsOptions;
@@ -68,6 +73,7 @@ import org.batfish.common.BfConsts;
 import org.batfish.common.ColumnFilter;
 import org.batfish.common.ColumnSortOption;
 import org.batfish.common.Container;
+import org.batfish.common.NetworkSnapshot;
 import org.batfish.common.WorkItem;
 import org.batfish.common.runtime.RuntimeData;
 import org.batfish.common.runtime.SnapshotRuntimeData;
@@ -1234,6 +1240,27 @@ public final class WorkMgrTest {
     assertThat(readFileContents, equalTo(fileContentsNew));
   }
 
+  @Test
+  public void testForkSnapshotFileUploadInheritsBaseFiles() throws Exception {
+    String networkName = "network";
+    String snapshotBaseName = "snapshotBase";
+    String snapshotNewName = "snapshotNew";
+
+    _manager.initNetwork(networkName, null);
+    uploadTestSnapshot(networkName, snapshotBaseName, "base.cfg", "base");
+
+    // The zip only contains a new file, so the base file must come from the base snapshot
+    byte[] zipFile = createSnapshotZip(snapshotNewName, "new.cfg", "new");
+
+    _manager.forkSnapshot(
+        networkName,
+        new ForkSnapshotBean(
+            snapshotBaseName, snapshotNewName, null, null, null, null, null, null, zipFile));
+
+    assertThat(readSnapshotConfig(networkName, snapshotNewName, "base.cfg"), equalTo("base"));
+    assertThat(readSnapshotConfig(networkName, snapshotNewName, "new.cfg"), equalTo("new"));
+  }
+
   private byte[] createSnapshotZip(String snapshot, String fileName, String fileContents)
       throws IOException {
     Path zipPath = WorkMgrTestUtils.createSnapshotZip(snapshot, fileName, fileContents, _folder);
@@ -1306,6 +1333,64 @@ public final class WorkMgrTest {
     assertThat(ansString, equalTo(expectedAnswerString));
   }
 
+  @Test
+  public void testGetAnswerRows2() throws IOException {
+    String network = "network";
+    String snapshot = "snapshot";
+    String questionName = "question";
+    String columnName = "col";
+
+    TableAnswerElement table =
+        new TableAnswerElement(
+            new TableMetadata(
+                ImmutableList.of(new ColumnMetadata(columnName, Schema.STRING, "desc"))));
+    table.addRow(Row.of(columnName, "a1"));
+    table.addRow(Row.of(columnName, "b1"));
+    table.addRow(Row.of(columnName, "a2"));
+    Answer answer = new Answer();
+    answer.addAnswerElement(table);
+    answer.setStatus(AnswerStatus.SUCCESS);
+
+    _manager.initNetwork(network, null);
+    uploadTestSnapshot(network, snapshot);
+    setupQuestionAndAnswer(network, snapshot, questionName, null, answer);
+    AnswerRowsOptions options =
+        new AnswerRowsOptions(
+            ImmutableSet.of(),
+            ImmutableList.of(new ColumnFilter(columnName, "a")),
+            1,
+            1,
+            ImmutableList.of(),
+            false);
+    TableView tableView =
+        (TableView)
+            _manager
+                .getAnswerRows2(network, snapshot, questionName, null, null, options)
+                .getAnswerElements()
+                .get(0);
+
+    // the second matching row, identified by its index in the stored table
+    assertThat(tableView.getRows(), contains(new TableViewRow(2, Row.of(columnName, "a2"))));
+    assertThat(tableView.getSummary().getNumResults(), equalTo(2));
+  }
+
+  @Test
+  public void testGetAnswerRowsNotAnswered() throws IOException {
+    String network = "network";
+    String snapshot = "snapshot";
+    String questionName = "question";
+
+    _manager.initNetwork(network, null);
+    uploadTestSnapshot(network, snapshot);
+    setupQuestionAndAnswer(network, snapshot, questionName, null, null);
+
+    assertThat(
+        _manager
+            .getAnswerRows(network, snapshot, questionName, null, null, AnswerRowsOptions.NO_FILTER)
+            .getStatus(),
+        equalTo(AnswerStatus.NOTFOUND));
+  }
+
   @Test
   public void testGetAnswerAnalysisNotFound() throws IOException {
     String network = "network";
@@ -2961,6 +3046,87 @@ public final class WorkMgrTest {
     uploadTestSnapshot(network, snapshot);
   }
 
+  @Test
+  public void testUploadSnapshotTwoTopLevelFolders() throws IOException {
+    String network = "network1";
+    _manager.initNetwork(network, null);
+    byte[] zip =
+        zip(
+            ImmutableMap.of(
+                "snapshot/configs/c1.cfg", "c1",
+                "other/configs/c2.cfg", "c2"));
+
+    _thrown.expect(BatfishException.class);
+    _thrown.expectMessage(containsString("There should be just one top-level folder"));
+    _manager.uploadSnapshot(network, "snapshot1", new ByteArrayInputStream(zip), false);
+  }
+
+  @Test
+  public void testStoreSnapshotZip() throws IOException {
+    String network = "network1";
+    _manager.initNetwork(network, null);
+    NetworkSnapshot snapshot =
+        new NetworkSnapshot(_idManager.getNetworkId(network).get(), new SnapshotId("snapshot"));
+    Path unzipDir = _folder.newFolder().toPath();
+    byte[] zip =
+        zip(
+            ImmutableMap.of(
+                "snapshot/configs/c1.cfg",
+                "c1",
+                "/snapshot/hosts/h1.json",
+                "h1",
+                "snapshot/" + BfConsts.RELPATH_RUNTIME_DATA_FILE,
+                "{}",
+                "__MACOSX/snapshot/configs/._c1.cfg",
+                "ignored"));
+
+    Set<String> storedKeys =
+        _manager.storeSnapshotZip(new ByteArrayInputStream(zip), snapshot, unzipDir);
+
+    // files processed by initSnapshot are extracted, the others are stored directly
+    assertThat(storedKeys, containsInAnyOrder("configs/c1.cfg", "hosts/h1.json"));
+    try (InputStream inputStream =
+        _storage.loadSnapshotInputObject(
+            snapshot.getNetwork(), snapshot.getSnapshot(), "configs/c1.cfg")) {
+      assertThat(new String(IOUtils.toByteArray(inputStream), UTF_8), equalTo("c1"));
+    }
+    assertThat(
+        CommonUtil.readFile(
+            unzipDir.resolve("snapshot").resolve(BfConsts.RELPATH_RUNTIME_DATA_FILE)),
+        equalTo("{}"));
+    try (Stream<Path> entries = Files.list(unzipDir)) {
+      assertThat(
+          entries.collect(ImmutableList.toImmutableList()), contains(unzipDir.resolve("snapshot")));
+    }
+  }
+
+  @Test
+  public void testStoreSnapshotZipEntryOutside() throws IOException {
+    String network = "network1";
+    _manager.initNetwork(network, null);
+    NetworkSnapshot snapshot =
+        new NetworkSnapshot(_idManager.getNetworkId(network).get(), new SnapshotId("snapshot"));
+    byte[] zip = zip(ImmutableMap.of("snapshot/../../evil.cfg", "evil"));
+
+    _thrown.expect(IOException.class);
+    _thrown.expectMessage(containsString("outside of the extraction target directory"));
+    _manager.storeSnapshotZip(
+        new ByteArrayInputStream(zip), snapshot, _folder.newFolder().toPath());
+  }
+
+  /** Returns a zip with the given contents by entry name. */
+  private static byte[] zip(Map<String, String> entries) throws IOException {
+    ByteArrayOutputStream zip = new ByteArrayOutputStream();
+    try (ZipOutputStream zipOut = new ZipOutputStream(zip)) {
+      for (Entry<String, String> entry : entries.entrySet()) {
+        zipOut.putNextEntry(new ZipEntry(entry.getKey()));
+        zipOut.write(entry.getValue().getBytes(UTF_8));
+        zipOut.closeEntry();
+      }
+    }
+    return zip.toByteArray();
+  }
+
   private void uploadTestSnapshot(String network, String snapshot) throws IOException {
     WorkMgrTestUtils.uploadTestSnapshot(network, snapshot, _folder);
   }
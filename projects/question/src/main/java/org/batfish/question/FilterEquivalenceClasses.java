@@ -0,0 +1,428 @@
+package org.batfish.question;
+
+import static com.google.common.base.Preconditions.checkArgument;
+
+import com.google.common.base.MoreObjects;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.ImmutableSet;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.TreeSet;
+import java.util.function.Function;
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+import org.batfish.datamodel.AclAclLine;
+import org.batfish.datamodel.AclIpSpace;
+import org.batfish.datamodel.AclIpSpaceLine;
+import org.batfish.datamodel.AclLine;
+import org.batfish.datamodel.EmptyIpSpace;
+import org.batfish.datamodel.ExprAclLine;
+import org.batfish.datamodel.HeaderSpace;
+import org.batfish.datamodel.IpAccessList;
+import org.batfish.datamodel.IpIpSpace;
+import org.batfish.datamodel.IpSpace;
+import org.batfish.datamodel.IpSpaceReference;
+import org.batfish.datamodel.IpWildcardIpSpace;
+import org.batfish.datamodel.IpWildcardSetIpSpace;
+import org.batfish.datamodel.PrefixIpSpace;
+import org.batfish.datamodel.UniverseIpSpace;
+import org.batfish.datamodel.acl.AclLineMatchExpr;
+import org.batfish.datamodel.acl.AndMatchExpr;
+import org.batfish.datamodel.acl.DeniedByAcl;
+import org.batfish.datamodel.acl.FalseExpr;
+import org.batfish.datamodel.acl.GenericAclLineMatchExprVisitor;
+import org.batfish.datamodel.acl.GenericAclLineVisitor;
+import org.batfish.datamodel.acl.MatchHeaderSpace;
+import org.batfish.datamodel.acl.MatchSrcInterface;
+import org.batfish.datamodel.acl.NotMatchExpr;
+import org.batfish.datamodel.acl.OrMatchExpr;
+import org.batfish.datamodel.acl.OriginatingFromDevice;
+import org.batfish.datamodel.acl.PermittedByAcl;
+import org.batfish.datamodel.acl.TrueExpr;
+import org.batfish.datamodel.visitors.GenericIpSpaceVisitor;
+import org.batfish.question.filterlinereachability.AclEraser;
+
+/**
+ * Groups filters across the network into equivalence classes, so that filter questions can analyze
+ * one representative filter per class and fan the result back out to every member.
+ *
+ * <p>Two filters are considered equivalent under {@link #resolve(IpAccessList, Map, Map)} if they
+ * are identical after erasing trace elements and vendor structure ids and after resolving all
+ * references to other filters and named IP spaces in their respective configurations. Questions
+ * whose answers depend on additional per-node context (e.g., active sources) should combine the
+ * {@link ResolvedFilter} with that context in the key passed to {@link #partition(Iterable,
+ * Function)}.
+ */
+public final class FilterEquivalenceClasses {
+  private FilterEquivalenceClasses() {}
+
+  /** A filter on a specific node. */
+  public static final class NodeFilter implements Comparable<NodeFilter> {
+    private final @Nonnull String _hostname;
+    private final @Nonnull String _filterName;
+
+    public NodeFilter(String hostname, String filterName) {
+      _hostname = hostname;
+      _filterName = filterName;
+    }
+
+    public @Nonnull String getHostname() {
+      return _hostname;
+    }
+
+    public @Nonnull String getFilterName() {
+      return _filterName;
+    }
+
+    @Override
+    public int compareTo(NodeFilter o) {
+      int cmp = _hostname.compareTo(o._hostname);
+      return cmp != 0 ? cmp : _filterName.compareTo(o._filterName);
+    }
+
+    @Override
+    public boolean equals(Object o) {
+      if (this == o) {
+        return true;
+      } else if (!(o instanceof NodeFilter)) {
+        return false;
+      }
+      NodeFilter that = (NodeFilter) o;
+      return _hostname.equals(that._hostname) && _filterName.equals(that._filterName);
+    }
+
+    @Override
+    public int hashCode() {
+      return Objects.hash(_hostname, _filterName);
+    }
+
+    @Override
+    public String toString() {
+      return MoreObjects.toStringHelper(this)
+          .add("hostname", _hostname)
+          .add("filterName", _filterName)
+          .toString();
+    }
+  }
+
+  /** A nonempty class of equivalent filters. The representative is the first member found. */
+  public static final class FilterClass {
+    private final @Nonnull List<NodeFilter> _members;
+
+    private FilterClass(List<NodeFilter> members) {
+      checkArgument(!members.isEmpty(), "A filter class must have at least one member");
+      _members = ImmutableList.copyOf(members);
+    }
+
+    /** The member whose analysis result is shared by the whole class. */
+    public @Nonnull NodeFilter getRepresentative() {
+      return _members.get(0);
+    }
+
+    /** All members of the class, including the representative. */
+    public @Nonnull List<NodeFilter> getMembers() {
+      return _members;
+    }
+  }
+
+  /**
+   * Partitions {@code filters} into classes of filters with equal keys. Classes are returned in the
+   * order their representatives are encountered, and members keep their encounter order.
+   */
+  public static @Nonnull <K> List<FilterClass> partition(
+      Iterable<NodeFilter> filters, Function<? super NodeFilter, K> keyFunction) {
+    Map<K, List<NodeFilter>> classes = new LinkedHashMap<>();
+    for (NodeFilter filter : filters) {
+      classes.computeIfAbsent(keyFunction.apply(filter), k -> new ArrayList<>()).add(filter);
+    }
+    return classes.values().stream().map(FilterClass::new).collect(ImmutableList.toImmutableList());
+  }
+
+  /**
+   * A filter together with every filter and named IP space it (transitively) references, with trace
+   * elements and vendor structure ids erased. Equal {@link ResolvedFilter ResolvedFilters} match
+   * the same packets with the same lines.
+   */
+  public static final class ResolvedFilter {
+    private final @Nonnull List<AclLine> _lines;
+    private final @Nonnull Map<String, List<AclLine>> _referencedFilters;
+    private final @Nonnull Map<String, IpSpace> _referencedIpSpaces;
+    private final @Nonnull Set<String> _undefinedReferences;
+    private final int _hashCode;
+
+    private ResolvedFilter(
+        List<AclLine> lines,
+        Map<String, List<AclLine>> referencedFilters,
+        Map<String, IpSpace> referencedIpSpaces,
+        Set<String> undefinedReferences) {
+      _lines = ImmutableList.copyOf(lines);
+      _referencedFilters = ImmutableMap.copyOf(referencedFilters);
+      _referencedIpSpaces = ImmutableMap.copyOf(referencedIpSpaces);
+      _undefinedReferences = ImmutableSet.copyOf(undefinedReferences);
+      // cache hashCode, since resolved filters are used as hash keys for large numbers of filters.
+      _hashCode =
+          Objects.hash(_lines, _referencedFilters, _referencedIpSpaces, _undefinedReferences);
+    }
+
+    /** The erased lines of the filter itself. */
+    public @Nonnull List<AclLine> getLines() {
+      return _lines;
+    }
+
+    /** Erased lines of every filter referenced directly or transitively, keyed by name. */
+    public @Nonnull Map<String, List<AclLine>> getReferencedFilters() {
+      return _referencedFilters;
+    }
+
+    /** Every named IP space referenced directly or transitively, keyed by name. */
+    public @Nonnull Map<String, IpSpace> getReferencedIpSpaces() {
+      return _referencedIpSpaces;
+    }
+
+    /** Names of referenced filters and IP spaces that are not defined. */
+    public @Nonnull Set<String> getUndefinedReferences() {
+      return _undefinedReferences;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+      if (this == o) {
+        return true;
+      } else if (!(o instanceof ResolvedFilter)) {
+        return false;
+      }
+      ResolvedFilter that = (ResolvedFilter) o;
+      return _hashCode == that._hashCode
+          && _lines.equals(that._lines)
+          && _referencedFilters.equals(that._referencedFilters)
+          && _referencedIpSpaces.equals(that._referencedIpSpaces)
+          && _undefinedReferences.equals(that._undefinedReferences);
+    }
+
+    @Override
+    public int hashCode() {
+      return _hashCode;
+    }
+  }
+
+  /**
+   * Resolves {@code acl} against the filters and named IP spaces of its configuration.
+   *
+   * @param acl The filter to resolve
+   * @param namedAcls All filters defined in the configuration of {@code acl}
+   * @param namedIpSpaces All named IP spaces defined in the configuration of {@code acl}
+   */
+  public static @Nonnull ResolvedFilter resolve(
+      IpAccessList acl, Map<String, IpAccessList> namedAcls, Map<String, IpSpace> namedIpSpaces) {
+    ReferenceCollector collector = new ReferenceCollector(namedAcls, namedIpSpaces);
+    IpAccessList erased = AclEraser.erase(acl);
+    collector.visitLines(erased.getLines());
+    collector.drain();
+    return new ResolvedFilter(
+        erased.getLines(),
+        collector._referencedFilters,
+        collector._referencedIpSpaces,
+        collector._undefinedReferences);
+  }
+
+  /**
+   * Returns every named IP space referenced directly or transitively by {@code expr}, keyed by
+   * name. Useful to include a per-node header space constraint in a partition key.
+   */
+  public static @Nonnull Map<String, IpSpace> referencedIpSpaces(
+      AclLineMatchExpr expr, Map<String, IpSpace> namedIpSpaces) {
+    ReferenceCollector collector = new ReferenceCollector(ImmutableMap.of(), namedIpSpaces);
+    collector.visit(expr);
+    collector.drain();
+    return ImmutableMap.copyOf(collector._referencedIpSpaces);
+  }
+
+  /**
+   * Collects references of filters to other filters and named IP spaces. Referenced filters are
+   * processed iteratively through a worklist, so cyclic references terminate.
+   */
+  private static final class ReferenceCollector
+      implements GenericAclLineVisitor<Void>,
+          GenericAclLineMatchExprVisitor<Void>,
+          GenericIpSpaceVisitor<Void> {
+    private final @Nonnull Map<String, IpAccessList> _namedAcls;
+    private final @Nonnull Map<String, IpSpace> _namedIpSpaces;
+    private final @Nonnull Deque<String> _aclWorklist = new ArrayDeque<>();
+    private final @Nonnull Map<String, List<AclLine>> _referencedFilters = new TreeMap<>();
+    private final @Nonnull Map<String, IpSpace> _referencedIpSpaces = new TreeMap<>();
+    private final @Nonnull Set<String> _undefinedReferences = new TreeSet<>();
+
+    ReferenceCollector(Map<String, IpAccessList> namedAcls, Map<String, IpSpace> namedIpSpaces) {
+      _namedAcls = namedAcls;
+      _namedIpSpaces = namedIpSpaces;
+    }
+
+    void drain() {
+      while (!_aclWorklist.isEmpty()) {
+        String aclName = _aclWorklist.pop();
+        if (_referencedFilters.containsKey(aclName)) {
+          continue;
+        }
+        IpAccessList acl = _namedAcls.get(aclName);
+        if (acl == null) {
+          _undefinedReferences.add(aclName);
+          continue;
+        }
+        List<AclLine> lines = AclEraser.erase(acl).getLines();
+        _referencedFilters.put(aclName, lines);
+        visitLines(lines);
+      }
+    }
+
+    void visitLines(List<AclLine> lines) {
+      lines.forEach(this::visit);
+    }
+
+    private Void processAclReference(String aclName) {
+      _aclWorklist.push(aclName);
+      return null;
+    }
+
+    private void visitNullable(@Nullable IpSpace ipSpace) {
+      if (ipSpace != null) {
+        visit(ipSpace);
+      }
+    }
+
+    /* AclLine visit methods */
+
+    @Override
+    public Void visitAclAclLine(AclAclLine aclAclLine) {
+      return processAclReference(aclAclLine.getAclName());
+    }
+
+    @Override
+    public Void visitExprAclLine(ExprAclLine exprAclLine) {
+      return visit(exprAclLine.getMatchCondition());
+    }
+
+    /* AclLineMatchExpr visit methods */
+
+    @Override
+    public Void visitAndMatchExpr(AndMatchExpr andMatchExpr) {
+      andMatchExpr.getConjuncts().forEach(this::visit);
+      return null;
+    }
+
+    @Override
+    public Void visitDeniedByAcl(DeniedByAcl deniedByAcl) {
+      return processAclReference(deniedByAcl.getAclName());
+    }
+
+    @Override
+    public Void visitFalseExpr(FalseExpr falseExpr) {
+      return null;
+    }
+
+    @Override
+    public Void visitMatchHeaderSpace(MatchHeaderSpace matchHeaderSpace) {
+      HeaderSpace headerSpace = matchHeaderSpace.getHeaderspace();
+      visitNullable(headerSpace.getSrcIps());
+      visitNullable(headerSpace.getDstIps());
+      visitNullable(headerSpace.getNotSrcIps());
+      visitNullable(headerSpace.getNotDstIps());
+      visitNullable(headerSpace.getSrcOrDstIps());
+      return null;
+    }
+
+    @Override
+    public Void visitMatchSrcInterface(MatchSrcInterface matchSrcInterface) {
+      return null;
+    }
+
+    @Override
+    public Void visitNotMatchExpr(NotMatchExpr notMatchExpr) {
+      return visit(notMatchExpr.getOperand());
+    }
+
+    @Override
+    public Void visitOriginatingFromDevice(OriginatingFromDevice originatingFromDevice) {
+      return null;
+    }
+
+    @Override
+    public Void visitOrMatchExpr(OrMatchExpr orMatchExpr) {
+      orMatchExpr.getDisjuncts().forEach(this::visit);
+      return null;
+    }
+
+    @Override
+    public Void visitPermittedByAcl(PermittedByAcl permittedByAcl) {
+      return processAclReference(permittedByAcl.getAclName());
+    }
+
+    @Override
+    public Void visitTrueExpr(TrueExpr trueExpr) {
+      return null;
+    }
+
+    /* IpSpace visit methods */
+
+    @Override
+    public Void visitAclIpSpace(AclIpSpace aclIpSpace) {
+      for (AclIpSpaceLine line : aclIpSpace.getLines()) {
+        visitNullable(line.getIpSpace());
+      }
+      return null;
+    }
+
+    @Override
+    public Void visitEmptyIpSpace(EmptyIpSpace emptyIpSpace) {
+      return null;
+    }
+
+    @Override
+    public Void visitIpIpSpace(IpIpSpace ipIpSpace) {
+      return null;
+    }
+
+    @Override
+    public Void visitIpSpaceReference(IpSpaceReference ipSpaceReference) {
+      String name = ipSpaceReference.getName();
+      if (_referencedIpSpaces.containsKey(name) || _undefinedReferences.contains(name)) {
+        return null;
+      }
+      IpSpace ipSpace = _namedIpSpaces.get(name);
+      if (ipSpace == null) {
+        _undefinedReferences.add(name);
+        return null;
+      }
+      _referencedIpSpaces.put(name, ipSpace);
+      visitNullable(ipSpace);
+      return null;
+    }
+
+    @Override
+    public Void visitIpWildcardIpSpace(IpWildcardIpSpace ipWildcardIpSpace) {
+      return null;
+    }
+
+    @Override
+    public Void visitIpWildcardSetIpSpace(IpWildcardSetIpSpace ipWildcardSetIpSpace) {
+      return null;
+    }
+
+    @Override
+    public Void visitPrefixIpSpace(PrefixIpSpace prefixIpSpace) {
+      return null;
+    }
+
+    @Override
+    public Void visitUniverseIpSpace(UniverseIpSpace universeIpSpace) {
+      return null;
+    }
+  }
+}
@@ -8,8 +8,10 @@ import com.google.common.collect.ImmutableSet;
 import com.google.common.collect.Multimap;
 import com.google.common.collect.Sets;
 import java.util.Map;
+import java.util.Objects;
 import java.util.Optional;
 import java.util.Set;
+import javax.annotation.Nonnull;
 import net.sf.javabdd.BDD;
 import org.batfish.common.bdd.BDDFlowConstraintGenerator.FlowPreference;
 import org.batfish.common.bdd.BDDPacket;
@@ -49,6 +51,50 @@ public final class FilterQuestionUtils {
     return filters.build();
   }
 
+  /**
+   * The sources a {@link BDDSourceManager} for some node tracks: the active sources of interest and
+   * the sources referenced by the filters being analyzed. Nodes with equal {@link FilterSources}
+   * get equivalent {@link BDDSourceManager BDDSourceManagers}.
+   */
+  public static final class FilterSources {
+    private final @Nonnull Set<String> _activeSources;
+    private final @Nonnull Set<String> _referencedSources;
+
+    public FilterSources(Set<String> activeSources, Set<String> referencedSources) {
+      _activeSources = ImmutableSet.copyOf(activeSources);
+      _referencedSources = ImmutableSet.copyOf(referencedSources);
+    }
+
+    public @Nonnull Set<String> getActiveSources() {
+      return _activeSources;
+    }
+
+    public @Nonnull Set<String> getReferencedSources() {
+      return _referencedSources;
+    }
+
+    public @Nonnull BDDSourceManager toSourceManager(BDDPacket bddPacket) {
+      return BDDSourceManager.forSources(bddPacket, _activeSources, _referencedSources);
+    }
+
+    @Override
+    public boolean equals(Object o) {
+      if (this == o) {
+        return true;
+      } else if (!(o instanceof FilterSources)) {
+        return false;
+      }
+      FilterSources that = (FilterSources) o;
+      return _activeSources.equals(that._activeSources)
+          && _referencedSources.equals(that._referencedSources);
+    }
+
+    @Override
+    public int hashCode() {
+      return Objects.hash(_activeSources, _referencedSources);
+    }
+  }
+
   /**
    * Instantiate a {@link BDDSourceManager} that tracks sources that are active and referenced on
    * both the current and reference version of a node. Further scope references to the input ACLs,
@@ -62,6 +108,27 @@ public final class FilterQuestionUtils {
       Configuration refConfig,
       Set<String> aclNames,
       LocationSpecifier startLocationSpecifier) {
+    return differentialSources(
+            baseSpecifierContext,
+            refSpecifierContext,
+            baseConfig,
+            refConfig,
+            aclNames,
+            startLocationSpecifier)
+        .toSourceManager(bddPacket);
+  }
+
+  /**
+   * Compute the {@link FilterSources} tracked by {@link #differentialBDDSourceManager(BDDPacket,
+   * SpecifierContext, SpecifierContext, Configuration, Configuration, Set, LocationSpecifier)}.
+   */
+  public static FilterSources differentialSources(
+      SpecifierContext baseSpecifierContext,
+      SpecifierContext refSpecifierContext,
+      Configuration baseConfig,
+      Configuration refConfig,
+      Set<String> aclNames,
+      LocationSpecifier startLocationSpecifier) {
     String hostname = baseConfig.getHostname();
 
     // resolve specified source interfaces that exist in both configs.
@@ -84,7 +151,7 @@ public final class FilterQuestionUtils {
             referencedSources(baseConfig.getIpAccessLists(), aclNames),
             referencedSources(refConfig.getIpAccessLists(), aclNames));
 
-    return BDDSourceManager.forSources(bddPacket, activeSources, referencedSources);
+    return new FilterSources(activeSources, referencedSources);
   }
 
   /** Return a concrete flow satisfying the input {@link BDD}, if one exists. */
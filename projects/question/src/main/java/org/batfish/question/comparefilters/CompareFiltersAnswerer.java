@@ -2,12 +2,16 @@ package org.batfish.question.comparefilters;
 
 import static com.google.common.base.Preconditions.checkArgument;
 import static org.batfish.common.bdd.PermitAndDenyBdds.takeDifferentActions;
+import static org.batfish.question.FilterEquivalenceClasses.partition;
+import static org.batfish.question.FilterEquivalenceClasses.resolve;
 import static org.batfish.question.FilterQuestionUtils.differentialBDDSourceManager;
+import static org.batfish.question.FilterQuestionUtils.differentialSources;
 import static org.batfish.question.FilterQuestionUtils.getSpecifiedFilters;
 
 import com.google.common.annotations.VisibleForTesting;
 import com.google.common.collect.ImmutableList;
 import com.google.common.collect.ImmutableMultiset;
+import com.google.common.collect.Iterables;
 import com.google.common.collect.Multimap;
 import com.google.common.collect.Multimaps;
 import com.google.common.collect.Multiset;
@@ -38,6 +42,8 @@ import org.batfish.datamodel.table.ColumnMetadata;
 import org.batfish.datamodel.table.Row;
 import org.batfish.datamodel.table.TableAnswerElement;
 import org.batfish.datamodel.table.TableMetadata;
+import org.batfish.question.FilterEquivalenceClasses.FilterClass;
+import org.batfish.question.FilterEquivalenceClasses.NodeFilter;
 import org.batfish.specifier.LocationSpecifier;
 import org.batfish.specifier.SpecifierContext;
 
@@ -89,17 +95,31 @@ public class CompareFiltersAnswerer extends Answerer {
             currentFilters,
             entry -> referenceFilters.containsEntry(entry.getKey(), entry.getValue()));
 
+    // Compare one representative per class of equivalent filters, then fan the differences out to
+    // every member of the class.
+    List<FilterClass> filterClasses =
+        partition(
+            Iterables.transform(
+                commonFilters.entries(), entry -> new NodeFilter(entry.getKey(), entry.getValue())),
+            filter -> equivalenceKey(filter, currentContext, referenceContext));
+
     BDDPacket bddPacket = new BDDPacket();
     Multiset<Row> rows =
-        commonFilters.entries().stream()
+        filterClasses.stream()
             .flatMap(
-                entry ->
-                    compareFilter(
-                        entry.getKey(),
-                        entry.getValue(),
-                        bddPacket,
-                        currentContext,
-                        referenceContext))
+                filterClass -> {
+                  NodeFilter representative = filterClass.getRepresentative();
+                  List<FilterDifference> differences =
+                      compareFilter(
+                              representative.getHostname(),
+                              representative.getFilterName(),
+                              bddPacket,
+                              currentContext,
+                              referenceContext)
+                          .collect(ImmutableList.toImmutableList());
+                  return filterClass.getMembers().stream()
+                      .flatMap(member -> differences.stream().map(d -> forMember(d, member)));
+                })
             .map(filterDifference -> toRow(filterDifference, currentContext, referenceContext))
             .collect(ImmutableMultiset.toImmutableMultiset());
 
@@ -108,6 +128,39 @@ public class CompareFiltersAnswerer extends Answerer {
     return table;
   }
 
+  /**
+   * Returns a key such that filters with equal keys have the same {@link FilterDifference
+   * differences}, modulo hostname and filter name.
+   */
+  private static List<Object> equivalenceKey(
+      NodeFilter filter, SpecifierContext currentContext, SpecifierContext referenceContext) {
+    Configuration currentConfig = currentContext.getConfigs().get(filter.getHostname());
+    Configuration referenceConfig = referenceContext.getConfigs().get(filter.getHostname());
+    Map<String, IpAccessList> currentAcls = currentConfig.getIpAccessLists();
+    Map<String, IpAccessList> referenceAcls = referenceConfig.getIpAccessLists();
+    return ImmutableList.of(
+        resolve(currentAcls.get(filter.getFilterName()), currentAcls, currentConfig.getIpSpaces()),
+        resolve(
+            referenceAcls.get(filter.getFilterName()),
+            referenceAcls,
+            referenceConfig.getIpSpaces()),
+        differentialSources(
+            currentContext,
+            referenceContext,
+            currentConfig,
+            referenceConfig,
+            currentAcls.keySet(),
+            LocationSpecifier.ALL_LOCATIONS));
+  }
+
+  private static FilterDifference forMember(FilterDifference difference, NodeFilter member) {
+    return new FilterDifference(
+        member.getHostname(),
+        member.getFilterName(),
+        difference.getCurrentIndex(),
+        difference.getReferenceIndex());
+  }
+
   private static Row toRow(
       FilterDifference difference,
       SpecifierContext currentContext,
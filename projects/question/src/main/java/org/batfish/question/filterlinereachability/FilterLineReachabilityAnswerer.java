@@ -12,6 +12,7 @@ import com.google.common.base.Suppliers;
 import com.google.common.collect.ImmutableList;
 import com.google.common.collect.ImmutableSet;
 import java.util.ArrayList;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
@@ -358,7 +359,9 @@ public class FilterLineReachabilityAnswerer extends Answerer {
       SortedMap<String, Configuration> configurations,
       Map<String, Set<String>> specifiedAcls,
       FilterLineReachabilityRows answer) {
-    List<AclSpecs.Builder> aclSpecs = new ArrayList<>();
+    // Keyed by CanonicalAcl (which caches its hashCode) so that equivalent ACLs are found in
+    // constant time; insertion order keeps the output deterministic.
+    Map<CanonicalAcl, AclSpecs.Builder> aclSpecs = new LinkedHashMap<>();
 
     /*
      - For each ACL, build a CanonicalAcl structure with that ACL and referenced ACLs & interfaces
@@ -433,21 +436,13 @@ public class FilterLineReachabilityAnswerer extends Answerer {
                   node.getLinesInCycles());
 
           // If an identical ACL exists, add current hostname/aclName pair; otherwise, add new ACL
-          boolean added = false;
-          for (AclSpecs.Builder aclSpec : aclSpecs) {
-            if (aclSpec.getAcl().equals(currentAcl)) {
-              aclSpec.addSource(hostname, aclName);
-              added = true;
-              break;
-            }
-          }
-          if (!added) {
-            aclSpecs.add(AclSpecs.builder().setAcl(currentAcl).addSource(hostname, aclName));
-          }
+          aclSpecs
+              .computeIfAbsent(currentAcl, acl -> AclSpecs.builder().setAcl(acl))
+              .addSource(hostname, aclName);
         }
       }
     }
-    return aclSpecs.stream().map(AclSpecs.Builder::build).collect(Collectors.toList());
+    return aclSpecs.values().stream().map(AclSpecs.Builder::build).collect(Collectors.toList());
   }
 
   private static Stream<UnreachableFilterLine> computeUnreachableFilterLines(
@@ -1,7 +1,11 @@
 package org.batfish.question.searchfilters;
 
 import static org.batfish.datamodel.acl.SourcesReferencedByIpAccessLists.referencedSources;
+import static org.batfish.question.FilterEquivalenceClasses.partition;
+import static org.batfish.question.FilterEquivalenceClasses.referencedIpSpaces;
+import static org.batfish.question.FilterEquivalenceClasses.resolve;
 import static org.batfish.question.FilterQuestionUtils.differentialBDDSourceManager;
+import static org.batfish.question.FilterQuestionUtils.differentialSources;
 import static org.batfish.question.FilterQuestionUtils.resolveSources;
 import static org.batfish.question.testfilters.TestFiltersAnswerer.COLUMN_METADATA;
 import static org.batfish.question.testfilters.TestFiltersAnswerer.COL_FILTER_NAME;
@@ -9,12 +13,15 @@ import static org.batfish.question.testfilters.TestFiltersAnswerer.COL_NODE;
 
 import com.google.common.annotations.VisibleForTesting;
 import com.google.common.collect.HashMultiset;
+import com.google.common.collect.ImmutableList;
 import com.google.common.collect.ImmutableMap;
 import com.google.common.collect.Multiset;
 import com.google.common.collect.Sets;
 import com.google.common.collect.Sets.SetView;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
-import java.util.Map.Entry;
 import java.util.Optional;
 import java.util.Set;
 import java.util.function.Function;
@@ -42,7 +49,10 @@ import org.batfish.datamodel.table.Row;
 import org.batfish.datamodel.table.TableAnswerElement;
 import org.batfish.datamodel.table.TableDiff;
 import org.batfish.datamodel.table.TableMetadata;
+import org.batfish.question.FilterEquivalenceClasses.FilterClass;
+import org.batfish.question.FilterEquivalenceClasses.NodeFilter;
 import org.batfish.question.FilterQuestionUtils;
+import org.batfish.question.FilterQuestionUtils.FilterSources;
 import org.batfish.question.SearchFiltersParameters;
 import org.batfish.question.testfilters.TestFiltersAnswerer;
 import org.batfish.specifier.FilterSpecifier;
@@ -79,12 +89,12 @@ public final class SearchFiltersAnswerer extends Answerer {
 
     Map<String, Map<String, IpAccessList>> acls = getSpecifiedAcls(snapshot, question);
     Map<String, Map<String, IpAccessList>> refAcls = getSpecifiedAcls(reference, question);
-    Map<String, DiffConfigContext> configContexts =
-        getDiffConfigContexts(acls, refAcls, snapshot, reference, parameters);
+    Map<String, Configuration> baseConfigs = _batfish.loadConfigurations(snapshot);
+    Map<String, Configuration> refConfigs = _batfish.loadConfigurations(reference);
 
-    for (Entry<String, DiffConfigContext> e : configContexts.entrySet()) {
-      String hostname = e.getKey();
-      DiffConfigContext configContext = e.getValue();
+    // Collect filters present and queryable in both snapshots
+    List<NodeFilter> queryableFilters = new ArrayList<>();
+    for (String hostname : Sets.intersection(acls.keySet(), refAcls.keySet())) {
       Map<String, IpAccessList> aclsForNode = acls.get(hostname);
       Map<String, IpAccessList> refAclsForNode = refAcls.get(hostname);
 
@@ -109,21 +119,92 @@ public final class SearchFiltersAnswerer extends Answerer {
           }
           continue;
         }
-
-        // present in both snapshot
-        DifferentialSearchFiltersResult result = getDiffResult(acl, refAcl, configContext, query);
-
-        Stream.of(result.getDecreasedFlow(), result.getIncreasedFlow())
-            .filter(Optional::isPresent)
-            .map(Optional::get)
-            .forEach(
-                flow -> {
-                  baseTable.addRow(testFiltersRow(snapshot, hostname, aclName, flow));
-                  refTable.addRow(testFiltersRow(reference, hostname, aclName, flow));
-                });
+        queryableFilters.add(new NodeFilter(hostname, aclName));
       }
     }
 
+    // Analyze one representative per class of equivalent filters
+    SpecifierContext specifierContext = _batfish.specifierContext(snapshot);
+    SpecifierContext refSpecifierContext = _batfish.specifierContext(reference);
+    AclLineMatchExpr headerSpace = parameters.resolveHeaderspace(specifierContext);
+    Map<String, List<Object>> nodeKeys = new HashMap<>();
+    List<FilterClass> filterClasses =
+        partition(
+            queryableFilters,
+            filter -> {
+              String hostname = filter.getHostname();
+              Configuration c = baseConfigs.get(hostname);
+              Configuration refC = refConfigs.get(hostname);
+              List<Object> nodeKey =
+                  nodeKeys.computeIfAbsent(
+                      hostname,
+                      h ->
+                          ImmutableList.of(
+                              differentialSources(
+                                  specifierContext,
+                                  refSpecifierContext,
+                                  c,
+                                  refC,
+                                  Sets.intersection(acls.get(h).keySet(), refAcls.get(h).keySet()),
+                                  parameters.getStartLocationSpecifier()),
+                              referencedIpSpaces(headerSpace, c.getIpSpaces())));
+              return ImmutableList.of(
+                  resolve(
+                      c.getIpAccessLists().get(filter.getFilterName()),
+                      c.getIpAccessLists(),
+                      c.getIpSpaces()),
+                  resolve(
+                      refC.getIpAccessLists().get(filter.getFilterName()),
+                      refC.getIpAccessLists(),
+                      refC.getIpSpaces()),
+                  nodeKey);
+            });
+
+    BDDPacket pkt = new BDDPacket();
+    Map<String, DiffConfigContext> configContexts = new HashMap<>();
+    for (FilterClass filterClass : filterClasses) {
+      NodeFilter representative = filterClass.getRepresentative();
+      String hostname = representative.getHostname();
+      DiffConfigContext configContext =
+          configContexts.computeIfAbsent(
+              hostname,
+              h ->
+                  new DiffConfigContext(
+                      baseConfigs.get(h),
+                      refConfigs.get(h),
+                      Sets.intersection(acls.get(h).keySet(), refAcls.get(h).keySet()),
+                      snapshot,
+                      reference,
+                      _batfish,
+                      parameters,
+                      pkt));
+      String aclName = representative.getFilterName();
+
+      // present in both snapshot
+      DifferentialSearchFiltersResult result =
+          getDiffResult(
+              acls.get(hostname).get(aclName),
+              refAcls.get(hostname).get(aclName),
+              configContext,
+              query);
+
+      Stream.of(result.getDecreasedFlow(), result.getIncreasedFlow())
+          .filter(Optional::isPresent)
+          .map(Optional::get)
+          .forEach(
+              flow -> {
+                for (NodeFilter member : filterClass.getMembers()) {
+                  Flow memberFlow = forMember(flow, member);
+                  baseTable.addRow(
+                      testFiltersRow(
+                          snapshot, member.getHostname(), member.getFilterName(), memberFlow));
+                  refTable.addRow(
+                      testFiltersRow(
+                          reference, member.getHostname(), member.getFilterName(), memberFlow));
+                }
+              });
+    }
+
     // take care of nodes that are present in only one snapshot
     if (question.getIncludeOneTableKeys()) {
       addOneSnapshotNodes(Sets.difference(acls.keySet(), refAcls.keySet()), baseTable);
@@ -146,84 +227,91 @@ public final class SearchFiltersAnswerer extends Answerer {
     Multiset<Row> rows = HashMultiset.create();
 
     /*
-     * For each ACL, try to get a flow matching the query. If one exists, run traceFilter on that
-     * flow. Concatenate the answers for all flows into one big table.
+     * For each class of equivalent ACLs, try to get a flow matching the query. If one exists, run
+     * traceFilter on that flow for every ACL in the class. Concatenate the answers for all flows
+     * into one big table.
      */
     SearchFiltersParameters parameters = question.toSearchFiltersParameters();
     SearchFiltersQuery query = question.getQuery();
-    for (Entry<String, NonDiffConfigContext> e :
-        getConfigContexts(specifiedAcls, snapshot, parameters).entrySet()) {
-      String hostname = e.getKey();
-      NonDiffConfigContext configContext = e.getValue();
-      for (IpAccessList acl : specifiedAcls.get(hostname).values()) {
-        // Ensure that query is applicable to acl
-        if (!query.canQuery(acl)) {
-          continue;
-        }
-
-        // Generate representative flow for ACL, if one exists
-        Flow flow = configContext.getFlow(configContext.getReachBdd(acl, query));
-        if (flow == null) {
-          continue;
-        }
+    Map<String, Configuration> configs = _batfish.loadConfigurations(snapshot);
+    SpecifierContext specifierContext = _batfish.specifierContext(snapshot);
+    AclLineMatchExpr headerSpace = parameters.resolveHeaderspace(specifierContext);
+
+    // Ensure that query is applicable to each acl
+    List<NodeFilter> queryableFilters =
+        specifiedAcls.entrySet().stream()
+            .flatMap(
+                e ->
+                    e.getValue().values().stream()
+                        .filter(query::canQuery)
+                        .map(acl -> new NodeFilter(e.getKey(), acl.getName())))
+            .collect(ImmutableList.toImmutableList());
+
+    Map<String, List<Object>> nodeKeys = new HashMap<>();
+    List<FilterClass> filterClasses =
+        partition(
+            queryableFilters,
+            filter -> {
+              Configuration c = configs.get(filter.getHostname());
+              List<Object> nodeKey =
+                  nodeKeys.computeIfAbsent(
+                      filter.getHostname(),
+                      h ->
+                          ImmutableList.of(
+                              new FilterSources(
+                                  getActiveSources(c, specifierContext, parameters),
+                                  referencedSources(
+                                      c.getIpAccessLists(), specifiedAcls.get(h).keySet())),
+                              referencedIpSpaces(headerSpace, c.getIpSpaces())));
+              return ImmutableList.of(
+                  resolve(
+                      c.getIpAccessLists().get(filter.getFilterName()),
+                      c.getIpAccessLists(),
+                      c.getIpSpaces()),
+                  nodeKey);
+            });
 
-        // Add result to table
-        rows.add(testFiltersRow(snapshot, hostname, acl.getName(), flow));
+    BDDPacket pkt = new BDDPacket();
+    Map<String, NonDiffConfigContext> configContexts = new HashMap<>();
+    for (FilterClass filterClass : filterClasses) {
+      NodeFilter representative = filterClass.getRepresentative();
+      NonDiffConfigContext configContext =
+          configContexts.computeIfAbsent(
+              representative.getHostname(),
+              h ->
+                  new NonDiffConfigContext(
+                      configs.get(h),
+                      specifiedAcls.get(h).keySet(),
+                      snapshot,
+                      _batfish,
+                      parameters,
+                      pkt));
+      IpAccessList acl =
+          specifiedAcls.get(representative.getHostname()).get(representative.getFilterName());
+
+      // Generate representative flow for ACL, if one exists
+      Flow flow = configContext.getFlow(configContext.getReachBdd(acl, query));
+      if (flow == null) {
+        continue;
       }
 
-      _tableAnswerElement = new TableAnswerElement(new TableMetadata(COLUMN_METADATA));
-      _tableAnswerElement.postProcessAnswer(question, rows);
+      // Add result to table
+      for (NodeFilter member : filterClass.getMembers()) {
+        rows.add(
+            testFiltersRow(
+                snapshot, member.getHostname(), member.getFilterName(), forMember(flow, member)));
+      }
     }
-  }
 
-  /**
-   * Given all specified ACLs on all configs of the given snapshot, returns a {@link
-   * NonDiffConfigContext} for each config.
-   */
-  private Map<String, NonDiffConfigContext> getConfigContexts(
-      Map<String, Map<String, IpAccessList>> specifiedAcls,
-      NetworkSnapshot snapshot,
-      SearchFiltersParameters parameters) {
-    Map<String, Configuration> configs = _batfish.loadConfigurations(snapshot);
-    BDDPacket pkt = new BDDPacket();
-    return specifiedAcls.entrySet().stream()
-        .collect(
-            ImmutableMap.toImmutableMap(
-                Entry::getKey,
-                e -> {
-                  Configuration c = configs.get(e.getKey());
-                  Set<String> aclNames = e.getValue().keySet();
-                  return new NonDiffConfigContext(c, aclNames, snapshot, _batfish, parameters, pkt);
-                }));
+    _tableAnswerElement = new TableAnswerElement(new TableMetadata(COLUMN_METADATA));
+    _tableAnswerElement.postProcessAnswer(question, rows);
   }
 
-  /**
-   * Given all specified ACLs in two snapshots, returns a {@link DiffConfigContext} for each config
-   * in common between the two snapshots.
-   */
-  private Map<String, DiffConfigContext> getDiffConfigContexts(
-      Map<String, Map<String, IpAccessList>> baseAcls,
-      Map<String, Map<String, IpAccessList>> refAcls,
-      NetworkSnapshot snapshot,
-      NetworkSnapshot reference,
-      SearchFiltersParameters parameters) {
-    Map<String, Configuration> baseConfigs = _batfish.loadConfigurations(snapshot);
-    Map<String, Configuration> refConfigs = _batfish.loadConfigurations(reference);
-    BDDPacket pkt = new BDDPacket();
-
-    Set<String> commonNodes = Sets.intersection(baseAcls.keySet(), refAcls.keySet());
-    ImmutableMap.Builder<String, DiffConfigContext> configContexts = ImmutableMap.builder();
-    for (String hostname : commonNodes) {
-      Configuration c = baseConfigs.get(hostname);
-      Configuration refC = refConfigs.get(hostname);
-      Set<String> commonAcls =
-          Sets.intersection(baseAcls.get(hostname).keySet(), refAcls.get(hostname).keySet());
-      configContexts.put(
-          hostname,
-          new DiffConfigContext(
-              c, refC, commonAcls, snapshot, reference, _batfish, parameters, pkt));
-    }
-    return configContexts.build();
+  /** Returns {@code flow}, originating at the node of the given member of its filter class. */
+  private static Flow forMember(Flow flow, NodeFilter member) {
+    return flow.getIngressNode().equals(member.getHostname())
+        ? flow
+        : flow.toBuilder().setIngressNode(member.getHostname()).build();
   }
 
   /**
@@ -0,0 +1,115 @@
+package org.batfish.question;
+
+import static org.batfish.datamodel.acl.AclLineMatchExprs.matchDst;
+import static org.batfish.datamodel.acl.AclLineMatchExprs.permittedByAcl;
+import static org.batfish.question.FilterEquivalenceClasses.partition;
+import static org.batfish.question.FilterEquivalenceClasses.referencedIpSpaces;
+import static org.batfish.question.FilterEquivalenceClasses.resolve;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.contains;
+import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.hasSize;
+import static org.hamcrest.Matchers.not;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
+import java.util.List;
+import java.util.Map;
+import org.batfish.datamodel.ExprAclLine;
+import org.batfish.datamodel.IpAccessList;
+import org.batfish.datamodel.IpSpace;
+import org.batfish.datamodel.IpSpaceReference;
+import org.batfish.datamodel.Prefix;
+import org.batfish.datamodel.TraceElement;
+import org.batfish.question.FilterEquivalenceClasses.FilterClass;
+import org.batfish.question.FilterEquivalenceClasses.NodeFilter;
+import org.batfish.question.FilterEquivalenceClasses.ResolvedFilter;
+import org.junit.Test;
+
+/** Tests of {@link FilterEquivalenceClasses}. */
+public class FilterEquivalenceClassesTest {
+  private static IpAccessList acl(String name, ExprAclLine... lines) {
+    return IpAccessList.builder().setName(name).setLines(lines).build();
+  }
+
+  @Test
+  public void testPartition() {
+    NodeFilter a1 = new NodeFilter("a", "acl1");
+    NodeFilter a2 = new NodeFilter("a", "acl2");
+    NodeFilter b1 = new NodeFilter("b", "acl1");
+    Map<NodeFilter, Integer> keys = ImmutableMap.of(a1, 1, a2, 2, b1, 1);
+
+    List<FilterClass> classes = partition(ImmutableList.of(a1, a2, b1), keys::get);
+
+    assertThat(classes, hasSize(2));
+    assertThat(classes.get(0).getRepresentative(), equalTo(a1));
+    assertThat(classes.get(0).getMembers(), contains(a1, b1));
+    assertThat(classes.get(1).getMembers(), contains(a2));
+  }
+
+  @Test
+  public void testResolveErasesTraceElements() {
+    IpAccessList acl1 =
+        acl(
+            "acl",
+            ExprAclLine.accepting(
+                TraceElement.of("device1 line"), matchDst(Prefix.parse("1.0.0.0/8"))));
+    IpAccessList acl2 =
+        acl(
+            "acl",
+            ExprAclLine.accepting(
+                TraceElement.of("device2 line"), matchDst(Prefix.parse("1.0.0.0/8"))));
+
+    assertThat(
+        resolve(acl1, ImmutableMap.of("acl", acl1), ImmutableMap.of()),
+        equalTo(resolve(acl2, ImmutableMap.of("acl", acl2), ImmutableMap.of())));
+  }
+
+  @Test
+  public void testResolveReferencedFilters() {
+    IpAccessList acl = acl("acl", ExprAclLine.accepting(permittedByAcl("inner")));
+    IpAccessList inner1 = acl("inner", ExprAclLine.accepting(matchDst(Prefix.parse("1.0.0.0/8"))));
+    IpAccessList inner2 = acl("inner", ExprAclLine.accepting(matchDst(Prefix.parse("2.0.0.0/8"))));
+
+    ResolvedFilter resolved1 =
+        resolve(acl, ImmutableMap.of("acl", acl, "inner", inner1), ImmutableMap.of());
+    ResolvedFilter resolved2 =
+        resolve(acl, ImmutableMap.of("acl", acl, "inner", inner2), ImmutableMap.of());
+    ResolvedFilter undefined = resolve(acl, ImmutableMap.of("acl", acl), ImmutableMap.of());
+
+    assertThat(resolved1.getReferencedFilters().keySet(), contains("inner"));
+    assertThat(resolved1, not(equalTo(resolved2)));
+    assertThat(undefined.getUndefinedReferences(), contains("inner"));
+  }
+
+  @Test
+  public void testResolveCyclicReferences() {
+    IpAccessList acl1 = acl("acl1", ExprAclLine.accepting(permittedByAcl("acl2")));
+    IpAccessList acl2 = acl("acl2", ExprAclLine.accepting(permittedByAcl("acl1")));
+
+    ResolvedFilter resolved =
+        resolve(acl1, ImmutableMap.of("acl1", acl1, "acl2", acl2), ImmutableMap.of());
+
+    assertThat(resolved.getReferencedFilters().keySet(), contains("acl1", "acl2"));
+  }
+
+  @Test
+  public void testResolveReferencedIpSpaces() {
+    IpAccessList acl = acl("acl", ExprAclLine.accepting(matchDst(new IpSpaceReference("outer"))));
+    Map<String, IpSpace> ipSpaces1 =
+        ImmutableMap.of(
+            "outer", new IpSpaceReference("inner"), "inner", Prefix.parse("1.0.0.0/8").toIpSpace());
+    Map<String, IpSpace> ipSpaces2 =
+        ImmutableMap.of(
+            "outer", new IpSpaceReference("inner"), "inner", Prefix.parse("2.0.0.0/8").toIpSpace());
+
+    ResolvedFilter resolved1 = resolve(acl, ImmutableMap.of("acl", acl), ipSpaces1);
+    ResolvedFilter resolved2 = resolve(acl, ImmutableMap.of("acl", acl), ipSpaces2);
+
+    assertThat(resolved1.getReferencedIpSpaces(), equalTo(ipSpaces1));
+    assertThat(resolved1, not(equalTo(resolved2)));
+    assertThat(
+        referencedIpSpaces(matchDst(new IpSpaceReference("inner")), ipSpaces1).keySet(),
+        contains("inner"));
+  }
+}